@@ -0,0 +1,172 @@
+package org.example.bench;
+
+import org.example.Configuration;
+import org.example.InventoryAccounting;
+import org.example.PoolEngineType;
+import org.example.Reservation;
+import org.example.Ticket;
+import org.example.TicketPool;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Stress test of the per-pool ticket accounting. Runs rounds until the requested number of operations is reached
+ * and exits with status 1 on the first violation.
+ * - counter: threads claim random groups from an InventoryAccounting, now and then giving part of a claim back,
+ *   until it reports sold out. Every round must hand out exactly the total, and stay sold out afterwards.
+ * - pool: vendors release and customers buy real tickets through a TicketPool, cycling through the engines, with
+ *   some purchases going through holds that are released or left to expire. Every ticket ID must be sold exactly once.
+ *
+ * Usage: java -cp target/benchmarks.jar org.example.bench.AccountingStressTest [counter|pool] [operations] [threads]
+ */
+public class AccountingStressTest {
+    private static final int COUNTER_TOTAL = 10_000_000; // permits per counter round
+    private static final int POOL_TOTAL = 200_000; // tickets per pool round
+
+    public static void main(String[] args) throws InterruptedException {
+        String mode = args.length > 0 ? args[0] : "counter";
+        long operations = args.length > 1 ? Long.parseLong(args[1]) : 1_000_000_000L;
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors() * 2;
+
+        long done = 0;
+        long start = System.nanoTime();
+        for (int round = 0; done < operations; round++) {
+            long ops = mode.equals("pool")
+                    ? poolRound(PoolEngineType.values()[round % PoolEngineType.values().length], threads, round)
+                    : counterRound(threads, round);
+            done += ops;
+            double seconds = (System.nanoTime() - start) / 1e9;
+            System.out.printf("round %d: %,d operations in total, %,.0f ops/s%n", round, done, done / seconds);
+        }
+        System.out.println("OK: no ticket oversold, lost or sold twice in " + String.format("%,d", done) + " operations");
+    }
+
+    /**
+     * @return The number of claim and give-back operations performed.
+     */
+    private static long counterRound(int threads, long seed) throws InterruptedException {
+        InventoryAccounting accounting = new InventoryAccounting(COUNTER_TOTAL, threads);
+        LongAdder net = new LongAdder(); // permits claimed minus permits given back
+        LongAdder ops = new LongAdder();
+        List<Thread> workers = new ArrayList<>();
+        SplittableRandom seeds = new SplittableRandom(seed);
+        for (int t = 0; t < threads; t++) {
+            SplittableRandom random = seeds.split();
+            workers.add(Thread.ofPlatform().start(() -> {
+                long claimed = 0;
+                long count = 0;
+                while (true) { // every thread ends with a claim that found the counter sold out after its own give-backs
+                    int n = accounting.claimSales(1 + random.nextInt(4));
+                    count++;
+                    if (n == 0) {
+                        break;
+                    }
+                    claimed += n;
+                    if (random.nextInt(64) == 0) { // an abandoned purchase gives part of its claim back
+                        int back = 1 + random.nextInt(n);
+                        accounting.returnSales(back);
+                        claimed -= back;
+                        count++;
+                    }
+                }
+                net.add(claimed);
+                ops.add(count);
+            }));
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        check(net.sum() == COUNTER_TOTAL, "claimed " + net.sum() + " of " + COUNTER_TOTAL + " permits");
+        check(accounting.isSoldOut() && accounting.getSalesClaimed() == COUNTER_TOTAL, "not sold out after the round");
+        check(accounting.claimSales(1) == 0, "claim succeeded after sold out");
+        return ops.sum();
+    }
+
+    /**
+     * @return The number of tickets released plus the number sold.
+     */
+    private static long poolRound(PoolEngineType engine, int threads, long seed) throws InterruptedException {
+        Configuration config = new Configuration(0, 0, 256, POOL_TOTAL);
+        config.setPoolEngine(engine);
+        TicketPool pool = new TicketPool(config);
+        pool.setLogSampleRate(Integer.MAX_VALUE);
+        AtomicLongArray sold = new AtomicLongArray((POOL_TOTAL >> 6) + 1); // one bit per ticket ID
+        AtomicLong duplicates = new AtomicLong();
+
+        List<Thread> runners = new ArrayList<>();
+        for (int v = 0; v < Math.max(1, threads / 4); v++) {
+            runners.add(Thread.ofPlatform().start(() -> {
+                List<Ticket> batch;
+                while (!(batch = pool.createTickets(16)).isEmpty()) {
+                    int added = 0;
+                    while (added < batch.size()) {
+                        added += pool.addTickets(batch.subList(added, batch.size()));
+                    }
+                }
+            }));
+        }
+        SplittableRandom seeds = new SplittableRandom(seed);
+        for (int c = 0; c < threads; c++) {
+            SplittableRandom random = seeds.split();
+            String customerID = "C" + c;
+            runners.add(Thread.ofPlatform().start(() -> {
+                while (true) {
+                    int group = pool.claimTickets(customerID, 1 + random.nextInt(4));
+                    if (group == 0) {
+                        if (pool.getTicketsHeld() == 0 && pool.getAccounting().isSoldOut()) {
+                            return;
+                        }
+                        Thread.onSpinWait(); // held tickets may still come back
+                        continue;
+                    }
+                    List<Ticket> bought;
+                    if (random.nextInt(32) == 0) {
+                        Reservation reservation = pool.hold(customerID, group, 1, TimeUnit.MILLISECONDS);
+                        if (random.nextBoolean()) {
+                            reservation.release();
+                        }
+                        bought = reservation.confirm() ? reservation.getTickets() : List.of();
+                    } else {
+                        bought = new ArrayList<>(group);
+                        while (bought.size() < group) {
+                            bought.addAll(pool.removeTickets(customerID, group - bought.size()));
+                        }
+                    }
+                    for (Ticket ticket : bought) {
+                        int id = ticket.getTicketId();
+                        long bit = 1L << (id & 63);
+                        if ((sold.getAndUpdate(id >> 6, word -> word | bit) & bit) != 0) {
+                            duplicates.incrementAndGet();
+                        }
+                    }
+                }
+            }));
+        }
+        for (Thread runner : runners) {
+            runner.join();
+        }
+        long unique = 0;
+        for (int i = 0; i < sold.length(); i++) {
+            unique += Long.bitCount(sold.get(i));
+        }
+        check(duplicates.get() == 0, engine + ": " + duplicates.get() + " tickets sold twice");
+        check(unique == POOL_TOTAL, engine + ": sold " + unique + " distinct tickets of " + POOL_TOTAL);
+        check(pool.getAccounting().getTicketsSold() == POOL_TOTAL, engine + ": accounting counted "
+                + pool.getAccounting().getTicketsSold() + " sales");
+        check(pool.getTicketsSize() == 0 && pool.getTicketsHeld() == 0, engine + ": tickets left in the pool or held");
+        return 2L * POOL_TOTAL;
+    }
+
+    private static void check(boolean condition, String failure) {
+        if (!condition) {
+            System.err.println("FAILED: " + failure);
+            System.exit(1);
+        }
+    }
+}
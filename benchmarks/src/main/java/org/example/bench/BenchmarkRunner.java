@@ -0,0 +1,46 @@
+package org.example.bench;
+
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.results.format.ResultFormatFactory;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the selected benchmarks twice, once for throughput in ops/s and once for sampled latency
+ * in microseconds (which gives the p99), both with the GC profiler for allocation per operation.
+ * All results are written to a single JSON file so runs from different commits can be compared.
+ *
+ * Usage: java -cp target/benchmarks.jar org.example.bench.BenchmarkRunner [include regex] [result file]
+ */
+public class BenchmarkRunner {
+
+    public static void main(String[] args) throws RunnerException {
+        String include = args.length > 0 ? args[0] : TicketPoolBenchmark.class.getSimpleName();
+        String resultFile = args.length > 1 ? args[1] : "target/jmh-result.json";
+
+        List<RunResult> results = new ArrayList<>();
+        results.addAll(new Runner(options(include, Mode.Throughput, TimeUnit.SECONDS)).run());
+        results.addAll(new Runner(options(include, Mode.SampleTime, TimeUnit.MICROSECONDS)).run());
+
+        ResultFormatFactory.getInstance(ResultFormatType.JSON, resultFile).writeOut(results);
+        System.out.println("Results written to " + resultFile);
+    }
+
+    private static Options options(String include, Mode mode, TimeUnit unit) {
+        return new OptionsBuilder()
+                .include(include)
+                .mode(mode)
+                .timeUnit(unit)
+                .addProfiler(GCProfiler.class)
+                .build();
+    }
+}
@@ -0,0 +1,156 @@
+package org.example.bench;
+
+import org.example.Configuration;
+import org.example.EventConfiguration;
+import org.example.EventInventory;
+import org.example.PoolEngineType;
+import org.example.PoolServer;
+import org.example.RemoteTicketPool;
+import org.example.Ticket;
+import org.example.TicketPool;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Multi-process scaling test of the pool server. For 1, 2, 4, ... client processes it starts a fresh
+ * server process on loopback, then the client processes, each running customers that buy through one
+ * shared RemoteTicketPool for a fixed time, and prints the combined purchase throughput. Everything
+ * runs locally from the benchmark jar; no outside services are needed.
+ * The server process also runs the vendors, so the clients measure the customer path only.
+ *
+ * Usage: java -cp target/benchmarks.jar org.example.bench.ClusterScalingTest [maxProcesses] [seconds] [customersPerProcess] [engine]
+ */
+public class ClusterScalingTest {
+    private static final int CAPACITY = 4096; // pool capacity on the server
+    private static final int RELEASE_BATCH = 256; // tickets per vendor release on the server
+    private static final int VENDORS = 2; // vendor threads on the server
+    private static final int GROUP = 2; // tickets per purchase
+
+    public static void main(String[] args) throws Exception {
+        if (args.length > 0 && args[0].equals("server")) {
+            serve(PoolEngineType.valueOf(args[1]));
+            return;
+        }
+        if (args.length > 0 && args[0].equals("client")) {
+            buy(Integer.parseInt(args[1]), Integer.parseInt(args[2]), Integer.parseInt(args[3]));
+            return;
+        }
+        int maxProcesses = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        int customers = args.length > 2 ? Integer.parseInt(args[2]) : 8;
+        String engine = args.length > 3 ? args[3].toUpperCase() : PoolEngineType.LOCKING.name();
+
+        double baseline = 0;
+        for (int processes = 1; processes <= maxProcesses; processes *= 2) {
+            Process server = start("server", engine);
+            try {
+                BufferedReader serverOut = new BufferedReader(new InputStreamReader(server.getInputStream()));
+                String port = expect(serverOut, "PORT");
+                List<Process> clients = new ArrayList<>();
+                for (int i = 0; i < processes; i++) {
+                    clients.add(start("client", port, String.valueOf(seconds), String.valueOf(customers)));
+                }
+                long sold = 0;
+                for (Process client : clients) {
+                    sold += Long.parseLong(expect(new BufferedReader(new InputStreamReader(client.getInputStream())), "SOLD"));
+                    client.waitFor();
+                }
+                double rate = (double) sold / seconds;
+                if (baseline == 0) {
+                    baseline = rate;
+                }
+                System.out.printf("%d client process(es) x %d customers: %,d tickets sold, %,.0f tickets/s, %.2fx%n",
+                        processes, customers, sold, rate, rate / baseline);
+            } finally {
+                server.destroy();
+                server.waitFor();
+            }
+        }
+    }
+
+    /**
+     * Server process: one event with vendors releasing in batches, served on a free port printed as "PORT n".
+     */
+    private static void serve(PoolEngineType engine) throws IOException, InterruptedException {
+        Configuration config = new Configuration(0, 0, CAPACITY, Integer.MAX_VALUE);
+        config.setPoolEngine(engine);
+        EventInventory inventory = new EventInventory();
+        TicketPool pool = new TicketPool(config, config.getEvents().get(0));
+        pool.setLogSampleRate(Integer.MAX_VALUE);
+        inventory.addEvent(pool);
+        for (int v = 0; v < VENDORS; v++) {
+            Thread.ofPlatform().daemon().start(() -> {
+                List<Ticket> batch;
+                while (!(batch = pool.createTickets(RELEASE_BATCH)).isEmpty()) {
+                    int added = 0;
+                    while (added < batch.size()) {
+                        added += pool.addTickets(batch.subList(added, batch.size()));
+                    }
+                }
+            });
+        }
+        try (PoolServer server = new PoolServer(inventory, 0)) {
+            server.start();
+            System.out.println("PORT " + server.getPort());
+            System.out.flush();
+            server.join(); // until the coordinator destroys the process
+        }
+    }
+
+    /**
+     * Client process: customers buy through one shared connection until the time is up, then "SOLD n" is printed.
+     */
+    private static void buy(int port, int seconds, int customers) throws IOException, InterruptedException {
+        LongAdder sold = new LongAdder();
+        long deadline = System.nanoTime() + seconds * 1_000_000_000L;
+        try (RemoteTicketPool pool = new RemoteTicketPool("127.0.0.1", port, EventConfiguration.DEFAULT_EVENT_ID)) {
+            List<Thread> threads = new ArrayList<>();
+            for (int c = 0; c < customers; c++) {
+                String customerID = "C" + ProcessHandle.current().pid() + "-" + c;
+                threads.add(Thread.ofPlatform().start(() -> {
+                    while (System.nanoTime() < deadline) {
+                        List<Ticket> bought = pool.purchase(customerID, GROUP);
+                        if (bought.isEmpty()) {
+                            return;
+                        }
+                        sold.add(bought.size());
+                    }
+                }));
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+        }
+        System.out.println("SOLD " + sold.sum());
+    }
+
+    private static Process start(String... args) throws IOException {
+        List<String> command = new ArrayList<>();
+        command.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+        command.add("-Dlog4j.configurationFile=log4j2-bench.xml");
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(ClusterScalingTest.class.getName());
+        command.addAll(List.of(args));
+        return new ProcessBuilder(command).redirectError(ProcessBuilder.Redirect.INHERIT).start();
+    }
+
+    /**
+     * @return The value after the first line starting with the given key.
+     */
+    private static String expect(BufferedReader reader, String key) throws IOException {
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.startsWith(key + " ")) {
+                return line.substring(key.length() + 1).trim();
+            }
+        }
+        throw new IOException("Process ended without printing " + key);
+    }
+}
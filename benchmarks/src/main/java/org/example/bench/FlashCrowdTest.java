@@ -0,0 +1,64 @@
+package org.example.bench;
+
+import org.example.Configuration;
+import org.example.ExecutionMode;
+import org.example.HeadlessRunner;
+import org.example.LoadTestReport;
+import org.example.Workload;
+
+/**
+ * Load shedding under a flash crowd. One vendor releases a ticket every millisecond while customers on
+ * virtual threads each try to buy one every few milliseconds, so demand is a multiple of supply. Every
+ * multiple is run without admission control, where customers claim and wait on the pool, and with it,
+ * where at most maxWaiters purchases wait at once, each for at most the timeout, and each customer is
+ * rate limited. For each run the throughput, the purchase latency tail, the purchases shed and the most
+ * purchases waiting at once are printed; with admission control the tail stays near the timeout however
+ * large the crowd.
+ *
+ * Usage: java -cp target/benchmarks.jar org.example.bench.FlashCrowdTest [total] [maxWaiters] [timeoutMillis]
+ */
+public class FlashCrowdTest {
+    private static final long VENDOR_INTERVAL_MICROS = 1_000; // supply: 1,000 tickets per second
+    private static final long CUSTOMER_INTERVAL_MICROS = 10_000; // each customer tries 100 times per second
+    private static final int CUSTOMER_RATE_LIMIT = 200; // purchases per second a customer is admitted for, above its own pace
+
+    public static void main(String[] args) throws InterruptedException {
+        int total = args.length > 0 ? Integer.parseInt(args[0]) : 5_000;
+        int maxWaiters = args.length > 1 ? Integer.parseInt(args[1]) : 16;
+        int timeoutMillis = args.length > 2 ? Integer.parseInt(args[2]) : 100;
+
+        System.out.printf("%,d tickets, supply 1,000/s, admission: %d waiters, %d ms timeout, %d purchases/s per customer%n",
+                total, maxWaiters, timeoutMillis, CUSTOMER_RATE_LIMIT);
+        for (int demand : new int[]{1, 10, 100}) {
+            int customers = (int) (demand * CUSTOMER_INTERVAL_MICROS / VENDOR_INTERVAL_MICROS);
+            print(demand, "open", run(total, customers, 0, 0, 0));
+            print(demand, "admission", run(total, customers, maxWaiters, timeoutMillis, CUSTOMER_RATE_LIMIT));
+        }
+    }
+
+    private static LoadTestReport run(int total, int customers, int maxWaiters, int timeoutMillis, int rateLimit)
+            throws InterruptedException {
+        Configuration config = new Configuration(0, 0, 100, total);
+        config.setLogSampleRate(Integer.MAX_VALUE);
+        config.setExecutionMode(ExecutionMode.VIRTUAL);
+        config.setMaxWaiters(maxWaiters);
+        config.setPurchaseTimeout(timeoutMillis);
+        config.setCustomerRateLimit(rateLimit);
+        Workload workload = new Workload();
+        workload.setConfiguration(config);
+        workload.setVendors(1);
+        workload.setVendorIntervalMicros(VENDOR_INTERVAL_MICROS);
+        workload.setCustomers(customers);
+        workload.setCustomerIntervalMicros(CUSTOMER_INTERVAL_MICROS);
+        workload.setDurationSeconds(60);
+        return HeadlessRunner.run(workload);
+    }
+
+    private static void print(int demand, String mode, LoadTestReport report) {
+        System.out.printf("demand %3dx %-9s %6.0f tickets/s | latency p50 %8.1f ms, p99 %8.1f ms, max %8.1f ms"
+                        + " | shed %,10d, timed out %,6d, peak waiters %d%n",
+                demand, mode, report.getThroughput(), report.getLatencyP50Micros() / 1000,
+                report.getLatencyP99Micros() / 1000, report.getLatencyMaxMicros() / 1000,
+                report.getPurchasesShed(), report.getPurchasesTimedOut(), report.getPeakWaiters());
+    }
+}
@@ -0,0 +1,93 @@
+package org.example.bench;
+
+import org.example.Configuration;
+import org.example.PoolEngineType;
+import org.example.PoolMetrics;
+import org.example.Ticket;
+import org.example.TicketPool;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Control;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Flash-sale benchmark: one vendor trickles tickets into a small pool while sixteen customers wait for them.
+ * Compares the condition-based LOCKING engine, with and without a fair lock, against the WAITING_ROOM
+ * engine's direct hand-off. Run with BenchmarkRunner (or -bm sample) for customer tail latency; the
+ * wakeups per sale of every iteration are printed from the pool metrics at the end of the iteration.
+ */
+@State(Scope.Group)
+@Fork(value = 1, jvmArgsAppend = "-Dlog4j.configurationFile=log4j2-bench.xml")
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class FlashSaleBenchmark {
+
+    @Param({"1", "16"})
+    int capacity;
+
+    @Param({"LOCKING", "WAITING_ROOM"})
+    PoolEngineType engine;
+
+    @Param({"false", "true"})
+    boolean fair;
+
+    private static final long WAIT_MILLIS = 10; // how long a blocked thread waits before re-checking for the end of the iteration
+
+    private final Ticket ticket = new Ticket(1, "Benchmark Event", 100_000L);
+
+    private TicketPool pool;
+    private PoolMetrics metrics;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        Configuration config = new Configuration(0, 0, capacity, Integer.MAX_VALUE);
+        config.setPoolEngine(engine);
+        config.setFairLock(fair);
+        pool = new TicketPool(config);
+        metrics = pool.enableMetrics();
+    }
+
+    @TearDown(Level.Iteration)
+    public void printWakeups() {
+        long sold = metrics.getTicketsSold();
+        System.out.printf("%n%s fair=%s capacity=%d: %d sold, %.2f customer wakeups per sale, notEmpty wait p99 %d us%n",
+                engine, fair, capacity, sold, sold > 0 ? (double) metrics.getCustomerWakeups() / sold : 0.0,
+                TimeUnit.NANOSECONDS.toMicros(metrics.getNotEmptyWaitP99()));
+    }
+
+    @Benchmark
+    @Group("flashSale")
+    @GroupThreads(1)
+    public boolean release(Control control) {
+        while (!control.stopMeasurement) {
+            if (pool.tryAddTickets(ticket, WAIT_MILLIS, TimeUnit.MILLISECONDS)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Benchmark
+    @Group("flashSale")
+    @GroupThreads(16)
+    public Ticket buy(Control control) {
+        while (!control.stopMeasurement) {
+            Ticket removed = pool.tryRemoveTickets(WAIT_MILLIS, TimeUnit.MILLISECONDS);
+            if (removed != null) {
+                return removed;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,89 @@
+package org.example.bench;
+
+import org.example.PoolEngineType;
+import org.example.Ticket;
+import org.example.TicketPoolEngine;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Measures the retained heap per pooled ticket, the bytes allocated per ticket released and sold, and the
+ * GC time spent filling a large pool, for each engine. Tickets are released the way vendors release them,
+ * as ID ranges with putRange, and sold in groups with drainTo. The object engines retain one Ticket object
+ * plus a reference per pooled ticket, while the packed engine keeps only primitives and allocates the one
+ * Ticket a ticket costs when it is sold.
+ *
+ * Usage: java -Xmx4g -cp target/benchmarks.jar org.example.bench.InventoryFootprint [tickets]
+ */
+public class InventoryFootprint {
+    private static final int BATCH = 16; // tickets per release and per sale
+
+    public static void main(String[] args) throws InterruptedException {
+        int tickets = args.length > 0 ? Integer.parseInt(args[0]) : 5_000_000;
+        System.out.printf("%-12s %14s %14s %16s %16s %10s%n",
+                "engine", "retained MB", "bytes/ticket", "alloc B/release", "alloc B/sale", "gc ms");
+        for (PoolEngineType type : PoolEngineType.values()) {
+            measure(type, tickets);
+        }
+    }
+
+    private static void measure(PoolEngineType type, int tickets) throws InterruptedException {
+        long before = usedHeapAfterGc();
+        long gcBefore = gcMillis();
+
+        TicketPoolEngine engine = type.create(tickets);
+        release(engine, tickets);
+
+        long gcTime = gcMillis() - gcBefore;
+        long retained = usedHeapAfterGc() - before;
+        if (engine.size() != tickets) { // keeps the engine reachable until after the measurement
+            throw new IllegalStateException(type + " held " + engine.size() + " of " + tickets + " tickets");
+        }
+
+        List<Ticket> sold = new ArrayList<>(BATCH);
+        long allocBefore = allocatedBytes();
+        while (engine.drainTo(sold, BATCH) > 0) {
+            sold.clear();
+        }
+        long saleAlloc = allocatedBytes() - allocBefore;
+
+        allocBefore = allocatedBytes();
+        release(engine, tickets); // again, so storage that grows while the pool first fills is not counted
+        long releaseAlloc = allocatedBytes() - allocBefore;
+
+        System.out.printf("%-12s %14.1f %14.1f %16.1f %16.1f %10d%n", type, retained / 1048576.0, (double) retained / tickets,
+                (double) releaseAlloc / tickets, (double) saleAlloc / tickets, gcTime);
+    }
+
+    private static void release(TicketPoolEngine engine, int tickets) throws InterruptedException {
+        for (int id = 0; id < tickets; ) {
+            id += engine.putRange(id, Math.min(BATCH, tickets - id), "Simple Event", 100_000);
+        }
+    }
+
+    /**
+     * @return The bytes allocated by the calling thread so far.
+     */
+    private static long allocatedBytes() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean()).getCurrentThreadAllocatedBytes();
+    }
+
+    private static long usedHeapAfterGc() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static long gcMillis() {
+        long total = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            total += Math.max(0, gc.getCollectionTime());
+        }
+        return total;
+    }
+}
@@ -0,0 +1,79 @@
+package org.example.bench;
+
+import org.example.Configuration;
+import org.example.EventConfiguration;
+import org.example.PricingRules;
+import org.example.Ticket;
+import org.example.TicketPool;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of dynamic pricing on the release and sale path. Every operation releases a group of tickets
+ * and sells it again, so each ticket is priced twice. FLAT has no pricing rules; SECTIONS prices by
+ * seat section only; DYNAMIC adds surge tiers and time windows, which also read the sold counter and
+ * the clock on every sale. The event's total is far beyond what a run sells, so no surge tier is crossed
+ * and the figures show the cached price table path.
+ */
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgsAppend = "-Dlog4j.configurationFile=log4j2-bench.xml")
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Threads(4)
+public class PricingBenchmark {
+    private static final int GROUP = 4; // tickets per release and sale
+
+    @Param({"FLAT", "SECTIONS", "DYNAMIC"})
+    String pricing;
+
+    private TicketPool pool;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Configuration config = new Configuration(0, 0, 1024, Integer.MAX_VALUE);
+        config.setLogSampleRate(Integer.MAX_VALUE);
+        EventConfiguration event = config.getEvents().get(0);
+        if (!pricing.equals("FLAT")) {
+            List<PricingRules.Section> sections = List.of(
+                    new PricingRules.Section("Floor", 1_000_000, 250_000),
+                    new PricingRules.Section("Lower", 10_000_000, 150_000),
+                    new PricingRules.Section("Upper", 100_000_000, 90_000),
+                    new PricingRules.Section("Balcony", 1_000_000_000, 45_000));
+            if (pricing.equals("SECTIONS")) {
+                event.setPricing(new PricingRules(sections, null, null));
+            } else {
+                Instant now = Instant.now();
+                event.setPricing(new PricingRules(sections,
+                        List.of(new PricingRules.SurgeTier(50, 10), new PricingRules.SurgeTier(90, 30)),
+                        List.of(new PricingRules.TimeWindow("Early bird", null, now.minus(1, ChronoUnit.DAYS).toString(), -20),
+                                new PricingRules.TimeWindow("Last minute", now.plus(1, ChronoUnit.DAYS).toString(), null, 15))));
+            }
+        }
+        pool = new TicketPool(config, event);
+    }
+
+    @Benchmark
+    public List<Ticket> releaseAndSell() {
+        List<Ticket> tickets = pool.createTickets(GROUP);
+        pool.addTickets(tickets); // never blocks: every thread removes only after adding, and capacity exceeds the threads' groups
+        return pool.removeTickets(GROUP);
+    }
+}
@@ -0,0 +1,117 @@
+package org.example.bench;
+
+import org.example.Configuration;
+import org.example.SalesAnalytics;
+import org.example.Ticket;
+import org.example.TicketPool;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Cost of the sales analytics store. releaseAndSell releases a group of tickets as a vendor and buys it
+ * as a customer, with and without the store listening, so the difference is the recording cost per sale.
+ * revenueByCustomer groups the revenue of a store filled with a few million sales by customer, scanning
+ * the columns on the common fork-join pool; the view is taken anew every call, as an ad-hoc query would.
+ */
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgsAppend = {"-Dlog4j.configurationFile=log4j2-bench.xml", "-Xmx4g"})
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@BenchmarkMode(Mode.AverageTime)
+public class SalesAnalyticsBenchmark {
+    private static final int GROUP = 4; // tickets per release and sale
+
+    @Param({"false", "true"})
+    boolean analytics;
+
+    private TicketPool pool;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        pool = newPool();
+        if (analytics) {
+            pool.addListener(new SalesAnalytics());
+        }
+    }
+
+    private static TicketPool newPool() {
+        Configuration config = new Configuration(0, 0, 1024, Integer.MAX_VALUE);
+        config.setLogSampleRate(Integer.MAX_VALUE);
+        return new TicketPool(config);
+    }
+
+    @Benchmark
+    @Threads(4)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public List<Ticket> releaseAndSell(Buyer buyer) {
+        List<Ticket> tickets = pool.createTickets(buyer.vendorID, GROUP);
+        pool.addTickets(tickets); // never blocks: every thread removes only after adding, and capacity exceeds the threads' groups
+        pool.claimTickets(buyer.customerID, GROUP);
+        return pool.removeTickets(buyer.customerID, GROUP);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public Map<String, Long> revenueByCustomer(Filled filled) {
+        SalesAnalytics.SalesView view = filled.store.view();
+        return view.revenueByCustomer(row -> view.getPrice(row) > 0);
+    }
+
+    /**
+     * One vendor and customer ID per benchmark thread.
+     */
+    @State(Scope.Thread)
+    public static class Buyer {
+        private static final AtomicInteger threads = new AtomicInteger();
+
+        String vendorID;
+        String customerID;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            int thread = threads.incrementAndGet();
+            vendorID = "V" + thread;
+            customerID = "C" + thread;
+        }
+    }
+
+    /**
+     * A store filled once per trial with sales from 8 vendors to 10,000 customers.
+     */
+    @State(Scope.Benchmark)
+    public static class Filled {
+        @Param({"4000000"})
+        int sales;
+
+        SalesAnalytics store;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            TicketPool pool = newPool();
+            store = new SalesAnalytics();
+            pool.addListener(store);
+            for (int sold = 0; sold < sales; sold += GROUP) {
+                pool.addTickets(pool.createTickets("V" + (sold / GROUP) % 8, GROUP));
+                String customerID = "C" + (sold / GROUP) % 10_000;
+                pool.claimTickets(customerID, GROUP);
+                pool.removeTickets(customerID, GROUP);
+            }
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package org.example.bench;
+
+import org.example.Configuration;
+import org.example.JournalDurability;
+import org.example.SalesJournal;
+import org.example.Ticket;
+import org.example.TicketPool;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Sales per second with a SalesJournal attached to the pool, for each durability level.
+ * Every operation releases one ticket and sells one ticket, so each operation appends two journal
+ * records. Several threads run at once so PER_SALE shows how far group commit shares one fsync.
+ */
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgsAppend = "-Dlog4j.configurationFile=log4j2-bench.xml")
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(4)
+public class SalesJournalBenchmark {
+
+    @Param({"NONE", "BATCHED", "PER_SALE"})
+    JournalDurability durability;
+
+    private final Ticket ticket = new Ticket(1, "Benchmark Event", 100_000); // shared so the journal is the only I/O measured
+
+    private Path file;
+    private SalesJournal journal;
+    private TicketPool pool;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        file = Files.createTempFile("sales-journal", ".bin");
+        Files.delete(file); // the journal writes its header into a new file
+        journal = SalesJournal.open(file, durability, 10);
+        pool = new TicketPool(new Configuration(0, 0, 1024, Integer.MAX_VALUE));
+        pool.addListener(journal);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        journal.close();
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public Ticket releaseAndSell() {
+        pool.addTickets(ticket); // never blocks: every thread removes only after adding, and capacity exceeds the thread count
+        return pool.removeTickets();
+    }
+}
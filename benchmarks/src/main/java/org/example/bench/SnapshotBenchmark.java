@@ -0,0 +1,83 @@
+package org.example.bench;
+
+import org.example.Configuration;
+import org.example.PoolEngineType;
+import org.example.Ticket;
+import org.example.TicketPool;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pause that a live snapshot causes for sales. One thread captures the ticket IDs of a pool of ten million
+ * tickets over and over while another sells a group of tickets and releases it again, so the pool stays
+ * full. Run in sample mode: the capture figures are the time to copy the whole pool, and the tail of the
+ * sell figures is the longest a sale waited for the capture, which is one chunk copy rather than the
+ * whole pool.
+ */
+@State(Scope.Group)
+@Fork(value = 1, jvmArgsAppend = {"-Dlog4j.configurationFile=log4j2-bench.xml", "-Xmx4g"})
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SnapshotBenchmark {
+    private static final int GROUP = 4; // tickets per sale
+
+    @Param({"LOCKING", "PACKED"})
+    PoolEngineType engine;
+
+    @Param({"10000000"})
+    int tickets;
+
+    private TicketPool pool;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Configuration config = new Configuration(0, 0, tickets, Integer.MAX_VALUE);
+        config.setLogSampleRate(Integer.MAX_VALUE);
+        config.setPoolEngine(engine);
+        pool = new TicketPool(config);
+        List<Ticket> batch = new ArrayList<>();
+        for (int id = 1; id <= tickets; id++) {
+            batch.add(new Ticket(id, "Benchmark Event", 100_000L));
+            if (batch.size() == 100_000 || id == tickets) {
+                for (int added = 0; added < batch.size(); ) {
+                    added += pool.addTickets(batch.subList(added, batch.size()));
+                }
+                batch.clear();
+            }
+        }
+    }
+
+    @Benchmark
+    @Group("snapshotWhileSelling")
+    @GroupThreads(1)
+    public int[] capture() {
+        return pool.getTicketIds();
+    }
+
+    @Benchmark
+    @Group("snapshotWhileSelling")
+    @GroupThreads(1)
+    public List<Ticket> sell() {
+        List<Ticket> sold = pool.removeTickets(GROUP);
+        pool.addTickets(sold); // only this thread removes, so there is always space for the tickets it took
+        return sold;
+    }
+}
@@ -0,0 +1,123 @@
+package org.example.bench;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Startup time of the pool server. Each launch is a fresh JVM running "serve --exit-when-ready",
+ * which exits as soon as the pools are being served. Three ways of starting are compared:
+ * parsing configuration.json, loading a binary inventory snapshot, and loading the snapshot with an
+ * AppCDS archive recorded by a training run of the same classpath. For each, the time until the server
+ * prints that it is serving and the wall time of the whole launch are reported (median and best of all runs).
+ * Both are measured here rather than taken from the server's own report, whose process start time
+ * is only as precise as the operating system provides.
+ *
+ * Usage: java -cp target/benchmarks.jar org.example.bench.StartupBenchmark [runs] [events] [capacity]
+ */
+public class StartupBenchmark {
+    public static void main(String[] args) throws Exception {
+        int runs = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+        int events = args.length > 1 ? Integer.parseInt(args[1]) : 8;
+        int capacity = args.length > 2 ? Integer.parseInt(args[2]) : 10_000;
+
+        Path dir = Files.createTempDirectory("startup");
+        Path config = dir.resolve("configuration.json");
+        Path snapshot = dir.resolve("inventory.snap");
+        Path archive = dir.resolve("app.jsa");
+        Files.writeString(config, configuration(events, capacity));
+
+        run(List.of(), "snapshot", "--config", config.toString(), "--out", snapshot.toString());
+        run(List.of("-XX:ArchiveClassesAtExit=" + archive), "serve", "--snapshot", snapshot.toString(),
+                "--port", "0", "--exit-when-ready"); // training run recording the CDS archive
+
+        System.out.printf("%d event(s) x %,d tickets, %d runs each%n", events, capacity, runs);
+        measure("JSON configuration", runs, List.of(), "--config", config.toString());
+        measure("Binary snapshot", runs, List.of(), "--snapshot", snapshot.toString());
+        measure("Binary snapshot + AppCDS", runs, List.of("-XX:SharedArchiveFile=" + archive), "--snapshot", snapshot.toString());
+
+        for (Path file : List.of(config, snapshot, archive)) {
+            Files.deleteIfExists(file);
+        }
+        Files.deleteIfExists(dir);
+    }
+
+    /**
+     * Launches the server the given number of times and prints the median and best ready and wall times.
+     */
+    private static void measure(String name, int runs, List<String> jvmOptions, String... source) throws IOException, InterruptedException {
+        long[] wall = new long[runs];
+        long[] ready = new long[runs];
+        List<String> serve = new ArrayList<>(List.of("serve", "--port", "0", "--exit-when-ready"));
+        serve.addAll(List.of(source));
+        for (int i = 0; i < runs; i++) {
+            long[] readyAt = {-1};
+            long start = System.nanoTime();
+            run(jvmOptions, line -> {
+                if (readyAt[0] < 0 && line.startsWith("Serving events")) {
+                    readyAt[0] = System.nanoTime();
+                }
+            }, serve.toArray(new String[0]));
+            wall[i] = (System.nanoTime() - start) / 1_000_000;
+            if (readyAt[0] < 0) {
+                throw new IOException(name + ": the server never reported serving");
+            }
+            ready[i] = (readyAt[0] - start) / 1_000_000;
+        }
+        Arrays.sort(wall);
+        Arrays.sort(ready);
+        System.out.printf("%-26s ready median %4d ms, best %4d ms | wall median %4d ms, best %4d ms%n",
+                name, ready[runs / 2], ready[0], wall[runs / 2], wall[0]);
+    }
+
+    private static void run(List<String> jvmOptions, String... args) throws IOException, InterruptedException {
+        run(jvmOptions, line -> { }, args);
+    }
+
+    /**
+     * Runs org.example.Main in a new JVM with this benchmark's classpath, passing each output line to
+     * the consumer as soon as it is printed.
+     */
+    private static void run(List<String> jvmOptions, Consumer<String> lines, String... args) throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>();
+        command.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+        command.addAll(jvmOptions);
+        command.add("-Dlog4j.configurationFile=log4j2-bench.xml");
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add("org.example.Main");
+        command.addAll(List.of(args));
+        Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+        StringBuilder output = new StringBuilder();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lines.accept(line);
+                output.append(line).append('\n');
+            }
+        }
+        if (process.waitFor() != 0) {
+            throw new IOException("Launch failed: " + String.join(" ", args) + "\n" + output);
+        }
+    }
+
+    private static String configuration(int events, int capacity) {
+        StringBuilder json = new StringBuilder("{\"ticketReleaseRate\":1,\"customerRetrievalRate\":1,\"maxTicketCapacity\":")
+                .append(capacity).append(",\"totalTickets\":").append(capacity * 10).append(",\"events\":[");
+        for (int e = 0; e < events; e++) {
+            json.append(e == 0 ? "" : ",")
+                    .append("{\"eventId\":\"E").append(e + 1).append("\",\"eventName\":\"Event ").append(e + 1)
+                    .append("\",\"maxTicketCapacity\":").append(capacity)
+                    .append(",\"totalTickets\":").append(capacity * 10)
+                    .append(",\"ticketPrice\":").append(5000 + e * 100).append('}');
+        }
+        return json.append("]}").toString();
+    }
+}
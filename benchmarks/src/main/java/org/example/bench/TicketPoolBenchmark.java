@@ -0,0 +1,135 @@
+package org.example.bench;
+
+import org.example.Configuration;
+import org.example.PoolEngineType;
+import org.example.Ticket;
+import org.example.TicketPool;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Control;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Contention benchmark for TicketPool: vendors add and customers remove tickets with no sleeps.
+ * Each group is one producer/consumer ratio sharing its own pool. Adds and removes use the
+ * timed variants so that threads blocked on a full or empty pool notice the end of an iteration
+ * instead of waiting forever for a partner thread that has already stopped.
+ */
+@State(Scope.Group)
+@Fork(value = 1, jvmArgsAppend = "-Dlog4j.configurationFile=log4j2-bench.xml")
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class TicketPoolBenchmark {
+
+    @Param({"1", "1024", "1000000"})
+    int capacity;
+
+    @Param({"LOCKING", "RING_BUFFER", "SHARDED", "PACKED"})
+    PoolEngineType engine;
+
+    @Param({"false", "true"})
+    boolean fair;
+
+    private static final long WAIT_MILLIS = 10; // how long a blocked thread waits before re-checking for the end of the iteration
+
+    private final Ticket ticket = new Ticket(1, "Benchmark Event", new BigDecimal("1000")); // shared so the pool is the only allocator measured
+
+    private TicketPool pool;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        Configuration config = new Configuration(0, 0, capacity, Integer.MAX_VALUE);
+        config.setPoolEngine(engine);
+        config.setFairLock(fair);
+        pool = new TicketPool(config);
+        for (int i = 0; i < capacity / 2; i++) { // start half full so both sides can make progress immediately
+            pool.tryAddTickets(ticket, 0, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @Benchmark
+    @Group("oneVendorOneCustomer")
+    @GroupThreads(1)
+    public boolean balancedAdd(Control control) {
+        return add(control);
+    }
+
+    @Benchmark
+    @Group("oneVendorOneCustomer")
+    @GroupThreads(1)
+    public Ticket balancedRemove(Control control) {
+        return remove(control);
+    }
+
+    @Benchmark
+    @Group("fourVendorsOneCustomer")
+    @GroupThreads(4)
+    public boolean vendorHeavyAdd(Control control) {
+        return add(control);
+    }
+
+    @Benchmark
+    @Group("fourVendorsOneCustomer")
+    @GroupThreads(1)
+    public Ticket vendorHeavyRemove(Control control) {
+        return remove(control);
+    }
+
+    @Benchmark
+    @Group("oneVendorFourCustomers")
+    @GroupThreads(1)
+    public boolean customerHeavyAdd(Control control) {
+        return add(control);
+    }
+
+    @Benchmark
+    @Group("oneVendorFourCustomers")
+    @GroupThreads(4)
+    public Ticket customerHeavyRemove(Control control) {
+        return remove(control);
+    }
+
+    @Benchmark
+    @Group("fourVendorsFourCustomers")
+    @GroupThreads(4)
+    public boolean contendedAdd(Control control) {
+        return add(control);
+    }
+
+    @Benchmark
+    @Group("fourVendorsFourCustomers")
+    @GroupThreads(4)
+    public Ticket contendedRemove(Control control) {
+        return remove(control);
+    }
+
+    private boolean add(Control control) {
+        while (!control.stopMeasurement) {
+            if (pool.tryAddTickets(ticket, WAIT_MILLIS, TimeUnit.MILLISECONDS)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private Ticket remove(Control control) {
+        while (!control.stopMeasurement) {
+            Ticket removed = pool.tryRemoveTickets(WAIT_MILLIS, TimeUnit.MILLISECONDS);
+            if (removed != null) {
+                return removed;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,101 @@
+package org.example.bench;
+
+import org.example.Configuration;
+import org.example.PoolEngineType;
+import org.example.PoolMetrics;
+import org.example.Ticket;
+import org.example.TicketPool;
+import org.example.WaitStrategy;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Control;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency against CPU cost of the wait strategies: one vendor hands tickets through a small pool to one
+ * customer, so nearly every operation finds the pool full or empty and has to wait. Run with
+ * BenchmarkRunner (or -bm sample) for hand-off tail latency; the process CPU time per sale of every
+ * iteration is printed at the end of the iteration. The spinning strategies need a free core per waiting
+ * thread: on a machine with fewer cores than the group's threads BUSY_SPIN starves the thread it waits for.
+ */
+@State(Scope.Group)
+@Fork(value = 1, jvmArgsAppend = "-Dlog4j.configurationFile=log4j2-bench.xml")
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class WaitStrategyBenchmark {
+
+    @Param({"1", "16"})
+    int capacity;
+
+    @Param({"LOCKING", "RING_BUFFER"})
+    PoolEngineType engine;
+
+    @Param({"BLOCKING", "SPIN_YIELD_PARK", "BUSY_SPIN"})
+    WaitStrategy waitStrategy;
+
+    private static final long WAIT_MILLIS = 10; // how long a waiting thread waits before re-checking for the end of the iteration
+
+    private final Ticket ticket = new Ticket(1, "Benchmark Event", 100_000L);
+    private final com.sun.management.OperatingSystemMXBean os =
+            (com.sun.management.OperatingSystemMXBean) ManagementFactory.getOperatingSystemMXBean();
+
+    private TicketPool pool;
+    private PoolMetrics metrics;
+    private long cpuStart; //process CPU time at the start of the iteration, in nanoseconds
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        Configuration config = new Configuration(0, 0, capacity, Integer.MAX_VALUE);
+        config.setPoolEngine(engine);
+        config.setWaitStrategy(waitStrategy);
+        pool = new TicketPool(config);
+        metrics = pool.enableMetrics();
+        cpuStart = os.getProcessCpuTime();
+    }
+
+    @TearDown(Level.Iteration)
+    public void printCpu() {
+        long cpu = os.getProcessCpuTime() - cpuStart;
+        long sold = metrics.getTicketsSold();
+        System.out.printf("%n%s %s capacity=%d: %d sold, %.0f ns CPU per sale, notEmpty wait p99 %d us%n",
+                engine, waitStrategy, capacity, sold, sold > 0 ? (double) cpu / sold : 0.0,
+                TimeUnit.NANOSECONDS.toMicros(metrics.getNotEmptyWaitP99()));
+    }
+
+    @Benchmark
+    @Group("handOff")
+    @GroupThreads(1)
+    public boolean release(Control control) {
+        while (!control.stopMeasurement) {
+            if (pool.tryAddTickets(ticket, WAIT_MILLIS, TimeUnit.MILLISECONDS)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Benchmark
+    @Group("handOff")
+    @GroupThreads(1)
+    public Ticket buy(Control control) {
+        while (!control.stopMeasurement) {
+            Ticket removed = pool.tryRemoveTickets(WAIT_MILLIS, TimeUnit.MILLISECONDS);
+            if (removed != null) {
+                return removed;
+            }
+        }
+        return null;
+    }
+}
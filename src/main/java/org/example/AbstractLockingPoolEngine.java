@@ -0,0 +1,622 @@
+package org.example;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Base for pool engines guarded by a single ReentrantLock with notFull/notEmpty conditions.
+ * Subclasses only decide how tickets are stored; every storage method is called while holding the lock.
+ * With a spinning WaitStrategy a thread that finds the pool full or empty first releases the lock and
+ * spins on a volatile copy of the ticket count, and only awaits the condition once the strategy gives up.
+ */
+public abstract class AbstractLockingPoolEngine implements TicketPoolEngine {
+    protected volatile int capacity; //only changed while holding the lock
+
+    private final ReentrantLock lock;
+
+    private final Condition notEmpty; //holds the customer threads until tickets are added to the pool
+    private final Condition notFull; //holds the vendor threads until there is more space the pool
+
+    private final WaitStrategy waitStrategy; //how callers wait while the pool is full or empty
+    private volatile int available; //count() as of the last change, for threads spinning without the lock; only kept by spinning strategies
+
+    private volatile PoolMetrics metrics; //null unless metrics are enabled for the pool
+
+    private final ReentrantLock captureLock = new ReentrantLock(); //one capture of the contents at a time
+    private Capture capture; //contents being captured by snapshotIds, null if none; guarded by lock
+
+    private static final int CAPTURE_CHUNK = 1 << 16; //ticket IDs copied per lock hold while capturing the contents
+
+    private static final Logger logger = LogManager.getLogger(AbstractLockingPoolEngine.class);
+
+    /**
+     * @param capacity Maximum number of tickets the engine can hold.
+     * @param fair     Whether the lock grants access to the longest-waiting thread first.
+     */
+    protected AbstractLockingPoolEngine(int capacity, boolean fair) {
+        this(capacity, fair, WaitStrategy.BLOCKING);
+    }
+
+    /**
+     * @param capacity     Maximum number of tickets the engine can hold.
+     * @param fair         Whether the lock grants access to the longest-waiting thread first.
+     * @param waitStrategy How callers wait while the pool is full or empty.
+     */
+    protected AbstractLockingPoolEngine(int capacity, boolean fair, WaitStrategy waitStrategy) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Pool capacity must be positive: " + capacity);
+        }
+        this.capacity = capacity;
+        this.lock = new ReentrantLock(fair);
+        this.notEmpty = lock.newCondition();
+        this.notFull = lock.newCondition();
+        this.waitStrategy = waitStrategy;
+    }
+
+    @Override
+    public void put(Ticket ticket) throws InterruptedException {
+        acquireInterruptibly();
+        try {
+            awaitNotFull();
+            addLast(ticket);
+            changed();
+            notEmpty.signalAll(); // Notify waiting customers
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Ticket take() throws InterruptedException {
+        acquireInterruptibly();
+        try {
+            awaitNotEmpty();
+            Ticket ticket = removeFirst();
+            changed();
+            notFull.signalAll(); // Notify waiting vendors
+            return ticket;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean offer(Ticket ticket, long timeout, TimeUnit unit) throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+        acquireInterruptibly();
+        try {
+            if (!awaitNotFull(nanos)) {
+                return false;
+            }
+            addLast(ticket);
+            changed();
+            notEmpty.signalAll();
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Ticket poll(long timeout, TimeUnit unit) throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+        acquireInterruptibly();
+        try {
+            if (!awaitNotEmpty(nanos)) {
+                return null;
+            }
+            Ticket ticket = removeFirst();
+            changed();
+            notFull.signalAll();
+            return ticket;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Takes the lock once, adds as many tickets as fit and signals waiting customers once.
+     */
+    @Override
+    public int putAll(List<Ticket> batch, int from) throws InterruptedException {
+        acquireInterruptibly();
+        try {
+            awaitNotFull();
+            int added = Math.min(capacity - count(), batch.size() - from);
+            for (int i = 0; i < added; i++) {
+                addLast(batch.get(from + i));
+            }
+            changed();
+            notEmpty.signalAll(); // Notify waiting customers
+            return added;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Takes the lock once and adds as many tickets of the range as fit through addLast(ticketId, eventName, price).
+     */
+    @Override
+    public int putRange(int firstId, int n, String eventName, long price) throws InterruptedException {
+        acquireInterruptibly();
+        try {
+            awaitNotFull();
+            int added = Math.min(capacity - count(), n);
+            for (int i = 0; i < added; i++) {
+                addLast(firstId + i, eventName, price);
+            }
+            changed();
+            notEmpty.signalAll(); // Notify waiting customers
+            return added;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int offerAll(List<Ticket> batch, int from) {
+        acquire();
+        try {
+            int added = Math.max(0, Math.min(capacity - count(), batch.size() - from));
+            for (int i = 0; i < added; i++) {
+                addLast(batch.get(from + i));
+            }
+            if (added > 0) {
+                changed();
+                notEmpty.signalAll();
+            }
+            return added;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Takes the lock once, removes up to max tickets and signals waiting vendors once.
+     */
+    @Override
+    public int takeAll(Collection<? super Ticket> sink, int max) throws InterruptedException {
+        acquireInterruptibly();
+        try {
+            awaitNotEmpty();
+            int removed = removeOldest(sink, max);
+            changed();
+            notFull.signalAll(); // Notify waiting vendors
+            return removed;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int drainTo(Collection<? super Ticket> sink, int max) {
+        acquire();
+        try {
+            int removed = removeOldest(sink, max);
+            if (removed > 0) {
+                changed();
+                notFull.signalAll();
+            }
+            return removed;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean offer(Ticket ticket) {
+        acquire();
+        try {
+            if (count() >= capacity) {
+                return false;
+            }
+            addLast(ticket);
+            changed();
+            notEmpty.signalAll();
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Ticket poll() {
+        acquire();
+        try {
+            Ticket ticket = removeFirst();
+            if (ticket != null) {
+                changed();
+                notFull.signalAll();
+            }
+            return ticket;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int size() {
+        lock.lock();
+        try {
+            return count();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int capacity() {
+        return capacity;
+    }
+
+    @Override
+    public boolean resize(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Pool capacity must be positive: " + capacity);
+        }
+        lock.lock();
+        try {
+            int previous = this.capacity;
+            this.capacity = capacity;
+            if (capacity > previous) {
+                notFull.signalAll(); // Notify vendors waiting for space
+            }
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public List<Ticket> snapshot() {
+        lock.lock();
+        try {
+            return copy();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Captures the contents at one instant without holding the lock for the whole copy. The capture starts
+     * under the lock in constant time by fixing how many tickets it covers, then copies their IDs in chunks
+     * of CAPTURE_CHUNK, taking the lock once per chunk. Tickets are only ever removed from the front, so a
+     * covered ticket that is about to be sold before its chunk was copied is copied by the removal itself.
+     * Sales and releases go on between chunks and the pauses stay bounded by the chunk size.
+     */
+    @Override
+    public int[] snapshotIds() {
+        int[] ids = new int[Math.max(0, count())]; // sized without the lock; replaced if the pool grew meanwhile
+        captureLock.lock();
+        try {
+            Capture c;
+            lock.lock();
+            try {
+                int size = count();
+                c = new Capture(ids.length >= size ? ids : new int[size], size);
+                capture = c;
+            } finally {
+                lock.unlock();
+            }
+            try {
+                while (c.copied < c.size) {
+                    lock.lock();
+                    try {
+                        int n = Math.min(CAPTURE_CHUNK, c.size - c.copied);
+                        copyIds(c.copied - c.removed, c.ids, c.copied, n);
+                        c.copied += n;
+                    } finally {
+                        lock.unlock();
+                    }
+                }
+            } finally {
+                lock.lock();
+                capture = null;
+                lock.unlock();
+            }
+            return c.ids.length == c.size ? c.ids : Arrays.copyOf(c.ids, c.size);
+        } finally {
+            captureLock.unlock();
+        }
+    }
+
+    /**
+     * Copies the IDs of the next k tickets to leave, as far as a running capture covers them and has not
+     * copied them yet. Called holding the lock before every removal.
+     */
+    private void beforeRemove(int k) {
+        Capture c = capture;
+        if (c == null || k <= 0) {
+            return;
+        }
+        int end = Math.min(c.removed + k, c.size);
+        if (end > c.copied) {
+            copyIds(c.copied - c.removed, c.ids, c.copied, end - c.copied);
+            c.copied = end;
+        }
+        c.removed = end;
+    }
+
+    private Ticket removeFirst() {
+        if (count() > 0) {
+            beforeRemove(1);
+        }
+        return pollFirst();
+    }
+
+    private int removeOldest(Collection<? super Ticket> sink, int max) {
+        beforeRemove(Math.min(max, count()));
+        return removeUpTo(sink, max);
+    }
+
+    /**
+     * Tickets covered by a running capture: the oldest size tickets when it started. The i-th of them is
+     * stored at offset i - removed from the front until it is removed.
+     */
+    private static final class Capture {
+        private final int[] ids; //captured ticket IDs, oldest first
+        private final int size; //tickets covered
+        private int copied; //IDs copied so far, always at least removed
+        private int removed; //covered tickets removed since the start
+
+        private Capture(int[] ids, int size) {
+            this.ids = ids;
+            this.size = size;
+        }
+    }
+
+    @Override
+    public void clear() {
+        lock.lock();
+        try {
+            beforeRemove(count());
+            removeAll();
+            changed();
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void setMetrics(PoolMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    // Lock and wait helpers: with metrics enabled they time how long the lock and the conditions kept the caller waiting.
+    // Condition waits are only recorded when the caller actually had to wait.
+
+    private void acquireInterruptibly() throws InterruptedException {
+        PoolMetrics m = metrics;
+        if (m == null) {
+            lock.lockInterruptibly();
+            return;
+        }
+        long start = System.nanoTime();
+        lock.lockInterruptibly();
+        m.recordLockWait(System.nanoTime() - start);
+    }
+
+    private void acquire() {
+        PoolMetrics m = metrics;
+        if (m == null) {
+            lock.lock();
+            return;
+        }
+        long start = System.nanoTime();
+        lock.lock();
+        m.recordLockWait(System.nanoTime() - start);
+    }
+
+    /**
+     * Publishes the ticket count to spinning threads. Called holding the lock after every change.
+     */
+    private void changed() {
+        if (waitStrategy != WaitStrategy.BLOCKING) {
+            available = count();
+        }
+    }
+
+    /**
+     * Releases the lock while spinning, so the thread that ends the wait can get in. Called holding the lock;
+     * the lock is held again when this returns, also if it throws.
+     */
+    private void spinUnlocked(BooleanSupplier ready, boolean timed, long deadline) throws InterruptedException {
+        lock.unlock();
+        try {
+            waitStrategy.spin(ready, timed, deadline);
+        } finally {
+            lock.lock();
+        }
+    }
+
+    /**
+     * Waits while the pool is full. Called holding the lock.
+     * A spinning strategy spins first; SPIN_YIELD_PARK spins once per wait, BUSY_SPIN until there is space.
+     */
+    private void awaitNotFull() throws InterruptedException {
+        if (count() < capacity) {
+            return;
+        }
+        long start = System.nanoTime();
+        boolean spin = waitStrategy != WaitStrategy.BLOCKING;
+        do {
+            if (spin) {
+                spinUnlocked(() -> available < capacity, false, 0);
+                spin = waitStrategy == WaitStrategy.BUSY_SPIN;
+                continue;
+            }
+            logger.debug("Ticket pool full. Waiting for tickets to be sold...");
+            notFull.await(); // Wait until space is available
+        } while (count() >= capacity);
+        recordNotFullWait(start);
+    }
+
+    /**
+     * Waits while the pool is full, at most the given time. Called holding the lock.
+     *
+     * @return true if there is space, false if the time elapsed first.
+     */
+    private boolean awaitNotFull(long nanos) throws InterruptedException {
+        if (count() < capacity) {
+            return true;
+        }
+        long start = System.nanoTime();
+        long deadline = start + nanos;
+        boolean spin = waitStrategy != WaitStrategy.BLOCKING;
+        try {
+            while (count() >= capacity) {
+                if (nanos <= 0) {
+                    return false;
+                }
+                if (spin) {
+                    spinUnlocked(() -> available < capacity, true, deadline);
+                    spin = waitStrategy == WaitStrategy.BUSY_SPIN;
+                    nanos = deadline - System.nanoTime();
+                    continue;
+                }
+                nanos = notFull.awaitNanos(nanos);
+            }
+            return true;
+        } finally {
+            recordNotFullWait(start);
+        }
+    }
+
+    /**
+     * Waits while the pool is empty. Called holding the lock.
+     * A spinning strategy spins first; SPIN_YIELD_PARK spins once per wait, BUSY_SPIN until there are tickets.
+     */
+    private void awaitNotEmpty() throws InterruptedException {
+        if (count() > 0) {
+            return;
+        }
+        long start = System.nanoTime();
+        int wakeups = 0;
+        boolean spin = waitStrategy != WaitStrategy.BLOCKING;
+        do {
+            if (spin) {
+                spinUnlocked(() -> available > 0, false, 0);
+                spin = waitStrategy == WaitStrategy.BUSY_SPIN;
+                continue;
+            }
+            logger.debug("Waiting for more tickets...");
+            notEmpty.await(); // Wait for tickets to be added
+            wakeups++;
+        } while (count() == 0);
+        recordNotEmptyWait(start, wakeups);
+    }
+
+    /**
+     * Waits while the pool is empty, at most the given time. Called holding the lock.
+     *
+     * @return true if there are tickets, false if the time elapsed first.
+     */
+    private boolean awaitNotEmpty(long nanos) throws InterruptedException {
+        if (count() > 0) {
+            return true;
+        }
+        long start = System.nanoTime();
+        long deadline = start + nanos;
+        int wakeups = 0;
+        boolean spin = waitStrategy != WaitStrategy.BLOCKING;
+        try {
+            while (count() == 0) {
+                if (nanos <= 0) {
+                    return false;
+                }
+                if (spin) {
+                    spinUnlocked(() -> available > 0, true, deadline);
+                    spin = waitStrategy == WaitStrategy.BUSY_SPIN;
+                    nanos = deadline - System.nanoTime();
+                    continue;
+                }
+                nanos = notEmpty.awaitNanos(nanos);
+                wakeups++;
+            }
+            return true;
+        } finally {
+            recordNotEmptyWait(start, wakeups);
+        }
+    }
+
+    private void recordNotFullWait(long start) {
+        PoolMetrics m = metrics;
+        if (m != null) {
+            m.recordNotFullWait(System.nanoTime() - start);
+        }
+    }
+
+    private void recordNotEmptyWait(long start, int wakeups) {
+        PoolMetrics m = metrics;
+        if (m != null) {
+            m.recordNotEmptyWait(System.nanoTime() - start);
+            m.recordCustomerWakeups(wakeups);
+        }
+    }
+
+    /**
+     * Removes up to max of the oldest tickets into the sink. Subclasses may override with a bulk copy.
+     *
+     * @return The number of tickets removed.
+     */
+    protected int removeUpTo(Collection<? super Ticket> sink, int max) {
+        int removed = Math.min(max, count());
+        for (int i = 0; i < removed; i++) {
+            sink.add(pollFirst());
+        }
+        return removed;
+    }
+
+    /**
+     * @return The number of tickets stored.
+     */
+    protected abstract int count();
+
+    /**
+     * Stores a ticket after the newest one. Only called when count() is below the capacity.
+     */
+    protected abstract void addLast(Ticket ticket);
+
+    /**
+     * Stores a ticket given by its fields after the newest one. Only called when count() is below the capacity.
+     * Subclasses that store primitives override it to avoid creating the Ticket.
+     */
+    protected void addLast(int ticketId, String eventName, long price) {
+        addLast(new Ticket(ticketId, eventName, price));
+    }
+
+    /**
+     * @return The oldest ticket, or null if none are stored.
+     */
+    protected abstract Ticket pollFirst();
+
+    /**
+     * @return A copy of the stored tickets, oldest first.
+     */
+    protected abstract List<Ticket> copy();
+
+    /**
+     * Copies the IDs of n stored tickets, starting at offset from the oldest one.
+     *
+     * @param from Offset of the first ticket from the oldest one.
+     * @param into Array to copy into.
+     * @param at   Index in the array of the first ID.
+     * @param n    Number of IDs to copy; from + n never exceeds count().
+     */
+    protected abstract void copyIds(int from, int[] into, int at, int n);
+
+    /**
+     * Discards every stored ticket.
+     */
+    protected abstract void removeAll();
+}
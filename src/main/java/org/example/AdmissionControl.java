@@ -0,0 +1,333 @@
+package org.example;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Admission control in front of one TicketPool, for demand far beyond supply. Without it every customer
+ * claims its tickets and then blocks on the pool until vendors release them, so a flash crowd becomes an
+ * unbounded queue of waiting threads. A purchase through AdmissionControl is instead turned away early,
+ * cheapest check first:
+ * - SOLD_OUT when the event has nothing left to claim. Every admitted purchase claims its tickets against
+ *   the event's total before it waits, so the demand waiting never exceeds what is left to sell, and demand
+ *   beyond that is rejected at once instead of waiting for tickets that will never come.
+ * - RATE_LIMITED when the customer has used up its token bucket of customerBurst purchases, refilled at
+ *   customerRateLimit purchases per second.
+ * - TOO_MANY_WAITERS when maxWaiters purchases are already in progress on the pool.
+ * An admitted purchase waits at most purchaseTimeout for its tickets. If they do not all arrive in time, or
+ * the wait is interrupted, it keeps the tickets it got and gives the claims of the others back, so other
+ * customers can buy them.
+ *
+ * Every outcome is counted, and the latency of admitted purchases is recorded, so a run shows how much
+ * work was shed and how long the purchases that went ahead took.
+ */
+public class AdmissionControl {
+
+    /**
+     * Result of one purchase attempt.
+     */
+    public enum Outcome {
+        SOLD, // every ticket of the purchase was bought
+        SOLD_OUT, // the event has no tickets left to claim or the customer reached the purchase limit; no point trying again
+        RATE_LIMITED, // the customer's token bucket is empty; try again later
+        TOO_MANY_WAITERS, // the pool already has maxWaiters purchases in progress; try again later
+        TIMED_OUT // not every ticket arrived within the timeout; the tickets that did are bought, the other claims given back
+    }
+
+    private final TicketPool pool;
+    private final int maxWaiters; //purchases in progress on the pool at once, 0 for no bound
+    private final long timeoutNanos; //longest an admitted purchase waits for its tickets, 0 to wait until they arrive
+    private final double customerRateLimit; //purchases per second per customer, 0 for no limit
+    private final int customerBurst; //purchases a customer may make at once before the rate limit applies
+
+    private static final int MIN_BUCKETS_BEFORE_PRUNE = 1024;
+
+    private final AtomicInteger waiters = new AtomicInteger(); //purchases in progress
+    private final ConcurrentHashMap<String, TokenBucket> buckets = new ConcurrentHashMap<>(); //customers seen lately while rate limited; full buckets are pruned
+    private final AtomicBoolean pruning = new AtomicBoolean();
+    private volatile int pruneAt = MIN_BUCKETS_BEFORE_PRUNE; //bucket count that triggers the next removal of full buckets
+
+    private final LongAdder sold = new LongAdder();
+    private final LongAdder soldOut = new LongAdder();
+    private final LongAdder rateLimited = new LongAdder();
+    private final LongAdder tooManyWaiters = new LongAdder();
+    private final LongAdder timedOut = new LongAdder();
+    private final LongAdder ticketsBought = new LongAdder();
+    private final LongAccumulator maxWaitersSeen = new LongAccumulator(Math::max, 0);
+    private final LatencyHistogram latency = new LatencyHistogram(); //nanoseconds from admission to the end of the purchase
+
+    /**
+     * @param pool              The pool purchases are made from.
+     * @param maxWaiters        Purchases in progress on the pool at once, 0 for no bound.
+     * @param timeout           Longest an admitted purchase waits for its tickets, 0 to wait until they arrive.
+     * @param unit              Unit of the timeout.
+     * @param customerRateLimit Purchases per second per customer, 0 for no limit.
+     * @param customerBurst     Purchases a customer may make at once before the rate limit applies; at least 1.
+     */
+    public AdmissionControl(TicketPool pool, int maxWaiters, long timeout, TimeUnit unit, double customerRateLimit, int customerBurst) {
+        this.pool = pool;
+        this.maxWaiters = Math.max(0, maxWaiters);
+        this.timeoutNanos = Math.max(0, unit.toNanos(timeout));
+        this.customerRateLimit = Math.max(0, customerRateLimit);
+        this.customerBurst = Math.max(1, customerBurst);
+    }
+
+    /**
+     * Creates the admission control a configuration asks for.
+     *
+     * @param pool   The pool purchases are made from.
+     * @param config The simulation configuration.
+     * @return The admission control, or null if the configuration sets no waiter bound, timeout or rate limit.
+     */
+    static AdmissionControl fromConfiguration(TicketPool pool, Configuration config) {
+        if (config.getMaxWaiters() <= 0 && config.getPurchaseTimeout() <= 0 && config.getCustomerRateLimit() <= 0) {
+            return null;
+        }
+        return new AdmissionControl(pool, config.getMaxWaiters(), config.getPurchaseTimeout(), TimeUnit.MILLISECONDS,
+                config.getCustomerRateLimit(), config.getCustomerBurst());
+    }
+
+    /**
+     * Makes one purchase of up to n tickets for the customer, or turns it away.
+     *
+     * @param customerID The customer making the purchase.
+     * @param n          The number of tickets the customer wants.
+     * @param sink       Receives the bought tickets, oldest first; left as it is unless the outcome is SOLD or TIMED_OUT.
+     * @return What became of the purchase.
+     * @throws RuntimeException If the thread is interrupted while waiting for tickets.
+     */
+    public Outcome purchase(String customerID, int n, Collection<? super Ticket> sink) {
+        if (pool.getAccounting().isSoldOut() || pool.reachedPurchaseLimit(customerID)) {
+            soldOut.increment();
+            return Outcome.SOLD_OUT;
+        }
+        if (customerRateLimit > 0 && !acquireToken(customerID)) {
+            rateLimited.increment();
+            return Outcome.RATE_LIMITED;
+        }
+        int waiting = waiters.incrementAndGet();
+        try {
+            if (maxWaiters > 0 && waiting > maxWaiters) {
+                tooManyWaiters.increment();
+                return Outcome.TOO_MANY_WAITERS;
+            }
+            maxWaitersSeen.accumulate(waiting);
+            long start = System.nanoTime();
+            int claimed = pool.claimTickets(customerID, n);
+            if (claimed == 0) {
+                soldOut.increment();
+                return Outcome.SOLD_OUT;
+            }
+            int bought;
+            try {
+                bought = take(customerID, claimed, start, sink);
+            } finally {
+                latency.record(System.nanoTime() - start);
+            }
+            ticketsBought.add(bought);
+            if (bought < claimed) {
+                timedOut.increment();
+                return Outcome.TIMED_OUT;
+            }
+            sold.increment();
+            return Outcome.SOLD;
+        } finally {
+            waiters.decrementAndGet();
+        }
+    }
+
+    /**
+     * Takes the claimed tickets, whatever is in the pool at once and then one at a time as they arrive.
+     * The claims of tickets not taken, because the timeout passed or the wait was interrupted, are given back.
+     *
+     * @return The number of tickets taken, less than claimed if the timeout passed first.
+     */
+    private int take(String customerID, int claimed, long start, Collection<? super Ticket> sink) {
+        int bought = 0;
+        try {
+            bought = pool.drainTo(customerID, sink, claimed);
+            if (timeoutNanos == 0) {
+                while (bought < claimed) {
+                    List<Ticket> tickets = pool.removeTickets(customerID, claimed - bought);
+                    sink.addAll(tickets);
+                    bought += tickets.size();
+                }
+                return bought;
+            }
+            long deadline = start + timeoutNanos;
+            while (bought < claimed) {
+                long remaining = deadline - System.nanoTime();
+                Ticket ticket = remaining > 0 ? pool.tryRemoveTickets(customerID, remaining, TimeUnit.NANOSECONDS) : null;
+                if (ticket == null) {
+                    break;
+                }
+                sink.add(ticket);
+                bought += 1 + pool.drainTo(customerID, sink, claimed - bought - 1);
+            }
+            return bought;
+        } finally {
+            if (bought < claimed) {
+                pool.returnClaims(customerID, claimed - bought);
+            }
+        }
+    }
+
+    /**
+     * Takes one token from the customer's bucket. Buckets that have refilled to the burst are dropped once
+     * the map has doubled since the last prune, so the map holds the customers active lately rather than
+     * every customer ever seen; a dropped bucket comes back full, as it was.
+     *
+     * A prune can drop a bucket that another thread has just fetched. That thread then checks the map again
+     * after taking its token: it puts the bucket back if the customer has none, or takes the token from the
+     * bucket that has replaced it, so the customer's next purchase never starts from a fresh full bucket.
+     */
+    private boolean acquireToken(String customerID) {
+        TokenBucket bucket = buckets.get(customerID);
+        if (bucket == null) {
+            if (buckets.size() >= pruneAt && pruning.compareAndSet(false, true)) {
+                try {
+                    long now = System.nanoTime();
+                    buckets.values().removeIf(full -> full.isFull(customerRateLimit, now));
+                    pruneAt = Math.max(MIN_BUCKETS_BEFORE_PRUNE, buckets.size() * 2);
+                } finally {
+                    pruning.set(false);
+                }
+            }
+            bucket = buckets.computeIfAbsent(customerID, id -> new TokenBucket(customerBurst));
+        }
+        boolean acquired = bucket.tryAcquire(customerRateLimit);
+        TokenBucket current = buckets.get(customerID);
+        if (current == bucket) {
+            return acquired;
+        }
+        if (current == null && (current = buckets.putIfAbsent(customerID, bucket)) == null) {
+            return acquired; // pruned meanwhile: put back, with the token taken
+        }
+        return current.tryAcquire(customerRateLimit); // replaced meanwhile: the token counts against the bucket in the map
+    }
+
+    public int getMaxWaiters() {
+        return maxWaiters;
+    }
+
+    /**
+     * @return The number of customers with a token bucket, at most about twice those active lately.
+     */
+    int getBuckets() {
+        return buckets.size();
+    }
+
+    /**
+     * @return The number of purchases in progress right now.
+     */
+    public int getWaiters() {
+        return waiters.get();
+    }
+
+    /**
+     * @return The most purchases that were in progress at once.
+     */
+    public long getMaxWaitersSeen() {
+        return maxWaitersSeen.get();
+    }
+
+    /**
+     * @return Purchases that bought every ticket they wanted.
+     */
+    public long getSold() {
+        return sold.sum();
+    }
+
+    public long getSoldOut() {
+        return soldOut.sum();
+    }
+
+    public long getRateLimited() {
+        return rateLimited.sum();
+    }
+
+    public long getTooManyWaiters() {
+        return tooManyWaiters.sum();
+    }
+
+    public long getTimedOut() {
+        return timedOut.sum();
+    }
+
+    /**
+     * @return Purchases turned away before waiting for a ticket: sold out, rate limited or too many waiters.
+     */
+    public long getShed() {
+        return getSoldOut() + getRateLimited() + getTooManyWaiters();
+    }
+
+    public long getTicketsBought() {
+        return ticketsBought.sum();
+    }
+
+    /**
+     * @return Nanoseconds from admission to the end of every admitted purchase, including timed-out ones.
+     */
+    public LatencyHistogram getLatency() {
+        return latency;
+    }
+
+    /**
+     * @return One line per outcome, followed by the latency of admitted purchases.
+     */
+    public String report() {
+        long attempts = getSold() + getTimedOut() + getShed();
+        long[] admitted = latency.getValuesAtPercentiles(50, 99);
+        return "Admission control " + pool.getEventId() + ": " + attempts + " attempts, " + getTicketsBought() + " tickets bought\n"
+                + "  sold " + getSold() + ", timed out " + getTimedOut() + "\n"
+                + "  shed " + getShed() + " (" + percent(getShed(), attempts) + "): sold out " + getSoldOut()
+                + ", rate limited " + getRateLimited() + ", too many waiters " + getTooManyWaiters() + "\n"
+                + "  waiters max " + getMaxWaitersSeen() + (maxWaiters > 0 ? " of " + maxWaiters : "") + "\n"
+                + "  admitted latency p50 " + micros(admitted[0]) + " us, p99 "
+                + micros(admitted[1]) + " us, max " + micros(latency.getMax()) + " us\n";
+    }
+
+    private static String percent(long part, long whole) {
+        return String.format("%.1f%%", whole > 0 ? part * 100.0 / whole : 0.0);
+    }
+
+    private static long micros(long nanos) {
+        return TimeUnit.NANOSECONDS.toMicros(nanos);
+    }
+
+    /**
+     * Purchases one customer may still make at once. Refilled lazily on every attempt; one customer's
+     * attempts rarely overlap, so the lock is uncontended.
+     */
+    private static final class TokenBucket {
+        private final int burst;
+        private double tokens;
+        private long refilledAt = System.nanoTime();
+
+        private TokenBucket(int burst) {
+            this.burst = burst;
+            this.tokens = burst;
+        }
+
+        private synchronized boolean tryAcquire(double perSecond) {
+            long now = System.nanoTime();
+            tokens = Math.min(burst, tokens + (now - refilledAt) * perSecond / 1e9);
+            refilledAt = now;
+            if (tokens < 1) {
+                return false;
+            }
+            tokens--;
+            return true;
+        }
+
+        private synchronized boolean isFull(double perSecond, long now) {
+            return tokens + (now - refilledAt) * perSecond / 1e9 >= burst;
+        }
+    }
+}
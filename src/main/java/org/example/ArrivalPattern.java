@@ -0,0 +1,10 @@
+package org.example;
+
+/**
+ * How the pause between two iterations of a vendor or customer is spread around its mean interval.
+ */
+public enum ArrivalPattern {
+    FIXED, // every pause is exactly the interval
+    POISSON, // exponentially distributed pauses, i.e. arrivals form a Poisson process with the interval as mean
+    BURSTY // burstSize iterations back to back, then one pause of burstSize intervals
+}
@@ -0,0 +1,260 @@
+package org.example;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Slow path for lock-free pool engines.
+ * Threads only come here once the lock-free attempt has failed. With a spinning WaitStrategy they first
+ * keep retrying the lock-free attempt without any lock; only then (never for BUSY_SPIN) do they take the
+ * lock and park on the notFull/notEmpty conditions, while the fast path stays lock-free.
+ * Signalling is skipped entirely while nobody is parked.
+ * With metrics enabled, the whole time spent here is recorded as a notFull or notEmpty wait.
+ */
+final class BlockingWaitStrategy {
+    private final ReentrantLock lock;
+    private final WaitStrategy strategy; //how long to retry without parking
+
+    private final Condition notEmpty; //holds the customer threads until tickets are added to the pool
+    private final Condition notFull; //holds the vendor threads until there is more space the pool
+
+    private final AtomicInteger waitingConsumers = new AtomicInteger();
+    private final AtomicInteger waitingProducers = new AtomicInteger();
+
+    private volatile PoolMetrics metrics; //null unless metrics are enabled for the pool
+
+    /**
+     * @param fair Whether waiting threads acquire the slow-path lock in arrival order.
+     */
+    BlockingWaitStrategy(boolean fair) {
+        this(fair, WaitStrategy.BLOCKING);
+    }
+
+    /**
+     * @param fair     Whether waiting threads acquire the slow-path lock in arrival order.
+     * @param strategy How long to retry without parking.
+     */
+    BlockingWaitStrategy(boolean fair, WaitStrategy strategy) {
+        this.strategy = strategy;
+        this.lock = new ReentrantLock(fair);
+        this.notEmpty = lock.newCondition();
+        this.notFull = lock.newCondition();
+    }
+
+    /**
+     * Retries the given poll until it returns a ticket, parking between attempts.
+     * The waiter is registered before the retry so a concurrent producer either sees
+     * the registration and signals, or the retry sees its ticket.
+     *
+     * @param poll Non-blocking removal from the engine.
+     * @return The removed ticket.
+     * @throws InterruptedException If the thread is interrupted while waiting.
+     */
+    Ticket awaitTicket(Supplier<Ticket> poll) throws InterruptedException {
+        long start = System.nanoTime();
+        if (strategy != WaitStrategy.BLOCKING) {
+            Ticket ticket = spinForTicket(poll, false, 0);
+            if (ticket != null) {
+                recordNotEmptyWait(start, 0);
+                return ticket;
+            }
+        }
+        lock.lockInterruptibly();
+        waitingConsumers.incrementAndGet();
+        int wakeups = 0;
+        try {
+            Ticket ticket;
+            while ((ticket = poll.get()) == null) {
+                notEmpty.await();
+                wakeups++;
+            }
+            return ticket;
+        } finally {
+            waitingConsumers.decrementAndGet();
+            lock.unlock();
+            recordNotEmptyWait(start, wakeups);
+        }
+    }
+
+    /**
+     * Like {@link #awaitTicket(Supplier)} but gives up once the timeout elapses.
+     *
+     * @param poll    Non-blocking removal from the engine.
+     * @param timeout Maximum time to wait.
+     * @param unit    Unit of the timeout.
+     * @return The removed ticket, or null if the timeout elapsed first.
+     * @throws InterruptedException If the thread is interrupted while waiting.
+     */
+    Ticket awaitTicket(Supplier<Ticket> poll, long timeout, TimeUnit unit) throws InterruptedException {
+        long start = System.nanoTime();
+        long nanos = unit.toNanos(timeout);
+        if (strategy != WaitStrategy.BLOCKING) {
+            Ticket ticket = spinForTicket(poll, true, start + nanos);
+            if (ticket != null) {
+                recordNotEmptyWait(start, 0);
+                return ticket;
+            }
+            nanos = start + nanos - System.nanoTime();
+        }
+        lock.lockInterruptibly();
+        waitingConsumers.incrementAndGet();
+        int wakeups = 0;
+        try {
+            Ticket ticket;
+            while ((ticket = poll.get()) == null) {
+                if (nanos <= 0) {
+                    return null;
+                }
+                nanos = notEmpty.awaitNanos(nanos);
+                wakeups++;
+            }
+            return ticket;
+        } finally {
+            waitingConsumers.decrementAndGet();
+            lock.unlock();
+            recordNotEmptyWait(start, wakeups);
+        }
+    }
+
+    /**
+     * Retries the given offer until it succeeds, parking between attempts.
+     *
+     * @param offer Non-blocking insertion into the engine.
+     * @throws InterruptedException If the thread is interrupted while waiting.
+     */
+    void awaitSpace(BooleanSupplier offer) throws InterruptedException {
+        long start = System.nanoTime();
+        if (strategy.spin(offer, false, 0)) {
+            recordNotFullWait(start);
+            return;
+        }
+        lock.lockInterruptibly();
+        waitingProducers.incrementAndGet();
+        try {
+            while (!offer.getAsBoolean()) {
+                notFull.await();
+            }
+        } finally {
+            waitingProducers.decrementAndGet();
+            lock.unlock();
+            recordNotFullWait(start);
+        }
+    }
+
+    /**
+     * Like {@link #awaitSpace(BooleanSupplier)} but gives up once the timeout elapses.
+     *
+     * @param offer   Non-blocking insertion into the engine.
+     * @param timeout Maximum time to wait.
+     * @param unit    Unit of the timeout.
+     * @return true if the offer succeeded, false if the timeout elapsed first.
+     * @throws InterruptedException If the thread is interrupted while waiting.
+     */
+    boolean awaitSpace(BooleanSupplier offer, long timeout, TimeUnit unit) throws InterruptedException {
+        long start = System.nanoTime();
+        long nanos = unit.toNanos(timeout);
+        if (strategy != WaitStrategy.BLOCKING) {
+            if (strategy.spin(offer, true, start + nanos)) {
+                recordNotFullWait(start);
+                return true;
+            }
+            nanos = start + nanos - System.nanoTime();
+        }
+        lock.lockInterruptibly();
+        waitingProducers.incrementAndGet();
+        try {
+            while (!offer.getAsBoolean()) {
+                if (nanos <= 0) {
+                    return false;
+                }
+                nanos = notFull.awaitNanos(nanos);
+            }
+            return true;
+        } finally {
+            waitingProducers.decrementAndGet();
+            lock.unlock();
+            recordNotFullWait(start);
+        }
+    }
+
+    /**
+     * @return The ticket the poll returned while spinning, or null if the strategy gave up first.
+     */
+    private Ticket spinForTicket(Supplier<Ticket> poll, boolean timed, long deadline) throws InterruptedException {
+        Ticket[] taken = new Ticket[1];
+        strategy.spin(() -> (taken[0] = poll.get()) != null, timed, deadline);
+        return taken[0];
+    }
+
+    private void recordNotFullWait(long start) {
+        PoolMetrics m = metrics;
+        if (m != null) {
+            m.recordNotFullWait(System.nanoTime() - start);
+        }
+    }
+
+    private void recordNotEmptyWait(long start, int wakeups) {
+        PoolMetrics m = metrics;
+        if (m != null) {
+            m.recordNotEmptyWait(System.nanoTime() - start);
+            m.recordCustomerWakeups(wakeups);
+        }
+    }
+
+    /**
+     * @param metrics The metrics to record slow-path waits into, or null to stop recording.
+     */
+    void setMetrics(PoolMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Wakes one waiting customer, if any. Called after a ticket has been published.
+     */
+    void signalNotEmpty() {
+        signalNotEmpty(1);
+    }
+
+    /**
+     * Wakes up to the given number of waiting customers under a single lock acquisition.
+     *
+     * @param tickets Number of tickets just published.
+     */
+    void signalNotEmpty(int tickets) {
+        signal(notEmpty, waitingConsumers, tickets);
+    }
+
+    /**
+     * Wakes one waiting vendor, if any. Called after a slot has been freed.
+     */
+    void signalNotFull() {
+        signalNotFull(1);
+    }
+
+    /**
+     * Wakes up to the given number of waiting vendors under a single lock acquisition.
+     *
+     * @param slots Number of slots just freed.
+     */
+    void signalNotFull(int slots) {
+        signal(notFull, waitingProducers, slots);
+    }
+
+    private void signal(Condition condition, AtomicInteger waiting, int permits) {
+        if (waiting.get() > 0) {
+            lock.lock();
+            try {
+                int wakeups = Math.min(permits, waiting.get());
+                for (int i = 0; i < wakeups; i++) {
+                    condition.signal();
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
@@ -1,6 +1,9 @@
 package org.example;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.InputMismatchException;
+import java.util.List;
 import java.util.Scanner;
 
 /**
@@ -12,6 +15,29 @@ public class Configuration {
     private int customerRetrievalRate; //the interval between each thread call
     private int maxTicketCapacity; //the maximum number of tickets that can be in the ticket pool at any given time
     private int totalTickets; //the total number of tickets the vendors intend to sell combined
+    private int releaseBatchSize = 1; //the number of tickets a vendor releases per iteration
+    private int purchaseGroupSize = 1; //the number of tickets a customer buys per purchase
+    private PoolEngineType poolEngine = PoolEngineType.LOCKING; //the storage engine used by the ticket pool
+    private int logSampleRate = 1; //log one in every logSampleRate added/sold tickets
+    private int poolShards = 0; //number of shards for the SHARDED engine, 0 for one per available processor
+    private boolean fairLock = false; //whether blocked vendors and customers are served in arrival order
+    private WaitStrategy waitStrategy = WaitStrategy.BLOCKING; //how vendors and customers wait while the pool is full or empty
+    private ExecutionMode executionMode = ExecutionMode.PLATFORM; //whether vendors and customers run on platform or virtual threads
+    private List<EventConfiguration> events; //per-event capacities and totals, null for a single event using the fields above
+    private String journalFile; //path of the sales journal, null to run without one
+    private JournalDurability journalDurability = JournalDurability.BATCHED; //how far journaled sales go to survive a crash
+    private int journalSyncInterval = 10; //milliseconds between group commits of the BATCHED journal
+    private int metricsInterval = 0; //seconds between metrics reports, 0 to run without metrics
+    private boolean openLoop = false; //whether attempts are dispatched by the open-loop scheduler instead of a thread per runner
+    private int schedulerWorkers = 0; //worker threads of the open-loop scheduler, 0 for one per available processor
+    private int purchaseLimit = 0; //most tickets one customer may buy per event, 0 for no limit
+    private int salesFeedBuffer = 1024; //sale events held per sales feed subscriber before the overflow policy applies
+    private FeedOverflow salesFeedOverflow = FeedOverflow.DROP; //what a sales feed does with events for a subscriber whose buffer is full
+    private boolean salesAnalytics = false; //whether every sale is recorded for the analytics report at the end of the run
+    private int maxWaiters = 0; //purchases in progress per pool at once before customers are told to try later, 0 for no bound
+    private int purchaseTimeout = 0; //milliseconds an admitted purchase waits for its tickets, 0 to wait until they arrive
+    private int customerRateLimit = 0; //purchases per second per customer, 0 for no limit
+    private int customerBurst = 1; //purchases a customer may make at once before the rate limit applies
 
     public Configuration(int ticketReleaseRate, int customerRetrievalRate, int maxTicketCapacity, int totalTickets) {
         this.ticketReleaseRate = ticketReleaseRate;
@@ -35,6 +61,27 @@ public class Configuration {
         return totalTickets;
     }
 
+    /**
+     * @return The vendor release batch size, at least 1 (older configurations do not store it).
+     */
+    public int getReleaseBatchSize() {
+        return Math.max(1, releaseBatchSize);
+    }
+
+    /**
+     * @return The customer purchase group size, at least 1 (older configurations do not store it).
+     */
+    public int getPurchaseGroupSize() {
+        return Math.max(1, purchaseGroupSize);
+    }
+
+    /**
+     * @return The ticket pool engine, defaulting to LOCKING for configurations saved before the option existed.
+     */
+    public PoolEngineType getPoolEngine() {
+        return poolEngine != null ? poolEngine : PoolEngineType.LOCKING;
+    }
+
     public void setTicketReleaseRate(int ticketReleaseRate) {
         this.ticketReleaseRate = ticketReleaseRate;
     }
@@ -50,6 +97,221 @@ public class Configuration {
         this.totalTickets = totalTickets;
     }
 
+    /**
+     * @return The thread execution mode, defaulting to PLATFORM for configurations saved before the option existed.
+     */
+    public ExecutionMode getExecutionMode() {
+        return executionMode != null ? executionMode : ExecutionMode.PLATFORM;
+    }
+
+    /**
+     * @return The sales log sampling rate, at least 1 (older configurations do not store it).
+     */
+    public int getLogSampleRate() {
+        return Math.max(1, logSampleRate);
+    }
+
+    public void setLogSampleRate(int logSampleRate) {
+        this.logSampleRate = logSampleRate;
+    }
+
+    public int getPoolShards() {
+        return poolShards;
+    }
+
+    public void setPoolShards(int poolShards) {
+        this.poolShards = poolShards;
+    }
+
+    public boolean isFairLock() {
+        return fairLock;
+    }
+
+    public void setFairLock(boolean fairLock) {
+        this.fairLock = fairLock;
+    }
+
+    /**
+     * @return The wait strategy, defaulting to BLOCKING for configurations saved before the option existed.
+     */
+    public WaitStrategy getWaitStrategy() {
+        return waitStrategy != null ? waitStrategy : WaitStrategy.BLOCKING;
+    }
+
+    public void setWaitStrategy(WaitStrategy waitStrategy) {
+        this.waitStrategy = waitStrategy;
+    }
+
+    public void setExecutionMode(ExecutionMode executionMode) {
+        this.executionMode = executionMode;
+    }
+
+    public void setReleaseBatchSize(int releaseBatchSize) {
+        this.releaseBatchSize = releaseBatchSize;
+    }
+
+    public void setPurchaseGroupSize(int purchaseGroupSize) {
+        this.purchaseGroupSize = purchaseGroupSize;
+    }
+
+    public void setPoolEngine(PoolEngineType poolEngine) {
+        this.poolEngine = poolEngine;
+    }
+
+    /**
+     * Returns the events to sell. Configurations without an events list describe a single
+     * event using the top-level capacity and total.
+     *
+     * @return The event configurations, never empty.
+     */
+    public List<EventConfiguration> getEvents() {
+        if (events == null || events.isEmpty()) {
+            return Collections.singletonList(new EventConfiguration(EventConfiguration.DEFAULT_EVENT_ID,
+                    EventConfiguration.DEFAULT_EVENT_NAME, maxTicketCapacity, totalTickets));
+        }
+        return events;
+    }
+
+    public void setEvents(List<EventConfiguration> events) {
+        this.events = events != null ? new ArrayList<>(events) : null;
+    }
+
+    public String getJournalFile() {
+        return journalFile;
+    }
+
+    public void setJournalFile(String journalFile) {
+        this.journalFile = journalFile;
+    }
+
+    /**
+     * @return The journal durability, defaulting to BATCHED for configurations saved before the option existed.
+     */
+    public JournalDurability getJournalDurability() {
+        return journalDurability != null ? journalDurability : JournalDurability.BATCHED;
+    }
+
+    public void setJournalDurability(JournalDurability journalDurability) {
+        this.journalDurability = journalDurability;
+    }
+
+    /**
+     * @return The BATCHED journal commit interval in milliseconds, 10 when not stored.
+     */
+    public int getJournalSyncInterval() {
+        return journalSyncInterval > 0 ? journalSyncInterval : 10;
+    }
+
+    public void setJournalSyncInterval(int journalSyncInterval) {
+        this.journalSyncInterval = journalSyncInterval;
+    }
+
+    public int getMetricsInterval() {
+        return metricsInterval;
+    }
+
+    public void setMetricsInterval(int metricsInterval) {
+        this.metricsInterval = metricsInterval;
+    }
+
+    public boolean isOpenLoop() {
+        return openLoop;
+    }
+
+    public void setOpenLoop(boolean openLoop) {
+        this.openLoop = openLoop;
+    }
+
+    public int getSchedulerWorkers() {
+        return schedulerWorkers;
+    }
+
+    public void setSchedulerWorkers(int schedulerWorkers) {
+        this.schedulerWorkers = schedulerWorkers;
+    }
+
+    public int getPurchaseLimit() {
+        return purchaseLimit;
+    }
+
+    public void setPurchaseLimit(int purchaseLimit) {
+        this.purchaseLimit = purchaseLimit;
+    }
+
+    /**
+     * @return The sales feed buffer per subscriber, 1024 when not stored.
+     */
+    public int getSalesFeedBuffer() {
+        return salesFeedBuffer > 0 ? salesFeedBuffer : 1024;
+    }
+
+    public void setSalesFeedBuffer(int salesFeedBuffer) {
+        this.salesFeedBuffer = salesFeedBuffer;
+    }
+
+    /**
+     * @return The sales feed overflow policy, defaulting to DROP for configurations saved before the option existed.
+     */
+    public FeedOverflow getSalesFeedOverflow() {
+        return salesFeedOverflow != null ? salesFeedOverflow : FeedOverflow.DROP;
+    }
+
+    public void setSalesFeedOverflow(FeedOverflow salesFeedOverflow) {
+        this.salesFeedOverflow = salesFeedOverflow;
+    }
+
+    public boolean isSalesAnalytics() {
+        return salesAnalytics;
+    }
+
+    public void setSalesAnalytics(boolean salesAnalytics) {
+        this.salesAnalytics = salesAnalytics;
+    }
+
+    /**
+     * @return The purchases in progress per pool at once before customers are told to try later, 0 for no bound.
+     */
+    public int getMaxWaiters() {
+        return maxWaiters;
+    }
+
+    public void setMaxWaiters(int maxWaiters) {
+        this.maxWaiters = maxWaiters;
+    }
+
+    /**
+     * @return The milliseconds an admitted purchase waits for its tickets, 0 to wait until they arrive.
+     */
+    public int getPurchaseTimeout() {
+        return purchaseTimeout;
+    }
+
+    public void setPurchaseTimeout(int purchaseTimeout) {
+        this.purchaseTimeout = purchaseTimeout;
+    }
+
+    /**
+     * @return The purchases per second allowed per customer, 0 for no limit.
+     */
+    public int getCustomerRateLimit() {
+        return customerRateLimit;
+    }
+
+    public void setCustomerRateLimit(int customerRateLimit) {
+        this.customerRateLimit = customerRateLimit;
+    }
+
+    /**
+     * @return The purchases a customer may make at once before the rate limit applies, 1 when not stored.
+     */
+    public int getCustomerBurst() {
+        return customerBurst > 0 ? customerBurst : 1;
+    }
+
+    public void setCustomerBurst(int customerBurst) {
+        this.customerBurst = customerBurst;
+    }
+
     @Override
     public String toString() {
         return "Configuration{" +
@@ -57,6 +319,29 @@ public class Configuration {
                 ", maxTicketCapacity = " + maxTicketCapacity +
                 ", ticketReleaseRate = " + ticketReleaseRate +
                 ", customerRetrievalRate = " + customerRetrievalRate +
+                ", releaseBatchSize = " + getReleaseBatchSize() +
+                ", purchaseGroupSize = " + getPurchaseGroupSize() +
+                ", poolEngine = " + getPoolEngine() +
+                ", logSampleRate = " + getLogSampleRate() +
+                ", poolShards = " + poolShards +
+                ", fairLock = " + fairLock +
+                ", waitStrategy = " + getWaitStrategy() +
+                ", executionMode = " + getExecutionMode() +
+                ", events = " + getEvents() +
+                ", journalFile = " + journalFile +
+                ", journalDurability = " + getJournalDurability() +
+                ", journalSyncInterval = " + getJournalSyncInterval() +
+                ", metricsInterval = " + metricsInterval +
+                ", openLoop = " + openLoop +
+                ", schedulerWorkers = " + schedulerWorkers +
+                ", purchaseLimit = " + purchaseLimit +
+                ", salesFeedBuffer = " + getSalesFeedBuffer() +
+                ", salesFeedOverflow = " + getSalesFeedOverflow() +
+                ", salesAnalytics = " + salesAnalytics +
+                ", maxWaiters = " + maxWaiters +
+                ", purchaseTimeout = " + purchaseTimeout +
+                ", customerRateLimit = " + customerRateLimit +
+                ", customerBurst = " + getCustomerBurst() +
                 '}';
     }
 
@@ -3,7 +3,10 @@ package org.example;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.apache.logging.log4j.util.Unbox.box;
 
 /**
  * Customer class represents a customer in the simulation.
@@ -13,7 +16,10 @@ import java.util.concurrent.atomic.AtomicInteger;
 public class Customer implements Runnable{
     private TicketPool ticketPool;
     private String customerID;
-    private int retrievalRate;
+    private volatile int retrievalRate;
+    private int purchaseGroupSize; //number of tickets bought together per purchase
+    private volatile Pacer pacer; //pauses between purchases, derived from retrievalRate unless given explicitly; replaced when the rate changes
+    private LatencyHistogram purchaseLatency; //nanoseconds from claiming a purchase to holding its tickets, null when not measured
     private static final Logger logger = LogManager.getLogger(Customer.class);
 
     /**
@@ -24,41 +30,185 @@ public class Customer implements Runnable{
      * @param retrievalRate The rate at which the customer attempts to purchase tickets.
      */
     public Customer(String customerID, TicketPool ticketPool, int retrievalRate){
-        this.ticketPool = ticketPool;
+        this(customerID, ticketPool, retrievalRate, 1);
+    }
+
+    /**
+     * Creates a new customer that buys tickets in groups.
+     *
+     * @param customerID        Unique identifier for the customer.
+     * @param ticketPool        The shared ticket pool from which customers purchase tickets.
+     * @param retrievalRate     The rate at which the customer attempts to purchase tickets.
+     * @param purchaseGroupSize The number of tickets bought per purchase.
+     */
+    public Customer(String customerID, TicketPool ticketPool, int retrievalRate, int purchaseGroupSize){
+        this(customerID, ticketPool, Pacer.fixedSeconds(retrievalRate), purchaseGroupSize);
         this.retrievalRate = retrievalRate;
+    }
+
+    /**
+     * Creates a new customer whose purchases are paced by the given pacer, e.g. at microsecond intervals.
+     *
+     * @param customerID        Unique identifier for the customer.
+     * @param ticketPool        The shared ticket pool from which customers purchase tickets.
+     * @param pacer             Pauses the customer between purchases.
+     * @param purchaseGroupSize The number of tickets bought per purchase.
+     */
+    public Customer(String customerID, TicketPool ticketPool, Pacer pacer, int purchaseGroupSize){
+        this.ticketPool = ticketPool;
         this.customerID = customerID;
+        this.pacer = pacer;
+        this.purchaseGroupSize = Math.max(1, purchaseGroupSize);
     }
 
     /**
-     * Atomic integer to track the total number of tickets sold across all customers.
-     * ensures that the entire operation of reading, incrementing, and storing the new value
-     * happens as a single, indivisible unit of execution, prevents any other thread from
-     * interfering in the middle of the update process
+     * Creates a new customer buying tickets for a specific event of the inventory.
+     * The event's pool is looked up once, so purchases never touch the pools of other events.
+     *
+     * @param customerID        Unique identifier for the customer.
+     * @param inventory         The event inventory.
+     * @param eventId           The ID of the event the customer buys tickets for.
+     * @param retrievalRate     The rate at which the customer attempts to purchase tickets.
+     * @param purchaseGroupSize The number of tickets bought per purchase.
+     * @throws IllegalArgumentException If the inventory has no event with that ID.
      */
-    private static final AtomicInteger count = new AtomicInteger(0);
+    public Customer(String customerID, EventInventory inventory, String eventId, int retrievalRate, int purchaseGroupSize){
+        this(customerID, requirePool(inventory, eventId), retrievalRate, purchaseGroupSize);
+    }
+
+    public String getCustomerID() {
+        return customerID;
+    }
+
+    public TicketPool getTicketPool() {
+        return ticketPool;
+    }
+
+    public int getRetrievalRate() {
+        return retrievalRate;
+    }
+
+    /**
+     * Changes the retrieval rate, also while the customer is running: a pause in progress ends at once
+     * and the next one uses the new rate.
+     *
+     * @param retrievalRate The new interval between purchases in seconds.
+     */
+    public void setRetrievalRate(int retrievalRate) {
+        this.retrievalRate = retrievalRate;
+        Pacer previous = pacer;
+        this.pacer = Pacer.fixedSeconds(retrievalRate);
+        if (previous != null) {
+            previous.cancel();
+        }
+    }
+
+    /**
+     * Records the latency of every purchase into the given histogram.
+     *
+     * @param purchaseLatency Histogram of nanoseconds from claiming a purchase to holding all of its tickets.
+     */
+    public void setPurchaseLatency(LatencyHistogram purchaseLatency) {
+        this.purchaseLatency = purchaseLatency;
+    }
+
+    private static TicketPool requirePool(EventInventory inventory, String eventId) {
+        TicketPool pool = inventory.getPool(eventId);
+        if (pool == null) {
+            throw new IllegalArgumentException("Unknown event ID: " + eventId);
+        }
+        return pool;
+    }
 
     @Override
     public void run() {
+        try {
+            purchase();
+        } catch (RuntimeException e) {
+            if (!Thread.currentThread().isInterrupted()) {
+                throw e;
+            }
+            logger.info("Stopping as the simulation was interrupted.");
+        }
+    }
+
+    private void purchase() {
+        AdmissionControl admission = ticketPool.getAdmissionControl();
+        if (admission != null) {
+            purchaseThrough(admission);
+            return;
+        }
         while (true) {
-            // Increment the total tickets sold count
-            int sold = count.incrementAndGet();
+            int group = ticketPool.claimTickets(customerID, purchaseGroupSize); // Claims this purchase against the event's total tickets
+            //ensures that tickets sold does not exceed total tickets limit or this customer's purchase limit
+            if (group == 0) {
+                if (ticketPool.reachedPurchaseLimit(customerID)) {
+                    logger.info("Stopping as the purchase limit of {} tickets is reached.", box(ticketPool.getPurchaseLimit()));
+                } else {
+                    logger.info("Stopping as tickets are sold out.");
+                }
+                return;
+            }
 
-            //ensures that tickets sold does not exceed total tickets limit
-            if (sold > ticketPool.getTotalTickets()) {
-                logger.info(Thread.currentThread().getName() + " stopping as tickets are sold out.");
-                break;
+            logger.debug("Trying to purchase {} ticket(s)", box(group));
+            long start = purchaseLatency != null ? System.nanoTime() : 0;
+            if (group == 1) {
+                Ticket ticket = ticketPool.removeTickets(customerID);
+                logger.debug("Ticket-{} sold.", box(ticket.getTicketId()));
+            } else {
+                int bought = 0;
+                while (bought < group) { //takes whatever part of the group is available, then waits for the rest
+                    List<Ticket> tickets = ticketPool.removeTickets(customerID, group - bought);
+                    bought += tickets.size();
+                }
+                logger.debug("{} tickets sold.", box(group));
             }
+            if (purchaseLatency != null) {
+                purchaseLatency.record(System.nanoTime() - start);
+            }
+            pause();
+        }
+    }
 
-            logger.info(Thread.currentThread().getName() + " trying to purchase a ticket");
-            Ticket ticket = ticketPool.removeTickets();
-            logger.info("Ticket-"+ticket.getTicketId() + " sold.");
-            try {
-                Thread.sleep(retrievalRate * 1000); // Delays the thread
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-                logger.error(Thread.currentThread().getName()+" thread interrupted: " + e.getMessage());
-                throw new RuntimeException(e);
+    /**
+     * Purchases through the pool's admission control. A purchase that is turned away or times out holds
+     * no claims and no thread in the pool; the customer pauses as between purchases and tries again,
+     * until the event is sold out or the purchase limit is reached.
+     */
+    private void purchaseThrough(AdmissionControl admission) {
+        List<Ticket> tickets = new ArrayList<>(purchaseGroupSize);
+        while (true) {
+            tickets.clear();
+            long start = purchaseLatency != null ? System.nanoTime() : 0;
+            AdmissionControl.Outcome outcome = admission.purchase(customerID, purchaseGroupSize, tickets);
+            switch (outcome) {
+                case SOLD:
+                    if (purchaseLatency != null) {
+                        purchaseLatency.record(System.nanoTime() - start);
+                    }
+                    logger.debug("{} tickets sold.", box(tickets.size()));
+                    break;
+                case SOLD_OUT:
+                    if (ticketPool.reachedPurchaseLimit(customerID)) {
+                        logger.info("Stopping as the purchase limit of {} tickets is reached.", box(ticketPool.getPurchaseLimit()));
+                    } else {
+                        logger.info("Stopping as tickets are sold out.");
+                    }
+                    return;
+                default:
+                    logger.debug("Purchase {} with {} of {} tickets; trying again later.", outcome, box(tickets.size()), box(purchaseGroupSize));
             }
+            pause();
+        }
+    }
+
+    private void pause() {
+        try {
+            pacer.pause(); // Delays the thread
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.error("Thread interrupted: {}", e.getMessage());
+            throw new RuntimeException(e);
         }
     }
 }
@@ -0,0 +1,97 @@
+package org.example;
+
+/**
+ * Inventory settings for a single event.
+ * Each event gets its own ticket pool, so capacity and totals are set per event while the
+ * engine, rates and logging options are shared from the enclosing Configuration.
+ */
+public class EventConfiguration {
+    private String eventId; //key of the event in the event inventory
+    private String eventName; //name printed on the event's tickets
+    private int maxTicketCapacity; //the maximum number of tickets that can be in this event's pool at any given time
+    private int totalTickets; //the total number of tickets the vendors intend to sell for this event
+    private long ticketPrice; //price of one ticket in minor units (cents), 0 for the default price
+    private PricingRules pricing; //section, surge and time-window pricing, null to sell every ticket at ticketPrice
+
+    public static final String DEFAULT_EVENT_ID = "default";
+    public static final String DEFAULT_EVENT_NAME = "Simple Event";
+    public static final long DEFAULT_TICKET_PRICE = 100_000; //1000.00 in cents
+
+    public EventConfiguration(String eventId, String eventName, int maxTicketCapacity, int totalTickets) {
+        this(eventId, eventName, maxTicketCapacity, totalTickets, DEFAULT_TICKET_PRICE);
+    }
+
+    public EventConfiguration(String eventId, String eventName, int maxTicketCapacity, int totalTickets, long ticketPrice) {
+        this.eventId = eventId;
+        this.eventName = eventName;
+        this.maxTicketCapacity = maxTicketCapacity;
+        this.totalTickets = totalTickets;
+        this.ticketPrice = ticketPrice;
+    }
+
+    public String getEventId() {
+        return eventId;
+    }
+
+    public void setEventId(String eventId) {
+        this.eventId = eventId;
+    }
+
+    /**
+     * @return The event name, falling back to the event ID when the name is not stored.
+     */
+    public String getEventName() {
+        return eventName != null ? eventName : eventId;
+    }
+
+    public void setEventName(String eventName) {
+        this.eventName = eventName;
+    }
+
+    public int getMaxTicketCapacity() {
+        return maxTicketCapacity;
+    }
+
+    public void setMaxTicketCapacity(int maxTicketCapacity) {
+        this.maxTicketCapacity = maxTicketCapacity;
+    }
+
+    public int getTotalTickets() {
+        return totalTickets;
+    }
+
+    public void setTotalTickets(int totalTickets) {
+        this.totalTickets = totalTickets;
+    }
+
+    /**
+     * @return The ticket price in minor units, defaulting to 1000.00 when the price is not stored.
+     */
+    public long getTicketPrice() {
+        return ticketPrice > 0 ? ticketPrice : DEFAULT_TICKET_PRICE;
+    }
+
+    public void setTicketPrice(long ticketPrice) {
+        this.ticketPrice = ticketPrice;
+    }
+
+    public PricingRules getPricing() {
+        return pricing;
+    }
+
+    public void setPricing(PricingRules pricing) {
+        this.pricing = pricing;
+    }
+
+    @Override
+    public String toString() {
+        return "EventConfiguration{" +
+                "eventId = " + eventId +
+                ", eventName = " + getEventName() +
+                ", maxTicketCapacity = " + maxTicketCapacity +
+                ", totalTickets = " + totalTickets +
+                ", ticketPrice = " + getTicketPrice() +
+                (pricing != null ? ", pricing = " + pricing : "") +
+                '}';
+    }
+}
@@ -0,0 +1,99 @@
+package org.example;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Index from event ID to the ticket pool of that event.
+ * Every event has its own pool, engine and lock, so a busy event never blocks sales of another.
+ * Lookups go through a ConcurrentHashMap and take no lock, and the pools are never scanned
+ * to find a customer's event.
+ */
+public class EventInventory {
+    private final ConcurrentHashMap<String, TicketPool> pools = new ConcurrentHashMap<>(); //event ID to its pool
+    private final List<String> eventIds = Collections.synchronizedList(new ArrayList<>()); //event IDs in registration order
+
+    /**
+     * Creates an inventory with one pool per event of the configuration.
+     *
+     * @param config The simulation configuration.
+     * @return The new inventory.
+     * @throws IllegalArgumentException If two events share an ID.
+     */
+    public static EventInventory fromConfiguration(Configuration config) {
+        EventInventory inventory = new EventInventory();
+        for (EventConfiguration event : config.getEvents()) {
+            inventory.addEvent(new TicketPool(config, event));
+        }
+        return inventory;
+    }
+
+    /**
+     * Registers the pool of a new event under the pool's event ID.
+     *
+     * @param pool The event's ticket pool.
+     * @throws IllegalArgumentException If an event with the same ID is already registered.
+     */
+    public void addEvent(TicketPool pool) {
+        if (pools.putIfAbsent(pool.getEventId(), pool) != null) {
+            throw new IllegalArgumentException("Duplicate event ID: " + pool.getEventId());
+        }
+        eventIds.add(pool.getEventId());
+    }
+
+    /**
+     * Removes an event from the inventory. Vendors and customers already holding the pool keep using it.
+     *
+     * @param eventId The ID of the event.
+     * @return The removed pool, or null if no event has that ID.
+     */
+    public TicketPool removeEvent(String eventId) {
+        TicketPool removed = pools.remove(eventId);
+        if (removed != null) {
+            eventIds.remove(eventId);
+        }
+        return removed;
+    }
+
+    /**
+     * @param eventId The ID of the event.
+     * @return The event's ticket pool, or null if no event has that ID.
+     */
+    public TicketPool getPool(String eventId) {
+        return pools.get(eventId);
+    }
+
+    /**
+     * @return The IDs of the registered events in registration order.
+     */
+    public List<String> getEventIds() {
+        synchronized (eventIds) {
+            return new ArrayList<>(eventIds);
+        }
+    }
+
+    /**
+     * @return The pools of all registered events in no particular order.
+     */
+    public Collection<TicketPool> getPools() {
+        return Collections.unmodifiableCollection(pools.values());
+    }
+
+    public int size() {
+        return pools.size();
+    }
+
+    /**
+     * @return The total tickets to be sold across all events.
+     */
+    public long getTotalTickets() {
+        long total = 0;
+        for (TicketPool pool : pools.values()) {
+            total += pool.getTotalTickets();
+        }
+        return total;
+    }
+}
@@ -0,0 +1,27 @@
+package org.example;
+
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * How vendor and customer runners are mapped onto threads.
+ */
+public enum ExecutionMode {
+    PLATFORM, // one platform thread per vendor and customer
+    VIRTUAL; // one virtual thread per vendor and customer
+
+    /**
+     * Creates a factory naming its threads prefix-1, prefix-2, ...
+     *
+     * @param prefix Thread name prefix, e.g. "Customer-".
+     * @return A thread factory for this mode.
+     */
+    public ThreadFactory threadFactory(String prefix) {
+        switch (this) {
+            case VIRTUAL:
+                return Thread.ofVirtual().name(prefix, 1).factory();
+            case PLATFORM:
+            default:
+                return Thread.ofPlatform().name(prefix, 1).factory();
+        }
+    }
+}
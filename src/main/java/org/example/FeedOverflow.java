@@ -0,0 +1,11 @@
+package org.example;
+
+/**
+ * What a SalesFeed does with new events for a subscriber whose buffer already holds salesFeedBuffer events.
+ * The selling thread never waits for a subscriber, whichever policy is chosen.
+ */
+public enum FeedOverflow {
+    BUFFER, // keeps every event; the buffer grows past its size, so a subscriber that never catches up costs memory
+    DROP, // discards the new event and counts it as dropped
+    COALESCE // folds the new event into a summary at the end of the buffer: counts and revenue are kept, ticket IDs are not
+}
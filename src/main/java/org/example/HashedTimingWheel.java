@@ -0,0 +1,174 @@
+package org.example;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Hashed timing wheel for large numbers of short timeouts, such as seat holds.
+ * A single daemon thread advances the wheel one slot per tick and runs the tasks whose deadline
+ * falls in that slot; timeouts further away than one revolution wait for the remaining rounds.
+ * Scheduling and cancelling are O(1) and take no lock: new timeouts go through a lock-free queue
+ * that the wheel thread moves into their slots, and cancelled timeouts are dropped when their slot
+ * comes round. Tasks run on the wheel thread, so they must be short and must not block.
+ * Deadlines are rounded up to the next tick.
+ */
+public final class HashedTimingWheel implements AutoCloseable {
+    private final long tickNanos;
+    private final ArrayDeque<Timeout>[] slots; // only accessed by the wheel thread
+    private final int mask;
+    private final ConcurrentLinkedQueue<Timeout> scheduled = new ConcurrentLinkedQueue<>(); // not yet moved into a slot
+    private final long startNanos;
+    private final Thread worker;
+
+    private volatile boolean running = true;
+    private long tick = 0; // ticks completed, only accessed by the wheel thread
+
+    private static final Logger logger = LogManager.getLogger(HashedTimingWheel.class);
+
+    /**
+     * Starts the wheel thread.
+     *
+     * @param tickDuration Length of one tick.
+     * @param unit         Unit of the tick duration.
+     * @param wheelSize    Number of slots, rounded up to a power of two.
+     * @param threadName   Name of the wheel thread.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public HashedTimingWheel(long tickDuration, TimeUnit unit, int wheelSize, String threadName) {
+        this.tickNanos = Math.max(1, unit.toNanos(tickDuration));
+        int size = Integer.highestOneBit(Math.max(1, wheelSize - 1)) << 1;
+        this.slots = new ArrayDeque[size];
+        for (int i = 0; i < size; i++) {
+            slots[i] = new ArrayDeque<>();
+        }
+        this.mask = size - 1;
+        this.startNanos = System.nanoTime();
+        this.worker = Thread.ofPlatform().name(threadName).daemon().start(this::run);
+    }
+
+    /**
+     * A scheduled task that can be cancelled until it runs.
+     */
+    public static final class Timeout {
+        private static final int WAITING = 0;
+        private static final int CANCELLED = 1;
+        private static final int EXPIRED = 2;
+
+        private final Runnable task;
+        private final long deadlineNanos;
+        private final AtomicInteger state = new AtomicInteger(WAITING);
+        private long rounds; // revolutions left before the task runs, only accessed by the wheel thread
+
+        private Timeout(Runnable task, long deadlineNanos) {
+            this.task = task;
+            this.deadlineNanos = deadlineNanos;
+        }
+
+        /**
+         * @return true if the task will no longer run, false if it already ran or was cancelled before.
+         */
+        public boolean cancel() {
+            return state.compareAndSet(WAITING, CANCELLED);
+        }
+
+        public boolean isCancelled() {
+            return state.get() == CANCELLED;
+        }
+
+        public boolean isExpired() {
+            return state.get() == EXPIRED;
+        }
+    }
+
+    /**
+     * Schedules a task to run on the wheel thread once the delay has elapsed.
+     *
+     * @param task  The task to run.
+     * @param delay Delay before the task runs.
+     * @param unit  Unit of the delay.
+     * @return A handle to cancel the task.
+     * @throws IllegalStateException If the wheel was stopped.
+     */
+    public Timeout schedule(Runnable task, long delay, TimeUnit unit) {
+        if (!running) {
+            throw new IllegalStateException("Timing wheel stopped");
+        }
+        Timeout timeout = new Timeout(task, System.nanoTime() + Math.max(0, unit.toNanos(delay)));
+        scheduled.add(timeout);
+        return timeout;
+    }
+
+    /**
+     * @return The length of one tick in nanoseconds.
+     */
+    public long getTickNanos() {
+        return tickNanos;
+    }
+
+    /**
+     * Stops the wheel thread. Timeouts that have not run yet are dropped.
+     */
+    @Override
+    public void close() {
+        running = false;
+        LockSupport.unpark(worker);
+    }
+
+    private void run() {
+        while (running) {
+            long deadline = startNanos + (tick + 1) * tickNanos;
+            long wait;
+            while (running && (wait = deadline - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(this, wait);
+            }
+            if (!running) {
+                break;
+            }
+            transferScheduled();
+            expire(slots[(int) (tick & mask)]);
+            tick++;
+        }
+    }
+
+    /**
+     * Moves newly scheduled timeouts into the slot of their deadline tick. Deadlines already passed go into the current slot.
+     */
+    private void transferScheduled() {
+        Timeout timeout;
+        while ((timeout = scheduled.poll()) != null) {
+            if (timeout.isCancelled()) {
+                continue;
+            }
+            long deadlineTick = Math.max(tick, (timeout.deadlineNanos - startNanos + tickNanos - 1) / tickNanos - 1);
+            timeout.rounds = (deadlineTick - tick) / slots.length;
+            slots[(int) (deadlineTick & mask)].add(timeout);
+        }
+    }
+
+    private void expire(ArrayDeque<Timeout> slot) {
+        for (int i = slot.size(); i > 0; i--) {
+            Timeout timeout = slot.poll();
+            if (timeout.isCancelled()) {
+                continue;
+            }
+            if (timeout.rounds > 0) {
+                timeout.rounds--;
+                slot.add(timeout);
+                continue;
+            }
+            if (timeout.state.compareAndSet(Timeout.WAITING, Timeout.EXPIRED)) {
+                try {
+                    timeout.task.run();
+                } catch (RuntimeException e) {
+                    logger.error("Timeout task failed: {}", e.getMessage());
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,335 @@
+package org.example;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Non-interactive load-test runner. Reads a Workload from a JSON file and/or command line options,
+ * runs it against a fresh event inventory without prompting, and prints a LoadTestReport.
+ *
+ * Usage: java -jar RealTimeTicketing-CLI.jar [--workload file.json] [--config configuration.json]
+ *        [--vendors N] [--customers N] [--vendor-interval-us N] [--customer-interval-us N]
+ *        [--arrivals FIXED|POISSON|BURSTY] [--burst-size N] [--duration SECONDS] [--seed N]
+ *        [--total N] [--capacity N] [--engine TYPE] [--batch N] [--group N] [--mode PLATFORM|VIRTUAL]
+ *        [--open-loop true|false] [--workers N] [--purchase-limit N] [--max-waiters N] [--purchase-timeout-ms N]
+ *        [--customer-rate N] [--customer-burst N] [--report report.json]
+ */
+public class HeadlessRunner {
+
+    private static final Logger logger = LogManager.getLogger(HeadlessRunner.class);
+
+    private static final Gson gson = new GsonBuilder().setPrettyPrinting().create();
+
+    public static void main(String[] args) {
+        Workload workload;
+        try {
+            workload = parseArgs(args);
+        } catch (IllegalArgumentException | IOException e) {
+            System.err.println(e.getMessage());
+            System.err.println("Usage: [--workload file.json] [--config configuration.json] [--vendors N] [--customers N]"
+                    + " [--vendor-interval-us N] [--customer-interval-us N] [--arrivals FIXED|POISSON|BURSTY] [--burst-size N]"
+                    + " [--duration SECONDS] [--seed N] [--total N] [--capacity N] [--engine TYPE] [--batch N] [--group N]"
+                    + " [--mode PLATFORM|VIRTUAL] [--open-loop true|false] [--workers N]"
+                    + " [--purchase-limit N] [--max-waiters N] [--purchase-timeout-ms N] [--customer-rate N] [--customer-burst N]"
+                    + " [--report report.json]");
+            System.exit(2);
+            return;
+        }
+        logger.info("Running workload: {}", workload);
+        try {
+            LoadTestReport report = run(workload);
+            System.out.println(report);
+            if (workload.getReportFile() != null) {
+                try (FileWriter writer = new FileWriter(workload.getReportFile())) {
+                    gson.toJson(report, writer);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.error("Load test interrupted: {}", e.getMessage());
+        } catch (IOException e) {
+            logger.error("Could not write the report: {}", e.getMessage());
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Builds a workload from the command line. A --workload file is read first, then a --config file
+     * replaces its configuration, and the remaining options override single values.
+     *
+     * @param args The command line arguments.
+     * @return The workload.
+     * @throws IllegalArgumentException If an option is unknown or has an invalid value.
+     * @throws IOException              If a workload or configuration file cannot be read.
+     */
+    public static Workload parseArgs(String[] args) throws IOException {
+        Map<String, String> options = new LinkedHashMap<>();
+        for (int i = 0; i < args.length; i++) {
+            if (!args[i].startsWith("--") || i + 1 >= args.length) {
+                throw new IllegalArgumentException("Expected --option value but got: " + args[i]);
+            }
+            options.put(args[i].substring(2), args[++i]);
+        }
+
+        Workload workload = new Workload();
+        String workloadFile = options.remove("workload");
+        if (workloadFile != null) {
+            try (FileReader reader = new FileReader(workloadFile)) {
+                workload = gson.fromJson(reader, Workload.class);
+            }
+        }
+        String configFile = options.remove("config");
+        if (configFile != null) {
+            try (FileReader reader = new FileReader(configFile)) {
+                workload.setConfiguration(gson.fromJson(reader, Configuration.class));
+            }
+        }
+
+        Configuration config = workload.getConfiguration();
+        for (Map.Entry<String, String> option : options.entrySet()) {
+            String value = option.getValue();
+            try {
+                switch (option.getKey()) {
+                    case "vendors":
+                        workload.setVendors(Integer.parseInt(value));
+                        break;
+                    case "customers":
+                        workload.setCustomers(Integer.parseInt(value));
+                        break;
+                    case "vendor-interval-us":
+                        workload.setVendorIntervalMicros(Long.parseLong(value));
+                        break;
+                    case "customer-interval-us":
+                        workload.setCustomerIntervalMicros(Long.parseLong(value));
+                        break;
+                    case "arrivals":
+                        workload.setArrivals(ArrivalPattern.valueOf(value.toUpperCase()));
+                        break;
+                    case "burst-size":
+                        workload.setBurstSize(Integer.parseInt(value));
+                        break;
+                    case "duration":
+                        workload.setDurationSeconds(Integer.parseInt(value));
+                        break;
+                    case "seed":
+                        workload.setSeed(Long.parseLong(value));
+                        break;
+                    case "report":
+                        workload.setReportFile(value);
+                        break;
+                    case "total":
+                        config.setTotalTickets(Integer.parseInt(value));
+                        break;
+                    case "capacity":
+                        config.setMaxTicketCapacity(Integer.parseInt(value));
+                        break;
+                    case "engine":
+                        config.setPoolEngine(PoolEngineType.valueOf(value.toUpperCase()));
+                        break;
+                    case "batch":
+                        config.setReleaseBatchSize(Integer.parseInt(value));
+                        break;
+                    case "group":
+                        config.setPurchaseGroupSize(Integer.parseInt(value));
+                        break;
+                    case "mode":
+                        config.setExecutionMode(ExecutionMode.valueOf(value.toUpperCase()));
+                        break;
+                    case "open-loop":
+                        config.setOpenLoop(Boolean.parseBoolean(value));
+                        break;
+                    case "workers":
+                        config.setSchedulerWorkers(Integer.parseInt(value));
+                        break;
+                    case "purchase-limit":
+                        config.setPurchaseLimit(Integer.parseInt(value));
+                        break;
+                    case "max-waiters":
+                        config.setMaxWaiters(Integer.parseInt(value));
+                        break;
+                    case "purchase-timeout-ms":
+                        config.setPurchaseTimeout(Integer.parseInt(value));
+                        break;
+                    case "customer-rate":
+                        config.setCustomerRateLimit(Integer.parseInt(value));
+                        break;
+                    case "customer-burst":
+                        config.setCustomerBurst(Integer.parseInt(value));
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Unknown option: --" + option.getKey());
+                }
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid value for --" + option.getKey() + ": " + value);
+            }
+        }
+        return workload;
+    }
+
+    /**
+     * Runs the workload until every event is sold out or the duration elapses. With an open-loop
+     * configuration the runners are actors of an OpenLoopScheduler, purchase latency is measured from
+     * each attempt's intended start and the report includes how late attempts started.
+     *
+     * @param workload The workload to run.
+     * @return The run summary.
+     * @throws InterruptedException If the calling thread is interrupted while waiting for the run.
+     */
+    public static LoadTestReport run(Workload workload) throws InterruptedException {
+        Configuration config = workload.getConfiguration();
+        EventInventory inventory = EventInventory.fromConfiguration(config);
+        SalesJournal journal = Main.openJournal(config, inventory);
+        List<String> eventIds = inventory.getEventIds();
+
+        SellOutTracker tracker = new SellOutTracker();
+        for (String eventId : eventIds) {
+            TicketPool pool = inventory.getPool(eventId);
+            tracker.expect(pool);
+            pool.addListener(tracker);
+        }
+        LatencyHistogram purchaseLatency = new LatencyHistogram();
+        SplittableRandom seeds = new SplittableRandom(workload.getSeed()); // one seed per runner, in creation order
+
+        MetricsReporter reporter = Main.startMetrics(config, inventory);
+        long timeout = workload.getDurationSeconds() > 0 ? workload.getDurationSeconds() : Long.MAX_VALUE;
+        LatencyHistogram startDelay = null;
+        long elapsedNanos;
+        try {
+            if (config.isOpenLoop()) {
+                try (OpenLoopScheduler scheduler = new OpenLoopScheduler(config.getSchedulerWorkers(), config.getExecutionMode())) {
+                    for (String eventId : eventIds) {
+                        TicketPool pool = inventory.getPool(eventId);
+                        for (int i = 0; i < workload.getVendors(); i++) {
+                            scheduler.addVendor("V00" + (i + 1) + "-" + eventId, pool, vendorPacer(workload, seeds),
+                                    config.getReleaseBatchSize());
+                        }
+                        for (int i = 0; i < workload.getCustomers(); i++) {
+                            scheduler.addCustomer("C00" + (i + 1) + "-" + eventId, pool, customerPacer(workload, seeds),
+                                    config.getPurchaseGroupSize());
+                        }
+                    }
+                    tracker.start();
+                    scheduler.start();
+                    if (!scheduler.awaitCompletion(timeout, TimeUnit.SECONDS)) {
+                        logger.info("Duration elapsed before every event sold out; stopping the scheduler.");
+                    }
+                    elapsedNanos = System.nanoTime() - tracker.startNanos;
+                    purchaseLatency = scheduler.getPurchaseLatency();
+                    startDelay = scheduler.getStartDelay();
+                }
+            } else {
+                try (SimulationExecutor executor = new SimulationExecutor(config.getExecutionMode())) {
+                    tracker.start();
+                    for (String eventId : eventIds) {
+                        TicketPool pool = inventory.getPool(eventId);
+                        for (int i = 0; i < workload.getVendors(); i++) {
+                            executor.submitVendor(new Vendor("V00" + (i + 1) + "-" + eventId, pool, vendorPacer(workload, seeds),
+                                    config.getReleaseBatchSize()));
+                        }
+                        for (int i = 0; i < workload.getCustomers(); i++) {
+                            Customer customer = new Customer("C00" + (i + 1) + "-" + eventId, pool, customerPacer(workload, seeds),
+                                    config.getPurchaseGroupSize());
+                            customer.setPurchaseLatency(purchaseLatency);
+                            executor.submitCustomer(customer);
+                        }
+                    }
+                    if (!executor.awaitCompletion(timeout, TimeUnit.SECONDS)) {
+                        logger.info("Duration elapsed before every event sold out; stopping vendors and customers.");
+                        executor.shutdownNow();
+                    }
+                    elapsedNanos = System.nanoTime() - tracker.startNanos;
+                }
+            }
+        } finally {
+            if (reporter != null) {
+                reporter.close();
+            }
+            Main.closeJournal(journal);
+        }
+        List<AdmissionControl> admissions = new ArrayList<>();
+        for (String eventId : eventIds) {
+            AdmissionControl admission = inventory.getPool(eventId).getAdmissionControl();
+            if (admission != null) {
+                admissions.add(admission);
+                logger.info(admission.report());
+            }
+        }
+        return new LoadTestReport(TimeUnit.NANOSECONDS.toMillis(elapsedNanos), tracker.sold.sum(), purchaseLatency,
+                startDelay, tracker.sellOutMillis(eventIds), admissions);
+    }
+
+    private static Pacer vendorPacer(Workload workload, SplittableRandom seeds) {
+        return new Pacer(workload.getVendorIntervalMicros(), workload.getArrivals(), workload.getBurstSize(), seeds.nextLong());
+    }
+
+    private static Pacer customerPacer(Workload workload, SplittableRandom seeds) {
+        return new Pacer(workload.getCustomerIntervalMicros(), workload.getArrivals(), workload.getBurstSize(), seeds.nextLong());
+    }
+
+    /**
+     * Counts sales per event during the run and notes when each event sold its last ticket.
+     */
+    private static final class SellOutTracker implements TicketPoolListener {
+        private final Map<String, AtomicLong> remaining = new ConcurrentHashMap<>(); // tickets left to sell per event
+        private final Map<String, Long> sellOutNanos = new ConcurrentHashMap<>();
+        private final LongAdder sold = new LongAdder();
+        private volatile long startNanos;
+
+        private void expect(TicketPool pool) {
+            remaining.put(pool.getEventId(), new AtomicLong(pool.getTotalTickets() - pool.getSalesClaimed()));
+        }
+
+        private void start() {
+            startNanos = System.nanoTime();
+        }
+
+        @Override
+        public void ticketReleased(TicketPool pool, Ticket ticket) {
+        }
+
+        @Override
+        public void ticketsReleased(TicketPool pool, List<Ticket> tickets) {
+        }
+
+        @Override
+        public void ticketSold(TicketPool pool, Ticket ticket) {
+            sold(pool, 1);
+        }
+
+        @Override
+        public void ticketsSold(TicketPool pool, List<Ticket> tickets) {
+            sold(pool, tickets.size());
+        }
+
+        private void sold(TicketPool pool, int tickets) {
+            sold.add(tickets);
+            if (remaining.get(pool.getEventId()).addAndGet(-tickets) <= 0) {
+                sellOutNanos.putIfAbsent(pool.getEventId(), System.nanoTime());
+            }
+        }
+
+        private Map<String, Long> sellOutMillis(List<String> eventIds) {
+            Map<String, Long> millis = new LinkedHashMap<>();
+            for (String eventId : eventIds) {
+                Long at = sellOutNanos.get(eventId);
+                millis.put(eventId, at != null ? TimeUnit.NANOSECONDS.toMillis(at - startNanos) : -1L);
+            }
+            return millis;
+        }
+    }
+}
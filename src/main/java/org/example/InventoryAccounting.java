@@ -0,0 +1,243 @@
+package org.example;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Ticket accounting of one pool: which ticket IDs vendors have claimed for release, how many of the
+ * event's tickets customers may still claim, and how many tickets were actually released and sold.
+ *
+ * Sale permits are striped: the unclaimed tickets are split across per-core stripes, each on its own
+ * cache line, and a customer claims from the stripe its thread hashes to, moving on to the other stripes
+ * only when that one runs dry. Every claim is a single CAS that never lets a stripe go below zero, so the
+ * sum of all claims never exceeds the total, and because permits only move by such CASes a claim that
+ * finds every stripe empty is a clean sold-out signal (until a released hold gives permits back).
+ * Small events use fewer stripes so the last tickets are not scattered across many cache lines.
+ *
+ * Release claims stay a single CAS over the next ticket ID, so IDs are handed out in contiguous blocks;
+ * vendors claim whole batches and are far fewer than customers.
+ */
+public class InventoryAccounting {
+    private static final int STRIDE = 16; // longs per stripe: 128 bytes, so stripes never share a cache line
+    private static final int MIN_TICKETS_PER_STRIPE = 64; // below this many tickets per stripe, fewer stripes are used
+
+    private final int stripes; // a power of two
+    private final AtomicLongArray permits; // unclaimed sale permits of stripe i at index i * STRIDE
+
+    private volatile int totalTickets; // maximum number of tickets to be sold
+
+    private final AtomicInteger releaseClaims = new AtomicInteger(); // ticket IDs claimed by vendors so far
+    private final LongAdder released = new LongAdder(); // tickets placed in the pool, including restored ones
+    private final LongAdder sold = new LongAdder(); // tickets sold, including restored sales
+
+    /**
+     * Creates accounting with one stripe per available processor.
+     *
+     * @param totalTickets The number of tickets the event may sell.
+     */
+    public InventoryAccounting(int totalTickets) {
+        this(totalTickets, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param totalTickets The number of tickets the event may sell.
+     * @param concurrency  Expected number of threads claiming at the same time; rounded up to a power of two.
+     */
+    public InventoryAccounting(int totalTickets, int concurrency) {
+        int n = concurrency <= 1 ? 1 : Integer.highestOneBit(concurrency - 1) << 1;
+        while (n > 1 && totalTickets / n < MIN_TICKETS_PER_STRIPE) {
+            n >>= 1;
+        }
+        this.stripes = n;
+        this.permits = new AtomicLongArray(n * STRIDE);
+        this.totalTickets = Math.max(0, totalTickets);
+        distribute(this.totalTickets);
+    }
+
+    public int getTotalTickets() {
+        return totalTickets;
+    }
+
+    /**
+     * @return The number of stripes the sale permits are split across.
+     */
+    int getStripes() {
+        return stripes;
+    }
+
+    /**
+     * Changes the total. Raising it adds sale permits; lowering it withdraws unclaimed permits, but
+     * never below what customers have already claimed.
+     *
+     * @param totalTickets The new total.
+     */
+    public synchronized void setTotalTickets(int totalTickets) {
+        int delta = Math.max(0, totalTickets) - this.totalTickets;
+        if (delta > 0) {
+            permits.getAndAdd(0, delta);
+        } else if (delta < 0) {
+            delta = -claimSales(-delta, 0);
+        }
+        this.totalTickets += delta;
+    }
+
+    /**
+     * Claims up to max sale permits for one purchase.
+     *
+     * @param max The number of tickets the customer wants.
+     * @return The number of permits claimed, 0 once the event is sold out.
+     */
+    public int claimSales(int max) {
+        return max > 0 ? claimSales(max, homeStripe()) : 0;
+    }
+
+    private int claimSales(int max, int home) {
+        int claimed = 0;
+        for (int i = 0; i < stripes && claimed < max; i++) {
+            claimed += take(((home + i) & (stripes - 1)) * STRIDE, max - claimed);
+        }
+        return claimed;
+    }
+
+    /**
+     * Gives back sale permits that were claimed but not used, e.g. by a hold that expired.
+     *
+     * @param n The number of permits to give back.
+     */
+    public void returnSales(int n) {
+        if (n > 0) {
+            permits.getAndAdd(homeStripe() * STRIDE, n);
+        }
+    }
+
+    /**
+     * @return The number of sale permits not yet claimed; exact only while no claim is in progress.
+     */
+    public int getSalesRemaining() {
+        long remaining = 0;
+        for (int i = 0; i < stripes; i++) {
+            remaining += permits.get(i * STRIDE);
+        }
+        return (int) remaining;
+    }
+
+    /**
+     * @return The number of tickets claimed by customers so far, including restored sales.
+     */
+    public int getSalesClaimed() {
+        return totalTickets - getSalesRemaining();
+    }
+
+    /**
+     * @return true if every sale permit has been claimed.
+     */
+    public boolean isSoldOut() {
+        return getSalesRemaining() == 0;
+    }
+
+    /**
+     * Claims the next block of ticket IDs for release.
+     *
+     * @param max The maximum number of ticket IDs to claim.
+     * @return The block, packed as (ID before the first ticket &lt;&lt; 32) | size, or 0 once every ticket has been released.
+     */
+    public long claimReleases(int max) {
+        int before;
+        int block;
+        do {
+            before = releaseClaims.get();
+            block = Math.min(max, totalTickets - before);
+            if (block <= 0) {
+                return 0;
+            }
+        } while (!releaseClaims.compareAndSet(before, before + block));
+        return ((long) before << 32) | block;
+    }
+
+    /**
+     * @return The ID before the first ticket of a block claimed with claimReleases.
+     */
+    public static int blockStart(long block) {
+        return (int) (block >>> 32);
+    }
+
+    /**
+     * @return The number of ticket IDs in a block claimed with claimReleases.
+     */
+    public static int blockSize(long block) {
+        return (int) block;
+    }
+
+    /**
+     * @return The number of ticket IDs claimed by vendors so far.
+     */
+    public int getReleasesClaimed() {
+        return releaseClaims.get();
+    }
+
+    /**
+     * Restores the claims recovered from a sales journal. Must be called before any vendor or customer starts.
+     *
+     * @param releasedTickets The number of ticket IDs already claimed by vendors.
+     * @param soldTickets     The number of tickets already sold.
+     */
+    public synchronized void restore(int releasedTickets, int soldTickets) {
+        releaseClaims.set(releasedTickets);
+        for (int i = 0; i < stripes; i++) {
+            permits.set(i * STRIDE, 0);
+        }
+        distribute(Math.max(0, totalTickets - soldTickets));
+        released.add(releasedTickets);
+        sold.add(soldTickets);
+    }
+
+    public void recordReleased(int tickets) {
+        released.add(tickets);
+    }
+
+    public void recordSold(int tickets) {
+        sold.add(tickets);
+    }
+
+    /**
+     * @return The number of tickets placed in the pool, including restored ones.
+     */
+    public long getTicketsReleased() {
+        return released.sum();
+    }
+
+    /**
+     * @return The number of tickets sold, including restored sales.
+     */
+    public long getTicketsSold() {
+        return sold.sum();
+    }
+
+    private void distribute(int tickets) {
+        for (int i = 0; i < stripes; i++) {
+            permits.getAndAdd(i * STRIDE, tickets / stripes + (i < tickets % stripes ? 1 : 0));
+        }
+    }
+
+    /**
+     * Takes up to n permits from one stripe.
+     */
+    private int take(int index, int n) {
+        while (true) {
+            long available = permits.get(index);
+            if (available <= 0) {
+                return 0;
+            }
+            int taken = (int) Math.min(available, n);
+            if (permits.compareAndSet(index, available, available - taken)) {
+                return taken;
+            }
+        }
+    }
+
+    private int homeStripe() {
+        long id = Thread.currentThread().threadId();
+        return (int) ((id * 0x9E3779B97F4A7C15L) >>> 32) & (stripes - 1);
+    }
+}
@@ -0,0 +1,539 @@
+package org.example;
+
+import com.google.gson.Gson;
+import com.google.gson.stream.JsonWriter;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+
+import static org.apache.logging.log4j.util.Unbox.box;
+
+/**
+ * Binary snapshot of a configuration and the pools built from it, for restarting a node without the
+ * interactive menu, the Gson parse or a journal replay, and for exporting the state of a running
+ * inventory. The file is memory-mapped both ways: writing copies the captured ticket IDs straight into
+ * the mapped file, and loading reads the settings and the event headers and skips over the tickets,
+ * which are only read when the pools are restored or exported. No reflection is involved.
+ *
+ * Layout (big-endian): int MAGIC, int VERSION, the configuration settings, int event count, then per
+ * event: eventId, eventName, long price, int capacity, int total, the pricing rules (int -1 for none,
+ * else the sections, surge tiers and time windows, each as a count followed by their fields),
+ * int IDs released, int tickets sold, int tickets held, int tickets in the pool, and their ticket IDs in
+ * pool order; then int vendor count and per vendor: vendorId, long tickets sold, long revenue. Strings
+ * are an int byte length (-1 for null) followed by UTF-8 bytes.
+ *
+ * A snapshot may be written while vendors and customers are running. Each pool's tickets are captured
+ * with TicketPool.getTicketIds, which for the locking engines fixes them at one instant and pauses sales
+ * only for short chunk copies; RING_BUFFER and SHARDED capture their slots or shards one after the other.
+ * Only the captured IDs and the IDs released are taken as state, and the released count is read after
+ * the capture, so every captured ID is within it. Every released ID that was not captured counts as sold:
+ * tickets sold, held in reservations or still with a vendor at the capture. The stored sold count is
+ * derived that way, minus the held count, which is informational; the counters are not read, as they lag
+ * the engine and cannot be read at the capture instant. A ticket captured twice by a piecewise capture,
+ * e.g. returned by an expired hold to a shard not captured yet, is stored once. Restoring therefore gives
+ * each pool exactly one sale permit per captured ticket plus one per ticket never released, so no ticket
+ * is sold twice and no customer waits for a ticket that cannot come.
+ * Pools are captured one after the other.
+ */
+public final class InventorySnapshot {
+    private static final int MAGIC = 0x52545453; // "RTTS"
+    private static final int VERSION = 7; // 2: sales feed options, 3: pricing rules, 4: wait strategy, 5: sales analytics, 6: held counts and vendor stats, 7: admission control
+
+    private final Configuration configuration;
+    private final MappedByteBuffer buffer;
+    private final int[] countsOffsets; // per event, position of its released, sold, held and ticket counts
+    private final List<VendorStats> vendors;
+
+    private static final Logger logger = LogManager.getLogger(InventorySnapshot.class);
+
+    private InventorySnapshot(Configuration configuration, MappedByteBuffer buffer, int[] countsOffsets, List<VendorStats> vendors) {
+        this.configuration = configuration;
+        this.buffer = buffer;
+        this.countsOffsets = countsOffsets;
+        this.vendors = vendors;
+    }
+
+    /**
+     * Writes a snapshot without vendor statistics.
+     *
+     * @param file      The snapshot file.
+     * @param config    The configuration to store; its events are replaced by the pools of the inventory.
+     * @param inventory The pools to store.
+     * @throws IOException If the file cannot be written.
+     */
+    public static void write(Path file, Configuration config, EventInventory inventory) throws IOException {
+        write(file, config, inventory, null);
+    }
+
+    /**
+     * Captures the pools and writes them to a temporary file next to the target, mapped at its exact size,
+     * then moves it into place, so a crash while writing leaves the previous snapshot intact.
+     *
+     * @param file      The snapshot file.
+     * @param config    The configuration to store; its events are replaced by the pools of the inventory.
+     * @param inventory The pools to store.
+     * @param analytics Sales analytics whose per-vendor totals are stored, or null for none.
+     * @throws IOException If the file cannot be written or would exceed 2 GB.
+     */
+    public static void write(Path file, Configuration config, EventInventory inventory, SalesAnalytics analytics) throws IOException {
+        List<String> eventIds = inventory.getEventIds();
+        ByteBuffer header = encode(out -> {
+            out.putInt(MAGIC);
+            out.putInt(VERSION);
+            writeConfiguration(out, config);
+            out.putInt(eventIds.size());
+        });
+        long size = header.remaining();
+        ByteBuffer[] eventHeaders = new ByteBuffer[eventIds.size()];
+        int[][] tickets = new int[eventIds.size()][];
+        for (int i = 0; i < eventIds.size(); i++) {
+            TicketPool pool = inventory.getPool(eventIds.get(i));
+            int[] ids = distinct(pool.getTicketIds()); // the pool's state in this snapshot
+            int released = pool.getAccounting().getReleasesClaimed(); // read after the capture, so it covers every captured ID
+            tickets[i] = ids;
+            eventHeaders[i] = encode(out -> writeEvent(out, pool, released, ids.length));
+            size += eventHeaders[i].remaining() + 4L * ids.length;
+        }
+        ByteBuffer vendorStats = encode(out -> writeVendors(out, analytics));
+        size += vendorStats.remaining();
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("Snapshot of " + size + " bytes is too large to map");
+        }
+
+        Path absolute = file.toAbsolutePath();
+        Path temp = absolute.resolveSibling(absolute.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            MappedByteBuffer out = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+            out.put(header);
+            for (int i = 0; i < tickets.length; i++) {
+                out.put(eventHeaders[i]);
+                out.asIntBuffer().put(tickets[i]);
+                out.position(out.position() + 4 * tickets[i].length);
+            }
+            out.put(vendorStats);
+            out.force();
+        }
+        Files.move(temp, absolute, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * @return The IDs with any repeated ID dropped, in their first order; the same array if there is none.
+     */
+    private static int[] distinct(int[] ids) {
+        BitSet seen = new BitSet();
+        int n = 0;
+        for (int id : ids) {
+            if (!seen.get(id)) {
+                seen.set(id);
+                ids[n++] = id;
+            }
+        }
+        return n == ids.length ? ids : Arrays.copyOf(ids, n);
+    }
+
+    /**
+     * Runs the writer on a heap buffer, doubling the buffer until everything fits.
+     *
+     * @return The written bytes, ready to be read.
+     */
+    private static ByteBuffer encode(Consumer<ByteBuffer> writer) {
+        ByteBuffer out = ByteBuffer.allocate(1 << 12);
+        while (true) {
+            try {
+                out.clear();
+                writer.accept(out);
+                return out.flip();
+            } catch (BufferOverflowException e) {
+                out = ByteBuffer.allocate(out.capacity() * 2);
+            }
+        }
+    }
+
+    /**
+     * Maps a snapshot file and reads its configuration.
+     *
+     * @param file The snapshot file.
+     * @return The snapshot; call restore() to build the pools.
+     * @throws IOException If the file cannot be read or is not a snapshot.
+     */
+    public static InventorySnapshot load(Path file) throws IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()); // stays valid after the channel is closed
+        }
+        try {
+            if (buffer.getInt() != MAGIC) {
+                throw new IOException("Not an inventory snapshot: " + file);
+            }
+            int version = buffer.getInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported snapshot version " + version + ": " + file);
+            }
+            Configuration config = readConfiguration(buffer);
+            int[] countsOffsets = new int[buffer.getInt()];
+            List<EventConfiguration> events = new ArrayList<>(countsOffsets.length);
+            for (int i = 0; i < countsOffsets.length; i++) {
+                EventConfiguration event = new EventConfiguration(readString(buffer), readString(buffer), 0, 0, buffer.getLong());
+                event.setMaxTicketCapacity(buffer.getInt());
+                event.setTotalTickets(buffer.getInt());
+                event.setPricing(readPricing(buffer));
+                events.add(event);
+                countsOffsets[i] = buffer.position();
+                buffer.position(buffer.position() + 16 + 4 * buffer.getInt(buffer.position() + 12)); // skips the tickets
+            }
+            config.setEvents(events);
+            int vendorCount = buffer.getInt();
+            List<VendorStats> vendors = new ArrayList<>(vendorCount);
+            for (int i = 0; i < vendorCount; i++) {
+                vendors.add(new VendorStats(readString(buffer), buffer.getLong(), buffer.getLong()));
+            }
+            return new InventorySnapshot(config, buffer, countsOffsets, vendors);
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException e) {
+            throw new IOException("Corrupt inventory snapshot: " + file, e);
+        }
+    }
+
+    /**
+     * @return The stored configuration, with one event per stored pool and the stored capacities and totals.
+     */
+    public Configuration getConfiguration() {
+        return configuration;
+    }
+
+    /**
+     * Builds an inventory holding the stored pools: every pool gets its stored tickets back and
+     * continues its release count from the snapshot. Released tickets that were not in the pool, whether
+     * sold, held or still with a vendor, are restored as sold, so the pool has one sale permit per stored
+     * ticket and per ticket not released yet. Reservations are not stored, so held tickets are not sold again.
+     *
+     * @return The restored inventory.
+     * @throws IOException If the snapshot is corrupt.
+     */
+    public EventInventory restore() throws IOException {
+        ByteBuffer in = buffer.duplicate();
+        EventInventory inventory = new EventInventory();
+        try {
+            for (int i = 0; i < countsOffsets.length; i++) {
+                EventConfiguration event = configuration.getEvents().get(i);
+                in.position(countsOffsets[i]);
+                int released = in.getInt();
+                in.getInt(); // sold, derived from the other counts
+                int held = in.getInt();
+                int n = in.getInt();
+                if (n > released) {
+                    throw new IOException("Corrupt inventory snapshot: " + n + " tickets of " + released + " released");
+                }
+                if (held > 0) {
+                    logger.info("{} tickets of {} held in reservations when the snapshot was taken are not restored.",
+                            box(held), event.getEventId());
+                }
+                TicketPool pool = new TicketPool(configuration, event);
+                List<Ticket> unsold = new ArrayList<>(n);
+                for (int t = 0; t < n; t++) {
+                    unsold.add(new Ticket(in.getInt(), event.getEventName(), event.getTicketPrice()));
+                }
+                pool.restore(unsold, released, released - n); // sale permits match the tickets actually in the pool
+                inventory.addEvent(pool);
+            }
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException e) {
+            throw new IOException("Corrupt inventory snapshot", e);
+        }
+        return inventory;
+    }
+
+    /**
+     * @param event Index of the event in the stored configuration.
+     * @return The ticket IDs that were in the event's pool, oldest first.
+     * @throws IOException If the snapshot is corrupt.
+     */
+    public int[] getTicketIds(int event) throws IOException {
+        try {
+            int n = buffer.getInt(countsOffsets[event] + 12);
+            int[] ids = new int[n];
+            buffer.duplicate().position(countsOffsets[event] + 16).asIntBuffer().get(ids);
+            return ids;
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException e) {
+            throw new IOException("Corrupt inventory snapshot", e);
+        }
+    }
+
+    /**
+     * @param event Index of the event in the stored configuration.
+     * @return The tickets of the event released by vendors.
+     */
+    public int getTicketsReleased(int event) {
+        return buffer.getInt(countsOffsets[event]);
+    }
+
+    /**
+     * @param event Index of the event in the stored configuration.
+     * @return The released tickets of the event that were neither in the pool nor held at the capture:
+     * sold, or claimed by a vendor and not added yet.
+     */
+    public int getTicketsSold(int event) {
+        return buffer.getInt(countsOffsets[event] + 4);
+    }
+
+    /**
+     * @param event Index of the event in the stored configuration.
+     * @return The tickets of the event held in reservations awaiting payment.
+     */
+    public int getTicketsHeld(int event) {
+        return buffer.getInt(countsOffsets[event] + 8);
+    }
+
+    /**
+     * @return The stored per-vendor sales, by vendor ID; empty if written without sales analytics.
+     */
+    public List<VendorStats> getVendors() {
+        return vendors;
+    }
+
+    /**
+     * Converts the snapshot to JSON: the configuration as in configuration.json, then per pool its counts
+     * and ticket IDs, then the vendor statistics. Ticket IDs are streamed from the mapped file, so a large
+     * pool is never held as JSON in memory.
+     *
+     * @param writer Receives the JSON.
+     * @throws IOException If writing fails or the snapshot is corrupt.
+     */
+    public void writeJson(Writer writer) throws IOException {
+        JsonWriter json = new JsonWriter(writer);
+        json.beginObject();
+        json.name("configuration");
+        new Gson().toJson(configuration, Configuration.class, json);
+        json.name("pools").beginArray();
+        for (int i = 0; i < countsOffsets.length; i++) {
+            json.beginObject();
+            json.name("eventId").value(configuration.getEvents().get(i).getEventId());
+            json.name("ticketsReleased").value(getTicketsReleased(i));
+            json.name("ticketsSold").value(getTicketsSold(i));
+            json.name("ticketsHeld").value(getTicketsHeld(i));
+            json.name("ticketIds").beginArray();
+            for (int id : getTicketIds(i)) {
+                json.value(id);
+            }
+            json.endArray();
+            json.endObject();
+        }
+        json.endArray();
+        json.name("vendors").beginArray();
+        for (VendorStats vendor : vendors) {
+            json.beginObject();
+            json.name("vendorId").value(vendor.getVendorId());
+            json.name("ticketsSold").value(vendor.getTicketsSold());
+            json.name("revenue").value(vendor.getRevenue());
+            json.endObject();
+        }
+        json.endArray();
+        json.endObject();
+        json.flush();
+    }
+
+    /**
+     * Sales of one vendor's tickets, as recorded by SalesAnalytics when the snapshot was written.
+     */
+    public static final class VendorStats {
+        private final String vendorId;
+        private final long ticketsSold;
+        private final long revenue; //minor units
+
+        VendorStats(String vendorId, long ticketsSold, long revenue) {
+            this.vendorId = vendorId;
+            this.ticketsSold = ticketsSold;
+            this.revenue = revenue;
+        }
+
+        public String getVendorId() {
+            return vendorId;
+        }
+
+        public long getTicketsSold() {
+            return ticketsSold;
+        }
+
+        /**
+         * @return The revenue in minor units.
+         */
+        public long getRevenue() {
+            return revenue;
+        }
+
+        @Override
+        public String toString() {
+            return vendorId + ": " + ticketsSold + " tickets, revenue " + revenue;
+        }
+    }
+
+    private static void writeEvent(ByteBuffer out, TicketPool pool, int released, int tickets) {
+        writeString(out, pool.getEventId());
+        writeString(out, pool.getEventName());
+        out.putLong(pool.getTicketPrice());
+        out.putInt(pool.getMaxTicketCapacity());
+        out.putInt(pool.getTotalTickets());
+        PriceSchedule pricing = pool.getPriceSchedule();
+        writePricing(out, pricing != null ? pricing.getRules() : null);
+        int held = Math.min(pool.getTicketsHeld(), released - tickets);
+        out.putInt(released);
+        out.putInt(released - tickets - held);
+        out.putInt(held);
+        out.putInt(tickets);
+    }
+
+    private static void writeVendors(ByteBuffer out, SalesAnalytics analytics) {
+        if (analytics == null) {
+            out.putInt(0);
+            return;
+        }
+        Map<String, SalesAnalytics.Totals> byVendor = new TreeMap<>(analytics.getByVendor());
+        out.putInt(byVendor.size());
+        byVendor.forEach((vendorId, totals) -> {
+            writeString(out, vendorId);
+            out.putLong(totals.getTickets());
+            out.putLong(totals.getRevenue());
+        });
+    }
+
+    private static void writeConfiguration(ByteBuffer out, Configuration config) {
+        out.putInt(config.getTicketReleaseRate());
+        out.putInt(config.getCustomerRetrievalRate());
+        out.putInt(config.getMaxTicketCapacity());
+        out.putInt(config.getTotalTickets());
+        out.putInt(config.getReleaseBatchSize());
+        out.putInt(config.getPurchaseGroupSize());
+        writeString(out, config.getPoolEngine().name());
+        out.putInt(config.getLogSampleRate());
+        out.putInt(config.getPoolShards());
+        out.put((byte) (config.isFairLock() ? 1 : 0));
+        writeString(out, config.getExecutionMode().name());
+        writeString(out, config.getJournalFile());
+        writeString(out, config.getJournalDurability().name());
+        out.putInt(config.getJournalSyncInterval());
+        out.putInt(config.getMetricsInterval());
+        out.put((byte) (config.isOpenLoop() ? 1 : 0));
+        out.putInt(config.getSchedulerWorkers());
+        out.putInt(config.getPurchaseLimit());
+        out.putInt(config.getSalesFeedBuffer());
+        writeString(out, config.getSalesFeedOverflow().name());
+        writeString(out, config.getWaitStrategy().name());
+        out.put((byte) (config.isSalesAnalytics() ? 1 : 0));
+        out.putInt(config.getMaxWaiters());
+        out.putInt(config.getPurchaseTimeout());
+        out.putInt(config.getCustomerRateLimit());
+        out.putInt(config.getCustomerBurst());
+    }
+
+    private static Configuration readConfiguration(ByteBuffer in) {
+        Configuration config = new Configuration(in.getInt(), in.getInt(), in.getInt(), in.getInt());
+        config.setReleaseBatchSize(in.getInt());
+        config.setPurchaseGroupSize(in.getInt());
+        config.setPoolEngine(PoolEngineType.valueOf(readString(in)));
+        config.setLogSampleRate(in.getInt());
+        config.setPoolShards(in.getInt());
+        config.setFairLock(in.get() != 0);
+        config.setExecutionMode(ExecutionMode.valueOf(readString(in)));
+        config.setJournalFile(readString(in));
+        config.setJournalDurability(JournalDurability.valueOf(readString(in)));
+        config.setJournalSyncInterval(in.getInt());
+        config.setMetricsInterval(in.getInt());
+        config.setOpenLoop(in.get() != 0);
+        config.setSchedulerWorkers(in.getInt());
+        config.setPurchaseLimit(in.getInt());
+        config.setSalesFeedBuffer(in.getInt());
+        config.setSalesFeedOverflow(FeedOverflow.valueOf(readString(in)));
+        config.setWaitStrategy(WaitStrategy.valueOf(readString(in)));
+        config.setSalesAnalytics(in.get() != 0);
+        config.setMaxWaiters(in.getInt());
+        config.setPurchaseTimeout(in.getInt());
+        config.setCustomerRateLimit(in.getInt());
+        config.setCustomerBurst(in.getInt());
+        return config;
+    }
+
+    private static void writePricing(ByteBuffer out, PricingRules rules) {
+        if (rules == null) {
+            out.putInt(-1);
+            return;
+        }
+        out.putInt(rules.getSections().size());
+        for (PricingRules.Section section : rules.getSections()) {
+            writeString(out, section.getName());
+            out.putInt(section.getSeats());
+            out.putLong(section.getPrice());
+        }
+        out.putInt(rules.getSurge().size());
+        for (PricingRules.SurgeTier tier : rules.getSurge()) {
+            out.putInt(tier.getSoldPercent());
+            out.putInt(tier.getMarkupPercent());
+        }
+        out.putInt(rules.getWindows().size());
+        for (PricingRules.TimeWindow window : rules.getWindows()) {
+            writeString(out, window.getName());
+            writeString(out, window.getStart());
+            writeString(out, window.getEnd());
+            out.putInt(window.getMarkupPercent());
+        }
+    }
+
+    private static PricingRules readPricing(ByteBuffer in) {
+        int sectionCount = in.getInt();
+        if (sectionCount < 0) {
+            return null;
+        }
+        List<PricingRules.Section> sections = new ArrayList<>(sectionCount);
+        for (int i = 0; i < sectionCount; i++) {
+            sections.add(new PricingRules.Section(readString(in), in.getInt(), in.getLong()));
+        }
+        int surgeCount = in.getInt();
+        List<PricingRules.SurgeTier> surge = new ArrayList<>(surgeCount);
+        for (int i = 0; i < surgeCount; i++) {
+            surge.add(new PricingRules.SurgeTier(in.getInt(), in.getInt()));
+        }
+        int windowCount = in.getInt();
+        List<PricingRules.TimeWindow> windows = new ArrayList<>(windowCount);
+        for (int i = 0; i < windowCount; i++) {
+            windows.add(new PricingRules.TimeWindow(readString(in), readString(in), readString(in), in.getInt()));
+        }
+        return new PricingRules(sections, surge, windows);
+    }
+
+    private static void writeString(ByteBuffer out, String value) {
+        if (value == null) {
+            out.putInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.putInt(bytes.length);
+        out.put(bytes);
+    }
+
+    private static String readString(ByteBuffer in) {
+        int length = in.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,10 @@
+package org.example;
+
+/**
+ * How far a SalesJournal goes to make a journaled release or sale survive a crash.
+ */
+public enum JournalDurability {
+    NONE, // records are written when the buffer fills and on close, never forced to disk
+    BATCHED, // a background committer writes and forces buffered records every journalSyncInterval ms
+    PER_SALE // every release and sale is forced to disk before the pool call returns; concurrent callers share one force
+}
@@ -0,0 +1,201 @@
+package org.example;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Concurrent log-linear histogram of non-negative values, in the style of HdrHistogram.
+ * Values below 128 get a bucket each; above that every power of two is split into 64 linear
+ * buckets, so a reported percentile is within 1.6% of the recorded value over the whole long range.
+ * Recording is one atomic increment on the value's bucket plus two striped adders, with no locking
+ * and no allocation. All buckets live in one array of about 30 KB. Like a LongAdder, the histogram
+ * only stripes once threads contend: the first failed increment of a bucket below HOT_LIMIT, where
+ * short waits pile up on the same few buckets, adds per-stripe copies of that range (about 4 KB per
+ * stripe), picked by thread ID. Slower values spread over many buckets and stay in the shared array.
+ * Reads sum the copies without allocating, and are weakly consistent while values are being recorded.
+ */
+public class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 7;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS; // values below this have exact buckets
+    private static final int HALF = SUB_BUCKETS >> 1; // linear buckets per power of two above SUB_BUCKETS
+    private static final int BUCKETS = SUB_BUCKETS + (63 - SUB_BUCKET_BITS) * HALF;
+    private static final long HOT_LIMIT = 1L << 13; // values below this are striped once contended
+    private static final int HOT_BUCKETS = index(HOT_LIMIT);
+    private static final int STRIPES = Math.min(8, Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 2 - 1)); // power of two
+    private static final int STRIPE_MASK = STRIPES - 1;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private volatile AtomicLongArray hot; //one run of HOT_BUCKETS per stripe, null until a hot bucket was contended
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    /**
+     * Records one value. Negative values are recorded as 0.
+     *
+     * @param value The value, e.g. a duration in nanoseconds.
+     */
+    public void record(long value) {
+        long recorded = Math.max(0, value);
+        int index = index(recorded);
+        AtomicLongArray striped = hot;
+        if (striped != null && index < HOT_BUCKETS) {
+            striped.getAndIncrement(stripe() * HOT_BUCKETS + index);
+        } else {
+            long before = counts.get(index);
+            if (!counts.compareAndSet(index, before, before + 1)) {
+                contended(index);
+            }
+        }
+        count.increment();
+        sum.add(recorded);
+        max.accumulate(recorded);
+    }
+
+    /**
+     * Counts a value whose bucket was just incremented by another thread: in this thread's stripe if the
+     * bucket is hot, creating the stripes on first use, else in the shared bucket.
+     */
+    private void contended(int index) {
+        if (index >= HOT_BUCKETS) {
+            counts.getAndIncrement(index);
+            return;
+        }
+        AtomicLongArray striped = hot;
+        if (striped == null) {
+            synchronized (this) {
+                striped = hot;
+                if (striped == null) {
+                    striped = new AtomicLongArray(STRIPES * HOT_BUCKETS);
+                    hot = striped;
+                }
+            }
+        }
+        striped.getAndIncrement(stripe() * HOT_BUCKETS + index);
+    }
+
+    /**
+     * @return The number of recorded values.
+     */
+    public long getCount() {
+        return count.sum();
+    }
+
+    /**
+     * @return The mean of the recorded values, or 0 if none were recorded.
+     */
+    public double getMean() {
+        long n = count.sum();
+        return n == 0 ? 0 : (double) sum.sum() / n;
+    }
+
+    /**
+     * @return The largest recorded value, or 0 if none were recorded.
+     */
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * Returns the value at the given percentile: the highest value in the bucket holding it,
+     * capped at the largest recorded value.
+     *
+     * @param percentile Percentile between 0 and 100, e.g. 99.9.
+     * @return The value at the percentile, or 0 if none were recorded.
+     */
+    public long getValueAtPercentile(double percentile) {
+        return getValuesAtPercentiles(percentile)[0];
+    }
+
+    /**
+     * Returns the values at several percentiles from one pass over the buckets, so a report gets
+     * consistent percentiles for the cost of one.
+     *
+     * @param percentiles Percentiles between 0 and 100, in any order.
+     * @return The value at each percentile, as getValueAtPercentile, in the order given.
+     */
+    public long[] getValuesAtPercentiles(double... percentiles) {
+        long[] values = new long[percentiles.length];
+        AtomicLongArray striped = hot;
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            total += bucket(striped, i);
+        }
+        if (total == 0) {
+            return values;
+        }
+        long[] targets = new long[percentiles.length];
+        for (int p = 0; p < percentiles.length; p++) {
+            targets[p] = Math.max(1, (long) Math.ceil(Math.min(100, Math.max(0, percentiles[p])) / 100 * total));
+        }
+        long highest = max.get();
+        int unresolved = percentiles.length;
+        long seen = 0;
+        for (int i = 0; i < BUCKETS && unresolved > 0; i++) {
+            seen += bucket(striped, i);
+            for (int p = 0; p < targets.length; p++) {
+                if (seen >= targets[p]) {
+                    values[p] = Math.min(highestValue(i), highest);
+                    targets[p] = Long.MAX_VALUE; // resolved
+                    unresolved--;
+                }
+            }
+        }
+        for (int p = 0; p < targets.length; p++) {
+            if (targets[p] != Long.MAX_VALUE) {
+                values[p] = highest; // values recorded between the two passes
+            }
+        }
+        return values;
+    }
+
+    private long bucket(AtomicLongArray striped, int index) {
+        long n = counts.get(index);
+        if (striped != null && index < HOT_BUCKETS) {
+            for (int s = 0; s < STRIPES; s++) {
+                n += striped.get(s * HOT_BUCKETS + index);
+            }
+        }
+        return n;
+    }
+
+    /**
+     * Clears every recorded value. Values recorded concurrently may be partly kept.
+     */
+    public void reset() {
+        for (int i = 0; i < counts.length(); i++) {
+            counts.set(i, 0);
+        }
+        AtomicLongArray striped = hot;
+        if (striped != null) {
+            for (int i = 0; i < striped.length(); i++) {
+                striped.set(i, 0);
+            }
+        }
+        count.reset();
+        sum.reset();
+        max.reset();
+    }
+
+    private static int stripe() {
+        return (int) Thread.currentThread().threadId() & STRIPE_MASK; // IDs are handed out in sequence, so threads spread over the stripes
+    }
+
+    static int index(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - (SUB_BUCKET_BITS - 1); // value >>> shift is in [HALF, SUB_BUCKETS)
+        return SUB_BUCKETS + (shift - 1) * HALF + (int) (value >>> shift) - HALF;
+    }
+
+    static long highestValue(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int shift = (index - SUB_BUCKETS) / HALF + 1;
+        long lowest = (long) ((index - SUB_BUCKETS) % HALF + HALF) << shift;
+        return lowest + (1L << shift) - 1;
+    }
+}
@@ -0,0 +1,165 @@
+package org.example;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * The configuration a running simulation follows, replaced as a whole while it runs.
+ * Every change is a new Configuration snapshot published with a single reference swap, so readers see
+ * either the old or the new snapshot and never half of an edit; a published snapshot must not be changed.
+ * Listeners are called on the publishing thread and hand the new values to pools and runners through
+ * volatile fields, so vendors and customers keep selling while a change is applied.
+ * Optionally watches the JSON file the configuration was loaded from and publishes every valid edit;
+ * a file that does not parse is logged and ignored, leaving the current snapshot in place.
+ */
+public class LiveConfiguration implements AutoCloseable {
+    private static final long SETTLE_MILLIS = 100; // lets an editor finish writing before the file is read
+
+    /**
+     * Called after a new snapshot has been published.
+     */
+    public interface Listener {
+        /**
+         * @param previous The snapshot that was replaced.
+         * @param current  The snapshot now in effect.
+         */
+        void configurationChanged(Configuration previous, Configuration current);
+    }
+
+    private final AtomicReference<Configuration> current;
+    private final CopyOnWriteArrayList<Listener> listeners = new CopyOnWriteArrayList<>();
+    private final Gson gson = new Gson();
+
+    private volatile WatchService watchService; //null unless a file is watched
+
+    private static final Logger logger = LogManager.getLogger(LiveConfiguration.class);
+
+    /**
+     * @param initial The configuration the simulation starts with.
+     */
+    public LiveConfiguration(Configuration initial) {
+        this.current = new AtomicReference<>(initial);
+    }
+
+    /**
+     * @return The snapshot currently in effect.
+     */
+    public Configuration get() {
+        return current.get();
+    }
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Makes the given snapshot the current one and notifies the listeners.
+     * Concurrent publishes are applied in the order their swaps happened.
+     *
+     * @param next The new configuration; must not be changed afterwards.
+     */
+    public synchronized void publish(Configuration next) {
+        Configuration previous = current.getAndSet(next);
+        logger.info("Configuration updated: {}", next);
+        for (Listener listener : listeners) {
+            try {
+                listener.configurationChanged(previous, next);
+            } catch (RuntimeException e) {
+                logger.error("Applying the configuration failed: {}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Starts a daemon thread that publishes the file's contents every time it is written.
+     *
+     * @param file The JSON configuration file.
+     * @throws IOException If the file's directory cannot be watched.
+     */
+    public synchronized void watch(Path file) throws IOException {
+        if (watchService != null) {
+            throw new IllegalStateException("Already watching a configuration file");
+        }
+        Path absolute = file.toAbsolutePath();
+        WatchService service = absolute.getFileSystem().newWatchService();
+        absolute.getParent().register(service, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        watchService = service;
+        Thread.ofPlatform().name("ConfigurationWatcher").daemon().start(() -> watchLoop(service, absolute));
+        logger.info("Watching {} for configuration changes.", absolute);
+    }
+
+    /**
+     * Stops watching the configuration file. The current snapshot stays in effect.
+     */
+    @Override
+    public synchronized void close() {
+        WatchService service = watchService;
+        watchService = null;
+        if (service != null) {
+            try {
+                service.close();
+            } catch (IOException e) {
+                logger.error(e.getMessage());
+            }
+        }
+    }
+
+    private void watchLoop(WatchService service, Path file) {
+        try {
+            while (true) {
+                WatchKey key = service.take();
+                boolean changed = false;
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (file.getFileName().equals(event.context())) {
+                        changed = true;
+                    }
+                }
+                key.reset();
+                if (changed) {
+                    Thread.sleep(SETTLE_MILLIS);
+                    WatchKey more;
+                    while ((more = service.poll()) != null) { // writes made while settling are part of the same edit
+                        more.pollEvents();
+                        more.reset();
+                    }
+                    reload(file);
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            logger.debug("Stopped watching {}.", file);
+        }
+    }
+
+    private void reload(Path file) {
+        Configuration next;
+        try (Reader reader = Files.newBufferedReader(file)) {
+            next = gson.fromJson(reader, Configuration.class);
+        } catch (IOException | JsonParseException e) {
+            logger.warn("Ignoring unreadable configuration {}: {}", file, e.getMessage());
+            return;
+        }
+        if (next == null) {
+            logger.warn("Ignoring empty configuration {}.", file);
+            return;
+        }
+        publish(next);
+    }
+}
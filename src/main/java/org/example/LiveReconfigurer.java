@@ -0,0 +1,118 @@
+package org.example;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.apache.logging.log4j.util.Unbox.box;
+
+/**
+ * Applies published configuration changes to a running simulation: pool capacities, pricing rules,
+ * purchase limits and log sampling go to the pools of the inventory, release and retrieval rates to the registered vendors
+ * and customers, or to the actors of the open-loop scheduler. Only settings that differ from the previous configuration
+ * are applied, so an unchanged price schedule keeps its built tables. Settings fixed when
+ * the simulation started (engine, wait strategy, shards, execution mode, totals, batch and group sizes, admission control,
+ * the set of events) are left as they are.
+ *
+ * A purchase limit only counts purchases made while a limit is set, see TicketPool.setPurchaseLimit: a limit
+ * introduced mid-sale lets each customer buy up to the limit from then on, whatever it bought before.
+ */
+public class LiveReconfigurer implements LiveConfiguration.Listener {
+    private final EventInventory inventory;
+    private final List<Vendor> vendors = new CopyOnWriteArrayList<>();
+    private final List<Customer> customers = new CopyOnWriteArrayList<>();
+    private volatile OpenLoopScheduler scheduler; //set for open-loop runs, whose actors are not Vendor or Customer objects
+
+    private static final Logger logger = LogManager.getLogger(LiveReconfigurer.class);
+
+    /**
+     * @param inventory The pools of the running simulation.
+     */
+    public LiveReconfigurer(EventInventory inventory) {
+        this.inventory = inventory;
+    }
+
+    public void addVendor(Vendor vendor) {
+        vendors.add(vendor);
+    }
+
+    public void addCustomer(Customer customer) {
+        customers.add(customer);
+    }
+
+    /**
+     * Applies release and retrieval rate changes to the actors of an open-loop run.
+     *
+     * @param scheduler The scheduler running the vendors and customers.
+     */
+    public void setScheduler(OpenLoopScheduler scheduler) {
+        this.scheduler = scheduler;
+    }
+
+    @Override
+    public void configurationChanged(Configuration previous, Configuration current) {
+        boolean limitChanged = current.getPurchaseLimit() != previous.getPurchaseLimit();
+        boolean sampleRateChanged = current.getLogSampleRate() != previous.getLogSampleRate();
+        for (EventConfiguration event : current.getEvents()) {
+            TicketPool pool = inventory.getPool(event.getEventId());
+            if (pool == null) {
+                logger.warn("Event {} is not on sale; new events need a restart.", event.getEventId());
+                continue;
+            }
+            EventConfiguration before = findEvent(previous, event.getEventId());
+            if (event.getMaxTicketCapacity() > 0
+                    && (before == null || event.getMaxTicketCapacity() != before.getMaxTicketCapacity())) {
+                pool.setMaxTicketCapacity(event.getMaxTicketCapacity());
+            }
+            if (before == null || !Objects.equals(event.getPricing(), before.getPricing())) {
+                try {
+                    pool.setPricingRules(event.getPricing());
+                } catch (IllegalArgumentException e) {
+                    logger.warn("Pricing of {} left unchanged: {}", event.getEventId(), e.getMessage());
+                }
+            }
+            if (limitChanged || before == null) {
+                pool.setPurchaseLimit(current.getPurchaseLimit());
+            }
+            if (sampleRateChanged || before == null) {
+                pool.setLogSampleRate(current.getLogSampleRate());
+            }
+        }
+        OpenLoopScheduler openLoop = scheduler;
+        if (current.getTicketReleaseRate() != previous.getTicketReleaseRate()) {
+            int releaseRate = current.getTicketReleaseRate();
+            for (Vendor vendor : vendors) {
+                vendor.setReleaseRate(releaseRate);
+            }
+            if (openLoop != null) {
+                openLoop.setVendorPacing(() -> Pacer.fixedSeconds(releaseRate));
+            }
+            logger.info("Release rate of {} vendors set to {}.", box(vendors.size()), box(releaseRate));
+        }
+        if (current.getCustomerRetrievalRate() != previous.getCustomerRetrievalRate()) {
+            int retrievalRate = current.getCustomerRetrievalRate();
+            for (Customer customer : customers) {
+                customer.setRetrievalRate(retrievalRate);
+            }
+            if (openLoop != null) {
+                openLoop.setCustomerPacing(() -> Pacer.fixedSeconds(retrievalRate));
+            }
+            logger.info("Retrieval rate of {} customers set to {}.", box(customers.size()), box(retrievalRate));
+        }
+    }
+
+    /**
+     * @return The event with the given ID in the configuration, or null if it has none.
+     */
+    private static EventConfiguration findEvent(Configuration configuration, String eventId) {
+        for (EventConfiguration event : configuration.getEvents()) {
+            if (Objects.equals(event.getEventId(), eventId)) {
+                return event;
+            }
+        }
+        return null;
+    }
+}
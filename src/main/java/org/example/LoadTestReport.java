@@ -0,0 +1,179 @@
+package org.example;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Summary of a headless load test: throughput, purchase latency percentiles and how long
+ * each event took to sell out. Open-loop runs also report how late attempts started, and runs with admission
+ * control how many purchases were shed or timed out and the most that were in progress at once. Serialised with Gson when the workload names a report file.
+ */
+public class LoadTestReport {
+    private final long elapsedMillis;
+    private final long ticketsSold;
+    private final double throughput; // tickets sold per second
+    private final long purchases;
+    private final double latencyMeanMicros; // purchase latency: from claiming (open loop: intended start of) a purchase to holding its tickets
+    private final double latencyP50Micros;
+    private final double latencyP90Micros;
+    private final double latencyP99Micros;
+    private final double latencyP999Micros;
+    private final double latencyMaxMicros;
+    private final double startDelayP50Micros; // open loop only: intended to actual start of attempts, 0 otherwise
+    private final double startDelayP99Micros;
+    private final double startDelayMaxMicros;
+    private final long purchasesShed; // admission control only: purchases turned away as sold out, rate limited or with too many waiters
+    private final long purchasesTimedOut; // admission control only: admitted purchases that did not get every ticket in time
+    private final long peakWaiters; // admission control only: most purchases in progress at once on one pool
+    private final Map<String, Long> sellOutMillis; // per event, -1 if the event did not sell out
+    private final boolean soldOut;
+
+    public LoadTestReport(long elapsedMillis, long ticketsSold, LatencyHistogram purchaseLatency, Map<String, Long> sellOutMillis) {
+        this(elapsedMillis, ticketsSold, purchaseLatency, null, sellOutMillis);
+    }
+
+    /**
+     * @param elapsedMillis   Length of the run.
+     * @param ticketsSold     Tickets sold during the run.
+     * @param purchaseLatency Purchase latencies in nanoseconds.
+     * @param startDelay      Start delays of open-loop attempts in nanoseconds, null for a closed-loop run.
+     * @param sellOutMillis   Per event, milliseconds until it sold out or -1.
+     */
+    public LoadTestReport(long elapsedMillis, long ticketsSold, LatencyHistogram purchaseLatency, LatencyHistogram startDelay,
+                          Map<String, Long> sellOutMillis) {
+        this(elapsedMillis, ticketsSold, purchaseLatency, startDelay, sellOutMillis, List.of());
+    }
+
+    /**
+     * @param elapsedMillis   Length of the run.
+     * @param ticketsSold     Tickets sold during the run.
+     * @param purchaseLatency Purchase latencies in nanoseconds.
+     * @param startDelay      Start delays of open-loop attempts in nanoseconds, null for a closed-loop run.
+     * @param sellOutMillis   Per event, milliseconds until it sold out or -1.
+     * @param admissions      The admission control of every pool that had one.
+     */
+    public LoadTestReport(long elapsedMillis, long ticketsSold, LatencyHistogram purchaseLatency, LatencyHistogram startDelay,
+                          Map<String, Long> sellOutMillis, Collection<AdmissionControl> admissions) {
+        this.elapsedMillis = elapsedMillis;
+        this.ticketsSold = ticketsSold;
+        this.throughput = elapsedMillis > 0 ? ticketsSold * 1000.0 / elapsedMillis : 0;
+        this.purchases = purchaseLatency.getCount();
+        this.latencyMeanMicros = purchaseLatency.getMean() / 1000;
+        long[] latency = purchaseLatency.getValuesAtPercentiles(50, 90, 99, 99.9);
+        this.latencyP50Micros = latency[0] / 1000.0;
+        this.latencyP90Micros = latency[1] / 1000.0;
+        this.latencyP99Micros = latency[2] / 1000.0;
+        this.latencyP999Micros = latency[3] / 1000.0;
+        this.latencyMaxMicros = purchaseLatency.getMax() / 1000.0;
+        long[] delay = startDelay != null ? startDelay.getValuesAtPercentiles(50, 99) : new long[2];
+        this.startDelayP50Micros = delay[0] / 1000.0;
+        this.startDelayP99Micros = delay[1] / 1000.0;
+        this.startDelayMaxMicros = startDelay != null ? startDelay.getMax() / 1000.0 : 0;
+        this.purchasesShed = admissions.stream().mapToLong(AdmissionControl::getShed).sum();
+        this.purchasesTimedOut = admissions.stream().mapToLong(AdmissionControl::getTimedOut).sum();
+        this.peakWaiters = admissions.stream().mapToLong(AdmissionControl::getMaxWaitersSeen).max().orElse(0);
+        this.sellOutMillis = new LinkedHashMap<>(sellOutMillis);
+        this.soldOut = !sellOutMillis.containsValue(-1L);
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    public long getTicketsSold() {
+        return ticketsSold;
+    }
+
+    public double getThroughput() {
+        return throughput;
+    }
+
+    public long getPurchases() {
+        return purchases;
+    }
+
+    public double getLatencyMeanMicros() {
+        return latencyMeanMicros;
+    }
+
+    public double getLatencyP50Micros() {
+        return latencyP50Micros;
+    }
+
+    public double getLatencyP90Micros() {
+        return latencyP90Micros;
+    }
+
+    public double getLatencyP99Micros() {
+        return latencyP99Micros;
+    }
+
+    public double getLatencyP999Micros() {
+        return latencyP999Micros;
+    }
+
+    public double getLatencyMaxMicros() {
+        return latencyMaxMicros;
+    }
+
+    public double getStartDelayP50Micros() {
+        return startDelayP50Micros;
+    }
+
+    public double getStartDelayP99Micros() {
+        return startDelayP99Micros;
+    }
+
+    public double getStartDelayMaxMicros() {
+        return startDelayMaxMicros;
+    }
+
+    public long getPurchasesShed() {
+        return purchasesShed;
+    }
+
+    public long getPurchasesTimedOut() {
+        return purchasesTimedOut;
+    }
+
+    public long getPeakWaiters() {
+        return peakWaiters;
+    }
+
+    /**
+     * @return Milliseconds from the start of the run until each event sold its last ticket, -1 if it did not.
+     */
+    public Map<String, Long> getSellOutMillis() {
+        return sellOutMillis;
+    }
+
+    public boolean isSoldOut() {
+        return soldOut;
+    }
+
+    @Override
+    public String toString() {
+        return "LoadTestReport{" +
+                "elapsedMillis = " + elapsedMillis +
+                ", ticketsSold = " + ticketsSold +
+                ", throughput = " + String.format("%.1f", throughput) + " tickets/s" +
+                ", purchases = " + purchases +
+                ", latency (us) mean = " + String.format("%.1f", latencyMeanMicros) +
+                " p50 = " + latencyP50Micros +
+                " p90 = " + latencyP90Micros +
+                " p99 = " + latencyP99Micros +
+                " p99.9 = " + latencyP999Micros +
+                " max = " + latencyMaxMicros +
+                ", start delay (us) p50 = " + startDelayP50Micros +
+                " p99 = " + startDelayP99Micros +
+                " max = " + startDelayMaxMicros +
+                ", purchasesShed = " + purchasesShed +
+                ", purchasesTimedOut = " + purchasesTimedOut +
+                ", peakWaiters = " + peakWaiters +
+                ", sellOutMillis = " + sellOutMillis +
+                ", soldOut = " + soldOut +
+                '}';
+    }
+}
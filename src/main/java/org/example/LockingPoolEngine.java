@@ -0,0 +1,103 @@
+package org.example;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Pool engine guarded by a single ReentrantLock with notFull/notEmpty conditions.
+ * Tickets are kept in a circular array, so removing the oldest ticket is O(1) and any ticket can be
+ * read by its offset from the oldest, which lets snapshotIds copy the contents in chunks.
+ * The array starts small and doubles up to the capacity as the pool fills.
+ */
+public class LockingPoolEngine extends AbstractLockingPoolEngine {
+    private Ticket[] tickets; // only accessed while holding the lock
+    private int head = 0; // slot of the oldest ticket
+    private int count = 0;
+
+    private static final int INITIAL_SLOTS = 1024;
+
+    public LockingPoolEngine(int capacity) {
+        this(capacity, false);
+    }
+
+    /**
+     * @param capacity Maximum number of tickets the engine can hold.
+     * @param fair     Whether the lock grants access to the longest-waiting thread first.
+     */
+    public LockingPoolEngine(int capacity, boolean fair) {
+        this(capacity, fair, WaitStrategy.BLOCKING);
+    }
+
+    /**
+     * @param capacity     Maximum number of tickets the engine can hold.
+     * @param fair         Whether the lock grants access to the longest-waiting thread first.
+     * @param waitStrategy How callers wait while the pool is full or empty.
+     */
+    public LockingPoolEngine(int capacity, boolean fair, WaitStrategy waitStrategy) {
+        super(capacity, fair, waitStrategy);
+        this.tickets = new Ticket[Math.min(capacity, INITIAL_SLOTS)];
+    }
+
+    @Override
+    protected int count() {
+        return count;
+    }
+
+    @Override
+    protected void addLast(Ticket ticket) {
+        if (count == tickets.length) {
+            grow();
+        }
+        tickets[(head + count) % tickets.length] = ticket;
+        count++;
+    }
+
+    @Override
+    protected Ticket pollFirst() {
+        if (count == 0) {
+            return null;
+        }
+        Ticket ticket = tickets[head];
+        tickets[head] = null; // lets the sold ticket be collected
+        head = (head + 1) % tickets.length;
+        count--;
+        return ticket;
+    }
+
+    @Override
+    protected List<Ticket> copy() {
+        List<Ticket> copy = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            copy.add(tickets[(head + i) % tickets.length]);
+        }
+        return copy;
+    }
+
+    @Override
+    protected void copyIds(int from, int[] into, int at, int n) {
+        for (int i = 0; i < n; i++) {
+            into[at + i] = tickets[(head + from + i) % tickets.length].getTicketId();
+        }
+    }
+
+    @Override
+    protected void removeAll() {
+        Arrays.fill(tickets, null);
+        head = 0;
+        count = 0;
+    }
+
+    /**
+     * Doubles the array (up to the capacity), unrolling the circular contents to start at slot 0.
+     */
+    private void grow() {
+        int slots = (int) Math.min(capacity, 2L * tickets.length);
+        Ticket[] grown = new Ticket[slots];
+        int firstPart = Math.min(count, tickets.length - head);
+        System.arraycopy(tickets, head, grown, 0, firstPart);
+        System.arraycopy(tickets, 0, grown, firstPart, count - firstPart);
+        tickets = grown;
+        head = 0;
+    }
+}
@@ -4,12 +4,24 @@ import com.google.gson.Gson;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import java.io.BufferedWriter;
 import java.io.FileNotFoundException;
 import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
 import java.util.InputMismatchException;
+import java.util.List;
 import java.util.Scanner;
+import java.util.concurrent.TimeUnit;
+
+import static org.apache.logging.log4j.util.Unbox.box;
 
 /**
  * Main class to manage the ticketing system simulation.
@@ -20,7 +32,21 @@ public class Main {
 
     private final static Logger logger = LogManager.getLogger();
 
+    private static final String CONFIGURATION_FILE = "src/main/resources/configuration.json"; //saved and watched configuration
+
     public static void main(String[] args) {
+        if (args.length > 0 && args[0].equals("serve")) { // pool server mode for RemoteTicketPool clients
+            PoolServer.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        if (args.length > 0 && args[0].equals("snapshot")) { // binary inventory snapshot for fast restarts
+            writeSnapshot(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        if (args.length > 0) { // any option selects the non-interactive load-test mode
+            HeadlessRunner.main(args);
+            return;
+        }
         System.out.println("Welcome to the RealTimeTicketing_CLI!");
         System.out.println();
         System.out.println("Let's set a new simulation configuration...");
@@ -41,7 +67,7 @@ public class Main {
                 case "a":
                     config = Configuration.getUserConfiguration();
 
-                    try (FileWriter writer = new FileWriter("src/main/resources/configuration.json")) {
+                    try (FileWriter writer = new FileWriter(CONFIGURATION_FILE)) {
                         gson.toJson(config, writer); //saving the configuration in a JSON file
                     } catch (IOException e) {
                         logger.error(e.getMessage());
@@ -50,7 +76,7 @@ public class Main {
                     validOption = true;
                     break;
                 case "b":
-                    try (FileReader reader = new FileReader("src/main/resources/configuration.json")) {
+                    try (FileReader reader = new FileReader(CONFIGURATION_FILE)) {
                         config = gson.fromJson(reader, Configuration.class); //retrieving the configuration from a JSON file
                     } catch (FileNotFoundException e) {
                         logger.error(e.getMessage());
@@ -75,12 +101,17 @@ public class Main {
         }
         logger.info("Configuration successful: " + config);
 
-        // Initialize the TicketPool with configuration parameters
-        TicketPool ticketPool = new TicketPool(config.getMaxTicketCapacity(), config.getTotalTickets());
+        // Initialize one TicketPool per event with configuration parameters
+        EventInventory inventory = EventInventory.fromConfiguration(config);
+        List<String> eventIds = inventory.getEventIds();
 
-        // Validate and get the number of vendor and customer threads
-        int vendors = validateThreads("vendor");
-        int customers = validateThreads("customer");
+        // Recover unsold tickets from the sales journal and journal every release and sale from now on
+        SalesJournal journal = openJournal(config, inventory);
+
+        // Validate and get the number of vendor and customer threads (per event when selling several events)
+        String perEvent = eventIds.size() > 1 ? " per event" : "";
+        int vendors = validateThreads("vendor", perEvent);
+        int customers = validateThreads("customer", perEvent);
 
         // Options to start the simulation or quit
         validOption = false;
@@ -89,27 +120,67 @@ public class Main {
             String opt = scanner.next();
             switch (opt) {
                 case "a":
-                    logger.info("Starting simulation...");
-                    // Create and start vendor threads
-                    for (int i = 0; i < vendors; i++) {
-                        String vendorID = ("V00"+(i+1));
-                        Vendor vendor = new Vendor(vendorID, ticketPool, config.getTicketReleaseRate());
-                        Thread vendorThread = new Thread(vendor, "Vendor-" + (i + 1));
-
-                        vendorThread.start();
+                    if (config.isOpenLoop()) {
+                        runOpenLoop(config, inventory, vendors, customers);
+                        closeJournal(journal);
+                        validOption = true;
+                        break;
                     }
-                    // Create and start customer threads
-                    for (int i = 0; i < customers; i++) {
-                        String customerID = "C00" + (i + 1);
-                        Customer customer = new Customer(customerID, ticketPool, config.getCustomerRetrievalRate());
-                        Thread customerThread = new Thread(customer, "Customer-" + (i + 1));
-
-                        customerThread.start();
+                    logger.info("Starting simulation on {} threads...", config.getExecutionMode());
+                    SimulationExecutor executor = new SimulationExecutor(config.getExecutionMode());
+                    MetricsReporter reporter = startMetrics(config, inventory);
+                    SalesAnalytics analytics = startAnalytics(config, inventory);
+                    LiveReconfigurer reconfigurer = new LiveReconfigurer(inventory);
+                    LiveConfiguration live = watchConfiguration(config, reconfigurer);
+                    Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                        executor.shutdownNow(); // stops the runners on Ctrl+C
+                        closeJournal(journal);
+                    }));
+                    for (String eventId : eventIds) {
+                        TicketPool ticketPool = inventory.getPool(eventId);
+                        String suffix = eventIds.size() > 1 ? "-" + eventId : ""; //tells apart runners of different events
+                        // Create and start vendor threads
+                        for (int i = 0; i < vendors; i++) {
+                            String vendorID = ("V00"+(i+1)) + suffix;
+                            Vendor vendor = new Vendor(vendorID, ticketPool, config.getTicketReleaseRate(), config.getReleaseBatchSize());
+                            reconfigurer.addVendor(vendor);
+                            executor.submitVendor(vendor);
+                        }
+                        // Create and start customer threads
+                        for (int i = 0; i < customers; i++) {
+                            String customerID = "C00" + (i + 1) + suffix;
+                            Customer customer = new Customer(customerID, ticketPool, config.getCustomerRetrievalRate(), config.getPurchaseGroupSize());
+                            reconfigurer.addCustomer(customer);
+                            executor.submitCustomer(customer);
+                        }
+                    }
+                    // Wait for all vendors and customers to finish (virtual threads do not keep the JVM alive)
+                    try {
+                        executor.join();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        executor.shutdownNow();
+                    }
+                    live.close();
+                    if (reporter != null) {
+                        reporter.close();
+                    }
+                    closeJournal(journal);
+                    System.out.println(executor.report());
+                    for (String eventId : eventIds) {
+                        AdmissionControl admission = inventory.getPool(eventId).getAdmissionControl();
+                        if (admission != null) {
+                            System.out.print(admission.report());
+                        }
+                    }
+                    if (analytics != null) {
+                        System.out.print(analytics.report());
                     }
                     validOption = true;
                     break;
                 case "b":
                     logger.info("User quitting...");
+                    closeJournal(journal);
                     validOption = true;
                     break;
                 default:
@@ -118,6 +189,212 @@ public class Main {
         }
     }
 
+    /**
+     * Runs the simulation on the open-loop scheduler: every vendor and customer is a scheduled actor
+     * instead of a thread, and attempts start at the configured rates however long earlier ones took.
+     *
+     * @param config    The simulation configuration.
+     * @param inventory The event inventory.
+     * @param vendors   Number of vendors per event.
+     * @param customers Number of customers per event.
+     */
+    static void runOpenLoop(Configuration config, EventInventory inventory, int vendors, int customers) {
+        logger.info("Starting open-loop simulation on {} workers...", config.getExecutionMode());
+        List<String> eventIds = inventory.getEventIds();
+        MetricsReporter reporter = startMetrics(config, inventory);
+        SalesAnalytics analytics = startAnalytics(config, inventory);
+        LiveReconfigurer reconfigurer = new LiveReconfigurer(inventory);
+        LiveConfiguration live = watchConfiguration(config, reconfigurer);
+        try (live; OpenLoopScheduler scheduler = new OpenLoopScheduler(config.getSchedulerWorkers(), config.getExecutionMode())) {
+            reconfigurer.setScheduler(scheduler);
+            Runtime.getRuntime().addShutdownHook(new Thread(scheduler::shutdownNow));
+            for (String eventId : eventIds) {
+                TicketPool ticketPool = inventory.getPool(eventId);
+                String suffix = eventIds.size() > 1 ? "-" + eventId : "";
+                for (int i = 0; i < vendors; i++) {
+                    scheduler.addVendor("V00" + (i + 1) + suffix, ticketPool,
+                            Pacer.fixedSeconds(config.getTicketReleaseRate()), config.getReleaseBatchSize());
+                }
+                for (int i = 0; i < customers; i++) {
+                    scheduler.addCustomer("C00" + (i + 1) + suffix, ticketPool,
+                            Pacer.fixedSeconds(config.getCustomerRetrievalRate()), config.getPurchaseGroupSize());
+                }
+            }
+            scheduler.start();
+            scheduler.awaitCompletion(Long.MAX_VALUE, TimeUnit.DAYS);
+            LatencyHistogram latency = scheduler.getPurchaseLatency();
+            LatencyHistogram startDelay = scheduler.getStartDelay();
+            System.out.println("Open-loop run: " + TicketPool.getTicketsSold() + " tickets sold in "
+                    + latency.getCount() + " purchases, " + scheduler.getAttempts() + " attempts"
+                    + ", purchase latency p99 = " + latency.getValueAtPercentile(99) / 1000 + " us"
+                    + ", start delay p99 = " + startDelay.getValueAtPercentile(99) / 1000 + " us");
+            if (analytics != null) {
+                System.out.print(analytics.report());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            if (reporter != null) {
+                reporter.close();
+            }
+        }
+    }
+
+    /**
+     * Opens the sales journal of the configuration, replays it into the inventory and registers it on every pool.
+     *
+     * @param config    The simulation configuration.
+     * @param inventory The event inventory.
+     * @return The open journal, or null if the configuration has no journal file.
+     */
+    static SalesJournal openJournal(Configuration config, EventInventory inventory) {
+        if (config.getJournalFile() == null) {
+            return null;
+        }
+        try {
+            SalesJournal journal = SalesJournal.open(Paths.get(config.getJournalFile()),
+                    config.getJournalDurability(), config.getJournalSyncInterval());
+            int restored = journal.replay(inventory);
+            logger.info("Recovered {} unsold tickets from the sales journal {}", box(restored), config.getJournalFile());
+            for (TicketPool pool : inventory.getPools()) {
+                pool.addListener(journal);
+            }
+            return journal;
+        } catch (IOException e) {
+            logger.error("Could not open the sales journal: {}", e.getMessage());
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Enables metrics on every pool and starts reporting them, if the configuration asks for it.
+     *
+     * @param config    The simulation configuration.
+     * @param inventory The event inventory.
+     * @return The running reporter, or null if metrics are disabled.
+     */
+    static MetricsReporter startMetrics(Configuration config, EventInventory inventory) {
+        if (config.getMetricsInterval() <= 0) {
+            return null;
+        }
+        MetricsReporter reporter = new MetricsReporter(inventory.getPools(), config.getMetricsInterval() * 1000L);
+        reporter.start();
+        return reporter;
+    }
+
+    /**
+     * Records every sale of the inventory for the analytics report, if the configuration asks for it.
+     *
+     * @param config    The simulation configuration.
+     * @param inventory The event inventory.
+     * @return The listening store, or null if analytics are disabled.
+     */
+    static SalesAnalytics startAnalytics(Configuration config, EventInventory inventory) {
+        if (!config.isSalesAnalytics()) {
+            return null;
+        }
+        SalesAnalytics analytics = new SalesAnalytics();
+        analytics.listenTo(inventory);
+        return analytics;
+    }
+
+    /**
+     * Builds the inventory of a configuration, recovering unsold tickets from its sales journal if it has one,
+     * and writes it as a binary snapshot for "serve --snapshot". With --to-json converts an existing snapshot
+     * to JSON instead, written to --out or to standard output.
+     *
+     * @param args [--config configuration.json] --out inventory.snap, or --to-json inventory.snap [--out inventory.json]
+     */
+    static void writeSnapshot(String[] args) {
+        String configFile = CONFIGURATION_FILE;
+        String out = null;
+        String toJson = null;
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            if (args[i].equals("--config")) {
+                configFile = args[i + 1];
+            } else if (args[i].equals("--out")) {
+                out = args[i + 1];
+            } else if (args[i].equals("--to-json")) {
+                toJson = args[i + 1];
+            }
+        }
+        if (toJson != null) {
+            convertSnapshot(Paths.get(toJson), out);
+            return;
+        }
+        if (out == null) {
+            System.err.println("Usage: snapshot [--config configuration.json] --out inventory.snap");
+            System.err.println("       snapshot --to-json inventory.snap [--out inventory.json]");
+            System.exit(2);
+        }
+        try (FileReader reader = new FileReader(configFile)) {
+            Configuration config = new Gson().fromJson(reader, Configuration.class);
+            EventInventory inventory = EventInventory.fromConfiguration(config);
+            closeJournal(openJournal(config, inventory));
+            InventorySnapshot.write(Paths.get(out), config, inventory);
+            System.out.println("Wrote " + inventory.size() + " event(s) to " + out);
+        } catch (IOException e) {
+            logger.error("Could not write the snapshot: {}", e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Converts a binary snapshot to JSON.
+     *
+     * @param snapshotFile The snapshot to read.
+     * @param out          The JSON file to write, or null for standard output.
+     */
+    private static void convertSnapshot(Path snapshotFile, String out) {
+        try {
+            InventorySnapshot snapshot = InventorySnapshot.load(snapshotFile);
+            if (out == null) {
+                Writer writer = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8));
+                snapshot.writeJson(writer);
+                writer.flush();
+                System.out.println();
+            } else {
+                try (Writer writer = Files.newBufferedWriter(Paths.get(out))) {
+                    snapshot.writeJson(writer);
+                }
+                System.out.println("Converted " + snapshotFile + " to " + out);
+            }
+        } catch (IOException e) {
+            logger.error("Could not convert the snapshot: {}", e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Watches the saved configuration file, so edits made while the simulation runs are applied to it.
+     * When the file cannot be watched the simulation runs on the configuration it started with.
+     *
+     * @param config       The configuration the simulation starts with.
+     * @param reconfigurer Applies changes to the pools and the runners registered with it.
+     * @return The live configuration; close it when the simulation ends.
+     */
+    static LiveConfiguration watchConfiguration(Configuration config, LiveReconfigurer reconfigurer) {
+        LiveConfiguration live = new LiveConfiguration(config);
+        live.addListener(reconfigurer);
+        try {
+            live.watch(Paths.get(CONFIGURATION_FILE));
+        } catch (IOException e) {
+            logger.warn("Configuration changes will not be applied while running: {}", e.getMessage());
+        }
+        return live;
+    }
+
+    static void closeJournal(SalesJournal journal) {
+        if (journal == null) {
+            return;
+        }
+        try {
+            journal.close();
+        } catch (IOException e) {
+            logger.error("Could not close the sales journal: {}", e.getMessage());
+        }
+    }
+
     /**
      * Prompots for and validates user input for the number of threads.
      *
@@ -125,13 +402,24 @@ public class Main {
      * @return The validated number of threads
      */
     public static int validateThreads(String threadType){
+        return validateThreads(threadType, "");
+    }
+
+    /**
+     * Prompots for and validates user input for the number of threads.
+     *
+     * @param threadType The type of thread ("vendor" or "customer")
+     * @param scope      Text appended to the prompt, e.g. " per event"
+     * @return The validated number of threads
+     */
+    public static int validateThreads(String threadType, String scope){
         Scanner scanner = new Scanner(System.in);
         boolean validInput = false;
         int temp=0; //temporarily holds the value for the input to check for positive integers
 
         while (!validInput) {
             try {
-                System.out.print("Enter number of "+threadType+" threads: ");
+                System.out.print("Enter number of "+threadType+" threads"+scope+": ");
                 temp = scanner.nextInt();
                 if (temp <= 0) {
                     System.out.println("The number of threads must be a positive number.");
@@ -0,0 +1,144 @@
+package org.example;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.apache.logging.log4j.util.Unbox.box;
+
+/**
+ * Enables metrics on a set of ticket pools and exposes them.
+ * Each pool's PoolMetrics is registered as a platform MXBean (visible in JConsole or VisualVM), the pool
+ * occupancy is sampled every OCCUPANCY_SAMPLE_MILLIS, and a summary with release/sale rates, wait
+ * percentiles and per-runner rates is logged every report interval. All of this runs on one background thread.
+ */
+public class MetricsReporter implements AutoCloseable {
+    private static final long OCCUPANCY_SAMPLE_MILLIS = 10;
+
+    private final List<TicketPool> pools;
+    private final long reportIntervalMillis;
+    private final ScheduledExecutorService scheduler;
+    private final List<ObjectName> registered = new ArrayList<>();
+
+    private final Map<String, Long> lastReleased = new HashMap<>(); //per event, only touched by the scheduler thread
+    private final Map<String, Long> lastSold = new HashMap<>();
+    private final Map<String, Long> lastByActor = new HashMap<>(); //per event and actor
+    private long lastReportNanos;
+
+    private static final Logger logger = LogManager.getLogger(MetricsReporter.class);
+
+    /**
+     * @param pools                The pools to report on.
+     * @param reportIntervalMillis Interval between logged summaries.
+     */
+    public MetricsReporter(Collection<TicketPool> pools, long reportIntervalMillis) {
+        this.pools = new ArrayList<>(pools);
+        this.reportIntervalMillis = reportIntervalMillis;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "metrics-reporter");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Enables metrics on every pool, registers their MXBeans and starts sampling and reporting.
+     */
+    public void start() {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        for (TicketPool pool : pools) {
+            PoolMetrics metrics = pool.enableMetrics();
+            try {
+                ObjectName name = new ObjectName("org.example:type=PoolMetrics,event=" + ObjectName.quote(pool.getEventId()));
+                server.registerMBean(metrics, name);
+                registered.add(name);
+            } catch (JMException e) {
+                logger.error("Could not register metrics of event {}: {}", pool.getEventId(), e.getMessage());
+            }
+        }
+        lastReportNanos = System.nanoTime();
+        scheduler.scheduleAtFixedRate(this::sampleOccupancy, OCCUPANCY_SAMPLE_MILLIS, OCCUPANCY_SAMPLE_MILLIS, TimeUnit.MILLISECONDS);
+        scheduler.scheduleAtFixedRate(this::report, reportIntervalMillis, reportIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops reporting, logs a final summary and unregisters the MXBeans.
+     */
+    @Override
+    public void close() {
+        scheduler.shutdown();
+        try {
+            scheduler.awaitTermination(reportIntervalMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        report();
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        for (ObjectName name : registered) {
+            try {
+                server.unregisterMBean(name);
+            } catch (JMException e) {
+                logger.error("Could not unregister {}: {}", name, e.getMessage());
+            }
+        }
+        registered.clear();
+    }
+
+    private void sampleOccupancy() {
+        for (TicketPool pool : pools) {
+            pool.getMetrics().recordOccupancy(pool.getTicketsSize());
+        }
+    }
+
+    private synchronized void report() {
+        long now = System.nanoTime();
+        double seconds = Math.max(1e-9, (now - lastReportNanos) / 1e9);
+        lastReportNanos = now;
+        for (TicketPool pool : pools) {
+            PoolMetrics metrics = pool.getMetrics();
+            String event = pool.getEventId();
+            long released = metrics.getTicketsReleased();
+            long sold = metrics.getTicketsSold();
+            double releaseRate = (released - lastReleased.getOrDefault(event, 0L)) / seconds;
+            double saleRate = (sold - lastSold.getOrDefault(event, 0L)) / seconds;
+            lastReleased.put(event, released);
+            lastSold.put(event, sold);
+
+            logger.info("Event {}: released {}/s, sold {}/s, occupancy p50 {} max {} of {}, lock wait p50 {} us p99 {} us max {} us,"
+                            + " notFull waits {} p99 {} us, notEmpty waits {} p99 {} us, customer wakeups {}",
+                    event, box(Math.round(releaseRate)), box(Math.round(saleRate)),
+                    box(metrics.getOccupancyP50()), box(metrics.getOccupancyMax()), box(pool.getMaxTicketCapacity()),
+                    box(micros(metrics.getLockWaitP50())), box(micros(metrics.getLockWaitP99())), box(micros(metrics.getLockWaitMax())),
+                    box(metrics.getNotFullWaitCount()), box(micros(metrics.getNotFullWaitP99())),
+                    box(metrics.getNotEmptyWaitCount()), box(micros(metrics.getNotEmptyWaitP99())),
+                    box(metrics.getCustomerWakeups()));
+
+            if (logger.isDebugEnabled()) {
+                StringBuilder rates = new StringBuilder();
+                for (Map.Entry<String, Long> actor : metrics.getTicketsByActor().entrySet()) {
+                    String key = event + '/' + actor.getKey();
+                    long rate = Math.round((actor.getValue() - lastByActor.getOrDefault(key, 0L)) / seconds);
+                    lastByActor.put(key, actor.getValue());
+                    rates.append(rates.length() == 0 ? "" : ", ").append(actor.getKey()).append(' ').append(rate).append("/s");
+                }
+                logger.debug("Event {} tickets per actor: {}", event, rates);
+            }
+        }
+    }
+
+    private static double micros(long nanos) {
+        return Math.round(nanos / 100.0) / 10.0;
+    }
+}
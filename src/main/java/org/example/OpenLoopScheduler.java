@@ -0,0 +1,346 @@
+package org.example;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Open-loop driver for simulated vendors and customers.
+ * Instead of one thread per actor sleeping between iterations, every actor is a small object with the
+ * intended start time of its next attempt in a central DelayQueue. A dispatcher thread hands due attempts
+ * to a fixed pool of workers, and the next attempt is scheduled from the previous intended time rather
+ * than from when the previous attempt finished. When the pool falls behind, attempts queue up and their
+ * wait shows in the recorded latency instead of silently lowering the offered load (coordinated omission).
+ *
+ * Attempts never block a worker: a vendor whose pool is full or a customer whose pool is empty keeps its
+ * claim and is retried with a short backoff, and its latency keeps counting from the intended start.
+ */
+public class OpenLoopScheduler implements AutoCloseable {
+    private static final long MIN_RETRY_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+    private static final long MAX_RETRY_NANOS = TimeUnit.MILLISECONDS.toNanos(5);
+
+    private final DelayQueue<Actor> due = new DelayQueue<>();
+    private final ExecutorService workers;
+    private final List<Actor> pending = new ArrayList<>(); // actors added before start
+    private final List<Actor> actors = new ArrayList<>(); // every actor added, for pacing changes; guarded by this
+    private final AtomicInteger active = new AtomicInteger(); // actors that have not stopped yet
+    private final AtomicInteger activeCustomers = new AtomicInteger(); // customers that have not stopped yet
+    private final CountDownLatch finished = new CountDownLatch(1);
+
+    private final LatencyHistogram startDelay = new LatencyHistogram(); // intended start to actual start, every attempt
+    private final LatencyHistogram purchaseLatency = new LatencyHistogram(); // intended start to holding the tickets
+    private final LongAdder attempts = new LongAdder();
+
+    private volatile boolean started = false;
+    private Thread dispatcher;
+
+    private static final Logger logger = LogManager.getLogger(OpenLoopScheduler.class);
+
+    /**
+     * @param workers Number of worker threads running attempts; 0 or less uses one per available processor.
+     * @param mode    Whether the workers are platform or virtual threads.
+     */
+    public OpenLoopScheduler(int workers, ExecutionMode mode) {
+        int count = workers > 0 ? workers : Runtime.getRuntime().availableProcessors();
+        this.workers = Executors.newFixedThreadPool(count, mode.threadFactory("Worker-"));
+    }
+
+    /**
+     * Adds a simulated vendor releasing blocks of tickets at the pacer's intervals.
+     *
+     * @param vendorID         Identifier of the vendor.
+     * @param pool             The pool the vendor releases into.
+     * @param pacer            Intervals between intended release attempts.
+     * @param releaseBatchSize Tickets released per attempt.
+     */
+    public void addVendor(String vendorID, TicketPool pool, Pacer pacer, int releaseBatchSize) {
+        add(new Actor(vendorID, pool, pacer, Math.max(1, releaseBatchSize), true));
+    }
+
+    /**
+     * Adds a simulated customer buying groups of tickets at the pacer's intervals.
+     *
+     * @param customerID        Identifier of the customer.
+     * @param pool              The pool the customer buys from.
+     * @param pacer             Intervals between intended purchase attempts.
+     * @param purchaseGroupSize Tickets bought per attempt.
+     */
+    public void addCustomer(String customerID, TicketPool pool, Pacer pacer, int purchaseGroupSize) {
+        add(new Actor(customerID, pool, pacer, Math.max(1, purchaseGroupSize), false));
+    }
+
+    private synchronized void add(Actor actor) {
+        actors.add(actor);
+        active.incrementAndGet();
+        if (!actor.vendor) {
+            activeCustomers.incrementAndGet();
+        }
+        if (started) {
+            actor.schedule(System.nanoTime() + actor.pacer.nextDelayNanos());
+            due.add(actor);
+        } else {
+            pending.add(actor);
+        }
+    }
+
+    /**
+     * Gives every vendor a new pacer, e.g. when the release rate is changed at runtime. Each vendor
+     * takes up the new pacing from its next attempt; the attempt already queued keeps its start time.
+     *
+     * @param pacers Creates one pacer per vendor.
+     */
+    public void setVendorPacing(Supplier<Pacer> pacers) {
+        setPacing(true, pacers);
+    }
+
+    /**
+     * Gives every customer a new pacer, e.g. when the retrieval rate is changed at runtime. Each customer
+     * takes up the new pacing from its next attempt; the attempt already queued keeps its start time.
+     *
+     * @param pacers Creates one pacer per customer.
+     */
+    public void setCustomerPacing(Supplier<Pacer> pacers) {
+        setPacing(false, pacers);
+    }
+
+    private synchronized void setPacing(boolean vendors, Supplier<Pacer> pacers) {
+        for (Actor actor : actors) {
+            if (actor.vendor == vendors) {
+                actor.pacer = pacers.get();
+            }
+        }
+    }
+
+    /**
+     * Schedules the first attempt of every actor added so far and starts dispatching.
+     */
+    public synchronized void start() {
+        if (started) {
+            return;
+        }
+        started = true;
+        long now = System.nanoTime();
+        for (Actor actor : pending) {
+            actor.schedule(now + actor.pacer.nextDelayNanos());
+            due.add(actor);
+        }
+        pending.clear();
+        if (active.get() == 0) {
+            finished.countDown();
+        }
+        dispatcher = Thread.ofPlatform().name("OpenLoopDispatcher").daemon().start(this::dispatch);
+    }
+
+    /**
+     * Waits until every customer has stopped, because its event sold out or it reached its purchase limit.
+     * Vendors still holding tickets then have nobody left to sell to and are dropped with the queue.
+     *
+     * @param timeout Maximum time to wait.
+     * @param unit    Unit of the timeout.
+     * @return true if every actor finished, false if the timeout elapsed first.
+     * @throws InterruptedException If the calling thread is interrupted while waiting.
+     */
+    public boolean awaitCompletion(long timeout, TimeUnit unit) throws InterruptedException {
+        return finished.await(timeout, unit);
+    }
+
+    /**
+     * Stops dispatching and interrupts running attempts. Attempts not yet started are dropped;
+     * customers waiting for a retry give back the claims of their unfinished purchase.
+     */
+    public void shutdownNow() {
+        if (dispatcher != null) {
+            dispatcher.interrupt();
+        }
+        workers.shutdownNow();
+        for (Actor actor : due.toArray(new Actor[0])) { // drainTo would only take the actors already due
+            if (due.remove(actor) && !actor.vendor) {
+                actor.returnClaims();
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        shutdownNow();
+    }
+
+    /**
+     * @return Delay between the intended and the actual start of every attempt, in nanoseconds.
+     */
+    public LatencyHistogram getStartDelay() {
+        return startDelay;
+    }
+
+    /**
+     * @return Nanoseconds from the intended start of each purchase until the customer held all of its tickets.
+     */
+    public LatencyHistogram getPurchaseLatency() {
+        return purchaseLatency;
+    }
+
+    /**
+     * @return The number of attempts run, including retries.
+     */
+    public long getAttempts() {
+        return attempts.sum();
+    }
+
+    private void dispatch() {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                workers.execute(due.take());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) { // the worker pool was shut down
+            logger.debug("Dispatcher stopped: {}", e.getMessage());
+        }
+    }
+
+    private void stopped(Actor actor) {
+        boolean customersDone = !actor.vendor && activeCustomers.decrementAndGet() == 0;
+        if (active.decrementAndGet() == 0 || customersDone) {
+            finished.countDown();
+        }
+    }
+
+    /**
+     * A simulated vendor or customer. It is either waiting in the delay queue or running on
+     * exactly one worker, so its fields need no synchronisation beyond the queue hand-off.
+     */
+    private final class Actor implements Delayed, Runnable {
+        private final String id;
+        private final TicketPool pool;
+        private volatile Pacer pacer; // replaced by setVendorPacing or setCustomerPacing while the actor runs
+        private final int size; // tickets per release or purchase
+        private final boolean vendor;
+
+        private long intendedNanos; // when the current attempt should have started
+        private long dueNanos; // when the actor leaves the queue: the intended time, or a retry after it
+        private long retryNanos; // current backoff, 0 when not retrying
+
+        private List<Ticket> releasing; // vendor: claimed tickets of the current attempt
+        private int claimed; // customer: tickets claimed by the current attempt
+        private int done; // tickets released or bought by the current attempt
+
+        private Actor(String id, TicketPool pool, Pacer pacer, int size, boolean vendor) {
+            this.id = id;
+            this.pool = pool;
+            this.pacer = pacer;
+            this.size = size;
+            this.vendor = vendor;
+        }
+
+        private void schedule(long intended) {
+            intendedNanos = intended;
+            dueNanos = intended;
+            retryNanos = 0;
+        }
+
+        private void retry() {
+            retryNanos = retryNanos == 0 ? MIN_RETRY_NANOS : Math.min(retryNanos * 2, MAX_RETRY_NANOS);
+            dueNanos = System.nanoTime() + retryNanos;
+            due.add(this);
+        }
+
+        @Override
+        public void run() {
+            if (retryNanos == 0) {
+                startDelay.record(System.nanoTime() - intendedNanos);
+            }
+            attempts.increment();
+            try {
+                boolean complete = vendor ? release() : purchase();
+                if (complete) {
+                    schedule(intendedNanos + pacer.nextDelayNanos()); // open loop: paced from the intended start
+                    due.add(this);
+                }
+            } catch (RuntimeException e) {
+                logger.error("Attempt of {} failed: {}", id, e.getMessage());
+                stopped(this);
+            }
+        }
+
+        /**
+         * @return true if the attempt completed, false if the actor stopped or was queued for a retry.
+         */
+        private boolean release() {
+            if (releasing == null) {
+                releasing = pool.createTickets(id, size);
+                done = 0;
+                if (releasing.isEmpty()) {
+                    logger.info("{} stopping as all tickets are released.", id);
+                    stopped(this);
+                    return false;
+                }
+            }
+            done += pool.offerTickets(releasing.subList(done, releasing.size()));
+            if (done < releasing.size()) {
+                retry(); // pool full
+                return false;
+            }
+            releasing = null;
+            return true;
+        }
+
+        private boolean purchase() {
+            if (claimed == 0) {
+                claimed = pool.claimTickets(id, size);
+                done = 0;
+                if (claimed == 0) {
+                    logger.info("{} stopping as tickets are sold out or its purchase limit is reached.", id);
+                    stopped(this);
+                    return false;
+                }
+            }
+            boolean drained = false;
+            try {
+                done += pool.drainTo(id, new ArrayList<>(claimed - done), claimed - done); // credited to this actor on whichever worker retries it
+                drained = true;
+            } finally {
+                if (!drained) { // the attempt fails and the actor stops, so other customers get the tickets it still had claimed
+                    returnClaims();
+                }
+            }
+            if (done < claimed) {
+                retry(); // pool empty
+                return false;
+            }
+            purchaseLatency.record(System.nanoTime() - intendedNanos);
+            claimed = 0;
+            return true;
+        }
+
+        /**
+         * Gives back the claims of a purchase that will not be completed.
+         */
+        private void returnClaims() {
+            if (claimed > done) {
+                pool.returnClaims(id, claimed - done);
+            }
+            claimed = 0;
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(dueNanos - System.nanoTime(), TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            return Long.compare(dueNanos, ((Actor) other).dueNanos);
+        }
+    }
+}
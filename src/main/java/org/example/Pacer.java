@@ -0,0 +1,104 @@
+package org.example;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Paces the iterations of one vendor or customer.
+ * Intervals are in microseconds and may be 0, in which case the runner never pauses. Pauses are
+ * parked to a deadline instead of passed to Thread.sleep, so sub-millisecond intervals are honoured.
+ * Random patterns draw from a seeded generator, so a workload replays the same pauses on every run.
+ * A pacer belongs to a single runner and is not thread safe, except for cancel().
+ */
+public class Pacer {
+    private final long intervalNanos;
+    private final ArrivalPattern pattern;
+    private final int burstSize;
+    private final SplittableRandom random;
+
+    private int inBurst = 0; //iterations of the current burst so far
+
+    private volatile boolean cancelled = false; //set once the runner has been given a new pacer
+    private volatile Thread pausing; //thread parked in pause(), null while not pausing
+
+    /**
+     * @param intervalMicros Mean pause between iterations in microseconds, 0 for no pause.
+     * @param pattern        How pauses are spread around the mean.
+     * @param burstSize      Iterations per burst for BURSTY, ignored otherwise.
+     * @param seed           Seed of the POISSON generator.
+     */
+    public Pacer(long intervalMicros, ArrivalPattern pattern, int burstSize, long seed) {
+        this.intervalNanos = TimeUnit.MICROSECONDS.toNanos(Math.max(0, intervalMicros));
+        this.pattern = pattern;
+        this.burstSize = Math.max(1, burstSize);
+        this.random = new SplittableRandom(seed);
+    }
+
+    /**
+     * @param intervalSeconds Pause between iterations in whole seconds, as entered in the interactive configuration.
+     * @return A pacer pausing exactly that long after every iteration.
+     */
+    public static Pacer fixedSeconds(int intervalSeconds) {
+        return new Pacer(TimeUnit.SECONDS.toMicros(intervalSeconds), ArrivalPattern.FIXED, 1, 0);
+    }
+
+    /**
+     * @return The length of the next pause in nanoseconds.
+     */
+    public long nextDelayNanos() {
+        if (intervalNanos == 0) {
+            return 0;
+        }
+        switch (pattern) {
+            case POISSON:
+                return (long) (-Math.log(1 - random.nextDouble()) * intervalNanos);
+            case BURSTY:
+                if (++inBurst < burstSize) {
+                    return 0;
+                }
+                inBurst = 0;
+                return intervalNanos * burstSize;
+            case FIXED:
+            default:
+                return intervalNanos;
+        }
+    }
+
+    /**
+     * Pauses the calling thread for the next delay.
+     *
+     * @throws InterruptedException If the thread is interrupted before or during the pause.
+     */
+    public void pause() throws InterruptedException {
+        long delay = nextDelayNanos();
+        if (delay > 0) {
+            long deadline = System.nanoTime() + delay;
+            long remaining = delay;
+            pausing = Thread.currentThread();
+            try {
+                while (remaining > 0 && !cancelled && !Thread.currentThread().isInterrupted()) {
+                    LockSupport.parkNanos(this, remaining);
+                    remaining = deadline - System.nanoTime();
+                }
+            } finally {
+                pausing = null;
+            }
+        }
+        if (Thread.interrupted()) {
+            throw new InterruptedException("Interrupted while pacing");
+        }
+    }
+
+    /**
+     * Ends the current pause, and every later one, right away. Called from another thread when the
+     * runner switches to a new pacer, so a runner parked for a long interval picks up a new rate at once.
+     */
+    public void cancel() {
+        cancelled = true;
+        Thread thread = pausing;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+        }
+    }
+}
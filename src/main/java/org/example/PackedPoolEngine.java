@@ -0,0 +1,164 @@
+package org.example;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Locking pool engine that stores tickets as primitives instead of objects.
+ * Each pooled ticket is 16 bytes in three parallel circular arrays (ticket ID, event index,
+ * price in cents); event names are interned once into a small table. Vendors releasing through
+ * TicketPool.releaseTickets hand over ID ranges with putRange, so a ticket that goes through the pool
+ * costs one object, created when it leaves the pool, and that object stays valid after the slot is reused.
+ * Tickets added as objects (e.g. returned by an expired hold) are unpacked and the objects dropped.
+ * The arrays start small and double up to the capacity as the pool fills.
+ */
+public class PackedPoolEngine extends AbstractLockingPoolEngine {
+    private int[] ticketIds;
+    private int[] eventIndexes;
+    private long[] prices;
+
+    private int head = 0; // slot of the oldest ticket
+    private int count = 0;
+
+    private final List<String> eventNames = new ArrayList<>(); // event index -> name
+    private final Map<String, Integer> eventIndex = new HashMap<>(); // name -> event index
+    private String lastEventName; // most pools sell one event: skip the map lookup when it repeats
+    private int lastEventIndex;
+
+    private static final int INITIAL_SLOTS = 1024;
+
+    public PackedPoolEngine(int capacity) {
+        this(capacity, false);
+    }
+
+    /**
+     * @param capacity Maximum number of tickets the engine can hold.
+     * @param fair     Whether the lock grants access to the longest-waiting thread first.
+     */
+    public PackedPoolEngine(int capacity, boolean fair) {
+        this(capacity, fair, WaitStrategy.BLOCKING);
+    }
+
+    /**
+     * @param capacity     Maximum number of tickets the engine can hold.
+     * @param fair         Whether the lock grants access to the longest-waiting thread first.
+     * @param waitStrategy How callers wait while the pool is full or empty.
+     */
+    public PackedPoolEngine(int capacity, boolean fair, WaitStrategy waitStrategy) {
+        super(capacity, fair, waitStrategy);
+        int slots = Math.min(capacity, INITIAL_SLOTS);
+        this.ticketIds = new int[slots];
+        this.eventIndexes = new int[slots];
+        this.prices = new long[slots];
+    }
+
+    @Override
+    protected int count() {
+        return count;
+    }
+
+    @Override
+    protected void addLast(Ticket ticket) {
+        addLast(ticket.getTicketId(), ticket.getEventName(), ticket.getPriceMinorUnits());
+    }
+
+    @Override
+    protected void addLast(int ticketId, String eventName, long price) {
+        if (count == ticketIds.length) {
+            grow();
+        }
+        int slot = (head + count) % ticketIds.length;
+        ticketIds[slot] = ticketId;
+        eventIndexes[slot] = indexOf(eventName);
+        prices[slot] = price;
+        count++;
+    }
+
+    @Override
+    protected Ticket pollFirst() {
+        if (count == 0) {
+            return null;
+        }
+        Ticket ticket = ticketAt(head);
+        head = (head + 1) % ticketIds.length;
+        count--;
+        return ticket;
+    }
+
+    @Override
+    protected int removeUpTo(Collection<? super Ticket> sink, int max) {
+        int removed = Math.min(max, count);
+        for (int i = 0; i < removed; i++) {
+            sink.add(ticketAt((head + i) % ticketIds.length));
+        }
+        head = (head + removed) % ticketIds.length;
+        count -= removed;
+        return removed;
+    }
+
+    @Override
+    protected List<Ticket> copy() {
+        List<Ticket> copy = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            copy.add(ticketAt((head + i) % ticketIds.length));
+        }
+        return copy;
+    }
+
+    @Override
+    protected void copyIds(int from, int[] into, int at, int n) {
+        int first = (head + from) % ticketIds.length;
+        int firstPart = Math.min(n, ticketIds.length - first);
+        System.arraycopy(ticketIds, first, into, at, firstPart);
+        System.arraycopy(ticketIds, 0, into, at + firstPart, n - firstPart);
+    }
+
+    @Override
+    protected void removeAll() {
+        head = 0;
+        count = 0;
+    }
+
+    private Ticket ticketAt(int slot) {
+        return new Ticket(ticketIds[slot], eventNames.get(eventIndexes[slot]), prices[slot]);
+    }
+
+    private int indexOf(String eventName) {
+        if (eventName != null && eventName == lastEventName) {
+            return lastEventIndex;
+        }
+        Integer index = eventIndex.get(eventName);
+        if (index == null) {
+            index = eventNames.size();
+            eventNames.add(eventName);
+            eventIndex.put(eventName, index);
+        }
+        lastEventName = eventName;
+        lastEventIndex = index;
+        return index;
+    }
+
+    /**
+     * Doubles the arrays (up to the capacity), unrolling the circular contents to start at slot 0.
+     */
+    private void grow() {
+        int slots = (int) Math.min(capacity, 2L * ticketIds.length);
+        int[] newIds = new int[slots];
+        int[] newEvents = new int[slots];
+        long[] newPrices = new long[slots];
+        int firstPart = Math.min(count, ticketIds.length - head);
+        System.arraycopy(ticketIds, head, newIds, 0, firstPart);
+        System.arraycopy(ticketIds, 0, newIds, firstPart, count - firstPart);
+        System.arraycopy(eventIndexes, head, newEvents, 0, firstPart);
+        System.arraycopy(eventIndexes, 0, newEvents, firstPart, count - firstPart);
+        System.arraycopy(prices, head, newPrices, 0, firstPart);
+        System.arraycopy(prices, 0, newPrices, firstPart, count - firstPart);
+        ticketIds = newIds;
+        eventIndexes = newEvents;
+        prices = newPrices;
+        head = 0;
+    }
+}
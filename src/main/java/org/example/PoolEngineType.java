@@ -0,0 +1,46 @@
+package org.example;
+
+/**
+ * The storage engines a TicketPool can be started with.
+ */
+public enum PoolEngineType {
+    LOCKING, // single ReentrantLock with notFull/notEmpty conditions
+    RING_BUFFER, // lock-free bounded MPMC ring buffer
+    SHARDED, // capacity split across per-core shards with work stealing
+    PACKED, // single lock over primitive arrays instead of ticket objects
+    WAITING_ROOM; // FIFO waiting rooms with direct hand-off to the longest-waiting customer
+
+    /**
+     * Creates a new engine of this type.
+     *
+     * @param capacity Maximum number of tickets the engine can hold.
+     * @return The new engine.
+     */
+    public TicketPoolEngine create(int capacity) {
+        Configuration defaults = new Configuration(0, 0, capacity, 0);
+        return create(defaults);
+    }
+
+    /**
+     * Creates a new engine of this type using the capacity and engine options of the configuration.
+     *
+     * @param config The configuration; the engine type itself is not read from it.
+     * @return The new engine.
+     */
+    public TicketPoolEngine create(Configuration config) {
+        int capacity = config.getMaxTicketCapacity();
+        switch (this) {
+            case RING_BUFFER:
+                return new RingBufferPoolEngine(capacity, config.isFairLock(), config.getWaitStrategy());
+            case SHARDED:
+                return new ShardedPoolEngine(capacity, config.getPoolShards(), config.isFairLock(), config.getWaitStrategy());
+            case PACKED:
+                return new PackedPoolEngine(capacity, config.isFairLock(), config.getWaitStrategy());
+            case WAITING_ROOM:
+                return new WaitingRoomPoolEngine(capacity);
+            case LOCKING:
+            default:
+                return new LockingPoolEngine(capacity, config.isFairLock(), config.getWaitStrategy());
+        }
+    }
+}
@@ -0,0 +1,200 @@
+package org.example;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters and histograms of one ticket pool.
+ * Engines record how long threads wait for the pool lock and how long they wait on notFull/notEmpty;
+ * as a TicketPoolListener the metrics count releases and sales overall, and per actor: the tickets each
+ * vendor created with createTickets(vendorID, max) and each customer bought with a customer ID. The actor
+ * IDs come with the calls rather than from the running thread, so pooled workers and virtual threads
+ * are attributed correctly and the map holds one entry per vendor and customer.
+ * Every counter is a LongAdder and every histogram a LatencyHistogram, so recording never takes a lock.
+ * Occupancy is sampled by MetricsReporter rather than recorded on every operation.
+ */
+public class PoolMetrics implements TicketPoolListener, PoolMetricsMXBean {
+    private final String eventId;
+
+    private final LongAdder ticketsReleased = new LongAdder();
+    private final LongAdder ticketsSold = new LongAdder();
+    private final LongAdder customerWakeups = new LongAdder(); //times a waiting customer was woken, whether or not it got a ticket
+    private final ConcurrentHashMap<String, LongAdder> ticketsByActor = new ConcurrentHashMap<>(); //vendor or customer ID to tickets created or bought
+
+    private final LatencyHistogram lockWait = new LatencyHistogram(); //nanoseconds from asking for the pool lock to holding it
+    private final LatencyHistogram notFullWait = new LatencyHistogram(); //nanoseconds vendors spent waiting for space
+    private final LatencyHistogram notEmptyWait = new LatencyHistogram(); //nanoseconds customers spent waiting for tickets
+    private final LatencyHistogram occupancy = new LatencyHistogram(); //sampled number of tickets in the pool
+
+    public PoolMetrics(String eventId) {
+        this.eventId = eventId;
+    }
+
+    public void recordLockWait(long nanos) {
+        lockWait.record(nanos);
+    }
+
+    public void recordNotFullWait(long nanos) {
+        notFullWait.record(nanos);
+    }
+
+    public void recordNotEmptyWait(long nanos) {
+        notEmptyWait.record(nanos);
+    }
+
+    public void recordCustomerWakeups(int wakeups) {
+        if (wakeups > 0) {
+            customerWakeups.add(wakeups);
+        }
+    }
+
+    public void recordOccupancy(int tickets) {
+        occupancy.record(tickets);
+    }
+
+    @Override
+    public void ticketsCreated(TicketPool pool, String vendorID, List<Ticket> tickets) {
+        actor(vendorID, tickets.size());
+    }
+
+    @Override
+    public void ticketReleased(TicketPool pool, Ticket ticket) {
+        ticketsReleased.increment();
+    }
+
+    @Override
+    public void ticketSold(TicketPool pool, Ticket ticket) {
+        ticketsSold.increment();
+    }
+
+    @Override
+    public void ticketsReleased(TicketPool pool, List<Ticket> tickets) {
+        ticketsReleased.add(tickets.size());
+    }
+
+    @Override
+    public void ticketsSold(TicketPool pool, List<Ticket> tickets) {
+        ticketsSold.add(tickets.size());
+    }
+
+    @Override
+    public void ticketSold(TicketPool pool, String customerID, Ticket ticket) {
+        ticketsSold.increment();
+        actor(customerID, 1);
+    }
+
+    @Override
+    public void ticketsSold(TicketPool pool, String customerID, List<Ticket> tickets) {
+        ticketsSold.add(tickets.size());
+        actor(customerID, tickets.size());
+    }
+
+    private void actor(String actorID, int tickets) {
+        if (actorID == null || tickets == 0) {
+            return;
+        }
+        LongAdder total = ticketsByActor.get(actorID);
+        (total != null ? total : ticketsByActor.computeIfAbsent(actorID, key -> new LongAdder())).add(tickets);
+    }
+
+    public LatencyHistogram getLockWait() {
+        return lockWait;
+    }
+
+    public LatencyHistogram getNotFullWait() {
+        return notFullWait;
+    }
+
+    public LatencyHistogram getNotEmptyWait() {
+        return notEmptyWait;
+    }
+
+    public LatencyHistogram getOccupancy() {
+        return occupancy;
+    }
+
+    @Override
+    public String getEventId() {
+        return eventId;
+    }
+
+    @Override
+    public long getTicketsReleased() {
+        return ticketsReleased.sum();
+    }
+
+    @Override
+    public long getTicketsSold() {
+        return ticketsSold.sum();
+    }
+
+    @Override
+    public long getCustomerWakeups() {
+        return customerWakeups.sum();
+    }
+
+    @Override
+    public long getLockWaitCount() {
+        return lockWait.getCount();
+    }
+
+    @Override
+    public double getLockWaitMean() {
+        return lockWait.getMean();
+    }
+
+    @Override
+    public long getLockWaitP50() {
+        return lockWait.getValueAtPercentile(50);
+    }
+
+    @Override
+    public long getLockWaitP99() {
+        return lockWait.getValueAtPercentile(99);
+    }
+
+    @Override
+    public long getLockWaitMax() {
+        return lockWait.getMax();
+    }
+
+    @Override
+    public long getNotFullWaitCount() {
+        return notFullWait.getCount();
+    }
+
+    @Override
+    public long getNotFullWaitP99() {
+        return notFullWait.getValueAtPercentile(99);
+    }
+
+    @Override
+    public long getNotEmptyWaitCount() {
+        return notEmptyWait.getCount();
+    }
+
+    @Override
+    public long getNotEmptyWaitP99() {
+        return notEmptyWait.getValueAtPercentile(99);
+    }
+
+    @Override
+    public long getOccupancyP50() {
+        return occupancy.getValueAtPercentile(50);
+    }
+
+    @Override
+    public long getOccupancyMax() {
+        return occupancy.getMax();
+    }
+
+    @Override
+    public Map<String, Long> getTicketsByActor() {
+        Map<String, Long> copy = new HashMap<>();
+        ticketsByActor.forEach((name, tickets) -> copy.put(name, tickets.sum()));
+        return copy;
+    }
+}
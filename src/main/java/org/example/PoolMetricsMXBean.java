@@ -0,0 +1,48 @@
+package org.example;
+
+import java.util.Map;
+
+/**
+ * JMX view of the metrics of one ticket pool, registered by MetricsReporter as
+ * org.example:type=PoolMetrics,event=&lt;event ID&gt;. Durations are in nanoseconds.
+ */
+public interface PoolMetricsMXBean {
+
+    String getEventId();
+
+    long getTicketsReleased();
+
+    long getTicketsSold();
+
+    /**
+     * @return Times a waiting customer was woken; divide by tickets sold for wakeups per sale.
+     */
+    long getCustomerWakeups();
+
+    long getLockWaitCount();
+
+    double getLockWaitMean();
+
+    long getLockWaitP50();
+
+    long getLockWaitP99();
+
+    long getLockWaitMax();
+
+    long getNotFullWaitCount();
+
+    long getNotFullWaitP99();
+
+    long getNotEmptyWaitCount();
+
+    long getNotEmptyWaitP99();
+
+    long getOccupancyP50();
+
+    long getOccupancyMax();
+
+    /**
+     * @return Tickets created (vendors) or bought (customers) per vendor or customer ID.
+     */
+    Map<String, Long> getTicketsByActor();
+}
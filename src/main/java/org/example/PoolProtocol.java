@@ -0,0 +1,52 @@
+package org.example;
+
+/**
+ * Binary protocol between PoolServer and RemoteTicketPool, one TCP connection per client pool.
+ * All values are big-endian as written by DataOutputStream; strings are modified UTF-8 (writeUTF).
+ *
+ * Request:  int callId, byte op, then the arguments of the op:
+ *   HELLO    UTF eventId                    selects the pool of the connection; must be the first request
+ *   RELEASE  int max                        createTickets(max)
+ *   ADD      int n, n * int ticketId        adds the tickets, waiting at most WAIT_MILLIS for space
+ *   CLAIM    UTF customerID, int max        claimTickets(customerID, max); an empty ID claims without a purchase limit
+ *   REMOVE   UTF customerID, int max        removes up to max tickets for the customer, waiting at most WAIT_MILLIS
+ *                                           for the first one; an empty ID removes them for no customer
+ *   PURCHASE UTF customerID, int max        CLAIM followed by REMOVE of the claimed tickets in one round trip
+ *   LIMIT    UTF customerID                 reachedPurchaseLimit(customerID)
+ *   RETURN   UTF customerID, int n          gives back up to n claims the customer made on this connection and
+ *                                           was not sent tickets for
+ *
+ * Response: int callId, byte status, then for OK: long value, int n, n * int ticketId, int p, p * long price
+ *   (HELLO adds UTF eventName), and for ERROR: UTF message. p is n when the pool has pricing rules and
+ *   gives each ticket's price in minor units; it is 0 when every ticket sells at the HELLO price.
+ *   HELLO: value = ticket price, IDs = [capacity, total tickets]; RELEASE and REMOVE: the tickets;
+ *   ADD: value = tickets added; CLAIM: value = tickets claimed; LIMIT: value = 1 if reached;
+ *   PURCHASE: value = tickets claimed, IDs = the ones removed so far, the client removes the rest;
+ *   RETURN: value = claims given back.
+ *
+ * Requests are pipelined: a client may send any number before reading a response, and responses
+ * come back as they complete, matched by call ID. Tickets travel as IDs only; event name and price
+ * are the same for every ticket of a pool and are sent once in the HELLO response.
+ *
+ * The server counts removed tickets as sold once their response is flushed. When a connection closes,
+ * the claims its customers were not sent tickets for are given back and unsent tickets return to the pool.
+ */
+final class PoolProtocol {
+    static final byte HELLO = 1;
+    static final byte RELEASE = 2;
+    static final byte ADD = 3;
+    static final byte CLAIM = 4;
+    static final byte REMOVE = 5;
+    static final byte PURCHASE = 6;
+    static final byte LIMIT = 7;
+    static final byte RETURN = 8;
+
+    static final byte OK = 0;
+    static final byte ERROR = 1;
+
+    static final long WAIT_MILLIS = 50; // longest a server-side wait for space or tickets lasts before answering
+    static final int MAX_TICKETS_PER_CALL = 1 << 20; // guards against corrupt lengths
+
+    private PoolProtocol() {
+    }
+}
@@ -0,0 +1,723 @@
+package org.example;
+
+import com.google.gson.Gson;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FileReader;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static org.apache.logging.log4j.util.Unbox.box;
+
+/**
+ * Serves the pools of an event inventory to RemoteTicketPool clients in other processes over TCP
+ * (see PoolProtocol). Every connection is read by its own virtual thread, which answers requests in
+ * arrival order and flushes its responses once no further request is buffered, so a burst of pipelined
+ * requests costs one write. A request that would have to wait for space or tickets is handed to a
+ * separate virtual thread, so it never holds up the requests behind it on the same connection.
+ * The claims and the inventory stay in this process, so clients on any number of hosts share one
+ * inventory and can never oversell it.
+ *
+ * Tickets removed for a client are sold only once the response carrying them has been flushed to the
+ * socket; until then they count as held. Each connection also keeps the claims its customers have not
+ * used yet. When a client disconnects, its unused claims are given back and tickets it was never sent go
+ * back into the pool, so a vanished client cannot strand inventory.
+ *
+ * Usage: java -jar RealTimeTicketing-CLI.jar serve [--config configuration.json] [--snapshot inventory.snap]
+ *        [--port 7070] [--exit-when-ready]
+ */
+public class PoolServer implements AutoCloseable {
+    public static final int DEFAULT_PORT = 7070;
+
+    private final EventInventory inventory;
+    private final ServerSocket serverSocket;
+    private final Set<Connection> connections = ConcurrentHashMap.newKeySet();
+
+    private volatile boolean running = true;
+    private Thread acceptor;
+
+    private static final Logger logger = LogManager.getLogger(PoolServer.class);
+
+    /**
+     * Binds the server socket. Call start() to accept clients.
+     *
+     * @param inventory The pools to serve, by event ID.
+     * @param port      The TCP port, 0 for any free port.
+     * @throws IOException If the port cannot be bound.
+     */
+    public PoolServer(EventInventory inventory, int port) throws IOException {
+        this.inventory = inventory;
+        this.serverSocket = new ServerSocket(port);
+    }
+
+    /**
+     * @return The port the server listens on.
+     */
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * Starts accepting clients on a background thread.
+     */
+    public synchronized void start() {
+        if (acceptor == null) {
+            acceptor = Thread.ofPlatform().name("PoolServer").daemon().start(this::accept);
+            logger.info("Pool server listening on port {}.", box(getPort()));
+        }
+    }
+
+    /**
+     * Waits until the server is closed.
+     *
+     * @throws InterruptedException If the calling thread is interrupted while waiting.
+     */
+    public void join() throws InterruptedException {
+        Thread thread;
+        synchronized (this) {
+            thread = acceptor;
+        }
+        if (thread != null) {
+            thread.join();
+        }
+    }
+
+    /**
+     * Stops accepting clients and closes every connection. Waits in progress end within PoolProtocol.WAIT_MILLIS.
+     */
+    @Override
+    public void close() {
+        running = false;
+        try {
+            serverSocket.close();
+        } catch (IOException e) {
+            logger.error(e.getMessage());
+        }
+        for (Connection connection : connections) {
+            connection.close();
+        }
+    }
+
+    private void accept() {
+        while (running) {
+            try {
+                Socket socket = serverSocket.accept();
+                socket.setTcpNoDelay(true); // responses are batched by the server, so Nagle's delay only adds latency
+                Connection connection = new Connection(socket);
+                connections.add(connection);
+                Thread.ofVirtual().name("PoolConnection-" + socket.getPort()).start(connection::serve);
+            } catch (IOException e) {
+                if (running) {
+                    logger.error("Could not accept a client: {}", e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * One client connection, bound to a single pool by its HELLO request.
+     */
+    private final class Connection {
+        private final Socket socket;
+        private final DataInputStream in; // only read by the connection thread
+        private final DataOutputStream out; // only written while holding writeLock
+        private final ReentrantLock writeLock = new ReentrantLock();
+
+        private TicketPool pool; // null until HELLO, only set by the connection thread
+
+        private final List<Delivery> unflushed = new ArrayList<>(); // removed tickets written but not flushed, only accessed while holding writeLock
+        private final Map<String, Integer> unusedClaims = new HashMap<>(); // claims by customer ID not yet matched by sent tickets, only accessed while holding writeLock
+        private boolean closed; // only accessed while holding writeLock
+
+        private Connection(Socket socket) throws IOException {
+            this.socket = socket;
+            this.in = new DataInputStream(new BufferedInputStream(socket.getInputStream(), 1 << 16));
+            this.out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream(), 1 << 16));
+        }
+
+        private void serve() {
+            try {
+                while (true) {
+                    int callId = in.readInt();
+                    handle(callId, in.readByte());
+                    if (in.available() == 0) { // nothing else buffered: send the responses written so far
+                        flush();
+                    }
+                }
+            } catch (EOFException | SocketException e) {
+                logger.debug("Client {} disconnected.", socket.getRemoteSocketAddress());
+            } catch (IOException e) {
+                logger.warn("Closing connection to {}: {}", socket.getRemoteSocketAddress(), e.getMessage());
+            } finally {
+                close();
+            }
+        }
+
+        private void handle(int callId, byte op) throws IOException {
+            switch (op) {
+                case PoolProtocol.HELLO: {
+                    String eventId = in.readUTF();
+                    pool = inventory.getPool(eventId);
+                    if (pool == null) {
+                        respondError(callId, "Unknown event ID: " + eventId, false);
+                        return;
+                    }
+                    writeLock.lock();
+                    try {
+                        out.writeInt(callId);
+                        out.writeByte(PoolProtocol.OK);
+                        out.writeLong(pool.getTicketPrice());
+                        out.writeInt(2);
+                        out.writeInt(pool.getMaxTicketCapacity());
+                        out.writeInt(pool.getTotalTickets());
+                        out.writeInt(0);
+                        out.writeUTF(pool.getEventName());
+                    } finally {
+                        writeLock.unlock();
+                    }
+                    return;
+                }
+                case PoolProtocol.RELEASE: {
+                    int max = in.readInt();
+                    if (requirePool(callId)) {
+                        respond(callId, 0, pool.createTickets(max), false);
+                    }
+                    return;
+                }
+                case PoolProtocol.ADD: {
+                    int[] ticketIds = readTicketIds();
+                    if (requirePool(callId)) {
+                        add(callId, toTickets(ticketIds));
+                    }
+                    return;
+                }
+                case PoolProtocol.CLAIM: {
+                    String customerID = in.readUTF();
+                    int max = in.readInt();
+                    if (requirePool(callId)) {
+                        respond(callId, claim(customerID, max), List.of(), false);
+                    }
+                    return;
+                }
+                case PoolProtocol.RETURN: {
+                    String customerID = in.readUTF();
+                    int n = in.readInt();
+                    if (requirePool(callId)) {
+                        respond(callId, returnClaims(customerID, n), List.of(), false);
+                    }
+                    return;
+                }
+                case PoolProtocol.REMOVE: {
+                    String customerID = in.readUTF();
+                    int max = in.readInt();
+                    if (requirePool(callId)) {
+                        remove(callId, customerID, 0, max);
+                    }
+                    return;
+                }
+                case PoolProtocol.PURCHASE: {
+                    String customerID = in.readUTF();
+                    int max = in.readInt();
+                    if (requirePool(callId)) {
+                        int claimed = claim(customerID, max);
+                        if (claimed == 0) {
+                            respond(callId, 0, List.of(), false);
+                        } else {
+                            remove(callId, customerID, claimed, claimed);
+                        }
+                    }
+                    return;
+                }
+                case PoolProtocol.LIMIT: {
+                    String customerID = in.readUTF();
+                    if (requirePool(callId)) {
+                        respond(callId, pool.reachedPurchaseLimit(customerID) ? 1 : 0, List.of(), false);
+                    }
+                    return;
+                }
+                default:
+                    throw new IOException("Unknown request type " + op); // the rest of the stream cannot be parsed
+            }
+        }
+
+        private boolean requirePool(int callId) throws IOException {
+            if (pool == null) {
+                respondError(callId, "No event selected", false);
+                return false;
+            }
+            return true;
+        }
+
+        /**
+         * Claims tickets and remembers them as unused claims of the connection until tickets are sent for them.
+         */
+        private int claim(String customerID, int max) {
+            int claimed = customerID.isEmpty() ? pool.claimTickets(max) : pool.claimTickets(customerID, max);
+            if (claimed > 0) {
+                writeLock.lock();
+                try {
+                    if (!closed) {
+                        unusedClaims.merge(customerID, claimed, Integer::sum);
+                        return claimed;
+                    }
+                } finally {
+                    writeLock.unlock();
+                }
+                pool.returnClaims(buyer(customerID), claimed); // closed while claiming: nobody will use them
+            }
+            return claimed;
+        }
+
+        /**
+         * Gives back up to n claims the customer made on this connection and has not been sent tickets for.
+         *
+         * @return The number of claims given back.
+         */
+        private int returnClaims(String customerID, int n) {
+            int returned;
+            writeLock.lock();
+            try {
+                int unused = unusedClaims.getOrDefault(customerID, 0);
+                returned = Math.max(0, Math.min(n, unused));
+                useClaims(customerID, returned);
+            } finally {
+                writeLock.unlock();
+            }
+            if (returned > 0) {
+                pool.returnClaims(buyer(customerID), returned);
+            }
+            return returned;
+        }
+
+        /**
+         * Deducts up to n of the customer's unused claims. Called holding writeLock.
+         */
+        private void useClaims(String customerID, int n) {
+            Integer unused = unusedClaims.get(customerID);
+            if (unused == null) {
+                return;
+            }
+            if (unused <= n) {
+                unusedClaims.remove(customerID);
+            } else {
+                unusedClaims.put(customerID, unused - n);
+            }
+        }
+
+        /**
+         * Adds what fits right now; if nothing fits, waits for space on a separate thread.
+         */
+        private void add(int callId, List<Ticket> tickets) throws IOException {
+            int added = pool.offerTickets(tickets);
+            if (added > 0 || tickets.isEmpty()) {
+                respond(callId, added, List.of(), false);
+                return;
+            }
+            TicketPool target = pool;
+            Thread.ofVirtual().start(() -> {
+                try {
+                    int n = 0;
+                    if (target.tryAddTickets(tickets.get(0), PoolProtocol.WAIT_MILLIS, TimeUnit.MILLISECONDS)) {
+                        n = 1 + target.offerTickets(tickets.subList(1, tickets.size()));
+                    }
+                    respond(callId, n, List.of(), true);
+                } catch (IOException | RuntimeException e) {
+                    respondFailed(callId, e);
+                }
+            });
+        }
+
+        /**
+         * Removes what is available right now for the customer; if nothing is, waits for a ticket on a
+         * separate thread. The customer travels with the delivery, as the waiting thread is not the reader's.
+         */
+        private void remove(int callId, String customerID, long value, int max) throws IOException {
+            List<Ticket> removed = new ArrayList<>(Math.min(max, 1024));
+            if (pool.drainForDelivery(removed, max) > 0 || max <= 0) {
+                deliver(callId, value, customerID, removed, false);
+                return;
+            }
+            TicketPool source = pool;
+            Thread.ofVirtual().start(() -> {
+                try {
+                    Ticket first = source.pollForDelivery(PoolProtocol.WAIT_MILLIS, TimeUnit.MILLISECONDS);
+                    if (first != null) {
+                        removed.add(first);
+                        source.drainForDelivery(removed, max - 1);
+                    }
+                    deliver(callId, value, customerID, removed, true);
+                } catch (IOException | RuntimeException e) {
+                    respondFailed(callId, e);
+                }
+            });
+        }
+
+        private int[] readTicketIds() throws IOException {
+            int n = in.readInt();
+            if (n < 0 || n > PoolProtocol.MAX_TICKETS_PER_CALL) {
+                throw new IOException("Invalid ticket count " + n);
+            }
+            int[] ticketIds = new int[n];
+            for (int i = 0; i < n; i++) {
+                ticketIds[i] = in.readInt();
+            }
+            return ticketIds;
+        }
+
+        private List<Ticket> toTickets(int[] ticketIds) {
+            List<Ticket> tickets = new ArrayList<>(ticketIds.length);
+            for (int ticketId : ticketIds) {
+                tickets.add(new Ticket(ticketId, pool.getEventName(), pool.getPrice(ticketId)));
+            }
+            return tickets;
+        }
+
+        /**
+         * Responds with tickets removed for the customer. They are sold once the response is flushed, or
+         * go back into the pool if the connection closes first.
+         */
+        private void deliver(int callId, long value, String customerID, List<Ticket> tickets, boolean flush) throws IOException {
+            if (tickets.isEmpty()) {
+                respond(callId, value, tickets, flush);
+                return;
+            }
+            List<Delivery> delivered = List.of();
+            writeLock.lock();
+            try {
+                if (closed) {
+                    pool.returnDelivery(tickets);
+                    throw new IOException("Connection closed");
+                }
+                unflushed.add(new Delivery(customerID, tickets)); // before writing, so a failed write still returns them
+                write(callId, value, tickets);
+                if (flush) {
+                    delivered = flushLocked();
+                }
+            } finally {
+                writeLock.unlock();
+            }
+            confirm(delivered);
+        }
+
+        private void respond(int callId, long value, List<Ticket> tickets, boolean flush) throws IOException {
+            List<Delivery> delivered = List.of();
+            writeLock.lock();
+            try {
+                write(callId, value, tickets);
+                if (flush) {
+                    delivered = flushLocked();
+                }
+            } finally {
+                writeLock.unlock();
+            }
+            confirm(delivered);
+        }
+
+        /**
+         * Writes an OK response. Called holding writeLock.
+         */
+        private void write(int callId, long value, List<Ticket> tickets) throws IOException {
+            out.writeInt(callId);
+            out.writeByte(PoolProtocol.OK);
+            out.writeLong(value);
+            out.writeInt(tickets.size());
+            for (Ticket ticket : tickets) {
+                out.writeInt(ticket.getTicketId());
+            }
+            if (pool.getPriceSchedule() == null) {
+                out.writeInt(0); // every ticket sells at the price sent with HELLO
+            } else {
+                out.writeInt(tickets.size());
+                for (Ticket ticket : tickets) {
+                    out.writeLong(ticket.getPriceMinorUnits());
+                }
+            }
+        }
+
+        private void respondError(int callId, String message, boolean flush) throws IOException {
+            List<Delivery> delivered = List.of();
+            writeLock.lock();
+            try {
+                out.writeInt(callId);
+                out.writeByte(PoolProtocol.ERROR);
+                out.writeUTF(message == null ? "" : message);
+                if (flush) {
+                    delivered = flushLocked();
+                }
+            } finally {
+                writeLock.unlock();
+            }
+            confirm(delivered);
+        }
+
+        /**
+         * Reports a failed wait to the client, unless the connection itself has failed.
+         */
+        private void respondFailed(int callId, Exception failure) {
+            if (failure instanceof IOException) {
+                logger.debug("Could not answer call {}: {}", box(callId), failure.getMessage());
+                return;
+            }
+            try {
+                respondError(callId, failure.getMessage(), true);
+            } catch (IOException e) {
+                logger.debug("Could not answer call {}: {}", box(callId), e.getMessage());
+            }
+        }
+
+        private void flush() throws IOException {
+            List<Delivery> delivered;
+            writeLock.lock();
+            try {
+                delivered = flushLocked();
+            } finally {
+                writeLock.unlock();
+            }
+            confirm(delivered);
+        }
+
+        /**
+         * Flushes the responses written so far and uses up the claims of the tickets they carried.
+         * Called holding writeLock.
+         *
+         * @return The deliveries that were sent, to be confirmed once the lock is released.
+         */
+        private List<Delivery> flushLocked() throws IOException {
+            out.flush();
+            if (unflushed.isEmpty()) {
+                return List.of();
+            }
+            List<Delivery> delivered = new ArrayList<>(unflushed);
+            unflushed.clear();
+            for (Delivery delivery : delivered) {
+                useClaims(delivery.customerID, delivery.tickets.size());
+            }
+            return delivered;
+        }
+
+        /**
+         * Records sent tickets as sold, outside writeLock so listeners do not hold up other responses.
+         */
+        private void confirm(List<Delivery> delivered) {
+            for (Delivery delivery : delivered) {
+                pool.confirmDelivery(buyer(delivery.customerID), delivery.tickets);
+            }
+        }
+
+        /**
+         * Closes the socket first, so a write blocked on a client that stopped reading gives up the lock,
+         * then gives back the unused claims and puts tickets that were never sent back into the pool.
+         */
+        private void close() {
+            connections.remove(this);
+            try {
+                socket.close();
+            } catch (IOException e) {
+                logger.debug(e.getMessage());
+            }
+            List<Delivery> undelivered;
+            Map<String, Integer> claims;
+            writeLock.lock();
+            try {
+                if (closed) {
+                    return;
+                }
+                closed = true;
+                undelivered = new ArrayList<>(unflushed);
+                unflushed.clear();
+                claims = new HashMap<>(unusedClaims);
+                unusedClaims.clear();
+            } finally {
+                writeLock.unlock();
+            }
+            int returnedClaims = 0;
+            for (Map.Entry<String, Integer> entry : claims.entrySet()) { // claims first, so the pool never looks sold out in between
+                pool.returnClaims(buyer(entry.getKey()), entry.getValue());
+                returnedClaims += entry.getValue();
+            }
+            int returnedTickets = 0;
+            for (Delivery delivery : undelivered) {
+                pool.returnDelivery(delivery.tickets);
+                returnedTickets += delivery.tickets.size();
+            }
+            if (returnedClaims > 0 || returnedTickets > 0) {
+                logger.info("Client {} left: gave back {} claims and returned {} unsent tickets to the pool.",
+                        socket.getRemoteSocketAddress(), box(returnedClaims), box(returnedTickets));
+            }
+        }
+    }
+
+    /**
+     * Tickets written to a client for a customer but not flushed yet.
+     */
+    private static final class Delivery {
+        private final String customerID; // as sent by the client, empty for none
+        private final List<Ticket> tickets;
+
+        private Delivery(String customerID, List<Ticket> tickets) {
+            this.customerID = customerID;
+            this.tickets = tickets;
+        }
+    }
+
+    /**
+     * @return The customer ID as TicketPool expects it: null for the empty ID clients send for no customer.
+     */
+    private static String buyer(String customerID) {
+        return customerID.isEmpty() ? null : customerID;
+    }
+
+    /**
+     * Writes the inventory to a snapshot file, logging instead of failing so serving goes on.
+     */
+    private static void saveSnapshot(Path file, Configuration config, EventInventory inventory, SalesAnalytics analytics) {
+        try {
+            InventorySnapshot.write(file, config, inventory, analytics);
+            logger.info("Saved the inventory to {}", file);
+        } catch (IOException e) {
+            logger.error("Could not save the inventory snapshot: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Serves the pools of a configuration until the process is stopped. With --snapshot the pools are
+     * restored from that snapshot if it exists, skipping the JSON parse and journal replay, and written
+     * back to it on shutdown, so a restarted node continues where the previous one stopped. With
+     * --snapshot-every the snapshot is also written while serving, so a crashed node loses at most that
+     * many seconds of sales; capturing a pool pauses its sales only for a chunk copy at a time.
+     *
+     * @param args [--config configuration.json] [--snapshot inventory.snap [--snapshot-every SECONDS]] [--port N] [--exit-when-ready]
+     */
+    public static void main(String[] args) {
+        String configFile = "src/main/resources/configuration.json";
+        Path snapshotFile = null;
+        int port = DEFAULT_PORT;
+        long snapshotSeconds = 0; // 0: written on shutdown only
+        boolean exitWhenReady = false; // start, report readiness and stop, e.g. as a health check or a CDS training run
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--config":
+                        configFile = args[++i];
+                        break;
+                    case "--snapshot":
+                        snapshotFile = Paths.get(args[++i]);
+                        break;
+                    case "--snapshot-every":
+                        snapshotSeconds = Long.parseLong(args[++i]);
+                        break;
+                    case "--port":
+                        port = Integer.parseInt(args[++i]);
+                        break;
+                    case "--exit-when-ready":
+                        exitWhenReady = true;
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Unknown option: " + args[i]);
+                }
+            }
+        } catch (IllegalArgumentException | ArrayIndexOutOfBoundsException e) {
+            System.err.println("Usage: serve [--config configuration.json] [--snapshot inventory.snap [--snapshot-every SECONDS]] [--port N] [--exit-when-ready]");
+            System.exit(2);
+            return;
+        }
+
+        Configuration config;
+        EventInventory inventory;
+        try {
+            if (snapshotFile != null && Files.exists(snapshotFile)) {
+                InventorySnapshot snapshot = InventorySnapshot.load(snapshotFile);
+                config = snapshot.getConfiguration();
+                inventory = snapshot.restore();
+            } else {
+                try (FileReader reader = new FileReader(configFile)) {
+                    config = new Gson().fromJson(reader, Configuration.class);
+                }
+                inventory = EventInventory.fromConfiguration(config);
+            }
+        } catch (IOException e) {
+            logger.error("Could not load the inventory: {}", e.getMessage());
+            System.exit(1);
+            return;
+        }
+        PoolServer server;
+        try {
+            server = new PoolServer(inventory, port);
+        } catch (IOException e) {
+            logger.error("Could not start the pool server: {}", e.getMessage());
+            System.exit(1);
+            return;
+        }
+        server.start();
+        long readyMillis = ProcessHandle.current().info().startInstant()
+                .map(start -> Duration.between(start, Instant.now()).toMillis()).orElse(-1L);
+        System.out.println("Serving events " + inventory.getEventIds() + " on port " + server.getPort()
+                + ", ready " + readyMillis + " ms after launch");
+        if (exitWhenReady) {
+            server.close();
+            return;
+        }
+
+        MetricsReporter reporter = Main.startMetrics(config, inventory);
+        SalesAnalytics analytics = Main.startAnalytics(config, inventory);
+        Path saveTo = snapshotFile;
+        Configuration saved = config;
+        ScheduledExecutorService snapshotter = null;
+        if (saveTo != null && snapshotSeconds > 0) {
+            snapshotter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "inventory-snapshot");
+                thread.setDaemon(true);
+                return thread;
+            });
+            snapshotter.scheduleWithFixedDelay(() -> saveSnapshot(saveTo, saved, inventory, analytics),
+                    snapshotSeconds, snapshotSeconds, TimeUnit.SECONDS);
+        }
+        ScheduledExecutorService periodic = snapshotter;
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            server.close();
+            if (periodic != null) {
+                periodic.shutdown();
+                try {
+                    periodic.awaitTermination(10, TimeUnit.SECONDS); // lets a running write finish before the last one
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            if (saveTo != null) {
+                saveSnapshot(saveTo, saved, inventory, analytics);
+            }
+        }));
+        try {
+            server.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            if (reporter != null) {
+                reporter.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,230 @@
+package org.example;
+
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Prices the tickets of one pool from its PricingRules. All prices are long minor units.
+ *
+ * The price of every section under the current demand bucket (the surge tier reached) and time window
+ * is computed once into a price table. Pricing a ticket then reads the current table, checks that the
+ * bucket and window have not changed, and looks up the ticket's section: a few field reads and, with
+ * surge tiers, one sum of the pool's sold counter. A table is only rebuilt when a sale moves the event
+ * into another surge tier or the clock crosses a window boundary. Tables are immutable and replaced in
+ * one volatile write, so concurrent sales never lock and at worst build the same table twice.
+ */
+public final class PriceSchedule {
+    private final PricingRules rules;
+    private final String[] sectionNames;
+    private final int[] sectionEnds; //last ticket ID of each section, ascending
+    private final long[] sectionPrices; //base price of each section, in minor units
+    private final long[] surgeThresholds; //tickets sold at which each surge tier starts, ascending
+    private final int[] surgeMarkups; //markup percent of each surge tier
+    private final long[] windowStarts; //epoch milliseconds each window opens, Long.MIN_VALUE if always open
+    private final long[] windowEnds; //epoch milliseconds each window closes, Long.MAX_VALUE if never
+    private final int[] windowMarkups; //markup percent of each window
+    private final LongSupplier ticketsSold; //sold count of the pool, read for the demand bucket
+
+    private volatile PriceTable table; //prices of the current demand bucket and window
+    private final LongAdder tablesBuilt = new LongAdder();
+
+    /**
+     * Section prices for one demand bucket and time window, valid until the clock leaves [validFrom, validUntil).
+     */
+    private static final class PriceTable {
+        private final int bucket; //surge tiers reached
+        private final long validFrom;
+        private final long validUntil;
+        private final long[] prices; //price per section, in minor units
+
+        private PriceTable(int bucket, long validFrom, long validUntil, long[] prices) {
+            this.bucket = bucket;
+            this.validFrom = validFrom;
+            this.validUntil = validUntil;
+            this.prices = prices;
+        }
+    }
+
+    /**
+     * @param rules        The event's pricing rules.
+     * @param defaultPrice The price in minor units when the rules have no sections.
+     * @param totalTickets The event's total, against which surge tiers are measured.
+     * @param ticketsSold  Supplies the event's current sold count.
+     * @throws IllegalArgumentException If a rule is invalid.
+     */
+    public PriceSchedule(PricingRules rules, long defaultPrice, int totalTickets, LongSupplier ticketsSold) {
+        this.rules = rules;
+        this.ticketsSold = ticketsSold;
+
+        List<PricingRules.Section> sections = rules.getSections();
+        if (sections.isEmpty()) {
+            sections = List.of(new PricingRules.Section(null, Integer.MAX_VALUE, defaultPrice));
+        }
+        sectionNames = new String[sections.size()];
+        sectionEnds = new int[sections.size()];
+        sectionPrices = new long[sections.size()];
+        long end = 0;
+        for (int i = 0; i < sections.size(); i++) {
+            PricingRules.Section section = sections.get(i);
+            if (section.getSeats() <= 0 || section.getPrice() < 0) {
+                throw new IllegalArgumentException("Invalid pricing section: " + section);
+            }
+            end = Math.min(Integer.MAX_VALUE, end + section.getSeats());
+            sectionNames[i] = section.getName();
+            sectionEnds[i] = (int) end;
+            sectionPrices[i] = section.getPrice();
+        }
+
+        List<PricingRules.SurgeTier> surge = rules.getSurge().stream()
+                .sorted((a, b) -> Integer.compare(a.getSoldPercent(), b.getSoldPercent())).toList();
+        surgeThresholds = new long[surge.size()];
+        surgeMarkups = new int[surge.size()];
+        for (int i = 0; i < surge.size(); i++) {
+            PricingRules.SurgeTier tier = surge.get(i);
+            if (tier.getSoldPercent() < 0 || tier.getSoldPercent() > 100 || tier.getMarkupPercent() <= -100) {
+                throw new IllegalArgumentException("Invalid surge tier: " + tier);
+            }
+            surgeThresholds[i] = ((long) totalTickets * tier.getSoldPercent() + 99) / 100;
+            surgeMarkups[i] = tier.getMarkupPercent();
+        }
+
+        List<PricingRules.TimeWindow> windows = rules.getWindows();
+        windowStarts = new long[windows.size()];
+        windowEnds = new long[windows.size()];
+        windowMarkups = new int[windows.size()];
+        for (int i = 0; i < windows.size(); i++) {
+            PricingRules.TimeWindow window = windows.get(i);
+            if (window.getMarkupPercent() <= -100) {
+                throw new IllegalArgumentException("Invalid time window: " + window);
+            }
+            windowStarts[i] = parseInstant(window.getStart(), Long.MIN_VALUE);
+            windowEnds[i] = parseInstant(window.getEnd(), Long.MAX_VALUE);
+            windowMarkups[i] = window.getMarkupPercent();
+        }
+        table = build(bucket(ticketsSold.getAsLong()), System.currentTimeMillis());
+    }
+
+    private static long parseInstant(String value, long missing) {
+        if (value == null || value.isBlank()) {
+            return missing;
+        }
+        try {
+            return Instant.parse(value).toEpochMilli();
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid instant in time window: " + value, e);
+        }
+    }
+
+    /**
+     * @param ticketId The ticket's ID.
+     * @return The ticket's current price, in minor units.
+     */
+    public long price(int ticketId) {
+        return table().prices[section(ticketId)];
+    }
+
+    /**
+     * Sets the current price on every ticket, reading the price table once.
+     *
+     * @param tickets The tickets to price.
+     */
+    public void price(List<Ticket> tickets) {
+        long[] prices = table().prices;
+        for (int i = 0, n = tickets.size(); i < n; i++) {
+            Ticket ticket = tickets.get(i);
+            ticket.setPriceMinorUnits(prices[section(ticket.getTicketId())]);
+        }
+    }
+
+    /**
+     * @param ticketId The ticket's ID.
+     * @return The name of the ticket's section, or null when the rules have no sections.
+     */
+    public String getSectionName(int ticketId) {
+        return sectionNames[section(ticketId)];
+    }
+
+    public PricingRules getRules() {
+        return rules;
+    }
+
+    /**
+     * @return The number of surge tiers the event has reached.
+     */
+    public int getDemandBucket() {
+        return table().bucket;
+    }
+
+    /**
+     * @return The number of price tables built, including the first.
+     */
+    public long getTablesBuilt() {
+        return tablesBuilt.sum();
+    }
+
+    private PriceTable table() {
+        PriceTable current = table;
+        int bucket = surgeThresholds.length == 0 ? 0 : bucket(ticketsSold.getAsLong());
+        long now = windowStarts.length == 0 ? 0 : System.currentTimeMillis();
+        if (bucket == current.bucket && now >= current.validFrom && now < current.validUntil) {
+            return current;
+        }
+        current = build(bucket, now);
+        table = current;
+        return current;
+    }
+
+    private int section(int ticketId) {
+        int index = Arrays.binarySearch(sectionEnds, ticketId);
+        if (index < 0) {
+            index = -index - 1;
+        }
+        return Math.min(index, sectionEnds.length - 1);
+    }
+
+    private int bucket(long sold) {
+        int bucket = 0;
+        while (bucket < surgeThresholds.length && sold >= surgeThresholds[bucket]) {
+            bucket++;
+        }
+        return bucket;
+    }
+
+    private PriceTable build(int bucket, long now) {
+        int surgeMarkup = bucket == 0 ? 0 : surgeMarkups[bucket - 1];
+        int windowMarkup = 0;
+        boolean inWindow = false;
+        long validFrom = Long.MIN_VALUE;
+        long validUntil = Long.MAX_VALUE;
+        for (int i = 0; i < windowStarts.length; i++) {
+            if (!inWindow && now >= windowStarts[i] && now < windowEnds[i]) {
+                inWindow = true;
+                windowMarkup = windowMarkups[i];
+            }
+            for (long boundary : new long[]{windowStarts[i], windowEnds[i]}) {
+                if (boundary <= now) {
+                    validFrom = Math.max(validFrom, boundary);
+                } else {
+                    validUntil = Math.min(validUntil, boundary);
+                }
+            }
+        }
+        long[] prices = new long[sectionPrices.length];
+        for (int i = 0; i < prices.length; i++) {
+            prices[i] = markup(markup(sectionPrices[i], surgeMarkup), windowMarkup);
+        }
+        tablesBuilt.increment();
+        return new PriceTable(bucket, validFrom, validUntil, prices);
+    }
+
+    /**
+     * @return The price with the markup applied, rounded half up to a whole minor unit.
+     */
+    private static long markup(long price, int percent) {
+        return percent == 0 ? price : (price * (100 + percent) + 50) / 100;
+    }
+}
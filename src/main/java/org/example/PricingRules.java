@@ -0,0 +1,234 @@
+package org.example;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Dynamic pricing rules of one event, as stored in the "pricing" object of an event in configuration.json:
+ *
+ * <pre>
+ * "pricing": {"sections": [{"name": "Floor", "seats": 200, "price": 250000}, {"name": "Balcony", "seats": 800, "price": 90000}],
+ *             "surge": [{"soldPercent": 50, "markupPercent": 10}, {"soldPercent": 90, "markupPercent": 30}],
+ *             "windows": [{"name": "Early bird", "end": "2026-11-01T00:00:00Z", "markupPercent": -20}]}
+ * </pre>
+ *
+ * Sections assign ticket IDs to price tiers in order: the first section gets IDs 1 to its seats, the next
+ * section the following ones, and IDs beyond the last section are priced as the last section. Surge tiers
+ * apply once the given share of the event's tickets is sold; the highest tier reached applies. A time
+ * window applies between its start and end (either may be missing); the first matching window applies.
+ * Markups are percentages of the section price and may be negative for discounts.
+ */
+public class PricingRules {
+    private List<Section> sections; //price tiers by ticket ID range, null or empty for the event's ticketPrice
+    private List<SurgeTier> surge; //demand-based markups, null or empty for none
+    private List<TimeWindow> windows; //time-based markups, null or empty for none
+
+    public PricingRules(List<Section> sections, List<SurgeTier> surge, List<TimeWindow> windows) {
+        this.sections = sections;
+        this.surge = surge;
+        this.windows = windows;
+    }
+
+    /**
+     * @return The sections, empty when not stored.
+     */
+    public List<Section> getSections() {
+        return sections != null ? sections : Collections.emptyList();
+    }
+
+    public void setSections(List<Section> sections) {
+        this.sections = sections;
+    }
+
+    /**
+     * @return The surge tiers, empty when not stored.
+     */
+    public List<SurgeTier> getSurge() {
+        return surge != null ? surge : Collections.emptyList();
+    }
+
+    public void setSurge(List<SurgeTier> surge) {
+        this.surge = surge;
+    }
+
+    /**
+     * @return The time windows, empty when not stored.
+     */
+    public List<TimeWindow> getWindows() {
+        return windows != null ? windows : Collections.emptyList();
+    }
+
+    public void setWindows(List<TimeWindow> windows) {
+        this.windows = windows;
+    }
+
+    /**
+     * Rules are equal when they price every ticket the same way; a missing list equals an empty one.
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof PricingRules)) {
+            return false;
+        }
+        PricingRules other = (PricingRules) o;
+        return getSections().equals(other.getSections()) && getSurge().equals(other.getSurge())
+                && getWindows().equals(other.getWindows());
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(getSections(), getSurge(), getWindows());
+    }
+
+    @Override
+    public String toString() {
+        return "PricingRules{" +
+                "sections = " + getSections() +
+                ", surge = " + getSurge() +
+                ", windows = " + getWindows() +
+                '}';
+    }
+
+    /**
+     * Price tier for a consecutive range of ticket IDs.
+     */
+    public static class Section {
+        private String name; //section name, e.g. "Floor"
+        private int seats; //number of ticket IDs in the section
+        private long price; //price of a ticket in the section, in minor units
+
+        public Section(String name, int seats, long price) {
+            this.name = name;
+            this.seats = seats;
+            this.price = price;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public int getSeats() {
+            return seats;
+        }
+
+        public long getPrice() {
+            return price;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Section)) {
+                return false;
+            }
+            Section other = (Section) o;
+            return Objects.equals(name, other.name) && seats == other.seats && price == other.price;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(name, seats, price);
+        }
+
+        @Override
+        public String toString() {
+            return name + " x " + seats + " @ " + price;
+        }
+    }
+
+    /**
+     * Markup that applies once a share of the event's tickets is sold.
+     */
+    public static class SurgeTier {
+        private int soldPercent; //share of the event's tickets sold at which the tier starts
+        private int markupPercent; //markup on the section price while the tier applies
+
+        public SurgeTier(int soldPercent, int markupPercent) {
+            this.soldPercent = soldPercent;
+            this.markupPercent = markupPercent;
+        }
+
+        public int getSoldPercent() {
+            return soldPercent;
+        }
+
+        public int getMarkupPercent() {
+            return markupPercent;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof SurgeTier)) {
+                return false;
+            }
+            SurgeTier other = (SurgeTier) o;
+            return soldPercent == other.soldPercent && markupPercent == other.markupPercent;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * soldPercent + markupPercent;
+        }
+
+        @Override
+        public String toString() {
+            return soldPercent + "% sold: " + markupPercent + "%";
+        }
+    }
+
+    /**
+     * Markup that applies between two instants.
+     */
+    public static class TimeWindow {
+        private String name; //window name, e.g. "Early bird"
+        private String start; //ISO-8601 instant the window opens, null for always open before its end
+        private String end; //ISO-8601 instant the window closes, null for never closing
+        private int markupPercent; //markup on the section price while the window is open
+
+        public TimeWindow(String name, String start, String end, int markupPercent) {
+            this.name = name;
+            this.start = start;
+            this.end = end;
+            this.markupPercent = markupPercent;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getStart() {
+            return start;
+        }
+
+        public String getEnd() {
+            return end;
+        }
+
+        public int getMarkupPercent() {
+            return markupPercent;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof TimeWindow)) {
+                return false;
+            }
+            TimeWindow other = (TimeWindow) o;
+            return Objects.equals(name, other.name) && Objects.equals(start, other.start) && Objects.equals(end, other.end)
+                    && markupPercent == other.markupPercent;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(name, start, end, markupPercent);
+        }
+
+        @Override
+        public String toString() {
+            return name + " [" + start + ", " + end + "): " + markupPercent + "%";
+        }
+    }
+}
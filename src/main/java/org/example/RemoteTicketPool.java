@@ -0,0 +1,498 @@
+package org.example;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.apache.logging.log4j.util.Unbox.box;
+
+/**
+ * Client side of a ticket pool served by a PoolServer in another process. Offers the vendor and
+ * customer operations of TicketPool; claims and sales are made by the server, so any number of
+ * clients in any number of processes share one inventory.
+ *
+ * A client is shared by many threads over a single connection. Calls are pipelined: a thread queues
+ * its request and waits only for its own response, while a writer thread sends whatever has queued up
+ * in one write and a reader thread completes the responses in whatever order the server finishes them.
+ * Under load many requests therefore share one system call in each direction. purchase() combines the
+ * claim and the removal of a customer's tickets into a single round trip. Claims the client does not
+ * use are given back with returnClaims, or by the server when the connection closes.
+ *
+ * Waits for space or tickets happen on the server in bounded steps of PoolProtocol.WAIT_MILLIS, so an
+ * interrupted caller stops within one step. A response that arrives after the interrupt is still
+ * honoured: tickets it carries are returned to the caller, who finds its interrupt flag set.
+ */
+public final class RemoteTicketPool implements AutoCloseable {
+    private final Socket socket;
+    private final DataInputStream in; // only read by the reader thread
+    private final DataOutputStream out; // only written by the writer thread
+
+    private final ConcurrentLinkedQueue<Call> outbox = new ConcurrentLinkedQueue<>(); // requests not yet written
+    private final ConcurrentHashMap<Integer, Call> inFlight = new ConcurrentHashMap<>(); // requests awaiting a response
+    private final AtomicInteger nextCallId = new AtomicInteger();
+
+    private final Thread writer;
+
+    private volatile RuntimeException failure; // set once the connection is closed or broken
+
+    private final String eventId;
+    private String eventName; // set from the HELLO response
+    private long ticketPrice;
+    private int maxTicketCapacity;
+    private int totalTickets;
+
+    private static final Logger logger = LogManager.getLogger(RemoteTicketPool.class);
+
+    /**
+     * A request and, once answered, its response.
+     */
+    private static final class Call {
+        private final int callId;
+        private final byte op;
+        private final String text; // event or customer ID, null if the op has none
+        private final int arg; // max, ignored if the op has none
+        private final int[] ticketIds; // tickets to add, null if the op has none
+        private final CompletableFuture<Call> done = new CompletableFuture<>();
+
+        private long value; // written by the reader thread before done completes
+        private int[] result = new int[0];
+        private long[] prices; // price of each result ticket, null if they sell at the HELLO price
+        private String eventName;
+
+        private Call(int callId, byte op, String text, int arg, int[] ticketIds) {
+            this.callId = callId;
+            this.op = op;
+            this.text = text;
+            this.arg = arg;
+            this.ticketIds = ticketIds;
+        }
+    }
+
+    /**
+     * Connects to a pool server and selects the pool of one event.
+     *
+     * @param host    Host name or address of the server.
+     * @param port    Port of the server.
+     * @param eventId ID of the event whose pool to use.
+     * @throws IOException If the server cannot be reached.
+     * @throws IllegalStateException If the server has no event with that ID.
+     */
+    public RemoteTicketPool(String host, int port, String eventId) throws IOException {
+        this.eventId = Objects.requireNonNull(eventId, "eventId");
+        this.socket = new Socket(host, port);
+        socket.setTcpNoDelay(true); // the writer batches requests itself
+        this.in = new DataInputStream(new BufferedInputStream(socket.getInputStream(), 1 << 16));
+        this.out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream(), 1 << 16));
+        this.writer = Thread.ofVirtual().name("RemotePool-writer").start(this::writeLoop);
+        Thread.ofVirtual().name("RemotePool-reader").start(this::readLoop);
+
+        Call hello;
+        try {
+            hello = await(send(PoolProtocol.HELLO, eventId, -1, null));
+        } catch (RuntimeException e) {
+            close();
+            throw e;
+        }
+        this.eventName = hello.eventName;
+        this.ticketPrice = hello.value;
+        this.maxTicketCapacity = hello.result[0];
+        this.totalTickets = hello.result[1];
+    }
+
+    public String getEventId() {
+        return eventId;
+    }
+
+    public String getEventName() {
+        return eventName;
+    }
+
+    /**
+     * @return The price of tickets released into this pool, in minor units (cents).
+     */
+    public long getTicketPrice() {
+        return ticketPrice;
+    }
+
+    /**
+     * @return The pool capacity when the client connected.
+     */
+    public int getMaxTicketCapacity() {
+        return maxTicketCapacity;
+    }
+
+    /**
+     * @return The event's total tickets when the client connected.
+     */
+    public int getTotalTickets() {
+        return totalTickets;
+    }
+
+    /**
+     * Claims the next block of ticket IDs of the event on the server and creates the tickets for release.
+     *
+     * @param max The maximum number of tickets to create.
+     * @return The new tickets in ID order, or an empty list once every ticket has been released.
+     */
+    public List<Ticket> createTickets(int max) {
+        if (max <= 0) {
+            return new ArrayList<>();
+        }
+        return toTickets(await(send(PoolProtocol.RELEASE, null, max, null)));
+    }
+
+    /**
+     * Adds a ticket to the pool, waiting while the pool is full.
+     *
+     * @param ticket The ticket to add.
+     * @throws RuntimeException If the thread is interrupted while waiting for space in the pool.
+     */
+    public void addTickets(Ticket ticket) {
+        addTickets(Collections.singletonList(ticket));
+    }
+
+    /**
+     * Adds a block of tickets in one call. Waits only until at least one ticket fits.
+     *
+     * @param tickets The tickets to be added, in release order.
+     * @return The number of tickets added from the start of the list (at least one, unless the list is empty).
+     * @throws RuntimeException If the thread is interrupted while waiting for space in the pool.
+     */
+    public int addTickets(List<Ticket> tickets) {
+        if (tickets.isEmpty()) {
+            return 0;
+        }
+        int[] ticketIds = new int[tickets.size()];
+        for (int i = 0; i < ticketIds.length; i++) {
+            ticketIds[i] = tickets.get(i).getTicketId();
+        }
+        while (true) {
+            int added = (int) await(send(PoolProtocol.ADD, null, -1, ticketIds)).value;
+            if (added > 0) {
+                return added;
+            }
+            checkInterrupted("adding");
+        }
+    }
+
+    /**
+     * Claims up to max of the event's unsold tickets for one purchase.
+     *
+     * @param max The number of tickets the customer wants.
+     * @return The number of tickets claimed, 0 once the event is sold out.
+     */
+    public int claimTickets(int max) {
+        return claimTickets("", max);
+    }
+
+    /**
+     * Claims up to max tickets for one purchase of the given customer, within the server's purchase limit.
+     *
+     * @param customerID The customer making the purchase.
+     * @param max        The number of tickets the customer wants.
+     * @return The number of tickets claimed, 0 once the event is sold out or the customer reached the limit.
+     */
+    public int claimTickets(String customerID, int max) {
+        Objects.requireNonNull(customerID, "customerID");
+        if (max <= 0) {
+            return 0;
+        }
+        return (int) await(send(PoolProtocol.CLAIM, customerID, max, null)).value;
+    }
+
+    /**
+     * Gives back claims the customer made through this client and was not sent tickets for, to the
+     * event and to the customer's purchase limit, e.g. when a purchase is abandoned.
+     *
+     * @param customerID The customer that made the claims, or an empty string for none.
+     * @param n          The number of claims to give back.
+     * @return The number of claims given back, at most the customer's unused claims on this connection.
+     */
+    public int returnClaims(String customerID, int n) {
+        Objects.requireNonNull(customerID, "customerID");
+        if (n <= 0) {
+            return 0;
+        }
+        return (int) await(send(PoolProtocol.RETURN, customerID, n, null)).value;
+    }
+
+    /**
+     * @param customerID The customer's ID.
+     * @return true if a purchase limit is set on the server and the customer has claimed all of it.
+     */
+    public boolean reachedPurchaseLimit(String customerID) {
+        Objects.requireNonNull(customerID, "customerID");
+        return await(send(PoolProtocol.LIMIT, customerID, -1, null)).value != 0;
+    }
+
+    /**
+     * Removes a ticket from the pool, waiting while the pool is empty.
+     *
+     * @return The removed ticket.
+     * @throws RuntimeException If the thread is interrupted while waiting for tickets.
+     */
+    public Ticket removeTickets() {
+        return removeTickets(1).get(0);
+    }
+
+    /**
+     * Removes up to n tickets in one call. Waits only until at least one ticket is available.
+     *
+     * @param n The maximum number of tickets to remove.
+     * @return The removed tickets, oldest first (at least one, unless n is not positive).
+     * @throws RuntimeException If the thread is interrupted while waiting for tickets.
+     */
+    public List<Ticket> removeTickets(int n) {
+        return removeTickets("", n);
+    }
+
+    /**
+     * Removes up to n tickets for the customer in one call, like removeTickets(n); the server credits the sale to it.
+     *
+     * @param customerID The customer buying the tickets, or an empty string for none.
+     * @param n          The maximum number of tickets to remove.
+     * @return The removed tickets, oldest first (at least one, unless n is not positive).
+     * @throws RuntimeException If the thread is interrupted while waiting for tickets.
+     */
+    public List<Ticket> removeTickets(String customerID, int n) {
+        Objects.requireNonNull(customerID, "customerID");
+        if (n <= 0) {
+            return new ArrayList<>();
+        }
+        while (true) {
+            Call call = await(send(PoolProtocol.REMOVE, customerID, n, null));
+            if (call.result.length > 0) {
+                return toTickets(call);
+            }
+            checkInterrupted("removing");
+        }
+    }
+
+    /**
+     * Buys up to max tickets for the customer: claims them and removes them from the pool in one
+     * round trip, then waits for any claimed tickets the pool could not supply at once. If that wait
+     * fails, e.g. because the thread is interrupted, the claims not used yet are given back and the
+     * tickets already bought are returned, with the interrupt flag still set.
+     *
+     * @param customerID The customer making the purchase, or an empty string if no purchase limit applies.
+     * @param max        The number of tickets the customer wants.
+     * @return The bought tickets, or an empty list once the event is sold out or the customer reached the limit.
+     * @throws RuntimeException If the wait for the claimed tickets fails before any of them was bought.
+     */
+    public List<Ticket> purchase(String customerID, int max) {
+        Objects.requireNonNull(customerID, "customerID");
+        if (max <= 0) {
+            return new ArrayList<>();
+        }
+        Call call = await(send(PoolProtocol.PURCHASE, customerID, max, null));
+        int claimed = (int) call.value;
+        List<Ticket> bought = toTickets(call);
+        try {
+            while (bought.size() < claimed) {
+                bought.addAll(removeTickets(customerID, claimed - bought.size()));
+            }
+        } catch (RuntimeException e) {
+            try {
+                returnClaims(customerID, claimed - bought.size());
+            } catch (RuntimeException closed) { // the server gives the claims back when the connection ends
+                logger.debug("Could not give back claims: {}", closed.getMessage());
+            }
+            if (bought.isEmpty()) {
+                throw e;
+            }
+            logger.warn("Purchase of {} ended with {} of {} tickets: {}", customerID, box(bought.size()), box(claimed), e.getMessage());
+        }
+        return bought;
+    }
+
+    /**
+     * Closes the connection. Calls still waiting for a response fail.
+     */
+    @Override
+    public void close() {
+        fail(new IllegalStateException("Remote pool closed"));
+        try {
+            socket.close();
+        } catch (IOException e) {
+            logger.debug(e.getMessage());
+        }
+        LockSupport.unpark(writer);
+    }
+
+    private Call send(byte op, String text, int arg, int[] ticketIds) {
+        Call call = new Call(nextCallId.incrementAndGet(), op, text, arg, ticketIds);
+        inFlight.put(call.callId, call); // registered before sending, so the response always finds it
+        RuntimeException failed = failure;
+        if (failed != null) {
+            inFlight.remove(call.callId);
+            throw failed;
+        }
+        outbox.add(call);
+        LockSupport.unpark(writer);
+        return call;
+    }
+
+    /**
+     * Waits for the response without giving up on interrupts, so tickets already removed on the
+     * server are never dropped; the interrupt flag is kept for the caller to act on.
+     */
+    private Call await(Call call) {
+        try {
+            return call.done.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw e;
+        }
+    }
+
+    private void checkInterrupted(String action) {
+        if (Thread.currentThread().isInterrupted()) {
+            logger.error("Thread interrupted while {} tickets.", action);
+            throw new RuntimeException("Thread interrupted while " + action + " tickets");
+        }
+    }
+
+    private List<Ticket> toTickets(Call call) {
+        List<Ticket> tickets = new ArrayList<>(call.result.length);
+        for (int i = 0; i < call.result.length; i++) {
+            tickets.add(new Ticket(call.result[i], eventName, call.prices != null ? call.prices[i] : ticketPrice));
+        }
+        return tickets;
+    }
+
+    /**
+     * Sends queued requests. Everything queued while the previous batch was written goes out in one flush.
+     * Any failure ends the connection and fails every call, so no caller waits for a request never sent.
+     */
+    private void writeLoop() {
+        try {
+            while (failure == null) {
+                Call call = outbox.poll();
+                if (call == null) {
+                    LockSupport.park(this);
+                    continue;
+                }
+                write(call);
+                if (outbox.isEmpty()) {
+                    out.flush();
+                }
+            }
+        } catch (IOException e) {
+            fail(new UncheckedIOException("Connection to the pool server failed", e));
+        } catch (RuntimeException e) { // a request that cannot be encoded may have been written in part
+            fail(new IllegalStateException("Remote pool writer failed: " + e.getMessage(), e));
+        }
+        if (!socket.isClosed()) {
+            close();
+        }
+    }
+
+    /**
+     * Writes one request with exactly the arguments its op defines in PoolProtocol.
+     */
+    private void write(Call call) throws IOException {
+        out.writeInt(call.callId);
+        out.writeByte(call.op);
+        switch (call.op) {
+            case PoolProtocol.HELLO:
+            case PoolProtocol.LIMIT:
+                out.writeUTF(call.text);
+                break;
+            case PoolProtocol.RELEASE:
+                out.writeInt(call.arg);
+                break;
+            case PoolProtocol.ADD:
+                out.writeInt(call.ticketIds.length);
+                for (int ticketId : call.ticketIds) {
+                    out.writeInt(ticketId);
+                }
+                break;
+            case PoolProtocol.CLAIM:
+            case PoolProtocol.REMOVE:
+            case PoolProtocol.PURCHASE:
+            case PoolProtocol.RETURN:
+                out.writeUTF(call.text);
+                out.writeInt(call.arg);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown request type " + call.op);
+        }
+    }
+
+    private void readLoop() {
+        try {
+            while (true) {
+                int callId = in.readInt();
+                byte status = in.readByte();
+                Call call = inFlight.remove(callId);
+                if (call == null) {
+                    throw new IOException("Response to unknown call " + callId);
+                }
+                if (status != PoolProtocol.OK) {
+                    call.done.completeExceptionally(new IllegalStateException(in.readUTF()));
+                    continue;
+                }
+                call.value = in.readLong();
+                int n = in.readInt();
+                if (n < 0 || n > PoolProtocol.MAX_TICKETS_PER_CALL) {
+                    throw new IOException("Invalid ticket count " + n);
+                }
+                int[] ticketIds = new int[n];
+                for (int i = 0; i < n; i++) {
+                    ticketIds[i] = in.readInt();
+                }
+                call.result = ticketIds;
+                int priced = in.readInt();
+                if (priced != 0 && priced != n) {
+                    throw new IOException("Invalid price count " + priced + " for " + n + " tickets");
+                }
+                if (priced > 0) {
+                    call.prices = new long[priced];
+                    for (int i = 0; i < priced; i++) {
+                        call.prices[i] = in.readLong();
+                    }
+                }
+                if (call.op == PoolProtocol.HELLO) {
+                    call.eventName = in.readUTF();
+                }
+                call.done.complete(call);
+            }
+        } catch (IOException e) {
+            fail(new UncheckedIOException("Connection to the pool server failed", e));
+        }
+    }
+
+    /**
+     * Fails every call not answered yet. Only the first failure is kept.
+     */
+    private synchronized void fail(RuntimeException cause) {
+        if (failure == null) {
+            failure = cause;
+        }
+        for (Call call : inFlight.values()) {
+            if (inFlight.remove(call.callId) != null) {
+                call.done.completeExceptionally(failure);
+            }
+        }
+        outbox.clear();
+    }
+}
@@ -0,0 +1,130 @@
+package org.example;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Lease on tickets held for one customer while they pay. The tickets are out of the pool, so nobody
+ * else can buy them, but they are not sold yet: confirm() sells them, release() or the hold timeout
+ * puts them back. Exactly one of the three happens, decided by a single compare-and-set on the state,
+ * so a confirm racing with the expiry either sells the tickets or returns them, never both.
+ */
+public class Reservation {
+    /**
+     * Lifecycle of a reservation. Only HELD can change, and only once.
+     */
+    public enum State {
+        HELD, // tickets are out of the pool waiting for payment
+        CONFIRMED, // tickets are sold
+        RELEASED, // the customer gave the tickets back
+        EXPIRED // the hold timed out and the tickets went back to the pool
+    }
+
+    private static final AtomicLong nextId = new AtomicLong();
+
+    private final long reservationId;
+    private final TicketPool ticketPool;
+    private final String customerID; //customer whose purchase limit covers the tickets, null if none
+    private final List<Ticket> tickets;
+    private final long expiresAtMillis; //wall-clock time the hold expires
+
+    private final AtomicReference<State> state = new AtomicReference<>(State.HELD);
+
+    private volatile HashedTimingWheel.Timeout expiry; //set right after the hold is scheduled
+
+    Reservation(TicketPool ticketPool, String customerID, List<Ticket> tickets, long expiresAtMillis) {
+        this.reservationId = nextId.incrementAndGet();
+        this.ticketPool = ticketPool;
+        this.customerID = customerID;
+        this.tickets = Collections.unmodifiableList(tickets);
+        this.expiresAtMillis = expiresAtMillis;
+    }
+
+    public long getReservationId() {
+        return reservationId;
+    }
+
+    public TicketPool getTicketPool() {
+        return ticketPool;
+    }
+
+    public String getCustomerID() {
+        return customerID;
+    }
+
+    /**
+     * @return The held tickets, oldest first.
+     */
+    public List<Ticket> getTickets() {
+        return tickets;
+    }
+
+    public long getExpiresAtMillis() {
+        return expiresAtMillis;
+    }
+
+    public State getState() {
+        return state.get();
+    }
+
+    /**
+     * Sells the held tickets.
+     *
+     * @return true if the tickets are now sold, false if the hold was already released or expired.
+     */
+    public boolean confirm() {
+        if (!state.compareAndSet(State.HELD, State.CONFIRMED)) {
+            return false;
+        }
+        cancelExpiry();
+        ticketPool.confirmHold(this);
+        return true;
+    }
+
+    /**
+     * Gives the held tickets back to the pool before the hold expires.
+     *
+     * @return true if the tickets were given back, false if the hold was already confirmed or expired.
+     */
+    public boolean release() {
+        if (!state.compareAndSet(State.HELD, State.RELEASED)) {
+            return false;
+        }
+        cancelExpiry();
+        ticketPool.returnHold(this);
+        return true;
+    }
+
+    /**
+     * Called on the timing wheel thread when the hold times out.
+     */
+    void expire() {
+        if (state.compareAndSet(State.HELD, State.EXPIRED)) {
+            ticketPool.returnHold(this);
+        }
+    }
+
+    void setExpiry(HashedTimingWheel.Timeout expiry) {
+        this.expiry = expiry;
+    }
+
+    private void cancelExpiry() {
+        HashedTimingWheel.Timeout timeout = expiry;
+        if (timeout != null) {
+            timeout.cancel();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "Reservation{" +
+                "reservationId = " + reservationId +
+                ", eventId = " + ticketPool.getEventId() +
+                ", customerID = " + customerID +
+                ", tickets = " + tickets.size() +
+                ", state = " + state.get() +
+                '}';
+    }
+}
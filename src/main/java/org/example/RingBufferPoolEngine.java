@@ -0,0 +1,277 @@
+package org.example;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Lock-free multi-producer/multi-consumer bounded ring buffer.
+ * Each slot carries a sequence number telling producers and consumers whether it is
+ * free or filled for their position, so adding and removing a ticket is a single CAS
+ * on the tail or head counter. Threads only wait (through BlockingWaitStrategy, spinning or
+ * parking as the WaitStrategy says) when the buffer is full or empty.
+ * The slot array is rounded up to a power of two (at least two slots, so a filled slot can
+ * never be mistaken for a free one); the configured capacity is enforced against head and tail.
+ */
+public class RingBufferPoolEngine implements TicketPoolEngine {
+    private final AtomicReferenceArray<Ticket> buffer;
+    private final AtomicLongArray sequences; // slot i is free for position p when sequence == p, filled when sequence == p + 1
+
+    private volatile int capacity; // never more than the slots
+    private final int mask; // slots.length - 1
+
+    private final AtomicLong tail = new AtomicLong(); // next position to add at
+    private final AtomicLong head = new AtomicLong(); // next position to remove from
+
+    private final BlockingWaitStrategy waitStrategy;
+
+    private static final int MAX_SLOTS = 1 << 30;
+
+    public RingBufferPoolEngine(int capacity) {
+        this(capacity, false);
+    }
+
+    /**
+     * @param capacity Maximum number of tickets the engine can hold.
+     * @param fair     Whether threads blocked on a full or empty buffer are woken in arrival order.
+     */
+    public RingBufferPoolEngine(int capacity, boolean fair) {
+        this(capacity, fair, WaitStrategy.BLOCKING);
+    }
+
+    /**
+     * @param capacity     Maximum number of tickets the engine can hold.
+     * @param fair         Whether threads blocked on a full or empty buffer are woken in arrival order.
+     * @param waitStrategy How callers wait while the buffer is full or empty.
+     */
+    public RingBufferPoolEngine(int capacity, boolean fair, WaitStrategy waitStrategy) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Pool capacity must be positive: " + capacity);
+        }
+        if (capacity > MAX_SLOTS) {
+            throw new IllegalArgumentException("Pool capacity must not exceed " + MAX_SLOTS + ": " + capacity);
+        }
+        int slots = Math.max(2, Integer.highestOneBit(capacity - 1) << 1);
+        this.capacity = capacity;
+        this.mask = slots - 1;
+        this.waitStrategy = new BlockingWaitStrategy(fair, waitStrategy);
+        this.buffer = new AtomicReferenceArray<>(slots);
+        this.sequences = new AtomicLongArray(slots);
+        for (int i = 0; i < slots; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    @Override
+    public void put(Ticket ticket) throws InterruptedException {
+        if (!enqueue(ticket)) {
+            waitStrategy.awaitSpace(() -> enqueue(ticket));
+        }
+        waitStrategy.signalNotEmpty();
+    }
+
+    @Override
+    public Ticket take() throws InterruptedException {
+        Ticket ticket = dequeue();
+        if (ticket == null) {
+            ticket = waitStrategy.awaitTicket(this::dequeue);
+        }
+        waitStrategy.signalNotFull();
+        return ticket;
+    }
+
+    @Override
+    public boolean offer(Ticket ticket, long timeout, TimeUnit unit) throws InterruptedException {
+        if (!enqueue(ticket) && !waitStrategy.awaitSpace(() -> enqueue(ticket), timeout, unit)) {
+            return false;
+        }
+        waitStrategy.signalNotEmpty();
+        return true;
+    }
+
+    @Override
+    public Ticket poll(long timeout, TimeUnit unit) throws InterruptedException {
+        Ticket ticket = dequeue();
+        if (ticket == null) {
+            ticket = waitStrategy.awaitTicket(this::dequeue, timeout, unit);
+            if (ticket == null) {
+                return null;
+            }
+        }
+        waitStrategy.signalNotFull();
+        return ticket;
+    }
+
+    /**
+     * Adds as many tickets as fit and wakes at most that many waiting customers in one signal round.
+     */
+    @Override
+    public int putAll(List<Ticket> tickets, int from) throws InterruptedException {
+        Ticket first = tickets.get(from);
+        if (!enqueue(first)) {
+            waitStrategy.awaitSpace(() -> enqueue(first));
+        }
+        int added = 1;
+        while (from + added < tickets.size() && enqueue(tickets.get(from + added))) {
+            added++;
+        }
+        waitStrategy.signalNotEmpty(added);
+        return added;
+    }
+
+    /**
+     * Removes up to max tickets and wakes at most that many waiting vendors in one signal round.
+     */
+    @Override
+    public int takeAll(Collection<? super Ticket> sink, int max) throws InterruptedException {
+        Ticket ticket = dequeue();
+        if (ticket == null) {
+            ticket = waitStrategy.awaitTicket(this::dequeue);
+        }
+        sink.add(ticket);
+        int removed = 1 + dequeueUpTo(sink, max - 1);
+        waitStrategy.signalNotFull(removed);
+        return removed;
+    }
+
+    @Override
+    public int drainTo(Collection<? super Ticket> sink, int max) {
+        int removed = dequeueUpTo(sink, max);
+        if (removed > 0) {
+            waitStrategy.signalNotFull(removed);
+        }
+        return removed;
+    }
+
+    @Override
+    public boolean offer(Ticket ticket) {
+        if (enqueue(ticket)) {
+            waitStrategy.signalNotEmpty();
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public Ticket poll() {
+        Ticket ticket = dequeue();
+        if (ticket != null) {
+            waitStrategy.signalNotFull();
+        }
+        return ticket;
+    }
+
+    @Override
+    public int size() {
+        long size = tail.get() - head.get();
+        return (int) Math.max(0, Math.min(size, mask + 1)); // may exceed the capacity for a while after shrinking
+    }
+
+    @Override
+    public int capacity() {
+        return capacity;
+    }
+
+    /**
+     * The slot array is fixed, so the capacity can only change up to the number of slots
+     * (the configured capacity rounded up to a power of two).
+     */
+    @Override
+    public boolean resize(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Pool capacity must be positive: " + capacity);
+        }
+        if (capacity > mask + 1) {
+            return false;
+        }
+        int previous = this.capacity;
+        this.capacity = capacity;
+        if (capacity > previous) {
+            waitStrategy.signalNotFull(capacity - previous);
+        }
+        return true;
+    }
+
+    /**
+     * Weakly consistent copy: tickets added or removed while copying may or may not be included.
+     */
+    @Override
+    public List<Ticket> snapshot() {
+        List<Ticket> copy = new ArrayList<>(size());
+        long end = tail.get();
+        for (long pos = head.get(); pos < end; pos++) {
+            int index = (int) (pos & mask);
+            Ticket ticket = buffer.get(index);
+            if (ticket != null && sequences.get(index) == pos + 1) {
+                copy.add(ticket);
+            }
+        }
+        return copy;
+    }
+
+    /**
+     * The fast path takes no lock, so only slow-path waits on a full or empty buffer are recorded.
+     */
+    @Override
+    public void setMetrics(PoolMetrics metrics) {
+        waitStrategy.setMetrics(metrics);
+    }
+
+    private int dequeueUpTo(Collection<? super Ticket> sink, int max) {
+        int removed = 0;
+        Ticket ticket;
+        while (removed < max && (ticket = dequeue()) != null) {
+            sink.add(ticket);
+            removed++;
+        }
+        return removed;
+    }
+
+    private boolean enqueue(Ticket ticket) {
+        long pos = tail.get();
+        while (true) {
+            int index = (int) (pos & mask);
+            long diff = sequences.get(index) - pos;
+            if (pos - head.get() >= capacity) {
+                return false; // configured capacity reached
+            }
+            if (diff == 0) {
+                if (tail.compareAndSet(pos, pos + 1)) {
+                    buffer.setPlain(index, ticket);
+                    sequences.set(index, pos + 1); // publishes the ticket to consumers
+                    return true;
+                }
+                pos = tail.get();
+            } else if (diff < 0) {
+                return false; // slot still holds a ticket from the previous lap: buffer is full
+            } else {
+                pos = tail.get(); // another producer claimed this position
+            }
+        }
+    }
+
+    private Ticket dequeue() {
+        long pos = head.get();
+        while (true) {
+            int index = (int) (pos & mask);
+            long diff = sequences.get(index) - (pos + 1);
+            if (diff == 0) {
+                if (head.compareAndSet(pos, pos + 1)) {
+                    Ticket ticket = buffer.getPlain(index);
+                    buffer.setPlain(index, null);
+                    sequences.set(index, pos + mask + 1); // frees the slot for the next lap
+                    return ticket;
+                }
+                pos = head.get();
+            } else if (diff < 0) {
+                return null; // slot not filled yet: buffer is empty
+            } else {
+                pos = head.get(); // another consumer claimed this position
+            }
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package org.example;
+
+import java.util.Arrays;
+
+/**
+ * Immutable record of tickets released into or sold from one pool, as published by a SalesFeed.
+ * A RELEASED or SOLD event describes one pool operation and lists its ticket IDs. A SUMMARY event
+ * stands for several operations that were coalesced because the subscriber fell behind; it keeps
+ * their counts and revenue but not their ticket IDs.
+ */
+public final class SaleEvent {
+
+    /**
+     * Kind of a sale event.
+     */
+    public enum Type {
+        RELEASED, // tickets added to the pool by a vendor
+        SOLD, // tickets removed from the pool by a customer
+        SUMMARY // coalesced releases and sales
+    }
+
+    private static final int[] NO_TICKETS = new int[0];
+
+    private final Type type;
+    private final String eventId; //pool the tickets belong to
+    private final int[] ticketIds; //IDs of the released or sold tickets, empty for a summary
+    private final int ticketsReleased; //tickets released by the operations this event stands for
+    private final int ticketsSold; //tickets sold by the operations this event stands for
+    private final long revenue; //price of the sold tickets, in minor units
+    private final long timestamp; //epoch milliseconds of the (latest) operation
+
+    private SaleEvent(Type type, String eventId, int[] ticketIds, int ticketsReleased, int ticketsSold,
+                      long revenue, long timestamp) {
+        this.type = type;
+        this.eventId = eventId;
+        this.ticketIds = ticketIds;
+        this.ticketsReleased = ticketsReleased;
+        this.ticketsSold = ticketsSold;
+        this.revenue = revenue;
+        this.timestamp = timestamp;
+    }
+
+    /**
+     * @param eventId   The pool the tickets were added to.
+     * @param ticketIds The IDs of the added tickets; the array is kept, not copied.
+     * @return A RELEASED event stamped with the current time.
+     */
+    static SaleEvent released(String eventId, int[] ticketIds) {
+        return new SaleEvent(Type.RELEASED, eventId, ticketIds, ticketIds.length, 0, 0, System.currentTimeMillis());
+    }
+
+    /**
+     * @param eventId   The pool the tickets were sold from.
+     * @param ticketIds The IDs of the sold tickets; the array is kept, not copied.
+     * @param revenue   The combined price of the sold tickets, in minor units.
+     * @return A SOLD event stamped with the current time.
+     */
+    static SaleEvent sold(String eventId, int[] ticketIds, long revenue) {
+        return new SaleEvent(Type.SOLD, eventId, ticketIds, 0, ticketIds.length, revenue, System.currentTimeMillis());
+    }
+
+    /**
+     * @param later An event of the same pool that happened after this one.
+     * @return A SUMMARY event standing for both.
+     */
+    SaleEvent coalesce(SaleEvent later) {
+        return new SaleEvent(Type.SUMMARY, eventId, NO_TICKETS, ticketsReleased + later.ticketsReleased,
+                ticketsSold + later.ticketsSold, revenue + later.revenue, Math.max(timestamp, later.timestamp));
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public String getEventId() {
+        return eventId;
+    }
+
+    /**
+     * @return A copy of the IDs of the released or sold tickets, empty for a SUMMARY.
+     */
+    public int[] getTicketIds() {
+        return ticketIds.clone();
+    }
+
+    public int getTicketsReleased() {
+        return ticketsReleased;
+    }
+
+    public int getTicketsSold() {
+        return ticketsSold;
+    }
+
+    /**
+     * @return The price of the sold tickets, in minor units.
+     */
+    public long getRevenue() {
+        return revenue;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    @Override
+    public String toString() {
+        return "SaleEvent{" +
+                "type = " + type +
+                ", eventId = " + eventId +
+                ", ticketIds = " + Arrays.toString(ticketIds) +
+                ", ticketsReleased = " + ticketsReleased +
+                ", ticketsSold = " + ticketsSold +
+                ", revenue = " + revenue +
+                ", timestamp = " + timestamp +
+                '}';
+    }
+}
@@ -0,0 +1,574 @@
+package org.example;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntPredicate;
+import java.util.function.IntUnaryOperator;
+import java.util.stream.IntStream;
+
+/**
+ * In-memory record of every sale of the pools it listens to, for revenue and sales-rate breakdowns
+ * while the on-sale is running.
+ *
+ * Each sold ticket is appended as one row to columns of primitive arrays (ticket ID, event, vendor,
+ * customer, price, sale time), 28 bytes a row with names stored once in dictionaries. Appending never
+ * locks: a row is reserved with one atomic add, its columns are written and the event column is
+ * written last with release semantics, which marks the row complete. Totals by event, vendor, customer
+ * and minute are kept up to date with LongAdders as sales happen, so reading them costs nothing.
+ * Ad-hoc queries run over a SalesView, which covers the rows complete when it was taken and scans them
+ * with parallel streams on the common fork-join pool; sales carry on while a query runs.
+ *
+ * The vendor of a sale is the vendor that created the ticket with TicketPool.createTickets(vendorID, max),
+ * kept per ticket ID (4 bytes per released ticket); the customer is the one the sale was made for, passed to
+ * TicketPool's removeTickets, drainTo or hold. Sales not made that way are recorded without a vendor or customer.
+ */
+public final class SalesAnalytics implements TicketPoolListener {
+    public static final int DEFAULT_MAX_RECORDS = 1 << 26; // rows stored before further sales only update the totals
+
+    private static final int CHUNK_SHIFT = 14; // 16384 rows per chunk
+    private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+    private static final int PAGE_SHIFT = 12; // 4096 ticket IDs per vendor page
+    private static final int PAGE_MASK = (1 << PAGE_SHIFT) - 1;
+    private static final VarHandle INTS = MethodHandles.arrayElementVarHandle(int[].class);
+
+    private final int maxRecords;
+    private final AtomicReferenceArray<Chunk> chunks; //allocated by the first sale that needs one
+    private final AtomicInteger reserved = new AtomicInteger(); //rows claimed by sales, complete or not
+    private final LongAdder recordsDropped = new LongAdder(); //sales beyond maxRecords, counted in the totals only
+
+    private final Dictionary events = new Dictionary(); //event IDs, codes from 1 so that 0 marks an incomplete row
+    private final Dictionary vendors = new Dictionary(); //vendor IDs, code 0 for none
+    private final Dictionary customers = new Dictionary(); //customer IDs, code 0 for none
+
+    private final ConcurrentHashMap<String, EventState> eventStates = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Totals> byVendor = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Totals> byCustomer = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Long, Totals> byMinute = new ConcurrentHashMap<>(); //keyed by epoch minute
+    private final Totals total = new Totals();
+
+    /**
+     * Creates a store of up to DEFAULT_MAX_RECORDS rows.
+     */
+    public SalesAnalytics() {
+        this(DEFAULT_MAX_RECORDS);
+    }
+
+    /**
+     * @param maxRecords The rows stored before further sales only update the totals.
+     */
+    public SalesAnalytics(int maxRecords) {
+        if (maxRecords < 1) {
+            throw new IllegalArgumentException("Analytics capacity must be at least 1: " + maxRecords);
+        }
+        this.maxRecords = maxRecords;
+        this.chunks = new AtomicReferenceArray<>((maxRecords + CHUNK_SIZE - 1) >>> CHUNK_SHIFT);
+    }
+
+    /**
+     * Registers the store on every pool of the inventory.
+     *
+     * @param inventory The event inventory.
+     */
+    public void listenTo(EventInventory inventory) {
+        for (TicketPool pool : inventory.getPools()) {
+            pool.addListener(this);
+        }
+    }
+
+    @Override
+    public void ticketsCreated(TicketPool pool, String vendorID, List<Ticket> tickets) {
+        if (vendorID == null || tickets.isEmpty()) {
+            return;
+        }
+        int vendor = vendors.code(vendorID);
+        EventState event = event(pool);
+        int[] page = null;
+        int pageNumber = -1;
+        for (int i = 0, n = tickets.size(); i < n; i++) {
+            int ticketId = tickets.get(i).getTicketId();
+            if (ticketId >>> PAGE_SHIFT != pageNumber) {
+                pageNumber = ticketId >>> PAGE_SHIFT;
+                page = event.vendorPages.computeIfAbsent(pageNumber, p -> new int[1 << PAGE_SHIFT]);
+            }
+            page[ticketId & PAGE_MASK] = vendor; // published to the selling thread by the engine hand-off
+        }
+    }
+
+    @Override
+    public void ticketReleased(TicketPool pool, Ticket ticket) {
+    }
+
+    @Override
+    public void ticketsReleased(TicketPool pool, List<Ticket> tickets) {
+    }
+
+    @Override
+    public void ticketSold(TicketPool pool, Ticket ticket) {
+        ticketsSold(pool, null, Collections.singletonList(ticket));
+    }
+
+    @Override
+    public void ticketsSold(TicketPool pool, List<Ticket> tickets) {
+        ticketsSold(pool, null, tickets);
+    }
+
+    @Override
+    public void ticketSold(TicketPool pool, String customerID, Ticket ticket) {
+        ticketsSold(pool, customerID, Collections.singletonList(ticket));
+    }
+
+    @Override
+    public void ticketsSold(TicketPool pool, String customerID, List<Ticket> tickets) {
+        int n = tickets.size();
+        if (n == 0) {
+            return;
+        }
+        EventState event = event(pool);
+        int customer = customerID != null ? customers.code(customerID) : 0;
+        long now = System.currentTimeMillis();
+
+        int row = reserve(n);
+        long revenue = 0;
+        String lastVendor = null;
+        int lastVendorCode = 0;
+        Totals vendorTotals = null;
+        for (int i = 0; i < n; i++) {
+            Ticket ticket = tickets.get(i);
+            int ticketId = ticket.getTicketId();
+            long price = ticket.getPriceMinorUnits();
+            int vendor = event.vendorOf(ticketId);
+            if (row >= 0 && row + i < maxRecords) {
+                append(row + i, ticketId, event.code, vendor, customer, price, now);
+            }
+            revenue += price;
+            if (vendor != 0) {
+                if (vendor != lastVendorCode) {
+                    lastVendorCode = vendor;
+                    lastVendor = vendors.name(vendor);
+                    vendorTotals = byVendor.computeIfAbsent(lastVendor, id -> new Totals());
+                }
+                vendorTotals.add(1, price, now);
+            }
+        }
+        event.totals.add(n, revenue, now);
+        total.add(n, revenue, now);
+        byMinute.computeIfAbsent(TimeUnit.MILLISECONDS.toMinutes(now), m -> new Totals()).add(n, revenue, now);
+        if (customerID != null) {
+            byCustomer.computeIfAbsent(customerID, id -> new Totals()).add(n, revenue, now);
+        }
+    }
+
+    /**
+     * @return The first of n consecutive rows, or -1 if none is left; rows past maxRecords are counted as dropped.
+     */
+    private int reserve(int n) {
+        int row = reserved.getAndAccumulate(n, (current, add) -> current >= maxRecords ? current : (int) Math.min((long) current + add, Integer.MAX_VALUE));
+        if (row >= maxRecords) {
+            recordsDropped.add(n);
+            return -1;
+        }
+        if (row + n > maxRecords) {
+            recordsDropped.add(row + n - maxRecords);
+        }
+        return row;
+    }
+
+    private void append(int row, int ticketId, int event, int vendor, int customer, long price, long soldAt) {
+        Chunk chunk = chunks.get(row >>> CHUNK_SHIFT);
+        if (chunk == null) {
+            chunks.compareAndSet(row >>> CHUNK_SHIFT, null, new Chunk());
+            chunk = chunks.get(row >>> CHUNK_SHIFT);
+        }
+        int slot = row & CHUNK_MASK;
+        chunk.ticketIds[slot] = ticketId;
+        chunk.vendors[slot] = vendor;
+        chunk.customers[slot] = customer;
+        chunk.prices[slot] = price;
+        chunk.soldAt[slot] = soldAt;
+        INTS.setRelease(chunk.events, slot, event); // completes the row for readers
+    }
+
+    private EventState event(TicketPool pool) {
+        EventState event = eventStates.get(pool.getEventId());
+        return event != null ? event : eventStates.computeIfAbsent(pool.getEventId(), id -> new EventState(events.code(id)));
+    }
+
+    /**
+     * @return A view of the rows complete now, for ad-hoc queries.
+     */
+    public SalesView view() {
+        return new SalesView(Math.min(reserved.get(), maxRecords));
+    }
+
+    /**
+     * @return Tickets sold and revenue over all events.
+     */
+    public Totals getTotal() {
+        return total;
+    }
+
+    /**
+     * @return Live totals per event ID.
+     */
+    public Map<String, Totals> getByEvent() {
+        Map<String, Totals> totals = new TreeMap<>();
+        eventStates.forEach((id, event) -> totals.put(id, event.totals));
+        return totals;
+    }
+
+    /**
+     * @return Live totals per vendor ID, for the sales of tickets created with a vendor ID.
+     */
+    public Map<String, Totals> getByVendor() {
+        return Collections.unmodifiableMap(byVendor);
+    }
+
+    /**
+     * @return Live totals per customer ID, for the sales made after a claim with a customer ID.
+     */
+    public Map<String, Totals> getByCustomer() {
+        return Collections.unmodifiableMap(byCustomer);
+    }
+
+    /**
+     * @return Totals per minute in which sales were made, oldest first.
+     */
+    public Map<Instant, Totals> getByMinute() {
+        Map<Instant, Totals> totals = new TreeMap<>();
+        byMinute.forEach((minute, t) -> totals.put(Instant.ofEpochMilli(TimeUnit.MINUTES.toMillis(minute)), t));
+        return totals;
+    }
+
+    /**
+     * @param n The number of buyers wanted.
+     * @return The n customers with the highest revenue, highest first.
+     */
+    public Map<String, Totals> getTopBuyers(int n) {
+        return top(byCustomer, n);
+    }
+
+    /**
+     * @param n The number of vendors wanted.
+     * @return The n vendors with the highest revenue, highest first.
+     */
+    public Map<String, Totals> getTopVendors(int n) {
+        return top(byVendor, n);
+    }
+
+    private static Map<String, Totals> top(Map<String, Totals> totals, int n) {
+        Comparator<Map.Entry<String, Totals>> byRevenue = Comparator.comparingLong(e -> e.getValue().getRevenue());
+        PriorityQueue<Map.Entry<String, Totals>> heap = new PriorityQueue<>(Math.max(1, n), byRevenue);
+        for (Map.Entry<String, Totals> entry : totals.entrySet()) {
+            if (heap.size() < n) {
+                heap.add(entry);
+            } else if (n > 0 && entry.getValue().getRevenue() > heap.peek().getValue().getRevenue()) {
+                heap.poll();
+                heap.add(entry);
+            }
+        }
+        List<Map.Entry<String, Totals>> sorted = new ArrayList<>(heap);
+        sorted.sort(byRevenue.reversed());
+        Map<String, Totals> top = new LinkedHashMap<>();
+        for (Map.Entry<String, Totals> entry : sorted) {
+            top.put(entry.getKey(), entry.getValue());
+        }
+        return top;
+    }
+
+    /**
+     * @return The number of sales stored as rows.
+     */
+    public int getRecords() {
+        return Math.min(reserved.get(), maxRecords);
+    }
+
+    /**
+     * @return The number of sales beyond the capacity, included in the totals but not in views.
+     */
+    public long getRecordsDropped() {
+        return recordsDropped.sum();
+    }
+
+    /**
+     * @return A multi-line summary: totals and sales rate per event, the top five vendors and buyers.
+     */
+    public String report() {
+        StringBuilder report = new StringBuilder("Sales analytics: ").append(total).append('\n');
+        getByEvent().forEach((id, t) -> report.append("  event ").append(id).append(": ").append(t).append('\n'));
+        getTopVendors(5).forEach((id, t) -> report.append("  vendor ").append(id).append(": ").append(t).append('\n'));
+        getTopBuyers(5).forEach((id, t) -> report.append("  buyer ").append(id).append(": ").append(t).append('\n'));
+        return report.toString();
+    }
+
+    /**
+     * Tickets sold, revenue and the time of the first and last sale of one group of sales.
+     */
+    public static final class Totals {
+        private final LongAdder tickets = new LongAdder();
+        private final LongAdder revenue = new LongAdder(); //minor units
+        private final LongAccumulator firstSale = new LongAccumulator(Math::min, Long.MAX_VALUE); //epoch milliseconds
+        private final LongAccumulator lastSale = new LongAccumulator(Math::max, Long.MIN_VALUE); //epoch milliseconds
+
+        void add(int n, long amount, long soldAt) {
+            tickets.add(n);
+            revenue.add(amount);
+            firstSale.accumulate(soldAt);
+            lastSale.accumulate(soldAt);
+        }
+
+        public long getTickets() {
+            return tickets.sum();
+        }
+
+        /**
+         * @return The revenue in minor units.
+         */
+        public long getRevenue() {
+            return revenue.sum();
+        }
+
+        /**
+         * @return Epoch milliseconds of the first sale, Long.MAX_VALUE if none.
+         */
+        public long getFirstSale() {
+            return firstSale.get();
+        }
+
+        /**
+         * @return Epoch milliseconds of the last sale, Long.MIN_VALUE if none.
+         */
+        public long getLastSale() {
+            return lastSale.get();
+        }
+
+        /**
+         * @return Tickets sold per second between the first and the last sale, 0 with fewer than two sale times.
+         */
+        public double getSalesPerSecond() {
+            long span = getLastSale() - getFirstSale();
+            return span > 0 ? getTickets() * 1000.0 / span : 0;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d tickets, revenue %s, %.1f tickets/s", getTickets(),
+                    BigDecimal.valueOf(getRevenue(), Ticket.PRICE_SCALE).toPlainString(), getSalesPerSecond());
+        }
+    }
+
+    /**
+     * Rows of the store complete when the view was taken. Rows still being written at that moment are
+     * left out. Every query scans the columns in parallel and never blocks the sales recorded meanwhile.
+     */
+    public final class SalesView {
+        private final int size; //rows reserved when the view was taken
+
+        private SalesView(int size) {
+            this.size = size;
+        }
+
+        /**
+         * @return The complete rows, as a parallel stream of row numbers.
+         */
+        public IntStream rows() {
+            return IntStream.range(0, size).parallel().filter(this::complete);
+        }
+
+        /**
+         * @return The number of complete rows.
+         */
+        public long count() {
+            return rows().count();
+        }
+
+        /**
+         * @param filter Selects rows, e.g. row -> view.getPrice(row) > 100_000.
+         * @return The revenue of the selected rows, in minor units.
+         */
+        public long revenue(IntPredicate filter) {
+            return rows().filter(filter).mapToLong(this::getPrice).sum();
+        }
+
+        /**
+         * @param filter Selects rows.
+         * @return The revenue of the selected rows per event ID.
+         */
+        public Map<String, Long> revenueByEvent(IntPredicate filter) {
+            return group(filter, events, this::eventCode);
+        }
+
+        /**
+         * @param filter Selects rows.
+         * @return The revenue of the selected rows per vendor ID, leaving out rows without a vendor.
+         */
+        public Map<String, Long> revenueByVendor(IntPredicate filter) {
+            return group(filter, vendors, row -> chunk(row).vendors[row & CHUNK_MASK]);
+        }
+
+        /**
+         * @param filter Selects rows.
+         * @return The revenue of the selected rows per customer ID, leaving out rows without a customer.
+         */
+        public Map<String, Long> revenueByCustomer(IntPredicate filter) {
+            return group(filter, customers, row -> chunk(row).customers[row & CHUNK_MASK]);
+        }
+
+        /**
+         * Sums the revenue per dictionary code into one array per fork-join task, then merges the arrays.
+         */
+        private Map<String, Long> group(IntPredicate filter, Dictionary dictionary, IntUnaryOperator code) {
+            int codes = dictionary.size();
+            long[] sums = rows().filter(filter).collect(() -> new long[codes],
+                    (acc, row) -> acc[code.applyAsInt(row)] += getPrice(row),
+                    (a, b) -> Arrays.setAll(a, i -> a[i] + b[i]));
+            Map<String, Long> grouped = new TreeMap<>();
+            for (int c = 1; c < codes; c++) {
+                if (sums[c] != 0) {
+                    grouped.put(dictionary.name(c), sums[c]);
+                }
+            }
+            return grouped;
+        }
+
+        public int getTicketId(int row) {
+            return chunk(row).ticketIds[row & CHUNK_MASK];
+        }
+
+        public String getEventId(int row) {
+            return events.name(eventCode(row));
+        }
+
+        /**
+         * @return The vendor that created the ticket, or null if unknown.
+         */
+        public String getVendorId(int row) {
+            return vendors.name(chunk(row).vendors[row & CHUNK_MASK]);
+        }
+
+        /**
+         * @return The customer that bought the ticket, or null if unknown.
+         */
+        public String getCustomerId(int row) {
+            return customers.name(chunk(row).customers[row & CHUNK_MASK]);
+        }
+
+        /**
+         * @return The price the ticket sold at, in minor units.
+         */
+        public long getPrice(int row) {
+            return chunk(row).prices[row & CHUNK_MASK];
+        }
+
+        /**
+         * @return Epoch milliseconds of the sale.
+         */
+        public long getSoldAt(int row) {
+            return chunk(row).soldAt[row & CHUNK_MASK];
+        }
+
+        private int eventCode(int row) {
+            return chunk(row).events[row & CHUNK_MASK];
+        }
+
+        private Chunk chunk(int row) {
+            return chunks.get(row >>> CHUNK_SHIFT);
+        }
+
+        /**
+         * Reads the event column with acquire semantics, so the row's other columns are visible once it is non-zero.
+         */
+        private boolean complete(int row) {
+            Chunk chunk = chunk(row);
+            return chunk != null && (int) INTS.getAcquire(chunk.events, row & CHUNK_MASK) != 0;
+        }
+    }
+
+    /**
+     * CHUNK_SIZE rows, one primitive array per column.
+     */
+    private static final class Chunk {
+        private final int[] ticketIds = new int[CHUNK_SIZE];
+        private final int[] events = new int[CHUNK_SIZE]; //written last; 0 until the row is complete
+        private final int[] vendors = new int[CHUNK_SIZE];
+        private final int[] customers = new int[CHUNK_SIZE];
+        private final long[] prices = new long[CHUNK_SIZE];
+        private final long[] soldAt = new long[CHUNK_SIZE];
+    }
+
+    /**
+     * Per-event totals and the vendor of every created ticket, in pages of ticket IDs.
+     */
+    private static final class EventState {
+        private final int code;
+        private final Totals totals = new Totals();
+        private final ConcurrentHashMap<Integer, int[]> vendorPages = new ConcurrentHashMap<>();
+
+        private EventState(int code) {
+            this.code = code;
+        }
+
+        private int vendorOf(int ticketId) {
+            int[] page = vendorPages.get(ticketId >>> PAGE_SHIFT);
+            return page != null ? page[ticketId & PAGE_MASK] : 0;
+        }
+    }
+
+    /**
+     * Names of one column, coded as ints from 1; code 0 stands for none. A new name takes the next code
+     * inside the map's computeIfAbsent, which locks only the name's bin, and is stored in a page of names
+     * allocated by the first name that needs it, so adding millions of names copies nothing.
+     */
+    private static final class Dictionary {
+        private static final int NAME_PAGE_SHIFT = 12; // 4096 names per page
+        private static final int NAME_PAGE_MASK = (1 << NAME_PAGE_SHIFT) - 1;
+
+        private final ConcurrentHashMap<String, Integer> codes = new ConcurrentHashMap<>();
+        private final AtomicReferenceArray<String[]> pages = new AtomicReferenceArray<>(1 << (31 - NAME_PAGE_SHIFT));
+        private final AtomicInteger next = new AtomicInteger(1); //codes handed out so far, including 0
+
+        int code(String name) {
+            Integer code = codes.get(name);
+            return code != null ? code : codes.computeIfAbsent(name, this::add);
+        }
+
+        /**
+         * Stores the name before its code is returned, so whoever is handed the code can look the name up.
+         */
+        private int add(String name) {
+            int code = next.getAndIncrement();
+            String[] page = pages.get(code >>> NAME_PAGE_SHIFT);
+            if (page == null) {
+                pages.compareAndSet(code >>> NAME_PAGE_SHIFT, null, new String[1 << NAME_PAGE_SHIFT]);
+                page = pages.get(code >>> NAME_PAGE_SHIFT);
+            }
+            page[code & NAME_PAGE_MASK] = name; // published through the map entry and the row that carries the code
+            return code;
+        }
+
+        String name(int code) {
+            return code == 0 ? null : pages.get(code >>> NAME_PAGE_SHIFT)[code & NAME_PAGE_MASK];
+        }
+
+        int size() {
+            return next.get();
+        }
+    }
+}
@@ -0,0 +1,375 @@
+package org.example;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Live feed of the tickets released into and sold from one TicketPool, for downstream systems such as
+ * fraud checks, email or analytics. Subscribers receive immutable batches of SaleEvents and control
+ * the pace with Flow.Subscription.request: one request is one batch of up to MAX_BATCH events.
+ *
+ * The feed is a TicketPoolListener, so it runs on the selling thread after the engine operation and
+ * outside the engine lock. There it only appends the event to each subscriber's buffer, under a lock
+ * that is never held while a subscriber runs. Events are delivered by a separate thread per subscriber
+ * (a virtual thread unless another executor is given), so a slow subscriber never delays a sale.
+ * Once a subscriber's buffer is full the feed's FeedOverflow policy decides what happens to new events.
+ */
+public final class SalesFeed implements Flow.Publisher<List<SaleEvent>>, TicketPoolListener, AutoCloseable {
+    public static final int MAX_BATCH = 256; // most events delivered in one onNext
+
+    private final String eventId; //pool whose sales are published
+    private final int bufferSize; //events held per subscriber before the overflow policy applies
+    private final FeedOverflow overflow; //what happens to events for a subscriber whose buffer is full
+    private final Executor executor; //runs the delivery loops
+
+    private volatile FeedSubscription[] subscriptions = new FeedSubscription[0]; //copied on write, read without locking
+    private volatile boolean closed;
+
+    private final LongAdder eventsPublished = new LongAdder(); //events offered to subscribers
+    private final LongAdder eventsDropped = new LongAdder(); //events discarded under DROP, summed over subscribers
+    private final LongAdder eventsCoalesced = new LongAdder(); //events folded into summaries under COALESCE, summed over subscribers
+
+    private static final Logger logger = LogManager.getLogger(SalesFeed.class);
+
+    /**
+     * Creates a feed that delivers on virtual threads.
+     *
+     * @param eventId    The pool whose sales are published.
+     * @param bufferSize The events held per subscriber before the overflow policy applies.
+     * @param overflow   The overflow policy.
+     */
+    public SalesFeed(String eventId, int bufferSize, FeedOverflow overflow) {
+        this(eventId, bufferSize, overflow, task -> Thread.ofVirtual().name("SalesFeed-" + eventId).start(task));
+    }
+
+    /**
+     * @param eventId    The pool whose sales are published.
+     * @param bufferSize The events held per subscriber before the overflow policy applies.
+     * @param overflow   The overflow policy.
+     * @param executor   Runs the delivery loops; a loop may run for as long as its subscriber takes.
+     */
+    public SalesFeed(String eventId, int bufferSize, FeedOverflow overflow, Executor executor) {
+        if (bufferSize < 1) {
+            throw new IllegalArgumentException("Sales feed buffer must be at least 1: " + bufferSize);
+        }
+        this.eventId = eventId;
+        this.bufferSize = bufferSize;
+        this.overflow = overflow;
+        this.executor = executor;
+    }
+
+    /**
+     * Adds a subscriber. It receives the events published from now on, once it has requested them.
+     * Subscribing to a closed feed completes the subscriber at once.
+     *
+     * @param subscriber The subscriber.
+     */
+    @Override
+    public void subscribe(Flow.Subscriber<? super List<SaleEvent>> subscriber) {
+        if (subscriber == null) {
+            throw new NullPointerException("subscriber");
+        }
+        FeedSubscription subscription = new FeedSubscription(subscriber);
+        synchronized (this) {
+            if (closed) {
+                subscription.completing = true;
+            } else {
+                FeedSubscription[] current = subscriptions;
+                FeedSubscription[] updated = Arrays.copyOf(current, current.length + 1);
+                updated[current.length] = subscription;
+                subscriptions = updated;
+            }
+        }
+        subscription.schedule(); // the delivery loop calls onSubscribe first
+    }
+
+    private synchronized void remove(FeedSubscription subscription) {
+        List<FeedSubscription> remaining = new ArrayList<>(Arrays.asList(subscriptions));
+        remaining.remove(subscription);
+        subscriptions = remaining.toArray(new FeedSubscription[0]);
+    }
+
+    /**
+     * Stops publishing. Every subscriber receives the events already buffered for it and then onComplete.
+     */
+    @Override
+    public void close() {
+        FeedSubscription[] current;
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            current = subscriptions;
+            subscriptions = new FeedSubscription[0];
+        }
+        for (FeedSubscription subscription : current) {
+            subscription.completing = true;
+            subscription.schedule();
+        }
+    }
+
+    @Override
+    public void ticketReleased(TicketPool pool, Ticket ticket) {
+        if (subscriptions.length > 0) {
+            publish(SaleEvent.released(eventId, new int[]{ticket.getTicketId()}));
+        }
+    }
+
+    @Override
+    public void ticketSold(TicketPool pool, Ticket ticket) {
+        if (subscriptions.length > 0) {
+            publish(SaleEvent.sold(eventId, new int[]{ticket.getTicketId()}, ticket.getPriceMinorUnits()));
+        }
+    }
+
+    @Override
+    public void ticketsReleased(TicketPool pool, List<Ticket> tickets) {
+        if (subscriptions.length > 0) {
+            int[] ids = new int[tickets.size()];
+            for (int i = 0; i < ids.length; i++) {
+                ids[i] = tickets.get(i).getTicketId();
+            }
+            publish(SaleEvent.released(eventId, ids));
+        }
+    }
+
+    @Override
+    public void ticketsSold(TicketPool pool, List<Ticket> tickets) {
+        if (subscriptions.length > 0) {
+            int[] ids = new int[tickets.size()];
+            long revenue = 0;
+            for (int i = 0; i < ids.length; i++) {
+                Ticket ticket = tickets.get(i);
+                ids[i] = ticket.getTicketId();
+                revenue += ticket.getPriceMinorUnits();
+            }
+            publish(SaleEvent.sold(eventId, ids, revenue));
+        }
+    }
+
+    private void publish(SaleEvent event) {
+        eventsPublished.increment();
+        for (FeedSubscription subscription : subscriptions) {
+            subscription.offer(event);
+        }
+    }
+
+    public String getEventId() {
+        return eventId;
+    }
+
+    public FeedOverflow getOverflow() {
+        return overflow;
+    }
+
+    /**
+     * @return The number of subscribers currently receiving events.
+     */
+    public int getSubscriberCount() {
+        return subscriptions.length;
+    }
+
+    public long getEventsPublished() {
+        return eventsPublished.sum();
+    }
+
+    /**
+     * @return The events discarded under DROP, summed over all subscribers.
+     */
+    public long getEventsDropped() {
+        return eventsDropped.sum();
+    }
+
+    /**
+     * @return The events folded into summaries under COALESCE, summed over all subscribers.
+     */
+    public long getEventsCoalesced() {
+        return eventsCoalesced.sum();
+    }
+
+    /**
+     * One subscriber's buffer, demand and delivery loop. Signals to the subscriber are serialized by
+     * the work counter: only the thread that raises it from zero runs the loop, and the loop keeps
+     * going until every raise has been seen.
+     */
+    private final class FeedSubscription implements Flow.Subscription {
+        private final Flow.Subscriber<? super List<SaleEvent>> subscriber;
+        private final ArrayDeque<SaleEvent> buffer = new ArrayDeque<>(); //guarded by lock
+        private final ReentrantLock lock = new ReentrantLock(); //held only to add or take events
+        private final AtomicLong requested = new AtomicLong(); //batches the subscriber still wants
+        private final AtomicInteger work = new AtomicInteger(); //pending reasons to run the delivery loop
+        private boolean subscribed; //whether onSubscribe was called; only touched by the delivery loop
+        private boolean overflowing; //whether a full buffer was already reported; guarded by lock
+        private volatile boolean completing; //deliver what is buffered, then complete
+        private volatile boolean cancelled;
+        private volatile Throwable failure; //illegal request to report with onError
+
+        FeedSubscription(Flow.Subscriber<? super List<SaleEvent>> subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        void offer(SaleEvent event) {
+            if (cancelled) {
+                return;
+            }
+            lock.lock();
+            try {
+                if (buffer.size() < bufferSize || overflow == FeedOverflow.BUFFER) {
+                    buffer.addLast(event);
+                    overflowing = false;
+                } else {
+                    if (!overflowing) {
+                        overflowing = true;
+                        logger.warn("Sales feed subscriber of {} fell {} events behind; applying {}.", eventId,
+                                bufferSize, overflow);
+                    }
+                    if (overflow == FeedOverflow.DROP) {
+                        eventsDropped.increment();
+                        return;
+                    }
+                    buffer.addLast(buffer.pollLast().coalesce(event));
+                    eventsCoalesced.increment();
+                }
+            } finally {
+                lock.unlock();
+            }
+            schedule();
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                failure = new IllegalArgumentException("Requested " + n + " batches; must be positive");
+            } else {
+                requested.getAndAccumulate(n, (current, add) -> current + add < 0 ? Long.MAX_VALUE : current + add);
+            }
+            schedule();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            remove(this);
+            schedule(); // lets the delivery loop release the buffer
+        }
+
+        void schedule() {
+            if (work.getAndIncrement() == 0) {
+                executor.execute(this::deliver);
+            }
+        }
+
+        private void deliver() {
+            int missed = 1;
+            while (true) {
+                if (!subscribed) {
+                    subscribed = true;
+                    try {
+                        subscriber.onSubscribe(this);
+                    } catch (Throwable t) {
+                        fail(t);
+                        return;
+                    }
+                }
+                if (cancelled) {
+                    clear();
+                    return;
+                }
+                if (failure != null) {
+                    abort();
+                    subscriber.onError(failure);
+                    return;
+                }
+                long wanted = requested.get();
+                long sent = 0;
+                while (sent < wanted && !cancelled) {
+                    List<SaleEvent> batch = take();
+                    if (batch.isEmpty()) {
+                        break;
+                    }
+                    try {
+                        subscriber.onNext(batch);
+                    } catch (Throwable t) {
+                        fail(t);
+                        return;
+                    }
+                    sent++;
+                }
+                if (sent > 0 && wanted != Long.MAX_VALUE) {
+                    requested.addAndGet(-sent);
+                }
+                if (completing && !cancelled && isEmpty()) {
+                    cancelled = true;
+                    subscriber.onComplete();
+                    return;
+                }
+                missed = work.addAndGet(-missed);
+                if (missed == 0) {
+                    return;
+                }
+            }
+        }
+
+        private List<SaleEvent> take() {
+            lock.lock();
+            try {
+                int n = Math.min(buffer.size(), MAX_BATCH);
+                if (n == 0) {
+                    return Collections.emptyList();
+                }
+                SaleEvent[] batch = new SaleEvent[n];
+                for (int i = 0; i < n; i++) {
+                    batch[i] = buffer.pollFirst();
+                }
+                return List.of(batch);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private boolean isEmpty() {
+            lock.lock();
+            try {
+                return buffer.isEmpty();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void clear() {
+            lock.lock();
+            try {
+                buffer.clear();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * Ends the subscription after the subscriber threw; per the Flow rules it is not called again.
+         */
+        private void fail(Throwable t) {
+            abort();
+            logger.warn("Sales feed subscriber of {} failed and was cancelled: {}", eventId, t.toString());
+        }
+
+        private void abort() {
+            cancelled = true;
+            remove(this);
+            clear();
+        }
+    }
+}
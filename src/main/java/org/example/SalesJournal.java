@@ -0,0 +1,471 @@
+package org.example;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static org.apache.logging.log4j.util.Unbox.box;
+
+/**
+ * Append-only journal of released and sold tickets, written through a FileChannel.
+ * Pools notify the journal as a TicketPoolListener; records are appended to an in-memory buffer
+ * under a short lock and written out by whichever thread commits next, so one write and one
+ * fsync cover every record appended since the previous commit (group commit).
+ * On startup the journal is replayed to put every released but unsold ticket back into its pool.
+ *
+ * File layout: a 4 byte header, then records of the form
+ * EVENT [type][event index:int][ID length:unsigned short][event ID in UTF-8] and
+ * RELEASED/SOLD [type][event index:int][ticket ID:int][price in minor units:long].
+ * A record cut short by a crash is dropped (and truncated away) when the journal is opened.
+ */
+public class SalesJournal implements TicketPoolListener, AutoCloseable {
+    private static final int MAGIC = 0x544B4A31; // "TKJ1"
+    private static final byte EVENT = 1;
+    private static final byte RELEASED = 2;
+    private static final byte SOLD = 3;
+    private static final int TICKET_RECORD_SIZE = 1 + 4 + 4 + 8;
+    private static final int EVENT_HEADER_SIZE = 1 + 4 + 2;
+    private static final int BUFFER_SIZE = 64 * 1024; // records pending before a writer commits without waiting for the committer
+
+    private final FileChannel channel;
+    private final JournalDurability durability;
+
+    private final ReentrantLock appendLock = new ReentrantLock(); // guards active, appended and eventIndexes
+    private final ReentrantLock syncLock = new ReentrantLock(); // one thread writes the channel at a time, always taken before appendLock
+
+    private ByteBuffer active = ByteBuffer.allocateDirect(BUFFER_SIZE); // records appended since the last commit
+    private ByteBuffer writing = ByteBuffer.allocateDirect(BUFFER_SIZE); // swapped with active during a commit, guarded by syncLock
+    private long appended; // end offset of the last appended record
+    private volatile long written; // end offset of the last record handed to the OS
+    private volatile long durable; // end offset of the last record known to be written and forced
+    private final Map<String, Integer> eventIndexes = new HashMap<>(); // event ID to the index used in ticket records
+
+    private final List<RecoveredEvent> recovered; // state read at open, released by replay
+    private final ScheduledExecutorService committer; // null unless durability is BATCHED
+    private volatile boolean closed;
+
+    private static final Logger logger = LogManager.getLogger(SalesJournal.class);
+
+    private SalesJournal(FileChannel channel, JournalDurability durability, long length, List<RecoveredEvent> recovered) {
+        this.channel = channel;
+        this.durability = durability;
+        this.appended = length;
+        this.written = length;
+        this.durable = length;
+        this.recovered = recovered;
+        for (int i = 0; i < recovered.size(); i++) {
+            eventIndexes.put(recovered.get(i).eventId, i);
+        }
+        this.committer = durability == JournalDurability.BATCHED
+                ? Executors.newSingleThreadScheduledExecutor(runnable -> {
+                    Thread thread = new Thread(runnable, "journal-committer");
+                    thread.setDaemon(true);
+                    return thread;
+                })
+                : null;
+    }
+
+    /**
+     * Opens or creates a journal and reads the records already in it.
+     *
+     * @param file               The journal file.
+     * @param durability         How far commits go to survive a crash.
+     * @param syncIntervalMillis How often the BATCHED committer writes and forces pending records.
+     * @return The open journal, positioned after its last complete record.
+     * @throws IOException If the file cannot be opened or is not a sales journal.
+     */
+    public static SalesJournal open(Path file, JournalDurability durability, long syncIntervalMillis) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            List<RecoveredEvent> recovered = new ArrayList<>();
+            long length;
+            if (channel.size() == 0) {
+                ByteBuffer header = ByteBuffer.allocate(4).putInt(MAGIC);
+                header.flip();
+                while (header.hasRemaining()) {
+                    channel.write(header);
+                }
+                channel.force(true);
+                length = 4;
+            } else {
+                length = read(channel, file, recovered);
+                if (length < channel.size()) {
+                    logger.warn("Dropping {} bytes of an incomplete record at the end of the sales journal.",
+                            box(channel.size() - length));
+                    channel.truncate(length);
+                }
+            }
+            channel.position(length);
+            SalesJournal journal = new SalesJournal(channel, durability, length, recovered);
+            if (journal.committer != null) {
+                journal.committer.scheduleWithFixedDelay(journal::commitPending, syncIntervalMillis, syncIntervalMillis, TimeUnit.MILLISECONDS);
+            }
+            return journal;
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    public JournalDurability getDurability() {
+        return durability;
+    }
+
+    /**
+     * Puts the tickets recovered at open back into the pools of the inventory and restores their
+     * release and sale counts. Ticket IDs claimed before the crash whose release never reached the
+     * journal are released again with the pool's price. Must run before vendors and customers start.
+     *
+     * @param inventory The inventory holding the pools of the journaled events.
+     * @return The number of unsold tickets placed back into pools.
+     */
+    public int replay(EventInventory inventory) {
+        int restored = 0;
+        for (RecoveredEvent event : recovered) {
+            TicketPool pool = inventory.getPool(event.eventId);
+            if (pool == null) {
+                logger.warn("Sales journal has tickets for unknown event {}; skipping them.", event.eventId);
+                continue;
+            }
+            List<Ticket> unsold = new ArrayList<>();
+            for (int i = 0; i < event.released; i++) {
+                int ticketId = event.releasedIds[i];
+                if (!event.sold.get(ticketId)) {
+                    unsold.add(new Ticket(ticketId, pool.getEventName(), event.prices[i]));
+                }
+            }
+            for (int ticketId = 1; ticketId <= event.maxTicketId; ticketId++) {
+                if (!event.releasedSet.get(ticketId) && !event.sold.get(ticketId)) {
+                    unsold.add(new Ticket(ticketId, pool.getEventName(), pool.getTicketPrice()));
+                }
+            }
+            restored += pool.restore(unsold, event.maxTicketId, event.sold.cardinality());
+            event.clear(); // the recovered state is not needed once the pool holds the tickets
+        }
+        return restored;
+    }
+
+    @Override
+    public void ticketReleased(TicketPool pool, Ticket ticket) {
+        record(RELEASED, pool, Collections.singletonList(ticket));
+    }
+
+    @Override
+    public void ticketSold(TicketPool pool, Ticket ticket) {
+        record(SOLD, pool, Collections.singletonList(ticket));
+    }
+
+    @Override
+    public void ticketsReleased(TicketPool pool, List<Ticket> tickets) {
+        record(RELEASED, pool, tickets);
+    }
+
+    @Override
+    public void ticketsSold(TicketPool pool, List<Ticket> tickets) {
+        record(SOLD, pool, tickets);
+    }
+
+    /**
+     * Writes and forces every record appended so far.
+     *
+     * @throws IOException If writing or forcing the file fails.
+     */
+    public void sync() throws IOException {
+        commit(true);
+    }
+
+    /**
+     * Stops the committer, makes every appended record durable and closes the file. Safe to call more than once.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (committer != null) {
+            committer.shutdown();
+        }
+        syncLock.lock();
+        try {
+            if (channel.isOpen()) {
+                commit(true);
+                channel.close();
+            }
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    private void record(byte type, TicketPool pool, List<Ticket> tickets) {
+        long end = append(type, pool, tickets);
+        if (end < 0) {
+            return;
+        }
+        try {
+            if (durability == JournalDurability.PER_SALE) {
+                awaitDurable(end);
+            } else if (end - written >= BUFFER_SIZE) {
+                commit(false); // keeps the buffer bounded between committer runs, and is the only writer for NONE
+            }
+        } catch (IOException e) {
+            logger.error("Could not write the sales journal: {}", e.getMessage());
+            throw new RuntimeException("Could not write the sales journal: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Appends the records, unless the journal is closed: the change already happened in the pool, so a
+     * runner still selling while the journal closes is only warned about, not failed.
+     *
+     * @return The end offset of the appended records, or -1 if the journal is closed.
+     */
+    private long append(byte type, TicketPool pool, List<Ticket> tickets) {
+        appendLock.lock();
+        try {
+            if (closed) {
+                logger.warn("Sales journal is closed; {} {} record(s) of {} were not journaled.",
+                        box(tickets.size()), type == SOLD ? "sold" : "released", pool.getEventId());
+                return -1;
+            }
+            int eventIndex = eventIndex(pool.getEventId());
+            ensureRemaining(tickets.size() * TICKET_RECORD_SIZE);
+            for (Ticket ticket : tickets) {
+                active.put(type).putInt(eventIndex).putInt(ticket.getTicketId()).putLong(ticket.getPriceMinorUnits());
+            }
+            appended += (long) tickets.size() * TICKET_RECORD_SIZE;
+            return appended;
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    /**
+     * Returns the index of the event, appending its EVENT record the first time it is seen. Called holding appendLock.
+     */
+    private int eventIndex(String eventId) {
+        Integer index = eventIndexes.get(eventId);
+        if (index != null) {
+            return index;
+        }
+        byte[] id = eventId.getBytes(StandardCharsets.UTF_8);
+        if (id.length > 0xFFFF) {
+            throw new IllegalArgumentException("Event ID too long for the sales journal: " + eventId);
+        }
+        int newIndex = eventIndexes.size();
+        ensureRemaining(EVENT_HEADER_SIZE + id.length);
+        active.put(EVENT).putInt(newIndex).putShort((short) id.length).put(id);
+        appended += EVENT_HEADER_SIZE + id.length;
+        eventIndexes.put(eventId, newIndex);
+        return newIndex;
+    }
+
+    /**
+     * Grows the active buffer instead of committing, so appending never waits for the disk. Called holding appendLock.
+     */
+    private void ensureRemaining(int bytes) {
+        if (active.remaining() < bytes) {
+            ByteBuffer grown = ByteBuffer.allocateDirect(Math.max(active.capacity() * 2, active.position() + bytes));
+            active.flip();
+            grown.put(active);
+            active = grown;
+        }
+    }
+
+    private void awaitDurable(long end) throws IOException {
+        if (durable >= end) {
+            return;
+        }
+        syncLock.lock();
+        try {
+            if (durable < end) { // otherwise the previous leader's force already covered this record
+                commit(true);
+            }
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    /**
+     * Swaps out the records appended so far and writes them, forcing the file if requested.
+     * Records appended while the write is in progress go to the other buffer and wait for the next commit.
+     */
+    private void commit(boolean force) throws IOException {
+        syncLock.lock();
+        try {
+            long end;
+            ByteBuffer pending;
+            appendLock.lock();
+            try {
+                pending = active;
+                active = writing;
+                writing = pending;
+                end = appended;
+            } finally {
+                appendLock.unlock();
+            }
+            pending.flip();
+            while (pending.hasRemaining()) {
+                channel.write(pending);
+            }
+            pending.clear();
+            written = end;
+            if (force && durable < end) {
+                channel.force(false);
+                durable = end;
+            }
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    private void commitPending() {
+        try {
+            if (!closed) {
+                commit(true); // writes and forces nothing when no record was appended since the last run
+            }
+        } catch (IOException e) {
+            logger.error("Could not commit the sales journal: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Reads every complete record of the journal into per-event state.
+     *
+     * @return The offset just after the last complete record.
+     */
+    private static long read(FileChannel channel, Path file, List<RecoveredEvent> events) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 20);
+        buffer.limit(0); // nothing read yet
+        channel.position(0);
+        if (!fill(channel, buffer, 4) || buffer.getInt() != MAGIC) {
+            throw new IOException("Not a sales journal: " + file);
+        }
+        long offset = 4;
+        while (fill(channel, buffer, 1)) {
+            byte type = buffer.get(buffer.position());
+            if (type == EVENT) {
+                if (!fill(channel, buffer, EVENT_HEADER_SIZE)) {
+                    break;
+                }
+                int mark = buffer.position();
+                buffer.get();
+                int index = buffer.getInt();
+                int length = buffer.getShort() & 0xFFFF;
+                buffer.position(mark);
+                if (index != events.size() || !fill(channel, buffer, EVENT_HEADER_SIZE + length)) {
+                    break;
+                }
+                buffer.position(buffer.position() + EVENT_HEADER_SIZE); // fill may have moved the record to the start of the buffer
+                byte[] id = new byte[length];
+                buffer.get(id);
+                events.add(new RecoveredEvent(new String(id, StandardCharsets.UTF_8)));
+                offset += EVENT_HEADER_SIZE + length;
+            } else if (type == RELEASED || type == SOLD) {
+                if (!fill(channel, buffer, TICKET_RECORD_SIZE)) {
+                    break;
+                }
+                buffer.get();
+                int index = buffer.getInt();
+                int ticketId = buffer.getInt();
+                long price = buffer.getLong();
+                if (index < 0 || index >= events.size() || ticketId <= 0) {
+                    break;
+                }
+                if (type == RELEASED) {
+                    events.get(index).released(ticketId, price);
+                } else {
+                    events.get(index).sold(ticketId);
+                }
+                offset += TICKET_RECORD_SIZE;
+            } else {
+                break; // zero-filled or torn tail
+            }
+        }
+        return offset;
+    }
+
+    /**
+     * Makes sure at least the given number of bytes are readable, reading more of the file if needed.
+     *
+     * @return false if the file ends first.
+     */
+    private static boolean fill(FileChannel channel, ByteBuffer buffer, int bytes) throws IOException {
+        if (buffer.remaining() >= bytes) {
+            return true;
+        }
+        buffer.compact();
+        try {
+            while (buffer.position() < bytes) {
+                if (channel.read(buffer) < 0) {
+                    return false;
+                }
+            }
+            return true;
+        } finally {
+            buffer.flip();
+        }
+    }
+
+    /**
+     * Releases and sales of one event read from the journal.
+     */
+    private static final class RecoveredEvent {
+        private final String eventId;
+        private int[] releasedIds = new int[16]; // in release order
+        private long[] prices = new long[16];
+        private int released;
+        private final BitSet releasedSet = new BitSet();
+        private final BitSet sold = new BitSet();
+        private int maxTicketId; // highest ticket ID claimed by a vendor
+
+        private RecoveredEvent(String eventId) {
+            this.eventId = eventId;
+        }
+
+        private void released(int ticketId, long price) {
+            if (releasedSet.get(ticketId)) {
+                return;
+            }
+            if (released == releasedIds.length) {
+                releasedIds = Arrays.copyOf(releasedIds, released * 2);
+                prices = Arrays.copyOf(prices, released * 2);
+            }
+            releasedIds[released] = ticketId;
+            prices[released] = price;
+            released++;
+            releasedSet.set(ticketId);
+            maxTicketId = Math.max(maxTicketId, ticketId);
+        }
+
+        private void sold(int ticketId) {
+            sold.set(ticketId);
+            maxTicketId = Math.max(maxTicketId, ticketId);
+        }
+
+        private void clear() {
+            releasedIds = new int[0];
+            prices = new long[0];
+            released = 0;
+            releasedSet.clear();
+            sold.clear();
+        }
+    }
+}
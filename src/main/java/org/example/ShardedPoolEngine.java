@@ -0,0 +1,290 @@
+package org.example;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pool engine that splits the pool capacity across several independent shards.
+ * Each thread has a home shard: vendors publish to it and customers take from it, so
+ * threads on different shards do not contend. When its home shard is full (or empty)
+ * a thread moves on to the other shards in turn, which lets customers steal tickets
+ * released on other shards. Threads only wait, through BlockingWaitStrategy, once
+ * every shard is full (or empty).
+ * Every ticket lives in exactly one shard and is removed from it under that shard's lock,
+ * so a ticket is never sold twice; the totalTickets limit is still enforced by the claims
+ * made by vendors and customers. Order is FIFO within a shard, not across shards.
+ */
+public class ShardedPoolEngine implements TicketPoolEngine {
+    private final TicketPoolEngine[] shards; // each shard is a LockingPoolEngine used through its non-blocking operations
+
+    private volatile int capacity;
+
+    private final BlockingWaitStrategy waitStrategy;
+
+    /**
+     * @param capacity Maximum number of tickets across all shards.
+     * @param shards   Number of shards; 0 or less uses one per available processor. Never more than the capacity.
+     * @param fair     Whether threads blocked on a full or empty pool are woken in arrival order.
+     */
+    public ShardedPoolEngine(int capacity, int shards, boolean fair) {
+        this(capacity, shards, fair, WaitStrategy.BLOCKING);
+    }
+
+    /**
+     * @param capacity     Maximum number of tickets across all shards.
+     * @param shards       Number of shards; 0 or less uses one per available processor. Never more than the capacity.
+     * @param fair         Whether threads blocked on a full or empty pool are woken in arrival order.
+     * @param waitStrategy How callers wait once every shard is full or empty.
+     */
+    public ShardedPoolEngine(int capacity, int shards, boolean fair, WaitStrategy waitStrategy) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Pool capacity must be positive: " + capacity);
+        }
+        int count = shards > 0 ? shards : Runtime.getRuntime().availableProcessors();
+        count = Math.min(count, capacity);
+        this.capacity = capacity;
+        this.shards = new TicketPoolEngine[count];
+        for (int i = 0; i < count; i++) {
+            int shardCapacity = capacity / count + (i < capacity % count ? 1 : 0); // spreads the remainder over the first shards
+            this.shards[i] = new LockingPoolEngine(shardCapacity, fair);
+        }
+        this.waitStrategy = new BlockingWaitStrategy(fair, waitStrategy);
+    }
+
+    /**
+     * @return The number of shards the capacity is split across.
+     */
+    public int getShardCount() {
+        return shards.length;
+    }
+
+    /**
+     * Shards record their lock waits; waits for space or tickets across all shards are recorded by the shared wait strategy.
+     */
+    @Override
+    public void setMetrics(PoolMetrics metrics) {
+        for (TicketPoolEngine shard : shards) {
+            shard.setMetrics(metrics);
+        }
+        waitStrategy.setMetrics(metrics);
+    }
+
+    @Override
+    public void put(Ticket ticket) throws InterruptedException {
+        if (!enqueue(ticket)) {
+            waitStrategy.awaitSpace(() -> enqueue(ticket));
+        }
+        waitStrategy.signalNotEmpty();
+    }
+
+    @Override
+    public Ticket take() throws InterruptedException {
+        Ticket ticket = dequeue();
+        if (ticket == null) {
+            ticket = waitStrategy.awaitTicket(this::dequeue);
+        }
+        waitStrategy.signalNotFull();
+        return ticket;
+    }
+
+    @Override
+    public boolean offer(Ticket ticket) {
+        if (enqueue(ticket)) {
+            waitStrategy.signalNotEmpty();
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public Ticket poll() {
+        Ticket ticket = dequeue();
+        if (ticket != null) {
+            waitStrategy.signalNotFull();
+        }
+        return ticket;
+    }
+
+    @Override
+    public boolean offer(Ticket ticket, long timeout, TimeUnit unit) throws InterruptedException {
+        if (!enqueue(ticket) && !waitStrategy.awaitSpace(() -> enqueue(ticket), timeout, unit)) {
+            return false;
+        }
+        waitStrategy.signalNotEmpty();
+        return true;
+    }
+
+    @Override
+    public Ticket poll(long timeout, TimeUnit unit) throws InterruptedException {
+        Ticket ticket = dequeue();
+        if (ticket == null) {
+            ticket = waitStrategy.awaitTicket(this::dequeue, timeout, unit);
+            if (ticket == null) {
+                return null;
+            }
+        }
+        waitStrategy.signalNotFull();
+        return ticket;
+    }
+
+    /**
+     * Fills the home shard with one lock acquisition, then spills over into the other shards.
+     */
+    @Override
+    public int putAll(List<Ticket> tickets, int from) throws InterruptedException {
+        int added = enqueueUpTo(tickets, from);
+        if (added == 0) {
+            Ticket first = tickets.get(from);
+            waitStrategy.awaitSpace(() -> enqueue(first));
+            added = 1 + enqueueUpTo(tickets, from + 1);
+        }
+        waitStrategy.signalNotEmpty(added);
+        return added;
+    }
+
+    /**
+     * Drains the home shard with one lock acquisition, then steals from the other shards.
+     */
+    @Override
+    public int takeAll(Collection<? super Ticket> sink, int max) throws InterruptedException {
+        int removed = dequeueUpTo(sink, max);
+        if (removed == 0) {
+            sink.add(waitStrategy.awaitTicket(this::dequeue));
+            removed = 1 + dequeueUpTo(sink, max - 1);
+        }
+        waitStrategy.signalNotFull(removed);
+        return removed;
+    }
+
+    @Override
+    public int drainTo(Collection<? super Ticket> sink, int max) {
+        int removed = dequeueUpTo(sink, max);
+        if (removed > 0) {
+            waitStrategy.signalNotFull(removed);
+        }
+        return removed;
+    }
+
+    @Override
+    public int size() {
+        int size = 0;
+        for (TicketPoolEngine shard : shards) {
+            size += shard.size();
+        }
+        return size;
+    }
+
+    @Override
+    public int capacity() {
+        return capacity;
+    }
+
+    /**
+     * Spreads the new capacity over the shards the same way as the constructor. The number of
+     * shards is fixed, so the capacity cannot drop below it.
+     */
+    @Override
+    public synchronized boolean resize(int capacity) {
+        if (capacity < shards.length) {
+            return false;
+        }
+        int previous = this.capacity;
+        for (int i = 0; i < shards.length; i++) {
+            shards[i].resize(capacity / shards.length + (i < capacity % shards.length ? 1 : 0));
+        }
+        this.capacity = capacity;
+        if (capacity > previous) {
+            waitStrategy.signalNotFull(capacity - previous);
+        }
+        return true;
+    }
+
+    /**
+     * Copies each shard in turn; the result is consistent per shard, not across shards.
+     */
+    @Override
+    public List<Ticket> snapshot() {
+        List<Ticket> copy = new ArrayList<>();
+        for (TicketPoolEngine shard : shards) {
+            copy.addAll(shard.snapshot());
+        }
+        return copy;
+    }
+
+    /**
+     * Each shard is captured on its own, so the result is consistent per shard, not across shards.
+     */
+    @Override
+    public int[] snapshotIds() {
+        int[][] parts = new int[shards.length][];
+        int total = 0;
+        for (int i = 0; i < shards.length; i++) {
+            parts[i] = shards[i].snapshotIds();
+            total += parts[i].length;
+        }
+        int[] ids = new int[total];
+        int at = 0;
+        for (int[] part : parts) {
+            System.arraycopy(part, 0, ids, at, part.length);
+            at += part.length;
+        }
+        return ids;
+    }
+
+    @Override
+    public void clear() {
+        for (TicketPoolEngine shard : shards) {
+            shard.clear();
+        }
+        waitStrategy.signalNotFull(capacity);
+    }
+
+    /**
+     * @return The shard this thread publishes to and takes from first.
+     */
+    private int homeShard() {
+        return (int) (Thread.currentThread().threadId() % shards.length);
+    }
+
+    private boolean enqueue(Ticket ticket) {
+        int home = homeShard();
+        for (int i = 0; i < shards.length; i++) {
+            if (shards[(home + i) % shards.length].offer(ticket)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private Ticket dequeue() {
+        int home = homeShard();
+        for (int i = 0; i < shards.length; i++) {
+            Ticket ticket = shards[(home + i) % shards.length].poll();
+            if (ticket != null) {
+                return ticket;
+            }
+        }
+        return null;
+    }
+
+    private int enqueueUpTo(List<Ticket> tickets, int from) {
+        int home = homeShard();
+        int added = 0;
+        for (int i = 0; i < shards.length && from + added < tickets.size(); i++) {
+            TicketPoolEngine shard = shards[(home + i) % shards.length];
+            added += shard.offerAll(tickets, from + added);
+        }
+        return added;
+    }
+
+    private int dequeueUpTo(Collection<? super Ticket> sink, int max) {
+        int home = homeShard();
+        int removed = 0;
+        for (int i = 0; i < shards.length && removed < max; i++) {
+            removed += shards[(home + i) % shards.length].drainTo(sink, max - removed);
+        }
+        return removed;
+    }
+}
@@ -0,0 +1,166 @@
+package org.example;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs vendors and customers on platform or virtual threads and manages their lifecycle.
+ * Tasks start as soon as they are submitted; join waits for all of them to finish and
+ * shutdownNow interrupts the ones still running. While the simulation runs, heap usage
+ * and live thread counts are sampled so the two execution modes can be compared.
+ */
+public class SimulationExecutor implements AutoCloseable {
+    private final ExecutionMode mode;
+    private final ExecutorService vendorExecutor;
+    private final ExecutorService customerExecutor;
+
+    private int vendors = 0;
+    private int customers = 0;
+
+    private long startNanos = 0; // set when the first task is submitted
+    private long endNanos = 0; // set when all tasks have finished
+    private int ticketsSoldAtStart = 0;
+
+    private volatile long peakHeapUsed = 0;
+    private volatile boolean sampling = false;
+    private Thread sampler;
+
+    private static final long SAMPLE_INTERVAL_MILLIS = 100;
+
+    private static final Logger logger = LogManager.getLogger(SimulationExecutor.class);
+
+    /**
+     * Creates an executor for the given execution mode.
+     *
+     * @param mode Whether vendors and customers run on platform or virtual threads.
+     */
+    public SimulationExecutor(ExecutionMode mode) {
+        this.mode = mode;
+        this.vendorExecutor = Executors.newThreadPerTaskExecutor(mode.threadFactory("Vendor-"));
+        this.customerExecutor = Executors.newThreadPerTaskExecutor(mode.threadFactory("Customer-"));
+    }
+
+    public ExecutionMode getMode() {
+        return mode;
+    }
+
+    /**
+     * Starts the vendor on its own thread.
+     *
+     * @param vendor The vendor to run.
+     */
+    public synchronized void submitVendor(Vendor vendor) {
+        startClock();
+        vendors++;
+        vendorExecutor.execute(vendor);
+    }
+
+    /**
+     * Starts the customer on its own thread.
+     *
+     * @param customer The customer to run.
+     */
+    public synchronized void submitCustomer(Customer customer) {
+        startClock();
+        customers++;
+        customerExecutor.execute(customer);
+    }
+
+    /**
+     * Stops accepting new tasks and waits for every vendor and customer to finish.
+     *
+     * @throws InterruptedException If the calling thread is interrupted while waiting.
+     */
+    public void join() throws InterruptedException {
+        awaitCompletion(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Stops accepting new tasks and waits up to the timeout for every vendor and customer to finish.
+     * Once every customer has finished, nothing a vendor still releases can be sold (customers only
+     * stop when the event is sold out or they reached their purchase limit), so remaining vendors are interrupted.
+     *
+     * @param timeout Maximum time to wait.
+     * @param unit    Unit of the timeout.
+     * @return true if all tasks finished, false if the timeout elapsed first.
+     * @throws InterruptedException If the calling thread is interrupted while waiting.
+     */
+    public boolean awaitCompletion(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + Math.min(unit.toNanos(timeout), Long.MAX_VALUE / 2);
+        vendorExecutor.shutdown();
+        customerExecutor.shutdown();
+        boolean finished = customerExecutor.awaitTermination(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+        if (finished && customers > 0 && !vendorExecutor.isTerminated()) {
+            vendorExecutor.shutdownNow();
+        }
+        finished = finished && vendorExecutor.awaitTermination(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+        if (finished) {
+            stopClock();
+        }
+        return finished;
+    }
+
+    /**
+     * Interrupts all running vendors and customers and stops accepting new ones.
+     */
+    public void shutdownNow() {
+        vendorExecutor.shutdownNow();
+        customerExecutor.shutdownNow();
+        stopClock();
+    }
+
+    @Override
+    public void close() {
+        shutdownNow();
+    }
+
+    /**
+     * @return The run summary; elapsed time is measured up to now if the run has not finished.
+     */
+    public synchronized SimulationReport report() {
+        long end = endNanos != 0 ? endNanos : System.nanoTime();
+        long elapsedMillis = startNanos != 0 ? TimeUnit.NANOSECONDS.toMillis(end - startNanos) : 0;
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        return new SimulationReport(mode, vendors, customers, elapsedMillis,
+                TicketPool.getTicketsSold() - ticketsSoldAtStart, peakHeapUsed, threads.getPeakThreadCount());
+    }
+
+    private void startClock() {
+        if (startNanos != 0) {
+            return;
+        }
+        ticketsSoldAtStart = TicketPool.getTicketsSold();
+        ManagementFactory.getThreadMXBean().resetPeakThreadCount();
+        startNanos = System.nanoTime();
+        sampling = true;
+        sampler = Thread.ofPlatform().name("SimulationSampler").daemon().start(this::sampleHeap);
+    }
+
+    private synchronized void stopClock() {
+        if (endNanos == 0 && startNanos != 0) {
+            endNanos = System.nanoTime();
+            sampling = false;
+            sampler.interrupt();
+            logger.info("Simulation finished: " + report());
+        }
+    }
+
+    private void sampleHeap() {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        while (sampling) {
+            peakHeapUsed = Math.max(peakHeapUsed, memory.getHeapMemoryUsage().getUsed());
+            try {
+                Thread.sleep(SAMPLE_INTERVAL_MILLIS);
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package org.example;
+
+/**
+ * Summary of a finished simulation run, used to compare execution modes.
+ */
+public class SimulationReport {
+    private final ExecutionMode executionMode;
+    private final int vendors;
+    private final int customers;
+    private final long elapsedMillis;
+    private final int ticketsSold;
+    private final long peakHeapUsed; // bytes
+    private final int peakThreads; // live platform threads, including carrier threads
+
+    public SimulationReport(ExecutionMode executionMode, int vendors, int customers, long elapsedMillis,
+                            int ticketsSold, long peakHeapUsed, int peakThreads) {
+        this.executionMode = executionMode;
+        this.vendors = vendors;
+        this.customers = customers;
+        this.elapsedMillis = elapsedMillis;
+        this.ticketsSold = ticketsSold;
+        this.peakHeapUsed = peakHeapUsed;
+        this.peakThreads = peakThreads;
+    }
+
+    public ExecutionMode getExecutionMode() {
+        return executionMode;
+    }
+
+    public int getVendors() {
+        return vendors;
+    }
+
+    public int getCustomers() {
+        return customers;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    public int getTicketsSold() {
+        return ticketsSold;
+    }
+
+    public long getPeakHeapUsed() {
+        return peakHeapUsed;
+    }
+
+    public int getPeakThreads() {
+        return peakThreads;
+    }
+
+    /**
+     * @return Tickets sold per second over the whole run.
+     */
+    public double getThroughput() {
+        return elapsedMillis > 0 ? ticketsSold * 1000.0 / elapsedMillis : 0;
+    }
+
+    @Override
+    public String toString() {
+        return "SimulationReport{" +
+                "executionMode = " + executionMode +
+                ", vendors = " + vendors +
+                ", customers = " + customers +
+                ", elapsedMillis = " + elapsedMillis +
+                ", ticketsSold = " + ticketsSold +
+                ", throughput = " + String.format("%.1f", getThroughput()) + " tickets/s" +
+                ", peakHeapUsed = " + (peakHeapUsed >> 20) + " MB" +
+                ", peakThreads = " + peakThreads +
+                '}';
+    }
+}
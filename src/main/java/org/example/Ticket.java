@@ -1,14 +1,19 @@
 package org.example;
 
 import java.math.BigDecimal;
+import java.math.RoundingMode;
 
 /**
  * Represents a ticket for an event.
+ * The price is held as a long number of minor currency units (cents), so a ticket carries
+ * no BigDecimal; getTicketPrice converts on demand for callers that need one.
  */
 public class Ticket {
     private int ticketId;
     private String eventName;
-    private BigDecimal ticketPrice;
+    private long priceMinorUnits; // price in cents
+
+    public static final int PRICE_SCALE = 2; // number of minor-unit digits in a price
 
     /**
      * Constructs a new Ticket object with the specified ID, event name, and price.
@@ -18,9 +23,20 @@ public class Ticket {
      * @param ticketPrice The price of the ticket.
      */
     public Ticket(int ticketId, String eventName, BigDecimal ticketPrice) {
+        this(ticketId, eventName, toMinorUnits(ticketPrice));
+    }
+
+    /**
+     * Constructs a new Ticket object with the price given in minor currency units.
+     *
+     * @param ticketId        The unique identifier for the ticket.
+     * @param eventName       The name of the event.
+     * @param priceMinorUnits The price of the ticket in cents.
+     */
+    public Ticket(int ticketId, String eventName, long priceMinorUnits) {
         this.ticketId = ticketId;
         this.eventName = eventName;
-        this.ticketPrice = ticketPrice;
+        this.priceMinorUnits = priceMinorUnits;
     }
 
     public int getTicketId() {
@@ -40,11 +56,29 @@ public class Ticket {
     }
 
     public BigDecimal getTicketPrice() {
-        return ticketPrice;
+        return BigDecimal.valueOf(priceMinorUnits, PRICE_SCALE);
     }
 
     public void setTicketPrice(BigDecimal ticketPrice) {
-        this.ticketPrice = ticketPrice;
+        this.priceMinorUnits = toMinorUnits(ticketPrice);
+    }
+
+    public long getPriceMinorUnits() {
+        return priceMinorUnits;
+    }
+
+    public void setPriceMinorUnits(long priceMinorUnits) {
+        this.priceMinorUnits = priceMinorUnits;
+    }
+
+    /**
+     * Converts a price to minor currency units, rounding half-even beyond two decimal places.
+     *
+     * @param price The price, e.g. 1000 or 12.50.
+     * @return The price in cents.
+     */
+    public static long toMinorUnits(BigDecimal price) {
+        return price.setScale(PRICE_SCALE, RoundingMode.HALF_EVEN).unscaledValue().longValueExact();
     }
 
     @Override
@@ -52,7 +86,7 @@ public class Ticket {
         return "Ticket{" +
                 "ticketId=" + ticketId +
                 ", eventName='" + eventName + '\'' +
-                ", ticketPrice=" + ticketPrice +
+                ", ticketPrice=" + getTicketPrice() +
                 '}';
     }
 }
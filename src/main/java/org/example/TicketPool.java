@@ -4,131 +4,1039 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
-import java.util.concurrent.locks.Condition;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.apache.logging.log4j.util.Unbox.box;
 
 /**
- * TicketPool manages the pool of tickets shared between Vendors and Customers.
+ * TicketPool manages the pool of tickets shared between Vendors and Customers of one event.
  * Implements thread-safe operations for adding and retrieving tickets.
+ * Storage and blocking are delegated to a TicketPoolEngine chosen at startup.
+ * Release and sale claims, and the tickets actually released and sold, are counted per pool by its
+ * InventoryAccounting, so pools of different events never share state on the sales path.
  */
 public class TicketPool {
-    private List<Ticket> tickets = Collections.synchronizedList(new ArrayList<>()); // Thread safe structure to store tickets
+    private final TicketPoolEngine engine; // Thread safe structure to store tickets
+
+    private final String eventId; //key of this pool in the event inventory
+    private final String eventName; //name printed on tickets released into this pool
+    private final long ticketPrice; //price of tickets released into this pool, in minor units
+    private final int totalTickets; //tickets the event has for sale, against which surge pricing is measured
+    private volatile PriceSchedule pricing; //dynamic prices of this pool's tickets, null to sell every ticket at ticketPrice
+
+    private volatile int maxTicketCapacity; // Maximum ticket capacity in the pool
+
+    private volatile int logSampleRate = 1; //log one in every logSampleRate added/sold tickets
+
+    private final InventoryAccounting accounting; //release and sale claims, released and sold counts of this pool
+
+    private volatile int purchaseLimit = 0; //most tickets one customer may buy from this pool, 0 for no limit
+    private final ConcurrentHashMap<String, AtomicInteger> purchasesByCustomer = new ConcurrentHashMap<>(); //only filled while a limit is set
 
-    private final int maxTicketCapacity; // Maximum ticket capacity in the pool
+    private final AtomicInteger ticketsHeld = new AtomicInteger(); //tickets out of the pool in reservations awaiting payment or on their way to a remote client
 
-    private int totalTickets; //maximum number of tickets to be sold by all vendors combined
+    private volatile TicketPoolListener[] listeners = new TicketPoolListener[0]; //copied on write, read without locking
 
-    private final ReentrantLock lock = new ReentrantLock();
+    private PoolMetrics metrics; //null until enableMetrics is called
 
-    private final Condition notEmpty = lock.newCondition(); //holds the customer threads until tickets are added to the pool
-    private final Condition notFull = lock.newCondition(); //holds the vendor threads until there is more space the pool
+    private volatile AdmissionControl admissionControl; //null to let every customer claim and wait
 
-    private static int ticketsSold = 0; //overall tickets sold
+    private int salesFeedBuffer = 1024; //sale events held per feed subscriber before the overflow policy applies
+    private FeedOverflow salesFeedOverflow = FeedOverflow.DROP; //what the feed does with events for a subscriber that fell behind
+    private SalesFeed salesFeed; //null until enableSalesFeed is called
 
-    private static int count = 0; //overall tickets added
+    private static final LongAdder ticketsSold = new LongAdder(); //tickets sold by every pool in the JVM
+
+    private static final LongAdder count = new LongAdder(); //tickets added by every pool in the JVM
+
+    private static final ThreadLocal<int[]> logSamples = ThreadLocal.withInitial(() -> new int[1]); //tickets since this thread's last sampled log line
 
     private static final Logger logger = LogManager.getLogger(TicketPool.class);
 
+    /**
+     * Timing wheel expiring the holds of every pool, started on first use. Ticks every 10 ms,
+     * so a hold expires at most one tick late and a revolution covers about five seconds.
+     */
+    private static final class HoldExpiry {
+        private static final HashedTimingWheel WHEEL = new HashedTimingWheel(10, TimeUnit.MILLISECONDS, 512, "HoldExpiry");
+    }
+
+    /**
+     * @return The tickets sold by every pool in the JVM; use getAccounting() for a single pool.
+     */
     public static int getTicketsSold() {
-        return ticketsSold;
+        return ticketsSold.intValue();
     }
 
     public int getMaxTicketCapacity() {
         return maxTicketCapacity;
     }
 
+    /**
+     * Resizes the pool while vendors and customers keep running. Growing wakes vendors waiting for space;
+     * shrinking keeps the tickets already in the pool and only holds back new ones until enough are sold.
+     *
+     * @param maxTicketCapacity The new maximum ticket capacity.
+     * @return true if the pool was resized, false if its engine cannot hold that many tickets without being rebuilt.
+     */
+    public boolean setMaxTicketCapacity(int maxTicketCapacity) {
+        if (maxTicketCapacity == this.maxTicketCapacity) {
+            return true;
+        }
+        if (!engine.resize(maxTicketCapacity)) {
+            logger.warn("Pool {} cannot be resized from {} to {} tickets while running.",
+                    eventId, box(this.maxTicketCapacity), box(maxTicketCapacity));
+            return false;
+        }
+        logger.info("Pool {} resized from {} to {} tickets.", eventId, box(this.maxTicketCapacity), box(maxTicketCapacity));
+        this.maxTicketCapacity = maxTicketCapacity;
+        return true;
+    }
+
     public int getTotalTickets() {
-        return totalTickets;
+        return accounting.getTotalTickets();
+    }
+
+    /**
+     * @return The number of this event's tickets claimed by customers so far, including restored sales.
+     */
+    public int getSalesClaimed() {
+        return accounting.getSalesClaimed();
+    }
+
+    /**
+     * @return The pool's accounting of claimed, released and sold tickets.
+     */
+    public InventoryAccounting getAccounting() {
+        return accounting;
+    }
+
+    public String getEventId() {
+        return eventId;
+    }
+
+    public String getEventName() {
+        return eventName;
+    }
+
+    /**
+     * @return The price of tickets released into this pool without pricing rules, in minor units (cents).
+     */
+    public long getTicketPrice() {
+        return ticketPrice;
+    }
+
+    /**
+     * Replaces the pool's pricing rules while vendors and customers keep running. Tickets are priced when
+     * they are released and priced again when they leave the pool for a sale or a hold, so a change
+     * applies to every ticket sold from then on.
+     *
+     * @param rules The new rules, or null to sell every ticket at the pool's ticket price.
+     * @throws IllegalArgumentException If a rule is invalid; the current rules stay in place.
+     */
+    public void setPricingRules(PricingRules rules) {
+        pricing = schedule(rules);
+    }
+
+    private PriceSchedule schedule(PricingRules rules) {
+        return rules != null ? new PriceSchedule(rules, ticketPrice, totalTickets, accounting::getTicketsSold) : null;
+    }
+
+    /**
+     * @return The pool's price schedule, or null if every ticket sells at the pool's ticket price.
+     */
+    public PriceSchedule getPriceSchedule() {
+        return pricing;
+    }
+
+    /**
+     * @param ticketId A ticket ID of this pool.
+     * @return The price the ticket would sell at now, in minor units.
+     */
+    public long getPrice(int ticketId) {
+        PriceSchedule schedule = pricing;
+        return schedule != null ? schedule.price(ticketId) : ticketPrice;
     }
 
     public TicketPool(int maxTicketCapacity, int totalTickets) {
-        this.maxTicketCapacity = maxTicketCapacity;
-        this.totalTickets = totalTickets;
+        this(maxTicketCapacity, totalTickets, PoolEngineType.LOCKING);
+    }
+
+    public TicketPool(int maxTicketCapacity, int totalTickets, PoolEngineType engineType) {
+        this(new EventConfiguration(EventConfiguration.DEFAULT_EVENT_ID, EventConfiguration.DEFAULT_EVENT_NAME,
+                maxTicketCapacity, totalTickets), engineType.create(maxTicketCapacity), 1);
+    }
+
+    /**
+     * Creates a single-event ticket pool using the capacity, total, engine and engine options from the configuration.
+     *
+     * @param config The simulation configuration.
+     */
+    public TicketPool(Configuration config) {
+        this(config, config.getEvents().get(0));
+    }
+
+    /**
+     * Creates the ticket pool of one event: capacity, total and price come from the event,
+     * the engine and its options from the configuration.
+     *
+     * @param config The simulation configuration.
+     * @param event  The event this pool sells tickets for.
+     */
+    @SuppressWarnings("this-escape") // the admission control only keeps the reference until a purchase is made
+    public TicketPool(Configuration config, EventConfiguration event) {
+        this(event, config.getPoolEngine().create(withCapacity(config, event.getMaxTicketCapacity())),
+                config.getLogSampleRate());
+        this.purchaseLimit = Math.max(0, config.getPurchaseLimit());
+        this.salesFeedBuffer = config.getSalesFeedBuffer();
+        this.salesFeedOverflow = config.getSalesFeedOverflow();
+        this.pricing = schedule(event.getPricing());
+        this.admissionControl = AdmissionControl.fromConfiguration(this, config);
     }
 
+    private TicketPool(EventConfiguration event, TicketPoolEngine engine, int logSampleRate) {
+        this.eventId = event.getEventId();
+        this.eventName = event.getEventName();
+        this.ticketPrice = event.getTicketPrice();
+        this.totalTickets = event.getTotalTickets();
+        this.maxTicketCapacity = event.getMaxTicketCapacity();
+        this.accounting = new InventoryAccounting(event.getTotalTickets());
+        this.engine = engine;
+        this.logSampleRate = Math.max(1, logSampleRate);
+    }
+
+    /**
+     * @return The configuration's engine options with the given pool capacity.
+     */
+    private static Configuration withCapacity(Configuration config, int capacity) {
+        if (config.getMaxTicketCapacity() == capacity) {
+            return config;
+        }
+        Configuration engineConfig = new Configuration(0, 0, capacity, 0);
+        engineConfig.setPoolShards(config.getPoolShards());
+        engineConfig.setFairLock(config.isFairLock());
+        engineConfig.setWaitStrategy(config.getWaitStrategy());
+        return engineConfig;
+    }
+
+    /**
+     * @return A copy of the tickets currently in the pool, oldest first.
+     */
     public List<Ticket> getTickets() {
-        return tickets;
+        return engine.snapshot();
+    }
+
+    /**
+     * Captures the IDs of the tickets in the pool at one instant, oldest first. The locking engines copy
+     * them in chunks, so however large the pool, sales pause only for one chunk copy at a time.
+     *
+     * @return The ticket IDs.
+     */
+    public int[] getTicketIds() {
+        return engine.snapshotIds();
     }
 
+    /**
+     * Replaces the contents of the pool. Tickets beyond the pool capacity are ignored.
+     *
+     * @param tickets The tickets to place in the pool.
+     */
     public void setTickets(List<Ticket> tickets) {
-        this.tickets = tickets;
+        engine.clear();
+        for (Ticket ticket : tickets) {
+            if (!engine.offer(ticket)) {
+                break;
+            }
+        }
     }
 
+    /**
+     * Changes the event's total. Lowering it never withdraws tickets customers have already claimed.
+     *
+     * @param totalTickets The new total.
+     */
     public void setTotalTickets(int totalTickets) {
-        this.totalTickets = totalTickets;
+        accounting.setTotalTickets(totalTickets);
     }
 
     public static void setTicketsSold(int ticketsSold) {
-        TicketPool.ticketsSold = ticketsSold;
+        TicketPool.ticketsSold.reset();
+        TicketPool.ticketsSold.add(ticketsSold);
     }
 
+    /**
+     * @return The tickets added by every pool in the JVM; use getAccounting() for a single pool.
+     */
     public static int getCount() {
-        return count;
+        return count.intValue();
     }
 
     public static void setCount(int count) {
-        TicketPool.count = count;
+        TicketPool.count.reset();
+        TicketPool.count.add(count);
+    }
+
+    public int getLogSampleRate() {
+        return logSampleRate;
+    }
+
+    /**
+     * Sets how many added or sold tickets are covered by one log line; 1 logs every ticket.
+     *
+     * @param logSampleRate Sampling rate, values below 1 are treated as 1.
+     */
+    public void setLogSampleRate(int logSampleRate) {
+        this.logSampleRate = Math.max(1, logSampleRate);
+    }
+
+    public int getPurchaseLimit() {
+        return purchaseLimit;
+    }
+
+    /**
+     * Sets how many tickets one customer may buy from this pool over the whole sale. Purchases are only
+     * counted per customer while a limit is set, so the pool keeps no per-customer state without one:
+     * a limit set mid-sale applies to purchases from then on and ignores what customers bought before.
+     *
+     * @param purchaseLimit The limit per customer ID, 0 or less for no limit.
+     */
+    public void setPurchaseLimit(int purchaseLimit) {
+        this.purchaseLimit = Math.max(0, purchaseLimit);
+    }
+
+    /**
+     * @param customerID The customer's ID.
+     * @return The number of tickets the customer has claimed while a purchase limit was set.
+     */
+    public int getTicketsClaimedBy(String customerID) {
+        AtomicInteger bought = purchasesByCustomer.get(customerID);
+        return bought != null ? bought.get() : 0;
+    }
+
+    /**
+     * @return The number of this pool's tickets currently held in unconfirmed reservations or in undelivered remote purchases.
+     */
+    public int getTicketsHeld() {
+        return ticketsHeld.get();
     }
 
     public int getTicketsSize() {
-        return tickets.size();
+        return engine.size();
     }
 
     /**
-     * Adds a new ticket to the pool. This method is synchronized using a ReentrantLock
-     * to ensure thread safety when multiple vendors try to add tickets concurrently.
+     * Registers a listener for the tickets released into and sold from this pool.
      *
-     * @param ticket The ticket object to be added to the pool.
-     * @throws InterruptedException If the thread is interrupted while waiting for space in the pool.
+     * @param listener The listener to add.
      */
-    public void addTickets(Ticket ticket) {
-        lock.lock();
+    public synchronized void addListener(TicketPoolListener listener) {
+        TicketPoolListener[] current = listeners;
+        TicketPoolListener[] updated = Arrays.copyOf(current, current.length + 1);
+        updated[current.length] = listener;
+        listeners = updated;
+    }
+
+    /**
+     * @param listener The listener to remove.
+     */
+    public synchronized void removeListener(TicketPoolListener listener) {
+        List<TicketPoolListener> remaining = new ArrayList<>(Arrays.asList(listeners));
+        remaining.remove(listener);
+        listeners = remaining.toArray(new TicketPoolListener[0]);
+    }
+
+    /**
+     * @return The admission control customers of this pool purchase through, or null if they claim and wait directly.
+     */
+    public AdmissionControl getAdmissionControl() {
+        return admissionControl;
+    }
+
+    /**
+     * Puts admission control in front of the pool. Customers that start a purchase afterwards go through it.
+     *
+     * @param admissionControl The admission control, or null to remove it.
+     */
+    public void setAdmissionControl(AdmissionControl admissionControl) {
+        this.admissionControl = admissionControl;
+    }
+
+    /**
+     * Starts recording lock waits, condition waits and per-runner sales for this pool.
+     * Until this is called the pool pays nothing for metrics.
+     *
+     * @return The pool's metrics; the same instance on every call.
+     */
+    public synchronized PoolMetrics enableMetrics() {
+        if (metrics == null) {
+            metrics = new PoolMetrics(eventId);
+            engine.setMetrics(metrics);
+            addListener(metrics);
+        }
+        return metrics;
+    }
+
+    /**
+     * @return The pool's metrics, or null if they were never enabled.
+     */
+    public synchronized PoolMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Starts publishing the tickets released into and sold from this pool as a Flow of SaleEvent batches,
+     * buffered per subscriber as set by the salesFeedBuffer and salesFeedOverflow options.
+     * Until this is called the pool pays nothing for the feed; while nobody subscribes it pays one volatile read per operation.
+     *
+     * @return The pool's sales feed; the same instance on every call.
+     */
+    public synchronized SalesFeed enableSalesFeed() {
+        if (salesFeed == null) {
+            salesFeed = new SalesFeed(eventId, salesFeedBuffer, salesFeedOverflow);
+            addListener(salesFeed);
+        }
+        return salesFeed;
+    }
+
+    /**
+     * @return The pool's sales feed, or null if it was never enabled.
+     */
+    public synchronized SalesFeed getSalesFeed() {
+        return salesFeed;
+    }
+
+    /**
+     * Restores the state recovered from a sales journal. Must be called before any vendor
+     * or customer uses the pool; listeners are not notified of the restored tickets.
+     * Tickets beyond the pool capacity are not dropped: they are put back as customers make space,
+     * like the tickets of an expired hold.
+     *
+     * @param unsold   The tickets that were released but not sold, in release order.
+     * @param released The number of ticket IDs already claimed by vendors.
+     * @param sold     The number of tickets already sold.
+     * @return The number of unsold tickets restored, including those waiting for space.
+     */
+    public int restore(List<Ticket> unsold, int released, int sold) {
+        accounting.restore(released, sold);
+        count.add(released);
+        ticketsSold.add(sold);
+        int restored = engine.offerAll(unsold, 0);
+        if (restored < unsold.size()) {
+            logger.warn("{} recovered tickets do not fit the pool capacity of {}; they are put back as space frees up.",
+                    box(unsold.size() - restored), box(maxTicketCapacity));
+            HoldExpiry.WHEEL.schedule(() -> returnTickets(unsold, restored), HoldExpiry.WHEEL.getTickNanos(), TimeUnit.NANOSECONDS);
+        }
+        return unsold.size();
+    }
+
+    /**
+     * Claims the next block of ticket IDs of this event and creates the tickets for release.
+     * The claim is a single CAS bounded by the total tickets, so vendors of the same event
+     * never release more than the total and vendors of other events are never involved.
+     *
+     * @param max The maximum number of tickets to create.
+     * @return The new tickets in ID order, or an empty list once every ticket has been released.
+     */
+    public List<Ticket> createTickets(int max) {
+        long block = accounting.claimReleases(max);
+        if (block == 0) {
+            return Collections.emptyList();
+        }
+        int released = InventoryAccounting.blockStart(block); //tickets claimed by all vendors of this pool before this block
+        int batch = InventoryAccounting.blockSize(block);
+
+        PriceSchedule schedule = pricing;
+        if (batch == 1) {
+            return Collections.singletonList(new Ticket(released + 1, eventName,
+                    schedule != null ? schedule.price(released + 1) : ticketPrice));
+        }
+        List<Ticket> tickets = new ArrayList<>(batch);
+        for (int i = 1; i <= batch; i++) {
+            tickets.add(new Ticket(released + i, eventName, ticketPrice));
+        }
+        if (schedule != null) {
+            schedule.price(tickets);
+        }
+        return tickets;
+    }
+
+    /**
+     * Creates tickets like createTickets(max) on behalf of a vendor, and tells the listeners which vendor
+     * created them before they enter the pool.
+     *
+     * @param vendorID The vendor releasing the tickets.
+     * @param max      The maximum number of tickets to create.
+     * @return The new tickets in ID order, or an empty list once every ticket has been released.
+     */
+    public List<Ticket> createTickets(String vendorID, int max) {
+        List<Ticket> tickets = createTickets(max);
+        if (!tickets.isEmpty()) {
+            for (TicketPoolListener listener : listeners) {
+                listener.ticketsCreated(this, vendorID, tickets);
+            }
+        }
+        return tickets;
+    }
+
+    /**
+     * Releases the next block of up to max tickets on behalf of a vendor: claims their IDs and adds them all,
+     * waiting for space as needed. Without listeners or pricing rules, which need the tickets themselves,
+     * the IDs go straight to the engine, so a PACKED pool stores them without a Ticket object per ticket.
+     *
+     * @param vendorID The vendor releasing the tickets.
+     * @param max      The maximum number of tickets to release.
+     * @return The number of tickets released, 0 once every ticket has been released.
+     * @throws RuntimeException If the thread is interrupted while waiting for space; the tickets added so far stay released.
+     */
+    public int releaseTickets(String vendorID, int max) {
+        if (listeners.length > 0 || pricing != null) {
+            List<Ticket> tickets = createTickets(vendorID, max);
+            if (tickets.size() == 1) {
+                addTickets(tickets.get(0));
+            } else {
+                int added = 0;
+                while (added < tickets.size()) { //the pool accepts as many tickets as it has space for
+                    added += addTickets(tickets.subList(added, tickets.size()));
+                }
+            }
+            return tickets.size();
+        }
+        long block = accounting.claimReleases(max);
+        if (block == 0) {
+            return 0;
+        }
+        int firstId = InventoryAccounting.blockStart(block) + 1;
+        int batch = InventoryAccounting.blockSize(block);
+        int added = 0;
         try {
-            while (tickets.size() >= maxTicketCapacity) {
-                logger.info("Ticket pool full. "+Thread.currentThread().getName()+" waiting for tickets to be sold...");
-                notFull.await(); // Wait until space is available
+            while (added < batch) {
+                added += engine.putRange(firstId + added, batch - added, eventName, ticketPrice);
             }
-            tickets.add(ticket);
-            logger.info("Ticket-"+ticket.getTicketId() + " added to ticket pool by "+Thread.currentThread().getName()+". Current pool has - " + tickets.size() + " tickets. Total tickets added by all vendors: " + (++count));
-            notEmpty.signalAll(); // Notify waiting customers
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
-            logger.error("Thread interrupted while adding tickets: " + e.getMessage());
+            logger.error("Thread interrupted while adding tickets: {}", e.getMessage());
             throw new RuntimeException("Thread interrupted while adding tickets: " + e.getMessage());
         } finally {
-            lock.unlock();
+            recordAdded(added);
+        }
+        return batch;
+    }
+
+    /**
+     * Claims up to max of this event's unsold tickets for one purchase, so customers stop
+     * once the event is sold out instead of waiting on an empty pool forever.
+     * Claims are striped across cores by the pool's InventoryAccounting and never exceed the total.
+     *
+     * @param max The number of tickets the customer wants.
+     * @return The number of tickets claimed, 0 once the event is sold out.
+     */
+    public int claimTickets(int max) {
+        return accounting.claimSales(max);
+    }
+
+    /**
+     * Claims up to max tickets for one purchase of the given customer, within both the event's
+     * remaining tickets and the customer's purchase limit. The customer's allowance is reserved
+     * first and whatever the event could not supply is given back, so concurrent purchases of the
+     * same customer never exceed the limit.
+     *
+     * @param customerID The customer making the purchase.
+     * @param max        The number of tickets the customer wants.
+     * @return The number of tickets claimed, 0 once the event is sold out or the customer reached the limit.
+     */
+    public int claimTickets(String customerID, int max) {
+        int limit = purchaseLimit;
+        if (limit <= 0) {
+            return claimTickets(max);
+        }
+        AtomicInteger bought = purchasesByCustomer.computeIfAbsent(customerID, id -> new AtomicInteger());
+        int before;
+        int allowed;
+        do {
+            before = bought.get();
+            allowed = Math.min(max, limit - before);
+            if (allowed <= 0) {
+                return 0;
+            }
+        } while (!bought.compareAndSet(before, before + allowed));
+        int claimed = claimTickets(allowed);
+        if (claimed < allowed) {
+            bought.addAndGet(claimed - allowed);
+        }
+        return claimed;
+    }
+
+    /**
+     * @param customerID The customer's ID.
+     * @return true if a purchase limit is set and the customer has claimed all of it.
+     */
+    public boolean reachedPurchaseLimit(String customerID) {
+        int limit = purchaseLimit;
+        return limit > 0 && getTicketsClaimedBy(customerID) >= limit;
+    }
+
+    /**
+     * Adds a new ticket to the pool. Waits while the pool is full; the engine
+     * ensures thread safety when multiple vendors try to add tickets concurrently.
+     *
+     * @param ticket The ticket object to be added to the pool.
+     * @throws RuntimeException If the thread is interrupted while waiting for space in the pool.
+     */
+    public void addTickets(Ticket ticket) {
+        try {
+            engine.put(ticket);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.error("Thread interrupted while adding tickets: {}", e.getMessage());
+            throw new RuntimeException("Thread interrupted while adding tickets: " + e.getMessage());
         }
+        recordAdded(ticket);
     }
 
     /**
-     * Removes and returns a ticket from the pool. This method is synchronized using a ReentrantLock
-     * to ensure thread safety when multiple customers try to remove tickets concurrently.
+     * Removes and returns a ticket from the pool. Waits while the pool is empty; the engine
+     * ensures thread safety when multiple customers try to remove tickets concurrently.
      *
      * @return The removed ticket object.
-     * @throws InterruptedException If the thread is interrupted while waiting for tickets to be added to the pool.
+     * @throws RuntimeException If the thread is interrupted while waiting for tickets to be added to the pool.
      */
     public Ticket removeTickets() {
-        lock.lock();
+        return removeTickets((String) null);
+    }
+
+    /**
+     * Removes and returns a ticket from the pool for a customer, waiting while the pool is empty.
+     * Listeners are told which customer the ticket was sold to.
+     *
+     * @param customerID The customer buying the ticket, or null if unknown.
+     * @return The removed ticket object.
+     * @throws RuntimeException If the thread is interrupted while waiting for tickets to be added to the pool.
+     */
+    public Ticket removeTickets(String customerID) {
+        Ticket ticket;
+        try {
+            ticket = engine.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.error("Thread interrupted while removing tickets: {}", e.getMessage());
+            throw new RuntimeException("Thread interrupted while removing tickets: " + e.getMessage());
+        }
+        recordSold(customerID, ticket);
+        return ticket;
+    }
+
+    /**
+     * Adds a ticket to the pool, waiting at most the given time for space.
+     *
+     * @param ticket  The ticket object to be added to the pool.
+     * @param timeout Maximum time to wait.
+     * @param unit    Unit of the timeout.
+     * @return true if the ticket was added, false if the pool stayed full until the timeout.
+     * @throws RuntimeException If the thread is interrupted while waiting for space in the pool.
+     */
+    public boolean tryAddTickets(Ticket ticket, long timeout, TimeUnit unit) {
+        boolean added;
         try {
-            while (tickets.isEmpty()) {
-                logger.info(Thread.currentThread().getName() + " waiting for more tickets...");
-                notEmpty.await(); // Wait for tickets to be added
+            added = engine.offer(ticket, timeout, unit);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.error("Thread interrupted while adding tickets: {}", e.getMessage());
+            throw new RuntimeException("Thread interrupted while adding tickets: " + e.getMessage());
+        }
+        if (added) {
+            recordAdded(ticket);
+        }
+        return added;
+    }
+
+    /**
+     * Removes a ticket from the pool, waiting at most the given time for one to be added.
+     *
+     * @param timeout Maximum time to wait.
+     * @param unit    Unit of the timeout.
+     * @return The removed ticket, or null if the pool stayed empty until the timeout.
+     * @throws RuntimeException If the thread is interrupted while waiting for tickets to be added to the pool.
+     */
+    public Ticket tryRemoveTickets(long timeout, TimeUnit unit) {
+        return tryRemoveTickets(null, timeout, unit);
+    }
+
+    /**
+     * Removes a ticket from the pool for a customer, waiting at most the given time for one to be added.
+     *
+     * @param customerID The customer buying the ticket, or null if unknown.
+     * @param timeout    Maximum time to wait.
+     * @param unit       Unit of the timeout.
+     * @return The removed ticket, or null if the pool stayed empty until the timeout.
+     * @throws RuntimeException If the thread is interrupted while waiting for tickets to be added to the pool.
+     */
+    public Ticket tryRemoveTickets(String customerID, long timeout, TimeUnit unit) {
+        Ticket ticket;
+        try {
+            ticket = engine.poll(timeout, unit);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.error("Thread interrupted while removing tickets: {}", e.getMessage());
+            throw new RuntimeException("Thread interrupted while removing tickets: " + e.getMessage());
+        }
+        if (ticket != null) {
+            recordSold(customerID, ticket);
+        }
+        return ticket;
+    }
+
+    /**
+     * Adds a block of tickets to the pool. Waits only until at least one ticket fits, then adds
+     * as many as the remaining capacity allows in a single engine operation.
+     *
+     * @param tickets The tickets to be added, in release order.
+     * @return The number of tickets added from the start of the list (at least one, unless the list is empty).
+     * @throws RuntimeException If the thread is interrupted while waiting for space in the pool.
+     */
+    public int addTickets(List<Ticket> tickets) {
+        if (tickets.isEmpty()) {
+            return 0;
+        }
+        int added;
+        try {
+            added = engine.putAll(tickets, 0);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.error("Thread interrupted while adding tickets: {}", e.getMessage());
+            throw new RuntimeException("Thread interrupted while adding tickets: " + e.getMessage());
+        }
+        recordAdded(tickets.subList(0, added));
+        return added;
+    }
+
+    /**
+     * Adds as many tickets from the start of the list as fit right now, without waiting.
+     *
+     * @param tickets The tickets to be added, in release order.
+     * @return The number of tickets added from the start of the list, possibly zero.
+     */
+    public int offerTickets(List<Ticket> tickets) {
+        int added = engine.offerAll(tickets, 0);
+        if (added > 0) {
+            recordAdded(tickets.subList(0, added));
+        }
+        return added;
+    }
+
+    /**
+     * Removes a group of tickets from the pool. Waits only until at least one ticket is available,
+     * then removes up to the requested number in a single engine operation.
+     *
+     * @param n The maximum number of tickets to remove.
+     * @return The removed tickets, oldest first (at least one, unless n is not positive).
+     * @throws RuntimeException If the thread is interrupted while waiting for tickets to be added to the pool.
+     */
+    public List<Ticket> removeTickets(int n) {
+        return removeTickets(null, n);
+    }
+
+    /**
+     * Removes a group of tickets from the pool for a customer, like removeTickets(n).
+     *
+     * @param customerID The customer buying the tickets, or null if unknown.
+     * @param n          The maximum number of tickets to remove.
+     * @return The removed tickets, oldest first (at least one, unless n is not positive).
+     * @throws RuntimeException If the thread is interrupted while waiting for tickets to be added to the pool.
+     */
+    public List<Ticket> removeTickets(String customerID, int n) {
+        List<Ticket> removed = new ArrayList<>(Math.max(0, Math.min(n, maxTicketCapacity)));
+        if (n <= 0) {
+            return removed;
+        }
+        try {
+            engine.takeAll(removed, n);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.error("Thread interrupted while removing tickets: {}", e.getMessage());
+            throw new RuntimeException("Thread interrupted while removing tickets: " + e.getMessage());
+        }
+        recordSold(customerID, removed);
+        return removed;
+    }
+
+    /**
+     * Removes up to max tickets that are available right now without waiting.
+     *
+     * @param sink Collection the removed tickets are added to, oldest first.
+     * @param max  The maximum number of tickets to remove.
+     * @return The number of tickets removed, possibly zero.
+     */
+    public int drainTo(Collection<? super Ticket> sink, int max) {
+        return drainTo(null, sink, max);
+    }
+
+    /**
+     * Removes up to max tickets that are available right now for a customer, without waiting.
+     *
+     * @param customerID The customer buying the tickets, or null if unknown.
+     * @param sink       Collection the removed tickets are added to, oldest first.
+     * @param max        The maximum number of tickets to remove.
+     * @return The number of tickets removed, possibly zero.
+     */
+    public int drainTo(String customerID, Collection<? super Ticket> sink, int max) {
+        if (listeners.length == 0 && pricing == null) {
+            int taken = engine.drainTo(sink, max);
+            if (taken > 0) {
+                recordSold(taken);
+            }
+            return taken;
+        }
+        List<Ticket> drained = new ArrayList<>(Math.max(0, Math.min(max, maxTicketCapacity))); //listeners and pricing need the sold tickets themselves
+        int taken = engine.drainTo(drained, max);
+        if (taken > 0) {
+            sink.addAll(drained);
+            recordSold(customerID, drained);
+        }
+        return taken;
+    }
+
+    /**
+     * Takes n tickets out of the pool and holds them for the customer until the reservation is confirmed,
+     * released or the hold time elapses. Waits like removeTickets until all n are held. The tickets must
+     * already be claimed, e.g. with claimTickets(customerID, n); if the hold ends without a sale, the claim
+     * (and the customer's purchase limit) is given back along with the tickets.
+     *
+     * @param customerID The customer holding the tickets, or null if no purchase limit applies.
+     * @param n          The number of tickets to hold.
+     * @param holdTime   How long the tickets stay held without confirmation.
+     * @param unit       Unit of the hold time.
+     * @return The reservation.
+     * @throws RuntimeException If the thread is interrupted while waiting; tickets already taken go back to the pool.
+     */
+    public Reservation hold(String customerID, int n, long holdTime, TimeUnit unit) {
+        List<Ticket> held = new ArrayList<>(Math.max(0, n));
+        try {
+            while (held.size() < n) {
+                engine.takeAll(held, n - held.size());
             }
-            Ticket ticket = tickets.remove(0);
-            ticketsSold++;
-            logger.info(Thread.currentThread().getName() + " purchased Ticket-" + ticket.getTicketId() + ". Total tickets sold: " + ticketsSold);
-            notFull.signalAll(); // Notify waiting vendors
-            return ticket;
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
-            logger.error("Thread interrupted while removing tickets: " + e.getMessage());
+            returnTickets(held, 0);
+            logger.error("Thread interrupted while holding tickets: {}", e.getMessage());
+            throw new RuntimeException("Thread interrupted while holding tickets: " + e.getMessage());
+        }
+        PriceSchedule schedule = pricing;
+        if (schedule != null) {
+            schedule.price(held); // the price is fixed when the tickets are held, not when the payment arrives
+        }
+        ticketsHeld.addAndGet(held.size());
+        Reservation reservation = new Reservation(this, customerID, held, System.currentTimeMillis() + unit.toMillis(holdTime));
+        reservation.setExpiry(HoldExpiry.WHEEL.schedule(reservation::expire, holdTime, unit));
+        logger.debug("Held {} tickets for {} in reservation {}", box(held.size()), customerID, box(reservation.getReservationId()));
+        return reservation;
+    }
+
+    /**
+     * Records the held tickets as sold. Called once per reservation, by Reservation.confirm.
+     */
+    void confirmHold(Reservation reservation) {
+        ticketsHeld.addAndGet(-reservation.getTickets().size());
+        notifySold(reservation.getCustomerID(), reservation.getTickets()); // the customer travels with the reservation, whichever thread confirms it
+    }
+
+    /**
+     * Gives back the claims of a released or expired reservation and returns its tickets to the pool.
+     * Called once per reservation, possibly on the timing wheel thread, so it never waits for space.
+     */
+    void returnHold(Reservation reservation) {
+        int n = reservation.getTickets().size();
+        returnClaims(reservation.getCustomerID(), n); // before the held count drops, so the pool never looks sold out with nothing held in between
+        ticketsHeld.addAndGet(-n);
+        returnTickets(reservation.getTickets(), 0);
+        logger.debug("Reservation {} ended as {}; {} tickets returned to the pool.",
+                box(reservation.getReservationId()), reservation.getState(), box(n));
+    }
+
+    /**
+     * Gives back sale claims a customer made but did not use, to the event and to the customer's purchase limit.
+     *
+     * @param customerID The customer that made the claims, or null if it is unknown.
+     * @param n          The number of claims to give back.
+     */
+    void returnClaims(String customerID, int n) {
+        accounting.returnSales(n);
+        AtomicInteger bought = customerID != null ? purchasesByCustomer.get(customerID) : null;
+        if (bought != null) {
+            bought.addAndGet(-n);
+        }
+    }
+
+    /**
+     * Removes up to max tickets that are available right now for a remote client, without selling them yet.
+     * Like held tickets they are priced when taken and counted as held until confirmDelivery or
+     * returnDelivery is called for them.
+     *
+     * @param sink List the removed tickets are added to, oldest first.
+     * @param max  The maximum number of tickets to remove.
+     * @return The number of tickets removed, possibly zero.
+     */
+    int drainForDelivery(List<Ticket> sink, int max) {
+        int from = sink.size();
+        int taken = engine.drainTo(sink, max);
+        if (taken > 0) {
+            startDelivery(sink.subList(from, sink.size()));
+        }
+        return taken;
+    }
+
+    /**
+     * Removes a ticket for a remote client like drainForDelivery, waiting at most the given time for one to be added.
+     *
+     * @return The removed ticket, or null if the pool stayed empty until the timeout.
+     * @throws RuntimeException If the thread is interrupted while waiting for tickets to be added to the pool.
+     */
+    Ticket pollForDelivery(long timeout, TimeUnit unit) {
+        Ticket ticket;
+        try {
+            ticket = engine.poll(timeout, unit);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.error("Thread interrupted while removing tickets: {}", e.getMessage());
             throw new RuntimeException("Thread interrupted while removing tickets: " + e.getMessage());
-        } finally {
-            lock.unlock();
         }
+        if (ticket != null) {
+            startDelivery(Collections.singletonList(ticket));
+        }
+        return ticket;
     }
 
+    private void startDelivery(List<Ticket> tickets) {
+        PriceSchedule schedule = pricing;
+        if (schedule != null) {
+            schedule.price(tickets); // the price the client is told is the price the sale is recorded at
+        }
+        ticketsHeld.addAndGet(tickets.size());
+    }
+
+    /**
+     * Records tickets taken with drainForDelivery or pollForDelivery as sold, once they were sent to the client.
+     */
+    void confirmDelivery(String customerID, List<Ticket> tickets) {
+        ticketsHeld.addAndGet(-tickets.size());
+        notifySold(customerID, tickets);
+    }
+
+    /**
+     * Puts tickets taken with drainForDelivery or pollForDelivery back in the pool because the client
+     * could not be sent them. Their claims are given back separately with returnClaims.
+     */
+    void returnDelivery(List<Ticket> tickets) {
+        ticketsHeld.addAndGet(-tickets.size());
+        returnTickets(tickets, 0);
+    }
+
+    /**
+     * Puts tickets that left the pool unsold back in it. Tickets that do not fit because vendors
+     * have filled the pool in the meantime are retried on the next tick of the hold wheel.
+     * The tickets were already released once, so listeners are not notified again.
+     */
+    private void returnTickets(List<Ticket> tickets, int from) {
+        int returned = from + engine.offerAll(tickets, from);
+        if (returned < tickets.size()) {
+            HoldExpiry.WHEEL.schedule(() -> returnTickets(tickets, returned), HoldExpiry.WHEEL.getTickNanos(), TimeUnit.NANOSECONDS);
+        }
+    }
+
+    // Listeners run first so a journal has recorded the change before it is counted or logged.
+    // Counters are LongAdders that are always updated; totals are only summed for a log line that is sampled.
+    // Thread names come from the %t layout pattern and numbers are boxed through log4j's reusable Unbox buffers.
+
+    private void recordAdded(Ticket ticket) {
+        for (TicketPoolListener listener : listeners) {
+            listener.ticketReleased(this, ticket);
+        }
+        accounting.recordReleased(1);
+        count.increment();
+        if (sampled(1)) {
+            logger.info("Ticket-{} added to ticket pool. Current pool has - {} tickets. Total tickets added by all vendors: {}",
+                    box(ticket.getTicketId()), box(engine.size()), box(accounting.getTicketsReleased()));
+        }
+    }
+
+    private void recordAdded(List<Ticket> tickets) {
+        for (TicketPoolListener listener : listeners) {
+            listener.ticketsReleased(this, tickets);
+        }
+        recordAdded(tickets.size());
+    }
 
+    private void recordAdded(int added) {
+        accounting.recordReleased(added);
+        count.add(added);
+        if (sampled(added)) {
+            logger.info("{} tickets added to ticket pool. Current pool has - {} tickets. Total tickets added by all vendors: {}",
+                    box(added), box(engine.size()), box(accounting.getTicketsReleased()));
+        }
+    }
+
+    // Sold tickets are priced before the listeners run, so journals and feeds see the price they sold at.
+
+    private void recordSold(String customerID, Ticket ticket) {
+        PriceSchedule schedule = pricing;
+        if (schedule != null) {
+            ticket.setPriceMinorUnits(schedule.price(ticket.getTicketId()));
+        }
+        for (TicketPoolListener listener : listeners) {
+            listener.ticketSold(this, customerID, ticket);
+        }
+        accounting.recordSold(1);
+        ticketsSold.increment();
+        if (sampled(1)) {
+            logger.info("Purchased Ticket-{}. Total tickets sold: {}", box(ticket.getTicketId()), box(accounting.getTicketsSold()));
+        }
+    }
+
+    private void recordSold(String customerID, List<Ticket> tickets) {
+        PriceSchedule schedule = pricing;
+        if (schedule != null) {
+            schedule.price(tickets);
+        }
+        notifySold(customerID, tickets);
+    }
+
+    private void notifySold(String customerID, List<Ticket> tickets) {
+        for (TicketPoolListener listener : listeners) {
+            listener.ticketsSold(this, customerID, tickets);
+        }
+        recordSold(tickets.size());
+    }
+
+    private void recordSold(int taken) {
+        accounting.recordSold(taken);
+        ticketsSold.add(taken);
+        if (sampled(taken)) {
+            logger.info("Purchased {} tickets. Total tickets sold: {}", box(taken), box(accounting.getTicketsSold()));
+        }
+    }
+
+    /**
+     * Samples per thread, so no shared counter is touched: each thread logs once per logSampleRate tickets it moved.
+     *
+     * @return true if the delta tickets complete the calling thread's current sample.
+     */
+    private boolean sampled(int delta) {
+        int rate = logSampleRate;
+        if (!logger.isInfoEnabled()) {
+            return false;
+        }
+        if (rate == 1) {
+            return true;
+        }
+        int[] since = logSamples.get();
+        int moved = since[0] + delta;
+        since[0] = moved % rate;
+        return moved >= rate;
+    }
 }
@@ -0,0 +1,208 @@
+package org.example;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Storage engine behind a TicketPool.
+ * An engine holds at most {@link #capacity()} tickets in FIFO order and blocks
+ * vendors while it is full and customers while it is empty.
+ */
+public interface TicketPoolEngine {
+
+    /**
+     * Adds a ticket, waiting for space if the engine is full.
+     *
+     * @param ticket The ticket to add.
+     * @throws InterruptedException If the thread is interrupted while waiting for space.
+     */
+    void put(Ticket ticket) throws InterruptedException;
+
+    /**
+     * Removes the oldest ticket, waiting for one to be added if the engine is empty.
+     *
+     * @return The removed ticket.
+     * @throws InterruptedException If the thread is interrupted while waiting for a ticket.
+     */
+    Ticket take() throws InterruptedException;
+
+    /**
+     * Adds a ticket only if there is space right now.
+     *
+     * @param ticket The ticket to add.
+     * @return true if the ticket was added.
+     */
+    boolean offer(Ticket ticket);
+
+    /**
+     * Removes the oldest ticket only if one is available right now.
+     *
+     * @return The removed ticket, or null if the engine is empty.
+     */
+    Ticket poll();
+
+    /**
+     * Adds a ticket, waiting up to the given time for space if the engine is full.
+     *
+     * @param ticket  The ticket to add.
+     * @param timeout Maximum time to wait.
+     * @param unit    Unit of the timeout.
+     * @return true if the ticket was added, false if the timeout elapsed first.
+     * @throws InterruptedException If the thread is interrupted while waiting for space.
+     */
+    boolean offer(Ticket ticket, long timeout, TimeUnit unit) throws InterruptedException;
+
+    /**
+     * Removes the oldest ticket, waiting up to the given time for one if the engine is empty.
+     *
+     * @param timeout Maximum time to wait.
+     * @param unit    Unit of the timeout.
+     * @return The removed ticket, or null if the timeout elapsed first.
+     * @throws InterruptedException If the thread is interrupted while waiting for a ticket.
+     */
+    Ticket poll(long timeout, TimeUnit unit) throws InterruptedException;
+
+    /**
+     * Adds tickets from the list starting at the given index, waiting only until at least one fits.
+     * As many of the remaining tickets as there is space for are added in one step.
+     *
+     * @param tickets The tickets to add.
+     * @param from    Index of the first ticket to add.
+     * @return The number of tickets added (at least one).
+     * @throws InterruptedException If the thread is interrupted while waiting for space.
+     */
+    default int putAll(List<Ticket> tickets, int from) throws InterruptedException {
+        put(tickets.get(from));
+        int added = 1;
+        while (from + added < tickets.size() && offer(tickets.get(from + added))) {
+            added++;
+        }
+        return added;
+    }
+
+    /**
+     * Adds tickets with the consecutive IDs firstId, firstId + 1, ..., waiting only until at least one fits,
+     * like putAll. Engines that store tickets as primitives add them without creating Ticket objects;
+     * the default creates the tickets and calls putAll.
+     *
+     * @param firstId   ID of the first ticket to add.
+     * @param n         Number of tickets to add.
+     * @param eventName Name of the event the tickets are for.
+     * @param price     Price of every ticket, in minor units (cents).
+     * @return The number of tickets added from firstId on (at least one).
+     * @throws InterruptedException If the thread is interrupted while waiting for space.
+     */
+    default int putRange(int firstId, int n, String eventName, long price) throws InterruptedException {
+        List<Ticket> tickets = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            tickets.add(new Ticket(firstId + i, eventName, price));
+        }
+        return putAll(tickets, 0);
+    }
+
+    /**
+     * Adds tickets from the list starting at the given index, as many as fit right now, without waiting.
+     *
+     * @param tickets The tickets to add.
+     * @param from    Index of the first ticket to add.
+     * @return The number of tickets added, possibly zero.
+     */
+    default int offerAll(List<Ticket> tickets, int from) {
+        int added = 0;
+        while (from + added < tickets.size() && offer(tickets.get(from + added))) {
+            added++;
+        }
+        return added;
+    }
+
+    /**
+     * Removes up to max of the oldest tickets, waiting only until at least one is available.
+     *
+     * @param sink Collection the removed tickets are added to, oldest first.
+     * @param max  Maximum number of tickets to remove.
+     * @return The number of tickets removed (at least one).
+     * @throws InterruptedException If the thread is interrupted while waiting for a ticket.
+     */
+    default int takeAll(Collection<? super Ticket> sink, int max) throws InterruptedException {
+        sink.add(take());
+        return 1 + drainTo(sink, max - 1);
+    }
+
+    /**
+     * Removes up to max of the oldest tickets that are available right now, without waiting.
+     *
+     * @param sink Collection the removed tickets are added to, oldest first.
+     * @param max  Maximum number of tickets to remove.
+     * @return The number of tickets removed, possibly zero.
+     */
+    default int drainTo(Collection<? super Ticket> sink, int max) {
+        int removed = 0;
+        Ticket ticket;
+        while (removed < max && (ticket = poll()) != null) {
+            sink.add(ticket);
+            removed++;
+        }
+        return removed;
+    }
+
+    /**
+     * @return The number of tickets currently held.
+     */
+    int size();
+
+    /**
+     * @return The maximum number of tickets the engine can hold.
+     */
+    int capacity();
+
+    /**
+     * Changes the capacity while the engine is in use. Growing wakes vendors waiting for space; shrinking
+     * below the current size keeps the tickets already held and only stops new ones until enough are sold.
+     *
+     * @param capacity The new maximum number of tickets.
+     * @return true if the capacity changed, false if the engine cannot hold that many tickets without being rebuilt.
+     */
+    default boolean resize(int capacity) {
+        return false;
+    }
+
+    /**
+     * @return A copy of the tickets currently held, oldest first.
+     */
+    List<Ticket> snapshot();
+
+    /**
+     * Captures the IDs of the tickets currently held, oldest first. Engines that can should keep the
+     * pause for sales short, e.g. by copying in chunks; the default copies snapshot().
+     *
+     * @return The ticket IDs.
+     */
+    default int[] snapshotIds() {
+        List<Ticket> tickets = snapshot();
+        int[] ids = new int[tickets.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = tickets.get(i).getTicketId();
+        }
+        return ids;
+    }
+
+    /**
+     * Starts recording lock and condition wait times into the given metrics.
+     * Engines without a lock or conditions to time ignore it. Call before the engine is shared.
+     *
+     * @param metrics The metrics to record into, or null to stop recording.
+     */
+    default void setMetrics(PoolMetrics metrics) {
+    }
+
+    /**
+     * Removes every ticket held by the engine.
+     */
+    default void clear() {
+        while (poll() != null) {
+            // discard
+        }
+    }
+}
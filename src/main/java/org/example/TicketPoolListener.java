@@ -0,0 +1,86 @@
+package org.example;
+
+import java.util.List;
+
+/**
+ * Receives the tickets released into and sold from a TicketPool.
+ * Listeners are called by the vendor or customer thread after the engine operation has completed
+ * and outside any engine lock, so a slow listener delays only the thread that triggered it.
+ */
+public interface TicketPoolListener {
+
+    /**
+     * Called when a vendor has created tickets with TicketPool.createTickets(vendorID, max),
+     * before any of them is added to the pool.
+     *
+     * @param pool     The pool the tickets were created for.
+     * @param vendorID The vendor releasing the tickets.
+     * @param tickets  The created tickets, in ID order.
+     */
+    default void ticketsCreated(TicketPool pool, String vendorID, List<Ticket> tickets) {
+    }
+
+    /**
+     * Called after a ticket has been added to the pool.
+     *
+     * @param pool   The pool the ticket was added to.
+     * @param ticket The added ticket.
+     */
+    void ticketReleased(TicketPool pool, Ticket ticket);
+
+    /**
+     * Called after a ticket has been removed from the pool by a customer.
+     *
+     * @param pool   The pool the ticket was removed from.
+     * @param ticket The sold ticket.
+     */
+    void ticketSold(TicketPool pool, Ticket ticket);
+
+    /**
+     * Called after a block of tickets has been added in one engine operation.
+     *
+     * @param pool    The pool the tickets were added to.
+     * @param tickets The added tickets, in release order.
+     */
+    default void ticketsReleased(TicketPool pool, List<Ticket> tickets) {
+        for (Ticket ticket : tickets) {
+            ticketReleased(pool, ticket);
+        }
+    }
+
+    /**
+     * Called after a group of tickets has been removed in one engine operation.
+     *
+     * @param pool    The pool the tickets were removed from.
+     * @param tickets The sold tickets, oldest first.
+     */
+    default void ticketsSold(TicketPool pool, List<Ticket> tickets) {
+        for (Ticket ticket : tickets) {
+            ticketSold(pool, ticket);
+        }
+    }
+
+    /**
+     * Called after a ticket has been removed from the pool for a known customer. Listeners that
+     * attribute sales to customers override this; by default it is a plain ticketSold.
+     *
+     * @param pool       The pool the ticket was removed from.
+     * @param customerID The customer the ticket was sold to, or null if the sale was made without one.
+     * @param ticket     The sold ticket.
+     */
+    default void ticketSold(TicketPool pool, String customerID, Ticket ticket) {
+        ticketSold(pool, ticket);
+    }
+
+    /**
+     * Called after a group of tickets has been removed in one engine operation for a known customer.
+     * Listeners that attribute sales to customers override this; by default it is a plain ticketsSold.
+     *
+     * @param pool       The pool the tickets were removed from.
+     * @param customerID The customer the tickets were sold to, or null if the sale was made without one.
+     * @param tickets    The sold tickets, oldest first.
+     */
+    default void ticketsSold(TicketPool pool, String customerID, List<Ticket> tickets) {
+        ticketsSold(pool, tickets);
+    }
+}
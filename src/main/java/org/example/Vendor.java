@@ -3,8 +3,7 @@ package org.example;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
-import java.math.BigDecimal;
-import java.util.concurrent.atomic.AtomicInteger;
+import static org.apache.logging.log4j.util.Unbox.box;
 
 /**
  * Vendor class represents a ticket vendor in the simulation.
@@ -13,7 +12,9 @@ import java.util.concurrent.atomic.AtomicInteger;
  */
 public class Vendor implements Runnable{
     private TicketPool ticketPool;
-    private int releaseRate;
+    private volatile int releaseRate;
+    private volatile Pacer pacer; //pauses between releases, derived from releaseRate unless given explicitly; replaced when the rate changes
+    private int releaseBatchSize; //number of tickets released into the pool per iteration
     private int ticketsAdded = 0;
     private String vendorID;
 
@@ -31,8 +32,27 @@ public class Vendor implements Runnable{
         return releaseRate;
     }
 
+    /**
+     * Changes the release rate, also while the vendor is running: a pause in progress ends at once
+     * and the next one uses the new rate.
+     *
+     * @param releaseRate The new interval between releases in seconds.
+     */
     public void setReleaseRate(int releaseRate) {
         this.releaseRate = releaseRate;
+        Pacer previous = pacer;
+        this.pacer = Pacer.fixedSeconds(releaseRate);
+        if (previous != null) {
+            previous.cancel();
+        }
+    }
+
+    public int getReleaseBatchSize() {
+        return releaseBatchSize;
+    }
+
+    public void setReleaseBatchSize(int releaseBatchSize) {
+        this.releaseBatchSize = releaseBatchSize;
     }
 
     public int getTicketsAdded() {
@@ -59,37 +79,64 @@ public class Vendor implements Runnable{
      * @param releaseRate The rate at which the vendor releases tickets (in milliseconds).
      */
     public Vendor(String vendorID, TicketPool ticketPool, int releaseRate){
-        this.vendorID = vendorID;
-        this.ticketPool = ticketPool;
+        this(vendorID, ticketPool, releaseRate, 1);
+    }
+
+    /**
+     * Creates a new vendor that releases tickets in blocks.
+     *
+     * @param vendorID         Unique identifier for the vendor.
+     * @param ticketPool       The shared ticket pool to which the vendor adds tickets.
+     * @param releaseRate      The rate at which the vendor releases tickets.
+     * @param releaseBatchSize The number of tickets released per iteration.
+     */
+    public Vendor(String vendorID, TicketPool ticketPool, int releaseRate, int releaseBatchSize){
+        this(vendorID, ticketPool, Pacer.fixedSeconds(releaseRate), releaseBatchSize);
         this.releaseRate = releaseRate;
     }
 
     /**
-     * Atomic integer to track the total number of tickets added across all vendors.
-     * ensures that the entire operation of reading, incrementing, and storing the new value
-     * happens as a single, indivisible unit of execution, prevents any other thread from
-     * interfering in the middle of the update process
+     * Creates a new vendor whose releases are paced by the given pacer, e.g. at microsecond intervals.
+     *
+     * @param vendorID         Unique identifier for the vendor.
+     * @param ticketPool       The shared ticket pool to which the vendor adds tickets.
+     * @param pacer            Pauses the vendor between releases.
+     * @param releaseBatchSize The number of tickets released per iteration.
      */
-    private static final AtomicInteger count = new AtomicInteger(0);
+    public Vendor(String vendorID, TicketPool ticketPool, Pacer pacer, int releaseBatchSize){
+        this.vendorID = vendorID;
+        this.ticketPool = ticketPool;
+        this.pacer = pacer;
+        this.releaseBatchSize = Math.max(1, releaseBatchSize);
+    }
 
     @Override
     public void run() {
-        while (true) {
-            int ticketID = count.incrementAndGet(); //increases number of tickets added by 1 each time a ticket is added
-            if (ticketID > ticketPool.getTotalTickets()) { //ensures that the total number of tickets does not exceed the total tickets set originally
-                logger.info(Thread.currentThread().getName()+" is stopping as all tickets are released.");
-                break; // Stop adding tickets if the total limit is reached
+        try {
+            release();
+        } catch (RuntimeException e) {
+            if (!Thread.currentThread().isInterrupted()) {
+                throw e;
             }
+            logger.info("Stopping as the simulation was interrupted.");
+        }
+    }
 
-            Ticket ticket = new Ticket(ticketID, "Simple Event", new BigDecimal("1000")); //creating a ticket
-            ticketPool.addTickets(ticket);
-            logger.info(Thread.currentThread().getName() + " released a ticket. Total released by this vendor: " + (++ticketsAdded) + ".");
+    private void release() {
+        while (true) {
+            int batch = ticketPool.releaseTickets(vendorID, releaseBatchSize); //claims the ticket IDs of this block and adds them all
+            if (batch == 0) { //ensures that the total number of tickets does not exceed the total tickets set originally
+                logger.info("Stopping as all tickets are released.");
+                return; // Stop adding tickets if the total limit is reached
+            }
+            ticketsAdded += batch;
+            logger.debug("Released {} ticket(s). Total released by this vendor: {}.", box(batch), box(ticketsAdded));
 
             try {
-                Thread.sleep(releaseRate * 1000); // Delays the thread
+                pacer.pause(); // Delays the thread
             } catch (InterruptedException e) {
                 Thread.currentThread().interrupt();
-                logger.error(Thread.currentThread().getName()+" thread interrupted: " + e.getMessage());
+                logger.error("Thread interrupted: {}", e.getMessage());
                 throw new RuntimeException(e);
             }
         }
@@ -0,0 +1,55 @@
+package org.example;
+
+import java.util.function.BooleanSupplier;
+
+/**
+ * How a vendor or customer waits while the pool is full or empty, in the style of the Disruptor's
+ * wait strategies. Spinning saves the park and unpark on a hand-off that comes within microseconds,
+ * at the cost of CPU time while waiting. The WAITING_ROOM engine always parks and ignores this setting.
+ */
+public enum WaitStrategy {
+    BLOCKING, // parks on the engine's condition at once: no CPU while waiting, a park and unpark per hand-off
+    SPIN_YIELD_PARK, // retries SPIN_TRIES times with a spin hint, then YIELD_TRIES times yielding the core, then parks
+    BUSY_SPIN; // never parks: the lowest hand-off latency, but every waiting thread keeps a core busy
+
+    static final int SPIN_TRIES = 100; // retries with Thread.onSpinWait before SPIN_YIELD_PARK starts yielding
+    static final int YIELD_TRIES = 100; // retries with Thread.yield before SPIN_YIELD_PARK parks
+
+    private static final int INTERRUPT_CHECK_MASK = 0xFF; // BUSY_SPIN checks for interrupts every 256 retries
+
+    /**
+     * Retries the attempt without parking for as long as this strategy allows. BLOCKING returns at once,
+     * SPIN_YIELD_PARK after its bounded spins and yields, BUSY_SPIN only once the attempt succeeds or the deadline passes.
+     *
+     * @param attempt  Returns true once the wait is over, e.g. when a non-blocking poll or offer succeeded.
+     * @param timed    Whether to give up at the deadline.
+     * @param deadline System.nanoTime() at which to give up, if timed.
+     * @return true if the attempt succeeded, false if the caller should park or the deadline passed.
+     * @throws InterruptedException If the thread is interrupted while busy-spinning.
+     */
+    boolean spin(BooleanSupplier attempt, boolean timed, long deadline) throws InterruptedException {
+        if (this == BLOCKING) {
+            return false;
+        }
+        for (int tries = 0; ; tries++) {
+            if (attempt.getAsBoolean()) {
+                return true;
+            }
+            if (timed && System.nanoTime() - deadline >= 0) {
+                return false;
+            }
+            if (this == BUSY_SPIN) {
+                if ((tries & INTERRUPT_CHECK_MASK) == INTERRUPT_CHECK_MASK && Thread.interrupted()) {
+                    throw new InterruptedException();
+                }
+                Thread.onSpinWait();
+            } else if (tries < SPIN_TRIES) {
+                Thread.onSpinWait();
+            } else if (tries < SPIN_TRIES + YIELD_TRIES) {
+                Thread.yield();
+            } else {
+                return false;
+            }
+        }
+    }
+}
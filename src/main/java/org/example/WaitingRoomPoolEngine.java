@@ -0,0 +1,419 @@
+package org.example;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Fair pool engine for flash sales. Blocked customers and vendors wait in FIFO waiting rooms instead of
+ * on shared conditions: a released ticket is handed straight to the customer at the head of the room,
+ * and a freed slot is filled straight from the vendor at the head of its room. Like takeAll and putAll
+ * of the other engines, a waiter only waits until it has at least one: the head waiter is woken with a
+ * single unpark once it has been handed a ticket (or a slot), but keeps its place at the front, taking
+ * whatever else arrives for the rest of its request, until it runs again and leaves the room. A release
+ * therefore never wakes customers that cannot have the ticket, and late arrivals cannot barge past waiters.
+ *
+ * Customers only wait while the pool is empty and vendors only while it is full, so the two rooms are
+ * never occupied at the same time. A waiter that times out or is interrupted after being partly served
+ * keeps the tickets it was handed. The lock is never held while parked.
+ */
+public class WaitingRoomPoolEngine implements TicketPoolEngine {
+    private volatile int capacity; // only changed while holding the lock
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final ArrayDeque<Ticket> tickets; // only accessed while holding the lock
+    private final ArrayDeque<Waiter> customers = new ArrayDeque<>(); // waiting for tickets, oldest first; only while the pool is empty
+    private final ArrayDeque<Waiter> vendors = new ArrayDeque<>(); // waiting for space, oldest first; only while the pool is full
+
+    private volatile PoolMetrics metrics; //null unless metrics are enabled for the pool
+
+    /**
+     * @param capacity Maximum number of tickets the engine can hold.
+     */
+    public WaitingRoomPoolEngine(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Pool capacity must be positive: " + capacity);
+        }
+        this.capacity = capacity;
+        this.tickets = new ArrayDeque<>(Math.min(capacity, 1024));
+    }
+
+    /**
+     * A customer waiting for tickets or a vendor waiting to hand tickets in.
+     * Fields other than ready and served are only written while holding the lock; the waiter reads them
+     * after seeing served, or after taking the lock itself to leave its room.
+     */
+    private static final class Waiter {
+        private final Thread thread = Thread.currentThread();
+        private final List<Ticket> tickets; // customer: tickets handed over so far; vendor: tickets to hand in
+        private final int wanted; // customer: tickets wanted; vendor: tickets.size()
+        private int moved; // vendor: tickets handed in so far
+        private volatile boolean ready; // handed at least one ticket or slot, or served
+        private volatile boolean served; // whole request served and taken out of the room
+
+        private Waiter(List<Ticket> tickets, int wanted) {
+            this.tickets = tickets;
+            this.wanted = wanted;
+        }
+    }
+
+    @Override
+    public void put(Ticket ticket) throws InterruptedException {
+        putAll(Collections.singletonList(ticket), 0);
+    }
+
+    @Override
+    public Ticket take() throws InterruptedException {
+        List<Ticket> taken = new ArrayList<>(1);
+        takeAll(taken, 1);
+        return taken.get(0);
+    }
+
+    @Override
+    public boolean offer(Ticket ticket) {
+        return offerAll(Collections.singletonList(ticket), 0) == 1;
+    }
+
+    @Override
+    public Ticket poll() {
+        acquire();
+        try {
+            Ticket ticket = tickets.pollFirst();
+            if (ticket != null) {
+                admitVendors();
+            }
+            return ticket;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean offer(Ticket ticket, long timeout, TimeUnit unit) throws InterruptedException {
+        return add(Collections.singletonList(ticket), 0, true, unit.toNanos(timeout)) == 1;
+    }
+
+    @Override
+    public Ticket poll(long timeout, TimeUnit unit) throws InterruptedException {
+        List<Ticket> taken = new ArrayList<>(1);
+        return remove(taken, 1, true, unit.toNanos(timeout)) == 1 ? taken.get(0) : null;
+    }
+
+    @Override
+    public int putAll(List<Ticket> batch, int from) throws InterruptedException {
+        return add(batch, from, false, 0);
+    }
+
+    @Override
+    public int offerAll(List<Ticket> batch, int from) {
+        acquire();
+        try {
+            return transfer(batch, from);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int takeAll(Collection<? super Ticket> sink, int max) throws InterruptedException {
+        return remove(sink, max, false, 0);
+    }
+
+    @Override
+    public int drainTo(Collection<? super Ticket> sink, int max) {
+        acquire();
+        try {
+            return removeUpTo(sink, max);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int size() {
+        lock.lock();
+        try {
+            return tickets.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int capacity() {
+        return capacity;
+    }
+
+    /**
+     * Growing moves the tickets of waiting vendors straight into the new slots.
+     */
+    @Override
+    public boolean resize(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Pool capacity must be positive: " + capacity);
+        }
+        lock.lock();
+        try {
+            this.capacity = capacity;
+            admitVendors();
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public List<Ticket> snapshot() {
+        lock.lock();
+        try {
+            return new ArrayList<>(tickets);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void clear() {
+        lock.lock();
+        try {
+            tickets.clear();
+            admitVendors();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void setMetrics(PoolMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Adds tickets from the batch, joining the vendor waiting room if none fit.
+     *
+     * @return The number of tickets added: at least one, or 0 if a timed wait elapsed first.
+     */
+    private int add(List<Ticket> batch, int from, boolean timed, long nanos) throws InterruptedException {
+        if (from >= batch.size()) {
+            return 0;
+        }
+        Waiter waiter;
+        acquireInterruptibly();
+        try {
+            int added = transfer(batch, from);
+            if (added > 0 || (timed && nanos <= 0)) {
+                return added;
+            }
+            List<Ticket> remaining = batch.subList(from, batch.size());
+            waiter = new Waiter(remaining, remaining.size());
+            vendors.addLast(waiter);
+        } finally {
+            lock.unlock();
+        }
+        long start = System.nanoTime();
+        boolean interrupted = await(waiter, vendors, timed, nanos);
+        recordNotFullWait(start);
+        if (interrupted && waiter.moved == 0) {
+            throw new InterruptedException("Interrupted while waiting for space");
+        }
+        return waiter.moved;
+    }
+
+    /**
+     * Removes up to max tickets, joining the customer waiting room if the pool is empty.
+     *
+     * @return The number of tickets removed: at least one, or 0 if a timed wait elapsed first.
+     */
+    private int remove(Collection<? super Ticket> sink, int max, boolean timed, long nanos) throws InterruptedException {
+        if (max <= 0) {
+            return 0;
+        }
+        Waiter waiter;
+        acquireInterruptibly();
+        try {
+            int removed = removeUpTo(sink, max);
+            if (removed > 0 || (timed && nanos <= 0)) {
+                return removed;
+            }
+            waiter = new Waiter(new ArrayList<>(Math.min(max, capacity)), max);
+            customers.addLast(waiter);
+        } finally {
+            lock.unlock();
+        }
+        long start = System.nanoTime();
+        boolean interrupted = await(waiter, customers, timed, nanos);
+        recordNotEmptyWait(start);
+        if (interrupted && waiter.tickets.isEmpty()) {
+            throw new InterruptedException("Interrupted while waiting for tickets");
+        }
+        sink.addAll(waiter.tickets);
+        return waiter.tickets.size();
+    }
+
+    /**
+     * Parks until the waiter has been handed at least one ticket or slot, the time elapses or the thread
+     * is interrupted. A waiter that is not fully served then leaves its room under the lock, keeping
+     * whatever it was handed up to then.
+     *
+     * @return true if the wait ended because of an interrupt; the interrupt status is set again
+     * if the waiter was partly served.
+     */
+    private boolean await(Waiter waiter, ArrayDeque<Waiter> room, boolean timed, long nanos) {
+        long deadline = System.nanoTime() + nanos;
+        boolean interrupted = false;
+        int wakeups = 0;
+        while (!waiter.ready) {
+            if (timed) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    break;
+                }
+                LockSupport.parkNanos(this, remaining);
+            } else {
+                LockSupport.park(this);
+            }
+            wakeups++;
+            if (Thread.interrupted()) {
+                interrupted = true;
+                break;
+            }
+        }
+        recordWakeups(room, wakeups);
+        if (!waiter.served) {
+            lock.lock();
+            try {
+                if (!waiter.served) {
+                    room.remove(waiter);
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+        if (interrupted && (waiter.moved > 0 || (room == customers && !waiter.tickets.isEmpty()))) {
+            Thread.currentThread().interrupt(); // partly served: hand back the tickets and keep the interrupt
+        }
+        return interrupted;
+    }
+
+    /**
+     * Hands tickets from the batch to waiting customers, oldest first, then stores as many of the rest as fit.
+     * A partly served head customer is woken but stays at the front for the rest of its request.
+     * Called holding the lock.
+     *
+     * @return The number of tickets taken from the batch.
+     */
+    private int transfer(List<Ticket> batch, int from) {
+        int i = from;
+        Waiter head;
+        while (i < batch.size() && (head = customers.peekFirst()) != null) {
+            int n = Math.min(head.wanted - head.tickets.size(), batch.size() - i);
+            head.tickets.addAll(batch.subList(i, i + n));
+            i += n;
+            if (head.tickets.size() == head.wanted) {
+                customers.pollFirst();
+                head.served = true;
+            }
+            wake(head);
+        }
+        if (vendors.isEmpty()) { // waiting vendors go first
+            while (i < batch.size() && tickets.size() < capacity) {
+                tickets.addLast(batch.get(i++));
+            }
+        }
+        return i - from;
+    }
+
+    /**
+     * Removes up to max of the oldest tickets into the sink and refills the freed slots from waiting vendors.
+     * Called holding the lock.
+     */
+    private int removeUpTo(Collection<? super Ticket> sink, int max) {
+        int removed = Math.min(max, tickets.size());
+        for (int i = 0; i < removed; i++) {
+            sink.add(tickets.pollFirst());
+        }
+        if (removed > 0) {
+            admitVendors();
+        }
+        return removed;
+    }
+
+    /**
+     * Moves tickets of waiting vendors into free slots, oldest vendor first. A partly served head vendor
+     * is woken but stays at the front for the rest of its batch. Called holding the lock.
+     */
+    private void admitVendors() {
+        Waiter head;
+        while (tickets.size() < capacity && (head = vendors.peekFirst()) != null) {
+            while (head.moved < head.wanted && tickets.size() < capacity) {
+                tickets.addLast(head.tickets.get(head.moved++));
+            }
+            if (head.moved == head.wanted) {
+                vendors.pollFirst();
+                head.served = true;
+            }
+            wake(head);
+        }
+    }
+
+    /**
+     * Unparks the waiter the first time it is handed something; later hand-offs only add to what it takes.
+     */
+    private static void wake(Waiter waiter) {
+        if (!waiter.ready) {
+            waiter.ready = true;
+            LockSupport.unpark(waiter.thread);
+        }
+    }
+
+    // Metrics helpers, mirroring AbstractLockingPoolEngine: lock waits are timed only with metrics enabled.
+
+    private void acquireInterruptibly() throws InterruptedException {
+        PoolMetrics m = metrics;
+        if (m == null) {
+            lock.lockInterruptibly();
+            return;
+        }
+        long start = System.nanoTime();
+        lock.lockInterruptibly();
+        m.recordLockWait(System.nanoTime() - start);
+    }
+
+    private void acquire() {
+        PoolMetrics m = metrics;
+        if (m == null) {
+            lock.lock();
+            return;
+        }
+        long start = System.nanoTime();
+        lock.lock();
+        m.recordLockWait(System.nanoTime() - start);
+    }
+
+    private void recordNotFullWait(long start) {
+        PoolMetrics m = metrics;
+        if (m != null) {
+            m.recordNotFullWait(System.nanoTime() - start);
+        }
+    }
+
+    private void recordNotEmptyWait(long start) {
+        PoolMetrics m = metrics;
+        if (m != null) {
+            m.recordNotEmptyWait(System.nanoTime() - start);
+        }
+    }
+
+    private void recordWakeups(ArrayDeque<Waiter> room, int wakeups) {
+        PoolMetrics m = metrics;
+        if (m != null && room == customers) {
+            m.recordCustomerWakeups(wakeups);
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package org.example;
+
+/**
+ * Headless load-test script: how many runners to start, how to pace them and how long to run,
+ * plus the pool configuration to run against. Read from a JSON file with Gson or built from
+ * command line arguments by HeadlessRunner.
+ */
+public class Workload {
+    private int vendors = 1; //vendors per event
+    private int customers = 1; //customers per event
+    private long vendorIntervalMicros = 0; //mean pause between releases of one vendor, 0 for none
+    private long customerIntervalMicros = 0; //mean pause between purchases of one customer, 0 for none
+    private ArrivalPattern arrivals = ArrivalPattern.FIXED; //how pauses are spread around their mean
+    private int burstSize = 10; //iterations per burst for BURSTY arrivals
+    private int durationSeconds = 0; //stop after this many seconds, 0 to run until every event is sold out
+    private long seed = 42; //seed of the random pauses, so runs are repeatable
+    private String reportFile; //path to write the report to as JSON, null to only print it
+    private Configuration configuration; //pool settings; rates in it are ignored in favour of the intervals above
+
+    public int getVendors() {
+        return Math.max(1, vendors);
+    }
+
+    public void setVendors(int vendors) {
+        this.vendors = vendors;
+    }
+
+    public int getCustomers() {
+        return Math.max(1, customers);
+    }
+
+    public void setCustomers(int customers) {
+        this.customers = customers;
+    }
+
+    public long getVendorIntervalMicros() {
+        return vendorIntervalMicros;
+    }
+
+    public void setVendorIntervalMicros(long vendorIntervalMicros) {
+        this.vendorIntervalMicros = vendorIntervalMicros;
+    }
+
+    public long getCustomerIntervalMicros() {
+        return customerIntervalMicros;
+    }
+
+    public void setCustomerIntervalMicros(long customerIntervalMicros) {
+        this.customerIntervalMicros = customerIntervalMicros;
+    }
+
+    /**
+     * @return The arrival pattern, FIXED when not given.
+     */
+    public ArrivalPattern getArrivals() {
+        return arrivals != null ? arrivals : ArrivalPattern.FIXED;
+    }
+
+    public void setArrivals(ArrivalPattern arrivals) {
+        this.arrivals = arrivals;
+    }
+
+    public int getBurstSize() {
+        return Math.max(1, burstSize);
+    }
+
+    public void setBurstSize(int burstSize) {
+        this.burstSize = burstSize;
+    }
+
+    public int getDurationSeconds() {
+        return durationSeconds;
+    }
+
+    public void setDurationSeconds(int durationSeconds) {
+        this.durationSeconds = durationSeconds;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    public String getReportFile() {
+        return reportFile;
+    }
+
+    public void setReportFile(String reportFile) {
+        this.reportFile = reportFile;
+    }
+
+    /**
+     * @return The pool configuration, 1000 tickets through a pool of 100 when not given.
+     */
+    public Configuration getConfiguration() {
+        if (configuration == null) {
+            configuration = new Configuration(0, 0, 100, 1000);
+        }
+        return configuration;
+    }
+
+    public void setConfiguration(Configuration configuration) {
+        this.configuration = configuration;
+    }
+
+    @Override
+    public String toString() {
+        return "Workload{" +
+                "vendors = " + getVendors() +
+                ", customers = " + getCustomers() +
+                ", vendorIntervalMicros = " + vendorIntervalMicros +
+                ", customerIntervalMicros = " + customerIntervalMicros +
+                ", arrivals = " + getArrivals() +
+                ", burstSize = " + getBurstSize() +
+                ", durationSeconds = " + durationSeconds +
+                ", seed = " + seed +
+                ", reportFile = " + reportFile +
+                ", configuration = " + getConfiguration() +
+                '}';
+    }
+}
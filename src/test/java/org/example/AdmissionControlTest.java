@@ -0,0 +1,111 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Purchases that end without all their tickets, by timing out or by being interrupted, give the claims of
+ * the missing tickets back, so the event's permits and the customer's purchase limit are conserved.
+ */
+class AdmissionControlTest {
+
+    @Test
+    void timedOutPurchaseKeepsWhatArrivedAndGivesTheRestBack() {
+        TicketPool pool = new TicketPool(10, 10);
+        pool.setPurchaseLimit(5);
+        pool.addTickets(pool.createTickets("V1", 2));
+        AdmissionControl admission = new AdmissionControl(pool, 0, 20, TimeUnit.MILLISECONDS, 0, 1);
+
+        List<Ticket> bought = new ArrayList<>();
+        assertEquals(AdmissionControl.Outcome.TIMED_OUT, admission.purchase("C1", 5, bought));
+
+        assertEquals(2, bought.size());
+        assertEquals(2, pool.getSalesClaimed());
+        assertEquals(2, pool.getTicketsClaimedBy("C1"));
+        assertEquals(0, admission.getWaiters());
+    }
+
+    @Test
+    void interruptedPurchaseGivesItsClaimsBack() throws InterruptedException {
+        TicketPool pool = new TicketPool(10, 10);
+        pool.setPurchaseLimit(5);
+        AdmissionControl admission = new AdmissionControl(pool, 0, 0, TimeUnit.MILLISECONDS, 0, 1);
+        AtomicReference<Throwable> thrown = new AtomicReference<>();
+
+        Thread customer = new Thread(() -> {
+            try {
+                admission.purchase("C1", 3, new ArrayList<>());
+            } catch (RuntimeException e) {
+                thrown.set(e);
+            }
+        });
+        customer.start();
+        while (pool.getSalesClaimed() < 3) {
+            Thread.onSpinWait();
+        }
+        customer.interrupt();
+        customer.join(TimeUnit.SECONDS.toMillis(10));
+
+        assertTrue(thrown.get() != null, "the interrupted purchase should fail");
+        assertEquals(0, pool.getSalesClaimed());
+        assertEquals(0, pool.getTicketsClaimedBy("C1"));
+        assertEquals(0, admission.getWaiters());
+    }
+
+    @Test
+    void flashCrowdSellsEveryTicketOnce() throws InterruptedException {
+        int total = 5_000;
+        TicketPool pool = new TicketPool(50, total);
+        AdmissionControl admission = new AdmissionControl(pool, 8, 5, TimeUnit.MILLISECONDS, 0, 1);
+        AtomicIntegerArray sales = new AtomicIntegerArray(total + 1);
+        List<Throwable> failures = new CopyOnWriteArrayList<>();
+
+        List<Thread> threads = new ArrayList<>();
+        threads.add(TicketPoolTest.start(failures, () -> {
+            List<Ticket> tickets;
+            while (!(tickets = pool.createTickets("V1", 5)).isEmpty()) {
+                int added = 0;
+                while (added < tickets.size()) {
+                    added += pool.addTickets(tickets.subList(added, tickets.size()));
+                }
+            }
+        }));
+        for (int c = 0; c < 32; c++) {
+            String customerID = "C" + c;
+            threads.add(TicketPoolTest.start(failures, () -> {
+                List<Ticket> bought = new ArrayList<>();
+                while (admission.purchase(customerID, 3, bought) != AdmissionControl.Outcome.SOLD_OUT) {
+                    for (Ticket ticket : bought) {
+                        sales.incrementAndGet(ticket.getTicketId());
+                    }
+                    bought.clear();
+                }
+            }));
+        }
+        TicketPoolTest.join(threads, failures);
+
+        TicketPoolTest.assertSoldOnce(sales, total);
+        assertEquals(total, admission.getTicketsBought());
+    }
+
+    @Test
+    void fullTokenBucketsArePruned() {
+        TicketPool pool = new TicketPool(10, 10);
+        AdmissionControl admission = new AdmissionControl(pool, 0, 0, TimeUnit.MILLISECONDS, 1e9, 1); // buckets refill within nanoseconds
+
+        for (int c = 0; c < 10_000; c++) {
+            admission.purchase("C" + c, 0, new ArrayList<>()); // takes a token, then claims nothing
+        }
+        assertTrue(admission.getBuckets() <= 2 * 1024, "buckets: " + admission.getBuckets());
+        assertEquals(0, pool.getSalesClaimed());
+    }
+}
@@ -0,0 +1,80 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Timeouts run once, never before their deadline, including those that wait several revolutions of a
+ * small wheel, and cancelled timeouts never run.
+ */
+class HashedTimingWheelTest {
+    private static final long TICK_MILLIS = 1;
+    private static final int WHEEL_SIZE = 4; // one revolution every 4 ms, so most delays below take several rounds
+
+    @Test
+    void timeoutsRunAfterTheirDeadlineAcrossRounds() throws InterruptedException {
+        int[] delays = {0, 1, 3, 4, 5, 9, 17, 33, 50, 64, 65};
+        AtomicLongArray ranAt = new AtomicLongArray(delays.length);
+        CountDownLatch done = new CountDownLatch(delays.length);
+        List<HashedTimingWheel.Timeout> timeouts = new ArrayList<>();
+        try (HashedTimingWheel wheel = new HashedTimingWheel(TICK_MILLIS, TimeUnit.MILLISECONDS, WHEEL_SIZE, "TestWheel")) {
+            long start = System.nanoTime();
+            for (int i = 0; i < delays.length; i++) {
+                int index = i;
+                timeouts.add(wheel.schedule(() -> {
+                    ranAt.compareAndSet(index, 0, System.nanoTime() - start);
+                    done.countDown();
+                }, delays[i], TimeUnit.MILLISECONDS));
+            }
+            assertTrue(done.await(10, TimeUnit.SECONDS), "timeouts did not all run");
+        }
+
+        for (int i = 0; i < delays.length; i++) {
+            long delay = TimeUnit.MILLISECONDS.toNanos(delays[i]);
+            long ran = ranAt.get(i);
+            assertTrue(ran >= delay, "a " + delays[i] + " ms timeout ran after " + ran + " ns");
+            assertTrue(timeouts.get(i).isExpired());
+            assertFalse(timeouts.get(i).cancel(), "an expired timeout was cancelled");
+        }
+    }
+
+    @Test
+    void cancelledTimeoutsNeverRun() throws InterruptedException {
+        AtomicBoolean cancelledRan = new AtomicBoolean();
+        CountDownLatch later = new CountDownLatch(1);
+        try (HashedTimingWheel wheel = new HashedTimingWheel(TICK_MILLIS, TimeUnit.MILLISECONDS, WHEEL_SIZE, "TestWheel")) {
+            HashedTimingWheel.Timeout near = wheel.schedule(() -> cancelledRan.set(true), 5, TimeUnit.MILLISECONDS);
+            HashedTimingWheel.Timeout far = wheel.schedule(() -> cancelledRan.set(true), 20, TimeUnit.MILLISECONDS);
+            wheel.schedule(later::countDown, 40, TimeUnit.MILLISECONDS);
+            assertTrue(near.cancel());
+            Thread.sleep(10); // let the wheel move the far timeout into its slot before it is cancelled
+            assertTrue(far.cancel());
+            assertFalse(far.cancel(), "a timeout was cancelled twice");
+
+            assertTrue(later.await(10, TimeUnit.SECONDS), "the later timeout did not run");
+            assertFalse(cancelledRan.get(), "a cancelled timeout ran");
+            assertTrue(near.isCancelled());
+            assertTrue(far.isCancelled());
+            assertFalse(far.isExpired());
+        }
+    }
+
+    @Test
+    void stoppedWheelRefusesNewTimeouts() {
+        HashedTimingWheel wheel = new HashedTimingWheel(TICK_MILLIS, TimeUnit.MILLISECONDS, WHEEL_SIZE, "TestWheel");
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(TICK_MILLIS), wheel.getTickNanos());
+        wheel.close();
+        assertThrows(IllegalStateException.class, () -> wheel.schedule(() -> { }, 1, TimeUnit.MILLISECONDS));
+    }
+}
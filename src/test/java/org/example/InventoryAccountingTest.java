@@ -0,0 +1,124 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Sale permits and release claims of one event: however many threads claim at once, exactly the total is
+ * handed out, each ticket ID is released once, and permits given back can be claimed again.
+ */
+class InventoryAccountingTest {
+    private static final int TOTAL = 100_000;
+    private static final int THREADS = 8;
+
+    @Test
+    void concurrentClaimsHandOutExactlyTheTotal() throws InterruptedException {
+        InventoryAccounting accounting = new InventoryAccounting(TOTAL, THREADS);
+        AtomicInteger claimed = new AtomicInteger();
+        AtomicInteger returned = new AtomicInteger();
+        List<Throwable> failures = new CopyOnWriteArrayList<>();
+
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            threads.add(TicketPoolTest.start(failures, () -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                int n;
+                while ((n = accounting.claimSales(1 + random.nextInt(5))) > 0) {
+                    if (random.nextInt(10) == 0) {
+                        int back = 1 + random.nextInt(n);
+                        accounting.returnSales(back); // e.g. a hold that expired
+                        returned.addAndGet(back);
+                    }
+                    claimed.addAndGet(n);
+                }
+            }));
+        }
+        TicketPoolTest.join(threads, failures);
+
+        assertEquals(TOTAL, claimed.get() - returned.get());
+        assertTrue(accounting.isSoldOut());
+        assertEquals(TOTAL, accounting.getSalesClaimed());
+        assertEquals(0, accounting.claimSales(1));
+    }
+
+    @Test
+    void everyTicketIdIsReleasedOnce() throws InterruptedException {
+        InventoryAccounting accounting = new InventoryAccounting(TOTAL, THREADS);
+        List<BitSet> released = new CopyOnWriteArrayList<>();
+        List<Throwable> failures = new CopyOnWriteArrayList<>();
+
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            threads.add(TicketPoolTest.start(failures, () -> {
+                BitSet ids = new BitSet(TOTAL + 1);
+                long block;
+                while ((block = accounting.claimReleases(1 + ThreadLocalRandom.current().nextInt(16))) != 0) {
+                    int start = InventoryAccounting.blockStart(block);
+                    ids.set(start + 1, start + 1 + InventoryAccounting.blockSize(block));
+                }
+                released.add(ids);
+            }));
+        }
+        TicketPoolTest.join(threads, failures);
+
+        BitSet all = new BitSet(TOTAL + 1);
+        int count = 0;
+        for (BitSet ids : released) {
+            assertFalse(all.intersects(ids), "a ticket ID was released twice");
+            all.or(ids);
+            count += ids.cardinality();
+        }
+        assertEquals(TOTAL, count);
+        assertEquals(TOTAL, all.nextClearBit(1) - 1);
+        assertEquals(TOTAL, accounting.getReleasesClaimed());
+    }
+
+    @Test
+    void restoreLeavesOnePermitPerTicketNotSold() {
+        InventoryAccounting accounting = new InventoryAccounting(1_000, THREADS);
+        accounting.claimSales(10);
+        accounting.restore(600, 450);
+
+        assertEquals(550, accounting.getSalesRemaining());
+        assertEquals(600, accounting.getReleasesClaimed());
+        assertEquals(400, InventoryAccounting.blockSize(accounting.claimReleases(1_000)));
+        int claimed = 0;
+        int n;
+        while ((n = accounting.claimSales(7)) > 0) {
+            claimed += n;
+        }
+        assertEquals(550, claimed);
+    }
+
+    @Test
+    void stripesAreRoundedUpToAPowerOfTwo() {
+        assertEquals(1, new InventoryAccounting(TOTAL, 0).getStripes());
+        assertEquals(1, new InventoryAccounting(TOTAL, 1).getStripes());
+        assertEquals(2, new InventoryAccounting(TOTAL, 2).getStripes());
+        assertEquals(4, new InventoryAccounting(TOTAL, 3).getStripes());
+        assertEquals(8, new InventoryAccounting(TOTAL, 8).getStripes());
+        assertEquals(1, new InventoryAccounting(100, 8).getStripes()); // too few tickets to spread
+    }
+
+    @Test
+    void loweringTheTotalNeverTakesBackClaimedPermits() {
+        InventoryAccounting accounting = new InventoryAccounting(100, THREADS);
+        assertEquals(80, accounting.claimSales(80));
+        accounting.setTotalTickets(50);
+
+        assertEquals(80, accounting.getTotalTickets());
+        assertTrue(accounting.isSoldOut());
+        accounting.setTotalTickets(90);
+        assertEquals(10, accounting.claimSales(20));
+    }
+}
@@ -0,0 +1,159 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Snapshot round trips: the restored pool holds exactly the captured tickets, and has one sale permit for
+ * each of them and for each ticket not released yet, so nothing is sold twice and no customer is stranded.
+ */
+class InventorySnapshotTest {
+    private static final int TOTAL = 1_000;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void roundTripKeepsTheTicketsAndCounts() throws IOException {
+        Configuration config = new Configuration(0, 0, 100, TOTAL);
+        EventInventory inventory = EventInventory.fromConfiguration(config);
+        TicketPool pool = inventory.getPool(inventory.getEventIds().get(0));
+        pool.addTickets(pool.createTickets("V1", 40));
+        pool.claimTickets("C1", 10);
+        pool.removeTickets("C1", 10);
+        pool.claimTickets("C2", 5);
+        pool.hold("C2", 5, 1, TimeUnit.MINUTES);
+        int[] captured = pool.getTicketIds();
+
+        Path file = dir.resolve("inventory.snap");
+        InventorySnapshot.write(file, config, inventory);
+        InventorySnapshot snapshot = InventorySnapshot.load(file);
+
+        assertArrayEquals(captured, snapshot.getTicketIds(0));
+        assertEquals(40, snapshot.getTicketsReleased(0));
+        assertEquals(5, snapshot.getTicketsHeld(0));
+        assertEquals(10, snapshot.getTicketsSold(0));
+
+        EventInventory restored = snapshot.restore();
+        TicketPool restoredPool = restored.getPool(restored.getEventIds().get(0));
+        assertArrayEquals(captured, restoredPool.getTicketIds());
+
+        AtomicIntegerArray sales = sellOut(restoredPool);
+        for (int id = 1; id <= TOTAL; id++) {
+            boolean sellable = id > 40 || contains(captured, id);
+            assertEquals(sellable ? 1 : 0, sales.get(id), "sales of ticket " + id);
+        }
+    }
+
+    @ParameterizedTest
+    @EnumSource(PoolEngineType.class)
+    void snapshotTakenWhileSellingNeverSellsATicketTwice(PoolEngineType engine) throws Exception {
+        Configuration config = new Configuration(0, 0, 64, 20_000);
+        config.setPoolEngine(engine);
+        EventInventory inventory = EventInventory.fromConfiguration(config);
+        TicketPool pool = inventory.getPool(inventory.getEventIds().get(0));
+        AtomicIntegerArray soldBefore = new AtomicIntegerArray(20_001);
+        AtomicInteger sold = new AtomicInteger();
+        List<Throwable> failures = new CopyOnWriteArrayList<>();
+
+        List<Thread> threads = new ArrayList<>();
+        threads.add(TicketPoolTest.start(failures, () -> {
+            List<Ticket> tickets;
+            while (!(tickets = pool.createTickets("V1", 4)).isEmpty()) {
+                int added = 0;
+                while (added < tickets.size()) {
+                    added += pool.addTickets(tickets.subList(added, tickets.size()));
+                }
+            }
+        }));
+        for (int c = 0; c < 3; c++) {
+            String customerID = "C" + c;
+            threads.add(TicketPoolTest.start(failures, () -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                int group;
+                while ((group = pool.claimTickets(customerID, 1 + random.nextInt(3))) > 0) {
+                    if (random.nextInt(8) == 0) {
+                        Reservation reservation = pool.hold(customerID, group, 1, TimeUnit.MILLISECONDS);
+                        if (random.nextBoolean()) {
+                            reservation.release();
+                        } // else left to expire and go back to the pool
+                        continue;
+                    }
+                    int bought = 0;
+                    while (bought < group) {
+                        for (Ticket ticket : pool.removeTickets(customerID, group - bought)) {
+                            soldBefore.set(ticket.getTicketId(), 1);
+                            bought++;
+                        }
+                    }
+                    sold.addAndGet(bought);
+                }
+            }));
+        }
+
+        while (sold.get() < 5_000 && threads.get(0).isAlive()) {
+            Thread.onSpinWait();
+        }
+        int[] soldAtCapture = new int[20_001];
+        for (int id = 1; id <= 20_000; id++) {
+            soldAtCapture[id] = soldBefore.get(id);
+        }
+        Path file = dir.resolve("live-" + engine + ".snap");
+        InventorySnapshot.write(file, config, inventory);
+        TicketPoolTest.join(threads, failures);
+
+        InventorySnapshot snapshot = InventorySnapshot.load(file);
+        int released = snapshot.getTicketsReleased(0);
+        for (int id : snapshot.getTicketIds(0)) {
+            assertTrue(id >= 1 && id <= released, "captured ticket " + id + " of " + released + " released");
+            assertEquals(0, soldAtCapture[id], "ticket " + id + " was sold before the capture");
+        }
+        EventInventory restored = snapshot.restore();
+        AtomicIntegerArray sales = sellOut(restored.getPool(restored.getEventIds().get(0))); // fails on a stranded customer
+        for (int id = 1; id <= 20_000; id++) {
+            assertTrue(sales.get(id) <= 1, "ticket " + id + " sold twice");
+        }
+    }
+
+    /**
+     * Sells every permit of a pool, releasing the next tickets whenever the pool is empty. Waits at most a
+     * few seconds for each ticket, so a permit without a ticket fails the test instead of hanging it.
+     */
+    private static AtomicIntegerArray sellOut(TicketPool pool) {
+        AtomicIntegerArray sales = new AtomicIntegerArray(pool.getTotalTickets() + 1);
+        while (pool.claimTickets(1) == 1) {
+            if (pool.getTicketsSize() == 0) {
+                pool.addTickets(pool.createTickets("V1", 16));
+            }
+            Ticket ticket = pool.tryRemoveTickets(5, TimeUnit.SECONDS);
+            assertTrue(ticket != null, "a sale permit has no ticket to sell");
+            sales.incrementAndGet(ticket.getTicketId());
+        }
+        return sales;
+    }
+
+    private static boolean contains(int[] ids, int id) {
+        for (int candidate : ids) {
+            if (candidate == id) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
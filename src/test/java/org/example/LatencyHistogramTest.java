@@ -0,0 +1,103 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Bucket boundaries and percentiles of the log-linear histogram, recorded from one thread and from many
+ * threads contending on the same buckets.
+ */
+class LatencyHistogramTest {
+
+    @Test
+    void everyValueFallsInTheBucketThatBracketsIt() {
+        List<Long> values = new ArrayList<>();
+        for (long v = 0; v < 4_096; v++) {
+            values.add(v);
+        }
+        for (int bit = 7; bit < 63; bit++) {
+            values.add((1L << bit) - 1);
+            values.add(1L << bit);
+            values.add((1L << bit) + 1);
+        }
+        SplittableRandom random = new SplittableRandom(7);
+        for (int i = 0; i < 10_000; i++) {
+            values.add(random.nextLong(Long.MAX_VALUE) >>> random.nextInt(63));
+        }
+        values.add(Long.MAX_VALUE);
+
+        for (long value : values) {
+            int index = LatencyHistogram.index(value);
+            long highest = LatencyHistogram.highestValue(index);
+            assertTrue(highest >= value, () -> value + " above its bucket's highest value " + highest);
+            assertTrue(index == 0 || LatencyHistogram.highestValue(index - 1) < value, () -> value + " fits the bucket below");
+            assertTrue(highest - value <= value / 64, () -> value + " reported as " + highest);
+        }
+        assertEquals(Long.MAX_VALUE, LatencyHistogram.highestValue(LatencyHistogram.index(Long.MAX_VALUE)));
+    }
+
+    @Test
+    void percentilesAreWithinTheBucketError() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long v = 1; v <= 100_000; v++) {
+            histogram.record(v);
+        }
+        histogram.record(-5); // recorded as 0
+
+        assertEquals(100_001, histogram.getCount());
+        assertEquals(0, histogram.getValueAtPercentile(0));
+        assertEquals(100_000, histogram.getValueAtPercentile(100));
+        assertEquals(100_000, histogram.getMax());
+        assertNear(50_000, histogram.getValueAtPercentile(50));
+        assertNear(99_000, histogram.getValueAtPercentile(99));
+
+        long[] values = histogram.getValuesAtPercentiles(99.9, 50, 90);
+        assertArrayEquals(new long[]{histogram.getValueAtPercentile(99.9), histogram.getValueAtPercentile(50),
+                histogram.getValueAtPercentile(90)}, values);
+
+        histogram.reset();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getValueAtPercentile(99));
+    }
+
+    @Test
+    void contendedRecordingLosesNothing() throws InterruptedException {
+        LatencyHistogram histogram = new LatencyHistogram();
+        int threads = 8;
+        int perThread = 200_000;
+        List<Throwable> failures = new CopyOnWriteArrayList<>();
+        List<Thread> recorders = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            recorders.add(TicketPoolTest.start(failures, () -> {
+                for (int i = 0; i < perThread; i++) {
+                    histogram.record(i % 4 == 3 ? 1_000_000 : 100); // three quarters on one hot bucket
+                }
+            }));
+        }
+        TicketPoolTest.join(recorders, failures);
+
+        assertEquals((long) threads * perThread, histogram.getCount());
+        assertEquals(100, histogram.getValueAtPercentile(75));
+        assertNear(1_000_000, histogram.getValueAtPercentile(75.01));
+        long[] values = histogram.getValuesAtPercentiles(50, 100);
+        assertEquals(100, values[0]);
+        assertEquals(1_000_000, values[1]);
+
+        histogram.reset();
+        histogram.record(100);
+        assertEquals(1, histogram.getCount());
+        assertEquals(100, histogram.getValueAtPercentile(100));
+    }
+
+    private static void assertNear(long expected, long actual) {
+        assertTrue(Math.abs(actual - expected) <= expected / 64 + 1, () -> "expected about " + expected + " but was " + actual);
+    }
+}
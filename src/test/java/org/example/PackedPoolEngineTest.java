@@ -0,0 +1,69 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Tickets released as ID ranges come out of the packed engine in order with their event and price, and
+ * a range that does not fit is added only as far as there is space.
+ */
+class PackedPoolEngineTest {
+
+    @Test
+    void rangesFillUpToTheCapacityAndComeOutInOrder() throws InterruptedException {
+        PackedPoolEngine engine = new PackedPoolEngine(10);
+        assertEquals(6, engine.putRange(1, 6, "Gig", 4_500));
+        assertEquals(4, engine.putRange(7, 8, "Gig", 4_500));
+        assertEquals(0, engine.offerAll(List.of(new Ticket(11, "Gig", 4_500)), 0));
+
+        List<Ticket> sold = new ArrayList<>();
+        assertEquals(10, engine.drainTo(sold, 20));
+        for (int i = 0; i < 10; i++) {
+            assertEquals(i + 1, sold.get(i).getTicketId());
+        }
+    }
+
+    @Test
+    void rangesAndObjectsShareOneQueue() throws InterruptedException {
+        PackedPoolEngine engine = new PackedPoolEngine(10);
+        engine.putRange(1, 3, "Gig", 4_500);
+        engine.put(new Ticket(42, "Other", 100));
+        engine.putRange(4, 2, "Gig", 5_000);
+
+        List<Ticket> sold = new ArrayList<>();
+        assertEquals(6, engine.drainTo(sold, 10));
+        int[] ids = {1, 2, 3, 42, 4, 5};
+        for (int i = 0; i < ids.length; i++) {
+            assertEquals(ids[i], sold.get(i).getTicketId());
+        }
+        assertEquals("Other", sold.get(3).getEventName());
+        assertEquals(100, sold.get(3).getPriceMinorUnits());
+        assertEquals("Gig", sold.get(4).getEventName());
+        assertEquals(5_000, sold.get(4).getPriceMinorUnits());
+    }
+
+    @Test
+    void releasedTicketsAreEachSoldOnce() {
+        TicketPool pool = new TicketPool(16, 1_000, PoolEngineType.PACKED);
+        int released = 0;
+        int batch;
+        List<Ticket> sold = new ArrayList<>();
+        while ((batch = pool.releaseTickets("V1", 7)) > 0) {
+            released += batch;
+            pool.drainTo(sold, 16);
+        }
+        pool.drainTo(sold, 16);
+
+        assertEquals(1_000, released);
+        assertEquals(1_000, sold.size());
+        for (int i = 0; i < sold.size(); i++) {
+            assertEquals(i + 1, sold.get(i).getTicketId());
+            assertEquals(pool.getTicketPrice(), sold.get(i).getPriceMinorUnits());
+        }
+        assertEquals(1_000, pool.getAccounting().getTicketsReleased());
+    }
+}
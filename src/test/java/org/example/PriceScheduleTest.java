@@ -0,0 +1,122 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Section prices by ticket ID, surge tiers by share of the event sold and time windows by the clock,
+ * alone and combined, and the rebuilding of price tables only when the tier or window changes.
+ */
+class PriceScheduleTest {
+    private static final int TOTAL = 100;
+    private static final long FLOOR = 1_000;
+    private static final long BALCONY = 500;
+
+    private static final List<PricingRules.Section> SECTIONS = List.of(
+            new PricingRules.Section("Floor", 10, FLOOR), new PricingRules.Section("Balcony", 20, BALCONY));
+
+    @Test
+    void sectionsPriceTicketIdsInOrder() {
+        PriceSchedule schedule = new PriceSchedule(new PricingRules(SECTIONS, null, null), 42, TOTAL, () -> 0);
+
+        assertEquals(FLOOR, schedule.price(1));
+        assertEquals(FLOOR, schedule.price(10));
+        assertEquals(BALCONY, schedule.price(11));
+        assertEquals(BALCONY, schedule.price(30));
+        assertEquals(BALCONY, schedule.price(31)); // beyond the last section: priced as the last section
+        assertEquals("Floor", schedule.getSectionName(10));
+        assertEquals("Balcony", schedule.getSectionName(11));
+
+        List<Ticket> tickets = new ArrayList<>();
+        tickets.add(new Ticket(5, "Gig", 0));
+        tickets.add(new Ticket(15, "Gig", 0));
+        schedule.price(tickets);
+        assertEquals(FLOOR, tickets.get(0).getPriceMinorUnits());
+        assertEquals(BALCONY, tickets.get(1).getPriceMinorUnits());
+
+        PriceSchedule flat = new PriceSchedule(new PricingRules(null, null, null), 42, TOTAL, () -> 0);
+        assertEquals(42, flat.price(1));
+        assertEquals(42, flat.price(TOTAL));
+        assertNull(flat.getSectionName(1));
+    }
+
+    @Test
+    void surgeTiersApplyOnceTheirShareIsSold() {
+        AtomicLong sold = new AtomicLong();
+        List<PricingRules.SurgeTier> surge = List.of(new PricingRules.SurgeTier(90, 30), new PricingRules.SurgeTier(50, 10)); // sorted by the schedule
+        PriceSchedule schedule = new PriceSchedule(new PricingRules(SECTIONS, surge, null), 0, TOTAL, sold::get);
+        assertEquals(1, schedule.getTablesBuilt());
+
+        assertEquals(FLOOR, schedule.price(1));
+        sold.set(49);
+        assertEquals(FLOOR, schedule.price(1));
+        assertEquals(0, schedule.getDemandBucket());
+        assertEquals(1, schedule.getTablesBuilt()); // same tier: the table is reused
+
+        sold.set(50);
+        assertEquals(1_100, schedule.price(1));
+        assertEquals(550, schedule.price(11));
+        assertEquals(1, schedule.getDemandBucket());
+        assertEquals(2, schedule.getTablesBuilt());
+
+        sold.set(90);
+        assertEquals(1_300, schedule.price(1));
+        assertEquals(650, schedule.price(11));
+        assertEquals(2, schedule.getDemandBucket());
+        assertEquals(3, schedule.getTablesBuilt());
+    }
+
+    @Test
+    void timeWindowsApplyBetweenStartAndEnd() {
+        Instant now = Instant.now();
+        String hourAgo = now.minus(1, ChronoUnit.HOURS).toString();
+        String inAnHour = now.plus(1, ChronoUnit.HOURS).toString();
+
+        assertEquals(800, windowPrice(new PricingRules.TimeWindow("Early bird", null, inAnHour, -20)));
+        assertEquals(800, windowPrice(new PricingRules.TimeWindow("Open", hourAgo, inAnHour, -20)));
+        assertEquals(FLOOR, windowPrice(new PricingRules.TimeWindow("Ended", null, hourAgo, -20)));
+        assertEquals(FLOOR, windowPrice(new PricingRules.TimeWindow("Later", inAnHour, null, -20)));
+        assertEquals(800, windowPrice(new PricingRules.TimeWindow("First", hourAgo, null, -20),
+                new PricingRules.TimeWindow("Second", null, inAnHour, 50))); // the first matching window applies
+    }
+
+    @Test
+    void surgeAndWindowMarkupsCombine() {
+        String inAnHour = Instant.now().plus(1, ChronoUnit.HOURS).toString();
+        PricingRules rules = new PricingRules(List.of(new PricingRules.Section("Floor", TOTAL, 999)),
+                List.of(new PricingRules.SurgeTier(0, 15)), List.of(new PricingRules.TimeWindow("Late", null, inAnHour, 10)));
+        PriceSchedule schedule = new PriceSchedule(rules, 0, TOTAL, () -> 0);
+
+        assertEquals(1, schedule.getDemandBucket()); // a 0% tier applies from the first sale
+        assertEquals(1_264, schedule.price(1)); // 999 * 1.15 = 1148.85, rounded to 1149, then * 1.10 = 1263.9
+    }
+
+    @Test
+    void invalidRulesAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> schedule(new PricingRules(
+                List.of(new PricingRules.Section("Empty", 0, FLOOR)), null, null)));
+        assertThrows(IllegalArgumentException.class, () -> schedule(new PricingRules(
+                SECTIONS, List.of(new PricingRules.SurgeTier(101, 10)), null)));
+        assertThrows(IllegalArgumentException.class, () -> schedule(new PricingRules(
+                SECTIONS, List.of(new PricingRules.SurgeTier(50, -100)), null)));
+        assertThrows(IllegalArgumentException.class, () -> schedule(new PricingRules(
+                SECTIONS, null, List.of(new PricingRules.TimeWindow("Bad", "tomorrow", null, 10)))));
+    }
+
+    private static long windowPrice(PricingRules.TimeWindow... windows) {
+        return schedule(new PricingRules(SECTIONS, null, List.of(windows))).price(1);
+    }
+
+    private static PriceSchedule schedule(PricingRules rules) {
+        return new PriceSchedule(rules, 0, TOTAL, () -> 0);
+    }
+}
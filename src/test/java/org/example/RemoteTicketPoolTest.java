@@ -0,0 +1,162 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Vendors and customers sharing one pool over PoolServer connections sell every ticket exactly once, and
+ * requests the client rejects or answers locally never put the connection out of step with the server.
+ * Purchases that are abandoned, and clients that disconnect, give back their claims and unsent tickets.
+ */
+class RemoteTicketPoolTest {
+    private static final int TOTAL = 10_000;
+
+    @ParameterizedTest
+    @EnumSource(PoolEngineType.class)
+    void everyTicketIsSoldOnceOverTheWire(PoolEngineType engine) throws Exception {
+        Configuration config = new Configuration(0, 0, 16, TOTAL);
+        config.setPoolEngine(engine);
+        EventInventory inventory = EventInventory.fromConfiguration(config);
+        AtomicIntegerArray sales = new AtomicIntegerArray(TOTAL + 1);
+        List<Throwable> failures = new CopyOnWriteArrayList<>();
+
+        try (PoolServer server = new PoolServer(inventory, 0)) {
+            server.start();
+            RemoteTicketPool vendors = new RemoteTicketPool("127.0.0.1", server.getPort(), EventConfiguration.DEFAULT_EVENT_ID);
+            RemoteTicketPool customers = new RemoteTicketPool("127.0.0.1", server.getPort(), EventConfiguration.DEFAULT_EVENT_ID);
+            try {
+                List<Thread> threads = new ArrayList<>();
+                for (int v = 0; v < 2; v++) {
+                    threads.add(TicketPoolTest.start(failures, () -> {
+                        List<Ticket> tickets;
+                        while (!(tickets = vendors.createTickets(7)).isEmpty()) {
+                            int added = 0;
+                            while (added < tickets.size()) {
+                                added += vendors.addTickets(tickets.subList(added, tickets.size()));
+                            }
+                        }
+                    }));
+                }
+                for (int c = 0; c < 4; c++) {
+                    String customerID = "C" + c;
+                    threads.add(TicketPoolTest.start(failures, () -> {
+                        List<Ticket> bought;
+                        while (!(bought = customers.purchase(customerID, 3)).isEmpty()) {
+                            for (Ticket ticket : bought) {
+                                sales.incrementAndGet(ticket.getTicketId());
+                            }
+                        }
+                    }));
+                }
+                TicketPoolTest.join(threads, failures);
+            } finally {
+                vendors.close();
+                customers.close();
+            }
+        }
+
+        TicketPoolTest.assertSoldOnce(sales, TOTAL);
+        assertEquals(0, inventory.getPool(EventConfiguration.DEFAULT_EVENT_ID).getTicketsSize());
+    }
+
+    @Test
+    void rejectedRequestsLeaveTheConnectionInStep() throws Exception {
+        EventInventory inventory = EventInventory.fromConfiguration(new Configuration(0, 0, 10, 100));
+        try (PoolServer server = new PoolServer(inventory, 0)) {
+            server.start();
+            RemoteTicketPool pool = new RemoteTicketPool("127.0.0.1", server.getPort(), EventConfiguration.DEFAULT_EVENT_ID);
+            try {
+                assertEquals(0, pool.claimTickets("C1", -1));
+                assertTrue(pool.removeTickets("C1", 0).isEmpty());
+                assertTrue(pool.purchase("C1", -5).isEmpty());
+                assertTrue(pool.createTickets(0).isEmpty());
+                assertThrows(NullPointerException.class, () -> pool.claimTickets(null, 1));
+                assertThrows(NullPointerException.class, () -> pool.removeTickets(null, 1));
+
+                List<Ticket> released = pool.createTickets(3);
+                assertEquals(3, pool.addTickets(released));
+                List<Ticket> bought = pool.purchase("C1", 2);
+                assertEquals(2, bought.size());
+                assertEquals(released.get(0).getTicketId(), bought.get(0).getTicketId());
+                assertEquals(2, inventory.getPool(EventConfiguration.DEFAULT_EVENT_ID).getSalesClaimed());
+            } finally {
+                pool.close();
+            }
+        }
+    }
+
+    @Test
+    void interruptedPurchaseKeepsItsTicketsAndGivesBackTheRest() throws Exception {
+        EventInventory inventory = EventInventory.fromConfiguration(new Configuration(0, 0, 10, 10));
+        TicketPool local = inventory.getPool(EventConfiguration.DEFAULT_EVENT_ID);
+        local.releaseTickets("V1", 2);
+        List<Ticket> bought = new CopyOnWriteArrayList<>();
+        boolean[] interrupted = new boolean[1];
+        List<Throwable> failures = new CopyOnWriteArrayList<>();
+
+        try (PoolServer server = new PoolServer(inventory, 0)) {
+            server.start();
+            RemoteTicketPool pool = new RemoteTicketPool("127.0.0.1", server.getPort(), EventConfiguration.DEFAULT_EVENT_ID);
+            try {
+                Thread customer = TicketPoolTest.start(failures, () -> {
+                    bought.addAll(pool.purchase("C1", 5)); // two are there, the other three never come
+                    interrupted[0] = Thread.currentThread().isInterrupted();
+                });
+                awaitTrue(() -> local.getAccounting().getTicketsSold() == 2, "the first tickets were not sold");
+                customer.interrupt();
+                TicketPoolTest.join(List.of(customer), failures);
+
+                assertEquals(2, bought.size());
+                assertTrue(interrupted[0], "the interrupt was cleared");
+                assertEquals(2, local.getSalesClaimed());
+                assertEquals(8, pool.claimTickets("C2", 10));
+            } finally {
+                pool.close();
+            }
+        }
+    }
+
+    @Test
+    void disconnectedClientGivesBackClaimsAndUnsentTickets() throws Exception {
+        EventInventory inventory = EventInventory.fromConfiguration(new Configuration(0, 0, 10, 10));
+        TicketPool local = inventory.getPool(EventConfiguration.DEFAULT_EVENT_ID);
+        List<Throwable> failures = new CopyOnWriteArrayList<>();
+
+        try (PoolServer server = new PoolServer(inventory, 0)) {
+            server.start();
+            RemoteTicketPool pool = new RemoteTicketPool("127.0.0.1", server.getPort(), EventConfiguration.DEFAULT_EVENT_ID);
+            assertEquals(4, pool.claimTickets("C1", 4));
+            Thread customer = TicketPoolTest.start(failures, () -> {
+                assertThrows(RuntimeException.class, () -> pool.removeTickets("C1", 4)); // waits on the server until closed
+            });
+            awaitTrue(() -> customer.getState() == Thread.State.WAITING, "the removal did not start waiting");
+            pool.close();
+            TicketPoolTest.join(List.of(customer), failures);
+
+            awaitTrue(() -> local.getSalesClaimed() == 0, "the claims of the closed connection were not given back");
+            assertEquals(3, local.releaseTickets("V1", 3)); // may reach the server's waiting removal after the client left
+            awaitTrue(() -> local.getTicketsHeld() == 0 && local.getTicketsSize() == 3, "tickets were stranded");
+            assertEquals(0, local.getAccounting().getTicketsSold());
+            assertEquals(10, local.claimTickets("C2", 10));
+        }
+    }
+
+    private static void awaitTrue(BooleanSupplier condition, String message) throws InterruptedException {
+        long deadline = System.nanoTime() + 10_000_000_000L;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, message);
+            Thread.sleep(1);
+        }
+    }
+}
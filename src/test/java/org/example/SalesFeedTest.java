@@ -0,0 +1,154 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Flow;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * What each overflow policy does with the events of a subscriber that has fallen behind, and that a
+ * closed feed still delivers what it buffered. Delivery loops run only when the test runs them, so the
+ * subscriber is exactly as far behind as the test makes it.
+ */
+class SalesFeedTest {
+    private static final int BUFFER = 4;
+    private static final int SALES = 10;
+    private static final long PRICE = 4_500;
+
+    @Test
+    void bufferKeepsEveryEvent() {
+        Feed feed = new Feed(FeedOverflow.BUFFER);
+        feed.sellOneByOne(SALES);
+        feed.catchUp();
+
+        assertEquals(SALES, feed.received.size());
+        for (int i = 0; i < SALES; i++) {
+            assertEquals(SaleEvent.Type.SOLD, feed.received.get(i).getType());
+            assertArrayEquals(new int[]{i + 1}, feed.received.get(i).getTicketIds());
+        }
+        assertEquals(0, feed.feed.getEventsDropped());
+        assertEquals(0, feed.feed.getEventsCoalesced());
+    }
+
+    @Test
+    void dropKeepsTheOldestEventsAndCountsTheRest() {
+        Feed feed = new Feed(FeedOverflow.DROP);
+        feed.sellOneByOne(SALES);
+        feed.catchUp();
+
+        assertEquals(BUFFER, feed.received.size());
+        for (int i = 0; i < BUFFER; i++) {
+            assertArrayEquals(new int[]{i + 1}, feed.received.get(i).getTicketIds());
+        }
+        assertEquals(SALES - BUFFER, feed.feed.getEventsDropped());
+        assertEquals(SALES, feed.feed.getEventsPublished());
+
+        feed.sellOneByOne(1); // caught up: buffered again
+        feed.catchUp();
+        assertEquals(BUFFER + 1, feed.received.size());
+        assertEquals(SaleEvent.Type.SOLD, feed.received.get(BUFFER).getType());
+    }
+
+    @Test
+    void coalesceKeepsCountsAndRevenueInASummary() {
+        Feed feed = new Feed(FeedOverflow.COALESCE);
+        feed.sellOneByOne(SALES);
+        feed.catchUp();
+
+        assertEquals(BUFFER, feed.received.size());
+        for (int i = 0; i < BUFFER - 1; i++) {
+            assertEquals(SaleEvent.Type.SOLD, feed.received.get(i).getType());
+        }
+        SaleEvent summary = feed.received.get(BUFFER - 1);
+        assertEquals(SaleEvent.Type.SUMMARY, summary.getType());
+        assertEquals(SALES - BUFFER + 1, summary.getTicketsSold());
+        assertEquals((SALES - BUFFER + 1) * PRICE, summary.getRevenue());
+        assertEquals(0, summary.getTicketIds().length);
+        assertEquals(SALES - BUFFER, feed.feed.getEventsCoalesced());
+
+        int sold = 0;
+        long revenue = 0;
+        for (SaleEvent event : feed.received) {
+            sold += event.getTicketsSold();
+            revenue += event.getRevenue();
+        }
+        assertEquals(SALES, sold);
+        assertEquals(SALES * PRICE, revenue);
+    }
+
+    @Test
+    void closeDeliversTheBufferThenCompletes() {
+        Feed feed = new Feed(FeedOverflow.DROP);
+        feed.sellOneByOne(2);
+        feed.feed.close();
+        assertFalse(feed.completed, "completed before the buffer was delivered");
+        feed.catchUp();
+
+        assertEquals(2, feed.received.size());
+        assertTrue(feed.completed, "not completed");
+        assertEquals(0, feed.feed.getSubscriberCount());
+    }
+
+    /**
+     * A feed with one subscriber that requests nothing until catchUp, run on a manual executor.
+     */
+    private static final class Feed implements Flow.Subscriber<List<SaleEvent>> {
+        private final ArrayDeque<Runnable> tasks = new ArrayDeque<>();
+        private final SalesFeed feed;
+        private final List<SaleEvent> received = new ArrayList<>();
+        private Flow.Subscription subscription;
+        private boolean completed;
+        private int nextId = 1;
+
+        private Feed(FeedOverflow overflow) {
+            feed = new SalesFeed("E1", BUFFER, overflow, tasks::add);
+            feed.subscribe(this);
+            runTasks(); // onSubscribe
+        }
+
+        private void sellOneByOne(int n) {
+            for (int i = 0; i < n; i++) {
+                feed.ticketsSold(null, List.of(new Ticket(nextId++, "Gig", PRICE)));
+            }
+        }
+
+        private void catchUp() {
+            subscription.request(Long.MAX_VALUE);
+            runTasks();
+        }
+
+        private void runTasks() {
+            Runnable task;
+            while ((task = tasks.poll()) != null) {
+                task.run();
+            }
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+        }
+
+        @Override
+        public void onNext(List<SaleEvent> batch) {
+            received.addAll(batch);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            throw new AssertionError(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            completed = true;
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package org.example;
+
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Journal round trips for every durability: replaying a journal into fresh pools puts back exactly the
+ * tickets released and not sold, continues the release count and leaves one sale permit per unsold ticket.
+ */
+class SalesJournalTest {
+
+    @TempDir
+    Path dir;
+
+    @ParameterizedTest
+    @EnumSource(JournalDurability.class)
+    void replayRestoresExactlyTheUnsoldTickets(JournalDurability durability) throws Exception {
+        Configuration config = new Configuration(0, 0, 100, 0);
+        config.setEvents(List.of(new EventConfiguration("A", "Alpha", 100, 1_000),
+                new EventConfiguration("B", "Beta", 50, 500, 2_500)));
+        Path file = dir.resolve("sales-" + durability + ".journal");
+
+        EventInventory inventory = EventInventory.fromConfiguration(config);
+        BitSet soldA = new BitSet();
+        BitSet soldB = new BitSet();
+        try (SalesJournal journal = SalesJournal.open(file, durability, 5)) {
+            for (TicketPool pool : inventory.getPools()) {
+                pool.addListener(journal);
+            }
+            sell(inventory.getPool("A"), 90, 60, soldA);
+            sell(inventory.getPool("B"), 50, 42, soldB);
+            TicketPool b = inventory.getPool("B");
+            b.claimTickets("C", 3);
+            Reservation reservation = b.hold("C", 3, 1, TimeUnit.MINUTES);
+            assertTrue(reservation.confirm());
+            for (Ticket ticket : reservation.getTickets()) {
+                soldB.set(ticket.getTicketId());
+            }
+            b.createTickets("V", 5); // claimed by a vendor that crashed before its release reached the journal
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.APPEND)) {
+            channel.write(ByteBuffer.wrap(new byte[]{2, 0, 0})); // a record torn by the crash
+        }
+
+        EventInventory replayed = EventInventory.fromConfiguration(config);
+        try (SalesJournal journal = SalesJournal.open(file, durability, 5)) {
+            assertEquals(30 + 5, journal.replay(replayed));
+        }
+
+        TicketPool a = replayed.getPool("A");
+        assertEquals(90, a.getAccounting().getReleasesClaimed());
+        assertUnsold(a, 90, soldA);
+        assertEquals(1_000 - 60, a.getAccounting().getSalesRemaining());
+
+        TicketPool b = replayed.getPool("B");
+        assertEquals(50, b.getAccounting().getReleasesClaimed());
+        assertUnsold(b, 50, soldB);
+        assertEquals(500 - 45, b.getAccounting().getSalesRemaining());
+        Ticket next = b.createTickets("V", 1).get(0);
+        assertEquals(51, next.getTicketId()); // the unjournaled release is made again
+        assertEquals(2_500, next.getPriceMinorUnits());
+    }
+
+    /**
+     * Releases the first tickets of the pool and sells some of them, recording the IDs sold.
+     */
+    private static void sell(TicketPool pool, int release, int sell, BitSet sold) {
+        List<Ticket> tickets = pool.createTickets("V", release);
+        int added = 0;
+        while (added < tickets.size()) {
+            added += pool.addTickets(tickets.subList(added, tickets.size()));
+        }
+        pool.claimTickets("C", sell);
+        for (Ticket ticket : pool.removeTickets("C", sell)) {
+            sold.set(ticket.getTicketId());
+        }
+    }
+
+    private static void assertUnsold(TicketPool pool, int released, BitSet sold) {
+        List<Integer> expected = new ArrayList<>();
+        for (int id = 1; id <= released; id++) {
+            if (!sold.get(id)) {
+                expected.add(id);
+            }
+        }
+        List<Integer> actual = new ArrayList<>();
+        for (int id : pool.getTicketIds()) {
+            actual.add(id);
+        }
+        actual.sort(null);
+        assertEquals(expected, actual);
+    }
+}
@@ -0,0 +1,218 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Invariants of a pool under concurrent vendors and customers, for every engine: each ticket ID is sold
+ * exactly once, and sale permits are neither lost nor handed out twice, including through holds.
+ */
+class TicketPoolTest {
+    private static final int TOTAL = 20_000;
+    private static final int CAPACITY = 64;
+    private static final int VENDORS = 2;
+    private static final int CUSTOMERS = 4;
+
+    @ParameterizedTest
+    @EnumSource(PoolEngineType.class)
+    void everyTicketIsSoldExactlyOnce(PoolEngineType engine) throws InterruptedException {
+        TicketPool pool = new TicketPool(CAPACITY, TOTAL, engine);
+        AtomicIntegerArray sales = new AtomicIntegerArray(TOTAL + 1);
+        List<Throwable> failures = new CopyOnWriteArrayList<>();
+
+        List<Thread> threads = startVendors(pool, failures);
+        for (int c = 0; c < CUSTOMERS; c++) {
+            String customerID = "C" + c;
+            threads.add(start(failures, () -> {
+                int group;
+                while ((group = pool.claimTickets(customerID, 1 + ThreadLocalRandom.current().nextInt(4))) > 0) {
+                    int bought = 0;
+                    while (bought < group) {
+                        for (Ticket ticket : pool.removeTickets(customerID, group - bought)) {
+                            sales.incrementAndGet(ticket.getTicketId());
+                            bought++;
+                        }
+                    }
+                }
+            }));
+        }
+        join(threads, failures);
+
+        assertSoldOnce(sales, TOTAL);
+        assertEquals(TOTAL, pool.getAccounting().getTicketsSold());
+        assertEquals(0, pool.getTicketsSize());
+        assertTrue(pool.getAccounting().isSoldOut());
+    }
+
+    @ParameterizedTest
+    @EnumSource(PoolEngineType.class)
+    void holdsThatEndWithoutASaleGiveTheirPermitsBack(PoolEngineType engine) throws InterruptedException {
+        TicketPool pool = new TicketPool(CAPACITY, TOTAL / 4, engine);
+        AtomicIntegerArray sales = new AtomicIntegerArray(TOTAL / 4 + 1);
+        List<Throwable> failures = new CopyOnWriteArrayList<>();
+
+        List<Thread> threads = startVendors(pool, failures);
+        for (int c = 0; c < CUSTOMERS; c++) {
+            String customerID = "C" + c;
+            threads.add(start(failures, () -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                while (true) {
+                    int group = pool.claimTickets(customerID, 1 + random.nextInt(4));
+                    if (group == 0) {
+                        if (pool.getTicketsHeld() == 0 && pool.getAccounting().isSoldOut()) {
+                            return; // nothing held can come back, so nothing is left to buy
+                        }
+                        Thread.onSpinWait();
+                        continue;
+                    }
+                    Reservation reservation = pool.hold(customerID, group, 1, TimeUnit.MILLISECONDS);
+                    switch (random.nextInt(3)) {
+                        case 0:
+                            reservation.release();
+                            break;
+                        case 1:
+                            break; // left to expire
+                        default:
+                            if (reservation.confirm()) {
+                                for (Ticket ticket : reservation.getTickets()) {
+                                    sales.incrementAndGet(ticket.getTicketId());
+                                }
+                            }
+                    }
+                }
+            }));
+        }
+        join(threads, failures);
+
+        assertSoldOnce(sales, TOTAL / 4);
+        assertEquals(0, pool.getTicketsHeld());
+        assertEquals(TOTAL / 4, pool.getSalesClaimed());
+    }
+
+    @Test
+    void purchaseLimitCapsEveryCustomerAndReturnedClaimsCountAgain() {
+        TicketPool pool = new TicketPool(10, 100);
+        pool.setPurchaseLimit(3);
+
+        assertEquals(2, pool.claimTickets("A", 2));
+        assertEquals(1, pool.claimTickets("A", 5));
+        assertEquals(0, pool.claimTickets("A", 1));
+        assertTrue(pool.reachedPurchaseLimit("A"));
+
+        pool.returnClaims("A", 2);
+        assertEquals(1, pool.getTicketsClaimedBy("A"));
+        assertEquals(1, pool.getSalesClaimed());
+        assertEquals(2, pool.claimTickets("A", 5));
+    }
+
+    @Test
+    void salesAreCreditedToTheCustomerPassedWhicheverThreadMakesThem() throws InterruptedException {
+        TicketPool pool = new TicketPool(100, 100);
+        List<String> buyers = new CopyOnWriteArrayList<>();
+        pool.addListener(new TicketPoolListener() {
+            @Override
+            public void ticketReleased(TicketPool pool, Ticket ticket) {
+            }
+
+            @Override
+            public void ticketSold(TicketPool pool, Ticket ticket) {
+            }
+
+            @Override
+            public void ticketSold(TicketPool pool, String customerID, Ticket ticket) {
+                buyers.add(customerID);
+            }
+
+            @Override
+            public void ticketsSold(TicketPool pool, String customerID, List<Ticket> tickets) {
+                buyers.add(customerID);
+            }
+        });
+        pool.addTickets(pool.createTickets("V1", 10));
+
+        pool.claimTickets("A", 1);
+        pool.claimTickets("B", 1);
+        pool.drainTo("A", new ArrayList<>(), 1); // B claimed last on this thread, A bought
+        pool.claimTickets("C", 2);
+        Reservation reservation = pool.hold("C", 2, 1, TimeUnit.MINUTES);
+        pool.claimTickets("D", 1);
+        Thread confirming = new Thread(reservation::confirm);
+        confirming.start();
+        confirming.join();
+        pool.removeTickets();
+
+        assertEquals(List.of("A", "C", ""), buyers.stream().map(id -> id == null ? "" : id).toList());
+    }
+
+    @Test
+    void restoredTicketsBeyondTheCapacityAreAllSold() {
+        TicketPool pool = new TicketPool(10, 25);
+        List<Ticket> unsold = new ArrayList<>();
+        for (int id = 1; id <= 25; id++) {
+            unsold.add(new Ticket(id, "Event", 100));
+        }
+        assertEquals(25, pool.restore(unsold, 25, 0));
+
+        AtomicIntegerArray sales = new AtomicIntegerArray(26);
+        while (pool.claimTickets(1) == 1) {
+            sales.incrementAndGet(pool.removeTickets().getTicketId()); // waits for the tickets put back as space frees up
+        }
+        assertSoldOnce(sales, 25);
+    }
+
+    private static List<Thread> startVendors(TicketPool pool, List<Throwable> failures) {
+        List<Thread> vendors = new ArrayList<>();
+        for (int v = 0; v < VENDORS; v++) {
+            String vendorID = "V" + v;
+            vendors.add(start(failures, () -> {
+                List<Ticket> tickets;
+                while (!(tickets = pool.createTickets(vendorID, 1 + ThreadLocalRandom.current().nextInt(8))).isEmpty()) {
+                    int added = 0;
+                    while (added < tickets.size()) {
+                        added += pool.addTickets(tickets.subList(added, tickets.size()));
+                    }
+                }
+            }));
+        }
+        return vendors;
+    }
+
+    static Thread start(List<Throwable> failures, Runnable task) {
+        Thread thread = new Thread(() -> {
+            try {
+                task.run();
+            } catch (Throwable e) {
+                failures.add(e);
+            }
+        });
+        thread.setDaemon(true);
+        thread.start();
+        return thread;
+    }
+
+    static void join(List<Thread> threads, List<Throwable> failures) throws InterruptedException {
+        for (Thread thread : threads) {
+            thread.join(TimeUnit.SECONDS.toMillis(60));
+            assertTrue(!thread.isAlive(), "a vendor or customer is stuck waiting");
+        }
+        assertEquals(List.of(), failures);
+    }
+
+    static void assertSoldOnce(AtomicIntegerArray sales, int total) {
+        for (int id = 1; id <= total; id++) {
+            int ticketId = id;
+            assertEquals(1, sales.get(id), () -> "sales of ticket " + ticketId);
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Waiters in the waiting rooms are woken as soon as they have been handed at least one ticket or slot,
+ * like takeAll and putAll of the other engines, and are served oldest first.
+ */
+class WaitingRoomPoolEngineTest {
+
+    @Test
+    void customerWakesWithPartOfItsGroup() throws InterruptedException {
+        TicketPool pool = new TicketPool(8, 2, PoolEngineType.WAITING_ROOM);
+        List<Ticket> bought = new CopyOnWriteArrayList<>();
+        List<Throwable> failures = new CopyOnWriteArrayList<>();
+
+        Thread customer = TicketPoolTest.start(failures, () -> bought.addAll(pool.removeTickets("C1", 5)));
+        awaitParked(customer);
+        assertEquals(2, pool.releaseTickets("V1", 8)); // all there will ever be, fewer than the group
+        TicketPoolTest.join(List.of(customer), failures);
+
+        assertEquals(2, bought.size());
+        assertEquals(1, bought.get(0).getTicketId());
+        assertEquals(2, bought.get(1).getTicketId());
+    }
+
+    @Test
+    void headCustomerIsServedFirstAndTheNextGetsTheRest() throws InterruptedException {
+        WaitingRoomPoolEngine engine = new WaitingRoomPoolEngine(8);
+        List<Ticket> first = new CopyOnWriteArrayList<>();
+        List<Ticket> second = new CopyOnWriteArrayList<>();
+        List<Throwable> failures = new CopyOnWriteArrayList<>();
+
+        Thread head = TicketPoolTest.start(failures, () -> take(engine, first, 3));
+        awaitParked(head);
+        Thread next = TicketPoolTest.start(failures, () -> take(engine, second, 2));
+        awaitParked(next);
+        assertEquals(4, engine.offerAll(tickets(1, 4), 0));
+        TicketPoolTest.join(List.of(head, next), failures);
+
+        assertEquals(List.of(1, 2, 3), ids(first));
+        assertEquals(List.of(4), ids(second));
+        assertEquals(0, engine.size());
+    }
+
+    @Test
+    void vendorWakesOnceSomeOfItsBatchFits() throws InterruptedException {
+        WaitingRoomPoolEngine engine = new WaitingRoomPoolEngine(2);
+        engine.offerAll(tickets(1, 2), 0);
+        int[] added = new int[1];
+        List<Throwable> failures = new CopyOnWriteArrayList<>();
+
+        Thread vendor = TicketPoolTest.start(failures, () -> {
+            try {
+                added[0] = engine.putAll(tickets(3, 3), 0);
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        awaitParked(vendor);
+        List<Ticket> sold = new ArrayList<>();
+        assertEquals(1, engine.drainTo(sold, 1));
+        TicketPoolTest.join(List.of(vendor), failures);
+
+        assertEquals(1, added[0]);
+        sold.clear();
+        assertEquals(2, engine.drainTo(sold, 8));
+        assertEquals(List.of(2, 3), ids(sold));
+    }
+
+    private static void take(WaitingRoomPoolEngine engine, List<Ticket> sink, int max) {
+        try {
+            engine.takeAll(sink, max);
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Waits until the thread is parked in a waiting room.
+     */
+    private static void awaitParked(Thread thread) {
+        while (!(LockSupport.getBlocker(thread) instanceof WaitingRoomPoolEngine)) {
+            Thread.onSpinWait();
+        }
+    }
+
+    private static List<Ticket> tickets(int firstId, int n) {
+        List<Ticket> tickets = new ArrayList<>(n);
+        for (int id = firstId; id < firstId + n; id++) {
+            tickets.add(new Ticket(id, "Gig", 4_500));
+        }
+        return tickets;
+    }
+
+    private static List<Integer> ids(List<Ticket> tickets) {
+        List<Integer> ids = new ArrayList<>(tickets.size());
+        for (Ticket ticket : tickets) {
+            ids.add(ticket.getTicketId());
+        }
+        return ids;
+    }
+}